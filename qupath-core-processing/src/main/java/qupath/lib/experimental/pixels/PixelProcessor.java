@@ -294,6 +294,12 @@ public class PixelProcessor<S, T, U> {
         public String getLastResultsDescription() {
             return "Completed " + pathObject;
         }
+
+        @Override
+        public double getSizeEstimate() {
+            var roi = parentProxy != null ? parentProxy.getROI() : pathObject.getROI();
+            return roi == null ? Double.NaN : roi.getArea();
+        }
     }
 
     /**
@@ -26,6 +26,7 @@ package qupath.lib.scripting;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
@@ -3118,6 +3119,13 @@ public class QP {
 	 * @throws IOException
 	 */
 	public static boolean importObjectsFromFile(String path) throws FileNotFoundException, IllegalArgumentException, IOException, ClassNotFoundException {
+		// Stream uncompressed GeoJSON directly into the hierarchy, to avoid holding all the JSON in memory
+		String name = path.toLowerCase();
+		if (name.endsWith(".json") || name.endsWith(".geojson")) {
+			try (var stream = new FileInputStream(path)) {
+				return PathIO.importObjectsFromGeoJSON(stream, getCurrentHierarchy()) > 0;
+			}
+		}
 		var objs = PathIO.readObjects(new File(path));
 		return getCurrentHierarchy().addObjects(objs);
 	}
@@ -0,0 +1,90 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.opencv.ml.pixel;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+
+import qupath.lib.classifiers.pixel.PixelClassifier;
+import qupath.lib.classifiers.pixel.PixelClassifierMetadata;
+import qupath.lib.images.ImageData;
+import qupath.lib.images.servers.PixelCalibration;
+import qupath.lib.regions.RegionRequest;
+
+/**
+ * A {@link PixelClassifier} that applies another classifier at a lower resolution.
+ * <p>
+ * This is used to create a cheap, coarse classification for coarse-to-fine measurements. 
+ * Note that any filters used by the wrapped classifier are applied at the lower resolution, 
+ * so the result is an approximation of downsampling the full-resolution classification.
+ * 
+ * @author Pete Bankhead
+ * @since v0.7.0
+ */
+class DownsampledPixelClassifier implements PixelClassifier {
+	
+	private final PixelClassifier classifier;
+	private final PixelClassifierMetadata metadata;
+	
+	/**
+	 * Constructor.
+	 * @param classifier the classifier to wrap
+	 * @param inputResolution the (lower) resolution at which the classifier should be applied
+	 */
+	DownsampledPixelClassifier(PixelClassifier classifier, PixelCalibration inputResolution) {
+		this.classifier = classifier;
+		var original = classifier.getMetadata();
+		var builder = new PixelClassifierMetadata.Builder()
+				.inputResolution(inputResolution)
+				.inputPadding(original.getInputPadding())
+				.setChannelType(original.getOutputType())
+				.inputShape(original.getInputWidth(), original.getInputHeight())
+				.outputPixelType(original.getOutputPixelType())
+				.outputChannels(original.getOutputChannels());
+		var labels = original.getClassificationLabels();
+		if (!labels.isEmpty())
+			builder.classificationLabels(labels);
+		this.metadata = builder.build();
+	}
+
+	@Override
+	public boolean supportsImage(ImageData<BufferedImage> imageData) {
+		return classifier.supportsImage(imageData);
+	}
+
+	@Override
+	public BufferedImage applyClassification(ImageData<BufferedImage> imageData, RegionRequest request) throws IOException {
+		return classifier.applyClassification(imageData, request);
+	}
+	
+	@Override
+	public List<BufferedImage> batchApplyClassification(ImageData<BufferedImage> imageData, List<RegionRequest> requests) throws IOException {
+		return classifier.batchApplyClassification(imageData, requests);
+	}
+
+	@Override
+	public PixelClassifierMetadata getMetadata() {
+		return metadata;
+	}
+
+}
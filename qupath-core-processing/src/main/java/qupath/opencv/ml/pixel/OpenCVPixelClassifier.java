@@ -25,7 +25,9 @@ import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import qupath.lib.classifiers.pixel.PixelClassifier;
@@ -40,6 +42,7 @@ import qupath.opencv.tools.OpenCVTools;
 
 import org.bytedeco.javacpp.PointerScope;
 import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.opencv_core.Mat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -102,34 +105,53 @@ class OpenCVPixelClassifier implements PixelClassifier, UriResource {
     	try (@SuppressWarnings("unchecked")
 		var scope = new PointerScope()) {
 	    	var matResult = getOp().apply(imageData, request);
-
-	    	var type = getMetadata().getOutputType();
-	    	ColorModel colorModelLocal = null;
-	    	if (type == null)
-	    		type = ChannelType.DEFAULT;
-	    	switch(type) {
-			case CLASSIFICATION:
-	    		colorModelLocal = getClassificationsColorModel();
-				break;
-			case DEFAULT:
-			case DENSITY:
-			case FEATURE:
-			case MULTICLASS_PROBABILITY:
-			case PROBABILITY:
-			default:
-	    		colorModelLocal = getProbabilityColorModel(matResult.depth() == opencv_core.CV_8U);
-				break;
-	    	}
-	
-	        // Create & return BufferedImage
-	        BufferedImage imgResult = OpenCVTools.matToBufferedImage(matResult, colorModelLocal);
-	
-	        return imgResult;
+	    	return toBufferedImage(matResult);
     	} finally {
 //        	System.gc(); // Shouldn't be needed if deallocate is used?
 //    		logger.debug("After: \n" + OpenCVTools.memoryReport(", "));
     	}
     }
+    
+    /**
+     * Apply the classifier to several regions, passing them to the op as a single batch.
+     * This can be much faster than classifying regions individually if the op uses a deep learning model.
+     */
+    @Override
+    public List<BufferedImage> batchApplyClassification(final ImageData<BufferedImage> imageData, final List<RegionRequest> requests) throws IOException {
+    	if (requests.size() <= 1)
+    		return PixelClassifier.super.batchApplyClassification(imageData, requests);
+    	try (@SuppressWarnings("unchecked")
+		var scope = new PointerScope()) {
+    		var mats = getOp().batchApply(imageData, requests);
+    		List<BufferedImage> results = new ArrayList<>(mats.size());
+    		for (var mat : mats)
+    			results.add(toBufferedImage(mat));
+    		return results;
+    	}
+    }
+    
+    private BufferedImage toBufferedImage(Mat matResult) {
+    	var type = getMetadata().getOutputType();
+    	ColorModel colorModelLocal = null;
+    	if (type == null)
+    		type = ChannelType.DEFAULT;
+    	switch(type) {
+		case CLASSIFICATION:
+    		colorModelLocal = getClassificationsColorModel();
+			break;
+		case DEFAULT:
+		case DENSITY:
+		case FEATURE:
+		case MULTICLASS_PROBABILITY:
+		case PROBABILITY:
+		default:
+    		colorModelLocal = getProbabilityColorModel(matResult.depth() == opencv_core.CV_8U);
+			break;
+    	}
+
+        // Create & return BufferedImage
+        return OpenCVTools.matToBufferedImage(matResult, colorModelLocal);
+    }
 
 	@Override
 	public Collection<URI> getURIs() throws IOException {
@@ -35,7 +35,9 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -85,6 +87,8 @@ public class PixelClassificationMeasurementManager {
 	private static final Map<ImageServer<BufferedImage>, Map<ROI, MeasurementList>> measuredROIs = Collections.synchronizedMap(new WeakHashMap<>());
 	
 	private final ImageServer<BufferedImage> classifierServer;
+	private final ImageServer<BufferedImage> coarseServer;
+	private final double maxAreaError;
 	private List<String> measurementNames = null;
 	
 	private ROI rootROI = null; // ROI for the Root object, if required
@@ -102,10 +106,46 @@ public class PixelClassificationMeasurementManager {
 	 * @param classifierServer the server for which measurements will be made.
 	 */
 	public PixelClassificationMeasurementManager(ImageServer<BufferedImage> classifierServer) {
+		this(classifierServer, null, 0);
+	}
+	
+	/**
+	 * Constructor for coarse-to-fine measurements.
+	 * <p>
+	 * Tiles of the classifier server are first estimated from a coarse classification at a lower resolution. 
+	 * Coarse pixels that have a neighbor with a different classification are considered uncertain, and tiles 
+	 * are then requested from the classifier server in order of decreasing uncertainty - until the area 
+	 * of uncertain pixels in the remaining tiles is no more than {@code maxAreaError} multiplied by the 
+	 * area of the ROI being measured.
+	 * <p>
+	 * This means that, assuming the coarse classification is correct away from class boundaries, the error 
+	 * in the area of each class is bounded by {@code maxAreaError} (as a proportion of the ROI area). 
+	 * If {@code maxAreaError} is 0, all tiles containing a class boundary are refined; only tiles that have a 
+	 * single class at the coarse resolution are estimated.
+	 * <p>
+	 * Coarse-to-fine measurements are only supported for servers with {@link ChannelType#CLASSIFICATION} output; 
+	 * for other servers the coarse server is ignored.
+	 * 
+	 * @param classifierServer the server for which measurements will be made.
+	 * @param coarseServer a server giving the same classifications as the classifier server, but at a lower resolution; 
+	 *                     if null, all measurements are made at the resolution of the classifier server
+	 * @param maxAreaError the maximum error in the area of each class, as a proportion of the area being measured
+	 * @since v0.7.0
+	 * @see PixelClassifierTools#createMeasurementManager(qupath.lib.images.ImageData, qupath.lib.classifiers.pixel.PixelClassifier, double, double)
+	 */
+	public PixelClassificationMeasurementManager(ImageServer<BufferedImage> classifierServer, ImageServer<BufferedImage> coarseServer, double maxAreaError) {
 		this.classifierServer = classifierServer;
+		if (coarseServer != null && classifierServer.getMetadata().getChannelType() != ChannelType.CLASSIFICATION) {
+			logger.warn("Coarse-to-fine measurements are only supported for classification output - coarse server will be ignored");
+			coarseServer = null;
+		}
+		this.coarseServer = coarseServer;
+		this.maxAreaError = GeneralTools.clipValue(maxAreaError, 0, 1);
+		// Coarse-to-fine measurements might differ, so need to be cached separately
+		var key = getMeasurementCacheKey();
 		synchronized (measuredROIs) {
-			if (!measuredROIs.containsKey(classifierServer))
-				measuredROIs.put(classifierServer, new HashMap<>());
+			if (!measuredROIs.containsKey(key))
+				measuredROIs.put(key, new HashMap<>());
 		}
 		
         // Calculate area of a pixel
@@ -354,7 +394,7 @@ public class PixelClassificationMeasurementManager {
 	private MeasurementList getMeasurementList(ROI roi, ExecutorService pool) {
 		if (roi == null)
 			return null;
-		var map = measuredROIs.computeIfAbsent(classifierServer, s -> new ConcurrentHashMap<>());
+		var map = measuredROIs.computeIfAbsent(getMeasurementCacheKey(), s -> new ConcurrentHashMap<>());
 		var ml = map.getOrDefault(roi, null);
 		if (ml == null) {
 			ml = calculateMeasurements(roi, pool);
@@ -365,6 +405,11 @@ public class PixelClassificationMeasurementManager {
 	}
 
 
+	private ImageServer<BufferedImage> getMeasurementCacheKey() {
+		return coarseServer == null ? classifierServer : coarseServer;
+	}
+
+
 	/**
 	 * Get the names of all measurements that may be returned.
 	 * @return
@@ -481,6 +526,28 @@ public class PixelClassificationMeasurementManager {
 				missingTiles.add(request);
 		}
 
+		// In coarse-to-fine mode, estimate tiles from the coarse classification where possible
+		if (coarseServer != null && !missingTiles.isEmpty())
+			estimateFromCoarseTiles(roi, missingTiles, localCache);
+
+		// If we need several tiles, try to classify them in batches first
+		if (missingTiles.size() > 1) {
+			try {
+				PixelClassifierTools.prefetchTiles(classifierServer, missingTiles);
+			} catch (IOException e) {
+				logger.debug("Unable to prefetch tiles: {}", e.getLocalizedMessage());
+			}
+			var iter = missingTiles.iterator();
+			while (iter.hasNext()) {
+				var request = iter.next();
+				var tile = classifierServer.getCachedTile(request);
+				if (tile != null) {
+					localCache.put(request, tile);
+					iter.remove();
+				}
+			}
+		}
+
 		// If we need non-cached tiles, create a thread pool to request them
 		Map<TileRequest, Future<BufferedImage>> requestMap = new HashMap<>();
 		if (!missingTiles.isEmpty()) {
@@ -660,6 +727,130 @@ public class PixelClassificationMeasurementManager {
     }
 
 
+	/**
+	 * Estimate tiles from the coarse classification, removing them from the list of missing tiles if they 
+	 * don't need to be refined and adding the estimates to the local cache.
+	 * Tiles with the most uncertain pixels are refined first, until the uncertain area of the remaining 
+	 * tiles is within the error bound.
+	 */
+	private void estimateFromCoarseTiles(ROI roi, List<TileRequest> missingTiles, Map<TileRequest, BufferedImage> localCache) {
+		Map<TileRequest, CoarseEstimate> estimates = new HashMap<>();
+		long totalUncertain = 0L;
+		for (var tile : missingTiles) {
+			try {
+				var estimate = createCoarseEstimate(tile);
+				estimates.put(tile, estimate);
+				totalUncertain += estimate.uncertainCount();
+			} catch (IOException e) {
+				logger.warn("Unable to read coarse classification - all tiles will be refined: {}", e.getLocalizedMessage());
+				logger.debug(e.getLocalizedMessage(), e);
+				return;
+			}
+		}
+		
+		// Determine how many uncertain pixels we can accept
+		double roiPixels = roi.isArea() ? roi.getArea() / (requestedDownsample * requestedDownsample) : 0;
+		double maxUncertain = maxAreaError * roiPixels;
+		
+		List<TileRequest> sorted = new ArrayList<>(missingTiles);
+		sorted.sort(Comparator.comparingLong((TileRequest t) -> estimates.get(t).uncertainCount()).reversed());
+		Set<TileRequest> toRefine = new HashSet<>();
+		long remainingUncertain = totalUncertain;
+		for (var tile : sorted) {
+			long n = estimates.get(tile).uncertainCount();
+			if (remainingUncertain <= maxUncertain || n == 0)
+				break;
+			toRefine.add(tile);
+			remainingUncertain -= n;
+		}
+		
+		int nTiles = missingTiles.size();
+		var iter = missingTiles.iterator();
+		while (iter.hasNext()) {
+			var tile = iter.next();
+			if (!toRefine.contains(tile)) {
+				localCache.put(tile, estimates.get(tile).image());
+				iter.remove();
+			}
+		}
+		logger.debug("Coarse-to-fine: refining {}/{} tiles ({} uncertain pixels remaining, max {})", 
+				toRefine.size(), nTiles, remainingUncertain, GeneralTools.formatNumber(maxUncertain, 1));
+	}
+	
+	/**
+	 * Estimated classification for a tile, upsampled from the coarse classification.
+	 * @param image the estimated classification, with the same size as the tile
+	 * @param uncertainCount the number of pixels within a coarse pixel at a class boundary
+	 */
+	private record CoarseEstimate(BufferedImage image, long uncertainCount) {}
+	
+	private CoarseEstimate createCoarseEstimate(TileRequest tile) throws IOException {
+		// Include a margin of one coarse pixel, so we can check for class boundaries just outside the tile
+		double coarseDownsample = coarseServer.getDownsampleForResolution(0);
+		int margin = (int)Math.ceil(coarseDownsample);
+		int x = Math.max(0, tile.getImageX() - margin);
+		int y = Math.max(0, tile.getImageY() - margin);
+		int x2 = Math.min(coarseServer.getWidth(), tile.getImageX() + tile.getImageWidth() + margin);
+		int y2 = Math.min(coarseServer.getHeight(), tile.getImageY() + tile.getImageHeight() + margin);
+		var request = RegionRequest.createInstance(coarseServer.getPath(), coarseDownsample, 
+				x, y, x2 - x, y2 - y, tile.getZ(), tile.getT());
+		var imgCoarse = coarseServer.readRegion(request);
+		
+		int w = tile.getTileWidth();
+		int h = tile.getTileHeight();
+		var img = new BufferedImage(w, h, BufferedImage.TYPE_BYTE_GRAY);
+		if (imgCoarse == null)
+			return new CoarseEstimate(img, (long)w * h);
+		
+		// Identify coarse pixels with a neighbor that has a different classification
+		var rasterCoarse = imgCoarse.getRaster();
+		int cw = rasterCoarse.getWidth();
+		int ch = rasterCoarse.getHeight();
+		int[] labels = rasterCoarse.getSamples(0, 0, cw, ch, 0, (int[])null);
+		boolean[] uncertain = new boolean[cw * ch];
+		int maxLabel = 0;
+		for (int cy = 0; cy < ch; cy++) {
+			for (int cx = 0; cx < cw; cx++) {
+				int ind = cy * cw + cx;
+				int label = labels[ind];
+				maxLabel = Math.max(maxLabel, label);
+				for (int dy = Math.max(0, cy-1); dy <= Math.min(ch-1, cy+1) && !uncertain[ind]; dy++) {
+					for (int dx = Math.max(0, cx-1); dx <= Math.min(cw-1, cx+1); dx++) {
+						if (labels[dy * cw + dx] != label) {
+							uncertain[ind] = true;
+							break;
+						}
+					}
+				}
+			}
+		}
+		if (maxLabel > 255)
+			img = new BufferedImage(w, h, BufferedImage.TYPE_USHORT_GRAY);
+		
+		// Upsample the coarse labels to the tile size, using the coarse pixel containing each pixel center
+		double downsample = tile.getDownsample();
+		double scaleX = cw / (double)(x2 - x);
+		double scaleY = ch / (double)(y2 - y);
+		int[] cxs = new int[w];
+		for (int i = 0; i < w; i++)
+			cxs[i] = GeneralTools.clipValue((int)((tile.getImageX() + (i + 0.5) * downsample - x) * scaleX), 0, cw - 1);
+		int[] row = new int[w];
+		long uncertainCount = 0L;
+		var raster = img.getRaster();
+		for (int j = 0; j < h; j++) {
+			int cy = GeneralTools.clipValue((int)((tile.getImageY() + (j + 0.5) * downsample - y) * scaleY), 0, ch - 1);
+			for (int i = 0; i < w; i++) {
+				int ind = cy * cw + cxs[i];
+				row[i] = labels[ind];
+				if (uncertain[ind])
+					uncertainCount++;
+			}
+			raster.setSamples(0, j, w, 1, 0, row);
+		}
+		return new CoarseEstimate(img, uncertainCount);
+	}
+
+
 	/**
 	 * Make a semi-educated guess as to an appropriate number of threads to use.
 	 * We lack much information about the image and pixel classifier, so this should be a fairly pessimistic
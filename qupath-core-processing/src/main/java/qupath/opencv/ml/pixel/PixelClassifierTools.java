@@ -29,10 +29,12 @@ import qupath.lib.analysis.images.ContourTracing;
 import qupath.lib.analysis.images.ContourTracing.ChannelThreshold;
 import qupath.lib.classifiers.pixel.PixelClassificationImageServer;
 import qupath.lib.classifiers.pixel.PixelClassifier;
+import qupath.lib.common.ThreadTools;
 import qupath.lib.images.ImageData;
 import qupath.lib.images.servers.ImageServer;
 import qupath.lib.images.servers.ImageServerMetadata;
 import qupath.lib.images.servers.ImageServerMetadata.ChannelType;
+import qupath.lib.images.servers.TileRequest;
 import qupath.lib.objects.DefaultPathObjectComparator;
 import qupath.lib.objects.PathObject;
 import qupath.lib.objects.PathObjectTools;
@@ -51,6 +53,7 @@ import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
 import java.awt.image.DataBuffer;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -73,6 +76,17 @@ import java.util.stream.Collectors;
 public class PixelClassifierTools {
 
     private static final Logger logger = LoggerFactory.getLogger(PixelClassifierTools.class);
+    
+    /**
+     * Maximum number of tiles to pass to a pixel classifier at once when prefetching tiles.
+     */
+    private static final int MAX_PREFETCH_BATCH_SIZE = 8;
+    
+    /**
+     * Maximum number of tiles to prefetch when creating objects, to avoid filling the tile cache 
+     * (which could cause tiles to be evicted before they are used).
+     */
+    private static final int MAX_PREFETCH_TILES = 128;
 
     
     /**
@@ -423,6 +437,15 @@ public class PixelClassifierTools {
 		// Loop through region requests (usually 1, unless we have a z-stack or time series)
 		for (RegionRequest regionRequest : regionRequests) {
 			
+			// Classify tiles in batches first, if we can
+			var region = clipArea == null ? regionRequest : regionRequest.intersect2D(
+					GeometryTools.envelopToRegion(clipArea.getEnvelopeInternal(), regionRequest.getZ(), regionRequest.getT()));
+			var tiles = server.getTileRequestManager().getTileRequests(region);
+			if (clipArea != null && !clipArea.isRectangle())
+				tiles = tiles.stream().filter(t -> clipArea.intersects(GeometryTools.regionToGeometry(t.getRegionRequest()))).toList();
+			if (tiles.size() <= MAX_PREFETCH_TILES)
+				prefetchTiles(server, tiles);
+			
 			Map<Integer, Geometry> geometryMap = ContourTracing.traceGeometries(server, regionRequest, clipArea, thresholds);
 			
 			var labelMap = labels;
@@ -496,6 +519,54 @@ public class PixelClassifierTools {
 		return server;
 	}
 	
+	/**
+	 * Classify tiles in batches before they are requested, if the server applies a pixel classifier.
+	 * <p>
+	 * This can be much faster than requesting the tiles individually if the classifier can process 
+	 * several tiles at once (e.g. when it uses a deep learning model). 
+	 * Batches are sized so that they can be classified in parallel, and the results are added to the tile cache.
+	 * If the server is not a {@link PixelClassificationImageServer}, this method does nothing.
+	 * 
+	 * @param server the server that will be used to request the tiles
+	 * @param tiles the tiles to classify
+	 * @return the number of tiles that were classified
+	 * @throws IOException if the tiles could not be classified
+	 * @since v0.7.0
+	 * @see PixelClassificationImageServer#prefetchTiles(Collection, int)
+	 */
+	public static int prefetchTiles(ImageServer<BufferedImage> server, Collection<TileRequest> tiles) throws IOException {
+		if (!(server instanceof PixelClassificationImageServer classifierServer) || tiles.size() <= 1)
+			return 0;
+		var list = new ArrayList<>(tiles);
+		int batchSize = getPrefetchBatchSize(list.size(), ThreadTools.getParallelism());
+		List<List<TileRequest>> batches = new ArrayList<>();
+		for (int i = 0; i < list.size(); i += batchSize)
+			batches.add(list.subList(i, Math.min(list.size(), i + batchSize)));
+		try {
+			return batches.parallelStream().mapToInt(batch -> {
+				try {
+					return classifierServer.prefetchTiles(batch, batch.size());
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}).sum();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+	
+	/**
+	 * Get the number of tiles to classify in each batch, so that the batches can be spread across the available threads.
+	 * @param nTiles the total number of tiles
+	 * @param nThreads the number of threads available
+	 * @return the batch size
+	 * @since v0.7.0
+	 */
+	public static int getPrefetchBatchSize(int nTiles, int nThreads) {
+		int batchSize = (nTiles + Math.max(1, nThreads) - 1) / Math.max(1, nThreads);
+		return Math.max(1, Math.min(MAX_PREFETCH_BATCH_SIZE, batchSize));
+	}
+	
 	/**
 	 * Create a new {@link ImageServer} by applying a threshold to one or more channels of another server.
 	 * This is particularly useful where one channel represents intensities to threshold, and one channel should be used as a mask.
@@ -552,6 +623,38 @@ public class PixelClassifierTools {
 		return createMeasurementManager(createPixelClassificationServer(imageData, classifier));
 	}
 	
+	/**
+	 * Create a {@link PixelClassificationMeasurementManager} that uses coarse-to-fine classification to estimate areas.
+	 * <p>
+	 * The classifier is first applied at a lower resolution. Tiles are then classified at the full resolution of the 
+	 * classifier only where they contain class boundaries at the lower resolution, until the area taken from coarse 
+	 * boundary pixels is within the specified error bound.
+	 * This can be much faster when measuring large regions that mostly contain a single class, but assumes that the 
+	 * coarse classification is correct away from class boundaries.
+	 * <p>
+	 * Coarse-to-fine measurement is only supported for classifiers with {@link ChannelType#CLASSIFICATION} output; 
+	 * otherwise, the measurement manager will make all measurements at the full resolution of the classifier.
+	 * 
+	 * @param imageData the image to which the classifier should apply
+	 * @param classifier the pixel classifier
+	 * @param coarseDownsample the downsample of the coarse classification, relative to the resolution of the classifier (e.g. 4.0)
+	 * @param maxAreaError the maximum error in the area of each class, as a proportion of the area being measured (e.g. 0.01 for 1%)
+	 * @return the {@link PixelClassificationMeasurementManager}
+	 * @since v0.7.0
+	 * @see PixelClassificationMeasurementManager#PixelClassificationMeasurementManager(ImageServer, ImageServer, double)
+	 */
+	public static PixelClassificationMeasurementManager createMeasurementManager(ImageData<BufferedImage> imageData, PixelClassifier classifier, double coarseDownsample, double maxAreaError) {
+		var server = createPixelClassificationServer(imageData, classifier);
+		if (coarseDownsample <= 1)
+			return createMeasurementManager(server);
+		var inputResolution = classifier.getMetadata().getInputResolution();
+		if (inputResolution == null)
+			inputResolution = imageData.getServer().getPixelCalibration();
+		var coarseClassifier = new DownsampledPixelClassifier(classifier, inputResolution.createScaledInstance(coarseDownsample, coarseDownsample));
+		var coarseServer = new PixelClassificationImageServer(imageData, coarseClassifier, null, null);
+		return new PixelClassificationMeasurementManager(server, coarseServer, maxAreaError);
+	}
+	
 	/**
 	 * Create a {@link PixelClassificationMeasurementManager} that can be used to generate measurements from an {@link ImageServer} where pixels provide 
 	 * classification or probability information.
@@ -23,6 +23,7 @@ package qupath.opencv.ops;
 
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import org.bytedeco.opencv.opencv_core.Mat;
 
@@ -55,6 +56,28 @@ public interface ImageDataOp extends UriResource {
 	 */
 	Mat apply(ImageData<BufferedImage> imageData, RegionRequest request) throws IOException;
 	
+	/**
+	 * Apply the operation to several regions of the image.
+	 * <p>
+	 * This should give the same result as calling {@link #apply(ImageData, RegionRequest)} for each region, 
+	 * but can be more efficient if the op is able to process a batch of images at once 
+	 * (see {@link ImageOp#batchApply(List)}).
+	 * <p>
+	 * The default implementation calls {@link #apply(ImageData, RegionRequest)} for each region in turn.
+	 * 
+	 * @param imageData
+	 * @param requests
+	 * @return the output for each request, in the same order as the requests
+	 * @throws IOException
+	 * @since v0.7.0
+	 */
+	default List<Mat> batchApply(ImageData<BufferedImage> imageData, List<RegionRequest> requests) throws IOException {
+		List<Mat> outputs = new ArrayList<>(requests.size());
+		for (var request : requests)
+			outputs.add(apply(imageData, request));
+		return outputs;
+	}
+	
 	/**
 	 * Query whether this transform can be applied to the specified image.
 	 * Reasons why it may not be include the type or channel number being incompatible.
@@ -23,6 +23,7 @@ package qupath.opencv.ops;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -60,6 +61,27 @@ public interface ImageOp extends UriResource {
 	 */
 	public Mat apply(Mat input);
 	
+	/**
+	 * Apply the operation to a batch of images.
+	 * <p>
+	 * This should give the same result as calling {@link #apply(Mat)} for each image, but ops that can process 
+	 * several images together more efficiently (e.g. by passing them to a deep learning model as a single blob) 
+	 * should override it.
+	 * As with {@link #apply(Mat)}, the inputs may be modified.
+	 * <p>
+	 * The default implementation calls {@link #apply(Mat)} for each image in turn.
+	 * 
+	 * @param inputs input images
+	 * @return output images, in the same order as the inputs
+	 * @since v0.7.0
+	 */
+	public default List<Mat> batchApply(List<Mat> inputs) {
+		List<Mat> outputs = new ArrayList<>(inputs.size());
+		for (var input : inputs)
+			outputs.add(apply(input));
+		return outputs;
+	}
+	
 	/**
 	 * Get the padding requested for this operation.
 	 * 
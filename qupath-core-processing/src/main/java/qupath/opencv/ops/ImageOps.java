@@ -28,6 +28,8 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.net.URI;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -301,6 +303,22 @@ public class ImageOps {
 	}
 
 	
+	/**
+	 * Apply an op to a batch of images, replacing each input with the corresponding output.
+	 * A {@link PointerScope} is used so that intermediate references can be released quickly.
+	 */
+	private static void applyBatchInPlace(ImageOp op, List<Mat> mats) {
+		try (var scope = new PointerScope()) {
+			var outputs = op.batchApply(mats);
+			for (int i = 0; i < mats.size(); i++) {
+				var mat = mats.get(i);
+				var output = outputs.get(i);
+				if (output != mat)
+					mat.put(output);
+			}
+		}
+	}
+	
 	@OpType("default")
 	static class DefaultImageDataOp implements ImageDataOp {
 		
@@ -317,10 +335,7 @@ public class ImageOps {
 				img = imageData.getServer().readRegion(request);
 				return OpenCVTools.imageToMat(img);
 			} else {
-				var padding = op.getPadding();
-				img = ServerTools.getPaddedRequest(imageData.getServer(), request, padding);
-				var mat = OpenCVTools.imageToMat(img);
-				mat.convertTo(mat, opencv_core.CV_32F);
+				var mat = readPadded(imageData, request);
 				// Use PointerScope so we can release intermediate references quickly
 //				return op.apply(mat);
 				try (var scope = new PointerScope()) {
@@ -329,6 +344,24 @@ public class ImageOps {
 				}
 			}
 		}
+		
+		@Override
+		public List<Mat> batchApply(ImageData<BufferedImage> imageData, List<RegionRequest> requests) throws IOException {
+			if (op == null || requests.size() <= 1)
+				return ImageDataOp.super.batchApply(imageData, requests);
+			List<Mat> mats = new ArrayList<>(requests.size());
+			for (var request : requests)
+				mats.add(readPadded(imageData, request));
+			applyBatchInPlace(op, mats);
+			return mats;
+		}
+		
+		private Mat readPadded(ImageData<BufferedImage> imageData, RegionRequest request) throws IOException {
+			var img = ServerTools.getPaddedRequest(imageData.getServer(), request, op.getPadding());
+			var mat = OpenCVTools.imageToMat(img);
+			mat.convertTo(mat, opencv_core.CV_32F);
+			return mat;
+		}
 
 		@Override
 		public List<ImageChannel> getChannels(ImageData<BufferedImage> imageData) {
@@ -397,9 +430,30 @@ public class ImageOps {
 			return true;
 		}
 		 
-		@SuppressWarnings("unchecked")
 		@Override
 		public Mat apply(ImageData<BufferedImage> imageData, RegionRequest request) throws IOException {
+			var mat = readChannels(imageData, request);
+			if (op != null) {
+				try (var scope = new PointerScope()) {
+					mat.put(op.apply(mat));
+				}
+			}
+			return mat;
+		}
+		
+		@Override
+		public List<Mat> batchApply(ImageData<BufferedImage> imageData, List<RegionRequest> requests) throws IOException {
+			if (op == null || requests.size() <= 1)
+				return ImageDataOp.super.batchApply(imageData, requests);
+			List<Mat> mats = new ArrayList<>(requests.size());
+			for (var request : requests)
+				mats.add(readChannels(imageData, request));
+			applyBatchInPlace(op, mats);
+			return mats;
+		}
+		
+		@SuppressWarnings("unchecked")
+		private Mat readChannels(ImageData<BufferedImage> imageData, RegionRequest request) throws IOException {
 			BufferedImage img;
 			if (op == null)
 				img = imageData.getServer().readRegion(request);
@@ -422,9 +476,6 @@ public class ImageOps {
 					channels.add(matTemp);
 				}
 				OpenCVTools.mergeChannels(channels, mat);
-				if (op != null) {
-					mat.put(op.apply(mat));					
-				}
 //				scope.deallocate();
 			}
 			return mat;
@@ -631,7 +682,7 @@ public class ImageOps {
 		 * @since v0.3.1
 		 */
 		@OpType("sigmoid")
-		static class SigmoidOp implements ImageOp {
+		static class SigmoidOp implements PointwiseOp {
 
 			@Override
 			public Mat apply(Mat input) {
@@ -639,6 +690,12 @@ public class ImageOps {
 				return input;
 			}
 			
+			@Override
+			public void applyPointwise(double[] values, int length, int nChannels) {
+				for (int i = 0; i < length; i++)
+					values[i] = sigmoid(values[i]);
+			}
+			
 		}
 		
 		private static double sigmoid(double input) {
@@ -1878,7 +1935,7 @@ public class ImageOps {
 		}
 		
 		@OpType("constant")
-		static class FixedThresholdOp extends AbstractThresholdOp {
+		static class FixedThresholdOp extends AbstractThresholdOp implements PointwiseOp {
 			
 			private double[] thresholds;
 			
@@ -1891,6 +1948,14 @@ public class ImageOps {
 				return thresholds[Math.min(channel, thresholds.length-1)];
 			}
 			
+			@Override
+			public void applyPointwise(double[] values, int length, int nChannels) {
+				for (int i = 0; i < length; i++) {
+					double threshold = thresholds[Math.min(i % nChannels, thresholds.length-1)];
+					values[i] = values[i] > threshold ? 1 : 0;
+				}
+			}
+			
 		}
 
 		
@@ -2200,7 +2265,7 @@ public class ImageOps {
 		 * @since v0.3.1
 		 */
 		@OpType("clip")
-		static class ClipOp implements ImageOp {
+		static class ClipOp implements PointwiseOp {
 			
 			private double min, max;
 			
@@ -2215,6 +2280,12 @@ public class ImageOps {
 				return input;
 			}
 			
+			@Override
+			public void applyPointwise(double[] values, int length, int nChannels) {
+				for (int i = 0; i < length; i++)
+					values[i] = GeneralTools.clipValue(values[i], min, max);
+			}
+			
 		}
 		
 		
@@ -2241,7 +2312,7 @@ public class ImageOps {
 		}
 		
 		@OpType("multiply")
-		static class MultiplyOp implements ImageOp {
+		static class MultiplyOp implements PointwiseOp {
 
 			private double[] values;
 			
@@ -2249,6 +2320,15 @@ public class ImageOps {
 				this.values = values.clone();
 			}
 			
+			@Override
+			public void applyPointwise(double[] values, int length, int nChannels) {
+				checkChannels("Multiply", this.values, nChannels);
+				for (int i = 0; i < length; i++) {
+					double v = this.values.length == 1 ? this.values[0] : this.values[i % nChannels];
+					values[i] *= v;
+				}
+			}
+			
 			@Override
 			public Mat apply(Mat input) {
 				if (values.length == 1)
@@ -2288,7 +2368,7 @@ public class ImageOps {
 		}
 		
 		@OpType("replace-nans")
-		static class ReplaceNaNsOp implements ImageOp {
+		static class ReplaceNaNsOp implements PointwiseOp {
 			
 			private double value;
 			
@@ -2302,6 +2382,14 @@ public class ImageOps {
 				return input;
 			}
 			
+			@Override
+			public void applyPointwise(double[] values, int length, int nChannels) {
+				for (int i = 0; i < length; i++) {
+					if (Double.isNaN(values[i]))
+						values[i] = value;
+				}
+			}
+			
 		}
 		
 		
@@ -2339,7 +2427,7 @@ public class ImageOps {
 		}
 		
 		@OpType("divide")
-		static class DivideOp implements ImageOp {
+		static class DivideOp implements PointwiseOp {
 
 			private double[] values;
 			
@@ -2347,6 +2435,16 @@ public class ImageOps {
 				this.values = values.clone();
 			}
 			
+			@Override
+			public void applyPointwise(double[] values, int length, int nChannels) {
+				checkChannels("Divide", this.values, nChannels);
+				// Match OpenCV, which multiplies by the reciprocal
+				for (int i = 0; i < length; i++) {
+					double v = this.values.length == 1 ? this.values[0] : this.values[i % nChannels];
+					values[i] *= 1.0 / v;
+				}
+			}
+			
 			@Override
 			public Mat apply(Mat input) {
 				if (values.length == 1)
@@ -2367,7 +2465,7 @@ public class ImageOps {
 		}
 		
 		@OpType("add")
-		static class AddOp implements ImageOp {
+		static class AddOp implements PointwiseOp {
 
 			private double[] values;
 			
@@ -2375,6 +2473,15 @@ public class ImageOps {
 				this.values = values.clone();
 			}
 			
+			@Override
+			public void applyPointwise(double[] values, int length, int nChannels) {
+				checkChannels("Add", this.values, nChannels);
+				for (int i = 0; i < length; i++) {
+					double v = this.values.length == 1 ? this.values[0] : this.values[i % nChannels];
+					values[i] += v;
+				}
+			}
+			
 			@Override
 			public Mat apply(Mat input) {
 				if (values.length == 1)
@@ -2395,7 +2502,7 @@ public class ImageOps {
 		}
 		
 		@OpType("subtract")
-		static class SubtractOp implements ImageOp {
+		static class SubtractOp implements PointwiseOp {
 
 			private double[] values;
 			
@@ -2403,6 +2510,15 @@ public class ImageOps {
 				this.values = values.clone();
 			}
 			
+			@Override
+			public void applyPointwise(double[] values, int length, int nChannels) {
+				checkChannels("Subtract", this.values, nChannels);
+				for (int i = 0; i < length; i++) {
+					double v = this.values.length == 1 ? this.values[0] : this.values[i % nChannels];
+					values[i] -= v;
+				}
+			}
+			
 			@Override
 			public Mat apply(Mat input) {
 				if (values.length == 1)
@@ -2423,7 +2539,7 @@ public class ImageOps {
 		}
 		
 		@OpType("sqrt")
-		static class SqrtOp implements ImageOp {
+		static class SqrtOp implements PointwiseOp {
 			
 			@Override
 			public Mat apply(Mat input) {
@@ -2431,11 +2547,17 @@ public class ImageOps {
 				return input;
 			}
 			
+			@Override
+			public void applyPointwise(double[] values, int length, int nChannels) {
+				for (int i = 0; i < length; i++)
+					values[i] = Math.sqrt(values[i]);
+			}
+			
 		}
 		
 		
 		@OpType("log")
-		static class LogOp implements ImageOp {
+		static class LogOp implements PointwiseOp {
 			
 			LogOp() {}
 			
@@ -2446,11 +2568,17 @@ public class ImageOps {
 				return input;
 			}
 			
+			@Override
+			public void applyPointwise(double[] values, int length, int nChannels) {
+				for (int i = 0; i < length; i++)
+					values[i] = FastMath.log(values[i]);
+			}
+			
 		}
 		
 		
 		@OpType("exp")
-		static class ExponentialOp implements ImageOp {
+		static class ExponentialOp implements PointwiseOp {
 			
 			ExponentialOp() {}
 			
@@ -2460,10 +2588,16 @@ public class ImageOps {
 				return input;
 			}
 			
+			@Override
+			public void applyPointwise(double[] values, int length, int nChannels) {
+				for (int i = 0; i < length; i++)
+					values[i] = Math.exp(values[i]);
+			}
+			
 		}
 		
 		@OpType("pow")
-		static class PowerOp implements ImageOp {
+		static class PowerOp implements PointwiseOp {
 			
 			private double power;
 			
@@ -2471,6 +2605,12 @@ public class ImageOps {
 				this.power = power;
 			}
 			
+			@Override
+			public void applyPointwise(double[] values, int length, int nChannels) {
+				for (int i = 0; i < length; i++)
+					values[i] = FastMath.pow(values[i], power);
+			}
+			
 			@Override
 			public Mat apply(Mat input) {
 				// Use FastMath - there are too many caveats with OpenCV's pow implementation
@@ -2523,18 +2663,76 @@ public class ImageOps {
 
 			@Override
 			public Mat apply(Mat input) {
+				// Consecutive pointwise ops are applied together in a single pass, where possible
+				List<PointwiseOp> pointwiseOps = new ArrayList<>();
 				for (var t : ops) {
-					var output = t.apply(input);
-					// Effectively work in-place, deallocating quickly to avoid 
-					// accumulating a lot of references and relying on the garbage collector
-					if (output != input) {
-						input.put(output);
-						output.close();
+					if (t instanceof PointwiseOp op && canFusePointwise(input)) {
+						pointwiseOps.add(op);
+						continue;
 					}
+					applyPointwiseOps(input, pointwiseOps);
+					applyInPlace(input, t);
 				}
+				applyPointwiseOps(input, pointwiseOps);
 				return input;
 			}
 			
+			@Override
+			public List<Mat> batchApply(List<Mat> inputs) {
+				// Apply each op to the whole batch in turn, so that ops that support batches (e.g. DNNs) can use them
+				List<PointwiseOp> pointwiseOps = new ArrayList<>();
+				boolean canFuse = inputs.stream().allMatch(ImageOps::canFusePointwise);
+				for (var t : ops) {
+					if (t instanceof PointwiseOp op && canFuse) {
+						pointwiseOps.add(op);
+						continue;
+					}
+					applyPointwiseOps(inputs, pointwiseOps);
+					var outputs = t.batchApply(inputs);
+					for (int i = 0; i < inputs.size(); i++) {
+						var input = inputs.get(i);
+						var output = outputs.get(i);
+						if (output != input) {
+							input.put(output);
+							output.close();
+						}
+					}
+					canFuse = inputs.stream().allMatch(ImageOps::canFusePointwise);
+				}
+				applyPointwiseOps(inputs, pointwiseOps);
+				return inputs;
+			}
+			
+			private static void applyPointwiseOps(List<Mat> inputs, List<PointwiseOp> pointwiseOps) {
+				if (pointwiseOps.isEmpty())
+					return;
+				for (var input : inputs) {
+					if (pointwiseOps.size() == 1)
+						applyInPlace(input, pointwiseOps.get(0));
+					else
+						ImageOps.applyPointwise(input, pointwiseOps);
+				}
+				pointwiseOps.clear();
+			}
+			
+			private static void applyPointwiseOps(Mat input, List<PointwiseOp> pointwiseOps) {
+				if (pointwiseOps.size() == 1)
+					applyInPlace(input, pointwiseOps.get(0));
+				else if (!pointwiseOps.isEmpty())
+					ImageOps.applyPointwise(input, pointwiseOps);
+				pointwiseOps.clear();
+			}
+			
+			private static void applyInPlace(Mat input, ImageOp op) {
+				var output = op.apply(input);
+				// Effectively work in-place, deallocating quickly to avoid 
+				// accumulating a lot of references and relying on the garbage collector
+				if (output != input) {
+					input.put(output);
+					output.close();
+				}
+			}
+			
 			/**
 			 * Should not be called!
 			 */
@@ -2936,6 +3134,52 @@ public class ImageOps {
 				return Collections.singletonList(result);
 			}
 			
+			/**
+			 * Pass the inputs to the model as a single batch if they have the same size and type, 
+			 * and there is only one output; otherwise apply the op to each input in turn.
+			 */
+			@Override
+			public List<Mat> batchApply(List<Mat> inputs) {
+				if (inputs.size() <= 1 || outputNames.length > 0 || !isBatchCompatible(inputs))
+					return super.batchApply(inputs);
+				List<Mat> outputs = new ArrayList<>(inputs.size());
+				for (int i = 0; i < inputs.size(); i++)
+					outputs.add(new Mat());
+				try (@SuppressWarnings("unchecked")var scope = new PointerScope()) {
+					var predictions = model.batchPredict(inputs);
+					if (predictions.size() != inputs.size()) {
+						logger.warn("Expected {} outputs from batch prediction, but got {} - will predict individually", inputs.size(), predictions.size());
+						outputs.forEach(Mat::close);
+						return super.batchApply(inputs);
+					}
+					for (int i = 0; i < inputs.size(); i++)
+						outputs.get(i).put(predictions.get(i));
+					scope.deallocate();
+				}
+				var padding = getPadding();
+				if (!padding.isEmpty()) {
+					for (var mat : outputs) {
+						var mat2 = stripPadding(mat, padding);
+						mat.put(mat2);
+						mat2.close();
+					}
+				}
+				return outputs;
+			}
+			
+			private boolean isBatchCompatible(List<Mat> inputs) {
+				var first = inputs.get(0);
+				int width = first.cols();
+				int height = first.rows();
+				if (!((inputWidth <= 0 && inputHeight <= 0) || (width == inputWidth && height == inputHeight)))
+					return false;
+				for (var input : inputs) {
+					if (input.cols() != width || input.rows() != height || input.type() != first.type())
+						return false;
+				}
+				return true;
+			}
+			
 			@Override
 			public PixelType getOutputType(PixelType inputType) {
 				return PixelType.FLOAT32;
@@ -3201,6 +3445,98 @@ public class ImageOps {
 	}
 	
 	
+	/**
+	 * An {@link ImageOp} that transforms each pixel value independently of all other pixels, 
+	 * without changing the number of channels or the pixel type.
+	 * <p>
+	 * Consecutive pointwise ops within a sequential op can be fused, so that floating point images are 
+	 * transformed in a single pass without creating intermediate {@link Mat} objects.
+	 * @since v0.7.0
+	 */
+	interface PointwiseOp extends ImageOp {
+		
+		/**
+		 * Apply the op in-place to an array of pixel values.
+		 * @param values pixel values, with channels interleaved
+		 * @param length number of values to transform; this is always a multiple of nChannels
+		 * @param nChannels number of channels
+		 * @throws IllegalArgumentException if the op does not support the number of channels
+		 */
+		void applyPointwise(double[] values, int length, int nChannels) throws IllegalArgumentException;
+		
+	}
+	
+	/**
+	 * Length of the per-thread array used to apply pointwise ops
+	 */
+	private static final int POINTWISE_BUFFER_LENGTH = 8192;
+	
+	private static final ThreadLocal<double[]> POINTWISE_BUFFER = ThreadLocal.withInitial(() -> new double[POINTWISE_BUFFER_LENGTH]);
+	
+	/**
+	 * Check whether pointwise ops can be applied to a Mat in a single pass.
+	 * This is only possible for 32-bit and 64-bit floating point images; 
+	 * integer images are saturated after every op, which would give different results.
+	 */
+	static boolean canFusePointwise(Mat mat) {
+		int depth = mat.depth();
+		return depth == opencv_core.CV_32F || depth == opencv_core.CV_64F;
+	}
+	
+	/**
+	 * Apply one or more pointwise ops to a floating point Mat in-place, in a single pass.
+	 * <p>
+	 * Pixels are copied in chunks to a reusable per-thread array, and all ops are applied to each chunk 
+	 * before it is written back. For 32-bit images, values are rounded to float after each op so that the 
+	 * results match applying the ops individually.
+	 * @param mat
+	 * @param ops
+	 */
+	static void applyPointwise(Mat mat, List<? extends PointwiseOp> ops) {
+		int depth = mat.depth();
+		if (!canFusePointwise(mat))
+			throw new IllegalArgumentException("Pointwise ops can only be fused for 32-bit or 64-bit floating point images");
+		OpenCVTools.ensureContinuous(mat, true);
+		int nChannels = mat.channels();
+		long total = mat.total() * nChannels;
+		int chunkLength = Math.max(nChannels, POINTWISE_BUFFER_LENGTH / nChannels * nChannels);
+		double[] values = POINTWISE_BUFFER.get();
+		if (values.length < chunkLength) {
+			values = new double[chunkLength];
+			POINTWISE_BUFFER.set(values);
+		}
+		if (depth == opencv_core.CV_32F) {
+			FloatBuffer buffer = mat.createBuffer();
+			for (int start = 0; start < total; start += chunkLength) {
+				int n = (int)Math.min(chunkLength, total - start);
+				for (int i = 0; i < n; i++)
+					values[i] = buffer.get(start + i);
+				for (var op : ops) {
+					op.applyPointwise(values, n, nChannels);
+					for (int i = 0; i < n; i++)
+						values[i] = (float)values[i];
+				}
+				for (int i = 0; i < n; i++)
+					buffer.put(start + i, (float)values[i]);
+			}
+		} else {
+			DoubleBuffer buffer = mat.createBuffer();
+			for (int start = 0; start < total; start += chunkLength) {
+				int n = (int)Math.min(chunkLength, total - start);
+				buffer.get(start, values, 0, n);
+				for (var op : ops)
+					op.applyPointwise(values, n, nChannels);
+				buffer.put(start, values, 0, n);
+			}
+		}
+	}
+	
+	private static void checkChannels(String name, double[] values, int nChannels) throws IllegalArgumentException {
+		if (values.length != 1 && values.length != nChannels)
+			throw new IllegalArgumentException(name + " requires " + values.length + " channels, but Mat has " + nChannels);
+	}
+	
+	
 	static Mat stripPadding(Mat mat, Padding padding) {
 		if (padding.isEmpty())
 			return mat;
@@ -38,6 +38,7 @@ import java.util.Map;
 import java.util.UUID;
 import javax.imageio.ImageIO;
 
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.locationtech.jts.operation.valid.IsValidOp;
@@ -47,6 +48,7 @@ import org.slf4j.LoggerFactory;
 import ij.process.ByteProcessor;
 import ij.process.ImageStatistics;
 import qupath.imagej.processing.IJProcessing;
+import qupath.lib.images.ImageData;
 import qupath.lib.images.servers.ImageServer;
 import qupath.lib.images.servers.ImageServerMetadata;
 import qupath.lib.images.servers.ImageServerMetadata.ChannelType;
@@ -55,6 +57,7 @@ import qupath.lib.images.servers.WrappedBufferedImageServer;
 import qupath.lib.objects.PathObjects;
 import qupath.lib.objects.classes.PathClass;
 import qupath.lib.objects.hierarchy.PathObjectHierarchy;
+import qupath.lib.roi.ROIs;
 import qupath.opencv.ml.pixel.PixelClassifierTools.CreateObjectOptions;
 
 /**
@@ -224,4 +227,38 @@ class TestPixelClassifierTools {
 	}
 	
 
+	@Test
+	void testCoarseToFineMeasurements() {
+		// Large uniform regions, with a small region that is easily missed at low resolution
+		var img = new BufferedImage(1024, 1024, BufferedImage.TYPE_BYTE_GRAY);
+		var raster = img.getRaster();
+		for (int y = 0; y < img.getHeight(); y++) {
+			for (int x = 0; x < img.getWidth(); x++) {
+				boolean above = x < 301 || (x >= 700 && x < 710 && y >= 700 && y < 705);
+				raster.setSample(x, y, 0, above ? 200 : 0);
+			}
+		}
+		var imageData = new ImageData<>(new WrappedBufferedImageServer("coarse-to-fine", img));
+		var classifier = PixelClassifiers.createThresholdClassifier(
+				imageData.getServer().getPixelCalibration(), 0, 100, PathClass.fromString("Below"), PathClass.fromString("Above"));
+		var roi = ROIs.createRectangleROI(10, 20, 1000, 990);
+		
+		var manager = PixelClassifierTools.createMeasurementManager(imageData, classifier);
+		var names = manager.getMeasurementNames();
+		assertFalse(names.isEmpty());
+		
+		// With no error allowed, all tiles containing a boundary should be refined
+		var managerExact = PixelClassifierTools.createMeasurementManager(imageData, classifier, 8.0, 0.0);
+		for (var name : names)
+			assertEquals(manager.getMeasurementValue(roi, name).doubleValue(), managerExact.getMeasurementValue(roi, name).doubleValue(), 1e-6);
+		
+		// Otherwise, areas should be within the error bound
+		double maxError = 0.02;
+		var managerApprox = PixelClassifierTools.createMeasurementManager(imageData, classifier, 8.0, maxError);
+		for (var name : names) {
+			if (name.endsWith("px^2"))
+				assertEquals(manager.getMeasurementValue(roi, name).doubleValue(), managerApprox.getMeasurementValue(roi, name).doubleValue(), roi.getArea() * maxError);
+		}
+	}
+	
 }
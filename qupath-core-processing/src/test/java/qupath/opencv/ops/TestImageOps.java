@@ -330,6 +330,78 @@ public class TestImageOps {
 	}
 	
 	
+	@Test
+	public void testFusedPointwiseOps() {
+		try (var scope = new PointerScope()) {
+			var ops = Arrays.asList(
+					ImageOps.Core.multiply(2.0, 3.0, 0.5),
+					ImageOps.Core.add(10),
+					ImageOps.Core.sqrt(),
+					ImageOps.Core.subtract(1, 2, 3),
+					ImageOps.Core.divide(4),
+					ImageOps.Normalize.sigmoid(),
+					ImageOps.Core.clip(0.52, 0.7),
+					ImageOps.Threshold.threshold(0.55, 0.6)
+					);
+			var sequential = ImageOps.Core.sequential(ops);
+			for (int depth : new int[] {opencv_core.CV_32F, opencv_core.CV_64F}) {
+				var mat = createZerosMat(64, 3);
+				addNoise(mat, 100);
+				mat.convertTo(mat, depth);
+				
+				// Applying ops individually should give the same result as applying them together
+				var matExpected = mat.clone();
+				for (var op : ops)
+					matExpected.put(op.apply(matExpected));
+				var matFused = sequential.apply(mat.clone());
+				assertEquals(depth, matFused.depth());
+				assertTrue(matsEqual(matExpected, matFused, 1e-5));
+
+				// Check intermediate results too, since the final threshold could hide differences
+				var ops2 = ops.subList(0, ops.size()-1);
+				var matExpected2 = mat.clone();
+				for (var op : ops2)
+					matExpected2.put(op.apply(matExpected2));
+				assertTrue(matsEqual(matExpected2, ImageOps.Core.sequential(ops2).apply(mat.clone()), 1e-5));
+			}
+			
+			// Channel mismatches should still fail
+			var mat2 = createZerosMat(16, 2);
+			assertThrows(IllegalArgumentException.class, () -> sequential.apply(mat2));
+		}
+	}
+	
+	
+	@Test
+	public void testBatchApply() {
+		try (var scope = new PointerScope()) {
+			var sequential = ImageOps.Core.sequential(
+					ImageOps.Core.multiply(2.0),
+					ImageOps.Core.add(1),
+					ImageOps.Filters.gaussianBlur(2.0),
+					ImageOps.Core.sqrt()
+					);
+			var mats = new ArrayList<Mat>();
+			var expected = new ArrayList<Mat>();
+			for (int i = 0; i < 3; i++) {
+				var mat = createZerosMat(64, 3);
+				addNoise(mat, 100);
+				mat.convertTo(mat, opencv_core.CV_32F);
+				mats.add(mat.clone());
+				expected.add(sequential.apply(mat));
+			}
+			
+			// Applying ops to a batch should give the same result as applying them individually
+			var outputs = sequential.batchApply(mats);
+			assertEquals(expected.size(), outputs.size());
+			for (int i = 0; i < outputs.size(); i++) {
+				assertEquals(expected.get(i).rows(), outputs.get(i).rows());
+				assertTrue(matsEqual(expected.get(i), outputs.get(i), 1e-5));
+			}
+		}
+	}
+	
+	
 	@Test
 	public void testPercentiles() {
 		try (var scope = new PointerScope()) {
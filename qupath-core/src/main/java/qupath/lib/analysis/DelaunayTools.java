@@ -23,6 +23,7 @@ package qupath.lib.analysis;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -33,10 +34,17 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiPredicate;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import org.locationtech.jts.algorithm.ConvexHull;
 import org.locationtech.jts.densify.Densifier;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Envelope;
@@ -45,6 +53,7 @@ import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Polygon;
 import org.locationtech.jts.geom.Polygonal;
 import org.locationtech.jts.geom.PrecisionModel;
+import org.locationtech.jts.geom.Triangle;
 import org.locationtech.jts.geom.util.AffineTransformation;
 import org.locationtech.jts.geom.util.GeometryCombiner;
 import org.locationtech.jts.index.SpatialIndex;
@@ -62,6 +71,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import qupath.lib.common.LogTools;
+import qupath.lib.common.ThreadTools;
 import qupath.lib.images.servers.PixelCalibration;
 import qupath.lib.objects.PathObject;
 import qupath.lib.objects.PathObjectTools;
@@ -208,6 +218,8 @@ public class DelaunayTools {
 		
 		private double erosion = 1.0;
 		
+		private boolean tiled = false;
+		
 		private final ImagePlane plane;
 		private final Collection<PathObject> pathObjects = new ArrayList<>();
 		
@@ -292,6 +304,23 @@ public class DelaunayTools {
 			return this;
 		}
 		
+		/**
+		 * Specify whether large triangulations may be computed in tiles, in parallel.
+		 * <p>
+		 * This can be much faster for large numbers of coordinates, and gives the same result as computing the 
+		 * triangulation in one step provided that the coordinates are in general position.
+		 * However, if four or more coordinates lie on the same circle (e.g. centroids on a regular grid) 
+		 * the triangulation is not unique, and the neighbors found across tile boundaries may differ.
+		 * The default is false.
+		 * @param tiled if true, compute the triangulation in tiles whenever there are enough coordinates
+		 * @return this builder
+		 * @since v0.7.0
+		 */
+		public Builder tiled(boolean tiled) {
+			this.tiled = tiled;
+			return this;
+		}
+		
 		/**
 		 * Build the {@link Subdivision} with the current parameters.
 		 * @return
@@ -326,7 +355,7 @@ public class DelaunayTools {
 			}
 			
 			double tolerance = cal.getAveragedPixelSize().doubleValue() / 1000.0;
-			return new Subdivision(createSubdivision(coords.keySet(), tolerance), pathObjects, coords, plane);
+			return new Subdivision(createTriangulation(coords.keySet(), tolerance, tiled), pathObjects, coords, plane);
 		}
 		
 	}
@@ -345,6 +374,18 @@ public class DelaunayTools {
 	 * @see #createFromGeometryCoordinates(Collection, boolean, double)
 	 */
 	public static Subdivision createFromCentroids(Collection<PathObject> pathObjects, boolean preferNucleusROI) {
+		return createFromCentroids(pathObjects, preferNucleusROI, -1);
+	}
+	
+	/**
+	 * Create a {@link Subdivision} using the centroid coordinates of ROIs, optionally specifying the number of 
+	 * coordinates for each tile.
+	 * @param pathObjects collection of objects from which to construct the {@link Subdivision}
+	 * @param preferNucleusROI if true, prefer the nucleus ROI when extracting the centroid from a cell
+	 * @param coordinatesPerTile approximate number of coordinates per tile, or -1 to triangulate all coordinates in one step
+	 * @return a new {@link Subdivision} computed from the centroids of the provided objects
+	 */
+	static Subdivision createFromCentroids(Collection<PathObject> pathObjects, boolean preferNucleusROI, int coordinatesPerTile) {
 		
 		logger.debug("Creating subdivision from ROI centroids for {} objects", pathObjects.size());
 		
@@ -367,7 +408,8 @@ public class DelaunayTools {
 			var coord = new Coordinate(x, y);
 			coords.put(coord, pathObject);
 		}
-		return new Subdivision(createSubdivision(coords.keySet(), 0.01), pathObjects, coords, plane);
+		var tiles = coordinatesPerTile > 0 ? createTiledTriangulation(coords.keySet(), 0.01, coordinatesPerTile) : createTriangulation(coords.keySet(), 0.01, false);
+		return new Subdivision(tiles, pathObjects, coords, plane);
 	}
 	
 	/**
@@ -420,10 +462,259 @@ public class DelaunayTools {
 		
 		// Attempts to call VoronoiDiagramBuilder would sometimes fail when clipping to the envelope - 
 		// Because we do our own clipping anyway, we skip that step by requesting the diagram via the subdivision instead
-		return new Subdivision(createSubdivision(coords.keySet(), 0.001), pathObjects, coords, plane);
+		return new Subdivision(createTriangulation(coords.keySet(), 0.001, false), pathObjects, coords, plane);
 	}
 	
 	
+	/**
+	 * Minimum number of coordinates before the triangulation is computed in tiles
+	 */
+	private static final int MIN_TILED_COORDINATES = 50_000;
+	
+	/**
+	 * Approximate number of coordinates to triangulate for each tile
+	 */
+	private static final int COORDINATES_PER_TILE = 20_000;
+	
+	/**
+	 * Shared pool used to compute tiles in parallel.
+	 * This is separate from the common pool, since triangulations may be computed while holding locks.
+	 * Idle threads are discarded, and the number of tiles computed at once is limited by {@link ThreadTools#getParallelism()}.
+	 */
+	private static final ExecutorService pool = Executors.newCachedThreadPool(ThreadTools.createThreadFactory("delaunay-tiles", true));
+	
+	/**
+	 * Compute the triangulation, either in one step or (if requested, for large numbers of coordinates) in tiles.
+	 */
+	private static List<TileTriangulation> createTriangulation(Collection<Coordinate> coords, double tolerance, boolean tiled) {
+		if (!tiled || coords.size() < MIN_TILED_COORDINATES)
+			return List.of(new TileTriangulation(createSubdivision(coords, tolerance), null, 0, 0));
+		return createTiledTriangulation(coords, tolerance, COORDINATES_PER_TILE);
+	}
+	
+	/**
+	 * Compute a Delaunay triangulation in tiles, in parallel.
+	 * <p>
+	 * Each tile is triangulated using all coordinates within an expanded region around the tile.
+	 * The expanded region grows until the tile is covered by triangles (where it overlaps the convex hull 
+	 * of all coordinates), and every triangle that touches the tile has a circumcircle that 
+	 * falls within the region (or outside the bounds of all coordinates).
+	 * Such triangles must also belong to the triangulation of all the coordinates, since their circumcircles 
+	 * cannot contain any other coordinates.
+	 * Each triangle is then assigned to the tile that contains its centroid, which means that 
+	 * neighbor relationships can be stitched together across tile boundaries.
+	 * <p>
+	 * This gives the same result as triangulating all coordinates at once, provided that the 
+	 * coordinates are in general position (i.e. no four coordinates lie on the same circle).
+	 * 
+	 * @param coords the coordinates to triangulate
+	 * @param tolerance tolerance used when creating each {@link QuadEdgeSubdivision}
+	 * @param coordinatesPerTile approximate number of coordinates for each tile (excluding any overlap)
+	 * @return a list of tiles
+	 */
+	static List<TileTriangulation> createTiledTriangulation(Collection<Coordinate> coords, double tolerance, int coordinatesPerTile) {
+		var envelope = DelaunayTriangulationBuilder.envelope(coords);
+		int nTiles = (int)Math.ceil(coords.size() / (double)Math.max(1, coordinatesPerTile));
+		if (nTiles <= 1 || envelope.getWidth() <= 0 || envelope.getHeight() <= 0)
+			return List.of(new TileTriangulation(createSubdivision(coords, tolerance), null, 0, 0));
+		
+		var grid = TileGrid.create(envelope, nTiles);
+		var index = new TileCoordinateIndex(grid, coords);
+		
+		// Initial margin around each tile, based on the average spacing between coordinates
+		double margin = Math.sqrt(envelope.getArea() / coords.size()) * 5.0;
+		var hull = new ConvexHull(coords.toArray(Coordinate[]::new), new GeometryFactory()).getConvexHull();
+		
+		logger.debug("Computing triangulation for {} coordinates in {} x {} tiles", coords.size(), grid.nx(), grid.ny());
+		
+		// Each worker takes the next tile until none are left, so that we never use more than the requested number of threads
+		int nTotal = grid.nx() * grid.ny();
+		var tiles = new TileTriangulation[nTotal];
+		var nextTile = new AtomicInteger();
+		List<Callable<Void>> workers = new ArrayList<>();
+		int nThreads = Math.min(nTotal, ThreadTools.getParallelism());
+		for (int i = 0; i < nThreads; i++) {
+			workers.add(() -> {
+				int ind;
+				while ((ind = nextTile.getAndIncrement()) < nTotal && !Thread.currentThread().isInterrupted()) {
+					tiles[ind] = createTileTriangulation(grid, ind % grid.nx(), ind / grid.nx(), index, envelope, hull, margin, tolerance);
+				}
+				return null;
+			});
+		}
+		List<Future<Void>> futures = new ArrayList<>();
+		try {
+			for (var worker : workers)
+				futures.add(pool.submit(worker));
+			for (var future : futures)
+				future.get();
+			return Arrays.asList(tiles);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Delaunay triangulation interrupted", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Error computing Delaunay triangulation", e.getCause());
+		} finally {
+			for (var future : futures)
+				future.cancel(true);
+		}
+	}
+	
+	private static TileTriangulation createTileTriangulation(TileGrid grid, int tileX, int tileY, TileCoordinateIndex index,
+			Envelope envelope, Geometry hull, double margin, double tolerance) {
+		var core = grid.getTileEnvelope(tileX, tileY);
+		// Use floating point precision to compute the area of the tile covered by triangles
+		var factory = hull.getFactory();
+		var coreGeometry = factory.toGeometry(core);
+		// We need to cover the part of the tile that falls within the hull of all coordinates
+		double coreArea = hull.intersection(coreGeometry).getArea();
+		var region = new Envelope(core);
+		region.expandBy(margin);
+		while (true) {
+			region = region.intersection(envelope);
+			var tileCoords = index.getCoordinates(region);
+			var subdiv = createSubdivision(tileCoords, tolerance);
+			var tile = new TileTriangulation(subdiv, grid, tileX, tileY);
+			// If we have everything, the triangulation must be correct
+			if (region.covers(envelope))
+				return tile;
+			
+			boolean isComplete = true;
+			var required = new Envelope(region);
+			double coveredArea = 0;
+			for (var tri : getTriangles(subdiv)) {
+				var triangleEnvelope = new Envelope(tri[0], tri[1]);
+				triangleEnvelope.expandToInclude(tri[2]);
+				if (!core.intersects(triangleEnvelope))
+					continue;
+				var circleEnvelope = getCircumcircleEnvelope(tri[0], tri[1], tri[2]);
+				circleEnvelope = circleEnvelope == null ? envelope : circleEnvelope.intersection(envelope);
+				if (!region.covers(circleEnvelope)) {
+					isComplete = false;
+					required.expandToInclude(circleEnvelope);
+				}
+				if (core.covers(triangleEnvelope))
+					coveredArea += Math.abs(Triangle.area(tri[0], tri[1], tri[2]));
+				else
+					coveredArea += factory.createPolygon(new Coordinate[] {tri[0], tri[1], tri[2], tri[0]}).intersection(coreGeometry).getArea();
+			}
+			// If the triangles don't cover the tile, we are missing triangles that have vertices outside the region
+			if (coveredArea < coreArea * (1.0 - 1e-6))
+				isComplete = false;
+			if (isComplete)
+				return tile;
+			// Grow by at least the margin, to avoid many small steps
+			margin *= 2;
+			required.expandBy(margin);
+			region = required;
+		}
+	}
+	
+	/**
+	 * Get the envelope of a triangle's circumcircle, or null if this cannot be computed.
+	 */
+	private static Envelope getCircumcircleEnvelope(Coordinate a, Coordinate b, Coordinate c) {
+		var center = Triangle.circumcentre(a, b, c);
+		double radius = center.distance(a);
+		if (!Double.isFinite(radius))
+			return null;
+		return new Envelope(center.x - radius, center.x + radius, center.y - radius, center.y + radius);
+	}
+	
+	/**
+	 * Get the triangles in a subdivision (excluding those connected to the frame), 
+	 * with each triangle represented by three coordinates.
+	 */
+	@SuppressWarnings("unchecked")
+	private static List<Coordinate[]> getTriangles(QuadEdgeSubdivision subdiv) {
+		return (List<Coordinate[]>)subdiv.getTriangleCoordinates(false);
+	}
+	
+	/**
+	 * Regular grid of tiles used to divide up a triangulation.
+	 */
+	record TileGrid(double minX, double minY, double tileWidth, double tileHeight, int nx, int ny) {
+		
+		private static TileGrid create(Envelope envelope, int nTiles) {
+			double aspectRatio = envelope.getWidth() / envelope.getHeight();
+			int nx = (int)Math.max(1, Math.min(nTiles, Math.round(Math.sqrt(nTiles * aspectRatio))));
+			int ny = (int)Math.ceil(nTiles / (double)nx);
+			return new TileGrid(envelope.getMinX(), envelope.getMinY(),
+					envelope.getWidth() / nx, envelope.getHeight() / ny, nx, ny);
+		}
+		
+		int getTileX(double x) {
+			return Math.max(0, Math.min(nx - 1, (int)Math.floor((x - minX) / tileWidth)));
+		}
+		
+		int getTileY(double y) {
+			return Math.max(0, Math.min(ny - 1, (int)Math.floor((y - minY) / tileHeight)));
+		}
+		
+		Envelope getTileEnvelope(int tileX, int tileY) {
+			return new Envelope(
+					minX + tileX * tileWidth, minX + (tileX + 1) * tileWidth,
+					minY + tileY * tileHeight, minY + (tileY + 1) * tileHeight);
+		}
+		
+	}
+	
+	/**
+	 * Simple index to find coordinates within a region, using the same grid as the tiles.
+	 */
+	private static class TileCoordinateIndex {
+		
+		private final TileGrid grid;
+		private final List<List<Coordinate>> bins = new ArrayList<>();
+		
+		private TileCoordinateIndex(TileGrid grid, Collection<Coordinate> coords) {
+			this.grid = grid;
+			for (int i = 0; i < grid.nx() * grid.ny(); i++)
+				bins.add(new ArrayList<>());
+			for (var c : coords)
+				bins.get(grid.getTileY(c.y) * grid.nx() + grid.getTileX(c.x)).add(c);
+		}
+		
+		private List<Coordinate> getCoordinates(Envelope region) {
+			List<Coordinate> output = new ArrayList<>();
+			int x1 = grid.getTileX(region.getMinX());
+			int x2 = grid.getTileX(region.getMaxX());
+			int y1 = grid.getTileY(region.getMinY());
+			int y2 = grid.getTileY(region.getMaxY());
+			for (int y = y1; y <= y2; y++) {
+				for (int x = x1; x <= x2; x++) {
+					for (var c : bins.get(y * grid.nx() + x)) {
+						if (region.covers(c))
+							output.add(c);
+					}
+				}
+			}
+			return output;
+		}
+		
+	}
+	
+	/**
+	 * A triangulation computed for all or part of a {@link Subdivision}.
+	 * If the grid is null, the triangulation is complete. Otherwise, only triangles with centroids 
+	 * inside the tile (and Voronoi faces for coordinates inside the tile) should be used.
+	 */
+	record TileTriangulation(QuadEdgeSubdivision subdivision, TileGrid grid, int tileX, int tileY) {
+		
+		boolean isTiled() {
+			return grid != null;
+		}
+		
+		boolean contains(double x, double y) {
+			return grid == null || (grid.getTileX(x) == tileX && grid.getTileY(y) == tileY);
+		}
+		
+		boolean contains(Coordinate c) {
+			return contains(c.x, c.y);
+		}
+		
+	}
+	
 	private static QuadEdgeSubdivision createSubdivision(Collection<Coordinate> coords, double tolerance) {
 		var envelope = DelaunayTriangulationBuilder.envelope(coords);
 		var subdiv = new QuadEdgeSubdivision(envelope, tolerance);
@@ -603,7 +894,7 @@ public class DelaunayTools {
 		
 		private final Collection<PathObject> pathObjects;
 		private final Map<Coordinate, PathObject> coordinateMap;
-		private final QuadEdgeSubdivision subdivision;
+		private final List<TileTriangulation> tiles;
 		
 		private final ImagePlane plane;
 		
@@ -615,12 +906,17 @@ public class DelaunayTools {
 		 * This is used to speed object painting.
 		 */
 		private record NeighborMap(Map<PathObject, List<PathObject>> neighbors, SpatialIndex index) {}
+		
+		/**
+		 * An edge between two neighboring objects, as stored in the edge index.
+		 */
+		private record ObjectEdge(PathObject origin, PathObject destination) {}
 
 		private transient volatile NeighborMap neighbors;
 
 		
-		private Subdivision(QuadEdgeSubdivision subdivision, Collection<PathObject> pathObjects, Map<Coordinate, PathObject> coordinateMap, ImagePlane plane) {
-			this.subdivision = subdivision;
+		private Subdivision(List<TileTriangulation> tiles, Collection<PathObject> pathObjects, Map<Coordinate, PathObject> coordinateMap, ImagePlane plane) {
+			this.tiles = List.copyOf(tiles);
 			this.pathObjects = pathObjects.stream().distinct().toList();
 			this.plane = plane == null ? pathObjects.stream()
 					.filter(PathObject::hasROI)
@@ -716,9 +1012,9 @@ public class DelaunayTools {
 			var edges = getEdgeIndex().query(env);
 			List<PathObject> pathObjects = new ArrayList<>();
 			for (var item : edges) {
-				QuadEdge edge = (QuadEdge) item;
-				pathObjects.add(getPathObject(edge.orig()));
-				pathObjects.add(getPathObject(edge.dest()));
+				ObjectEdge edge = (ObjectEdge) item;
+				pathObjects.add(edge.origin());
+				pathObjects.add(edge.destination());
 			}
 			return pathObjects.stream().distinct().toList();
 		}
@@ -839,18 +1135,15 @@ public class DelaunayTools {
 
 			// Sort the edges; note that we shouldn't use a parallel stream here, because this can cause
 			// get stuck if the common fork join pool is already in use & awaiting the results of this calculation
-			@SuppressWarnings("unchecked")
-			var edges = (List<QuadEdge>)subdivision.getEdges()
-					.stream()
-					.sorted(Comparator.comparingDouble(QuadEdge::getLength))
-					.toList();
+			var edges = getEdgeCoordinates();
+			edges.sort(Comparator.comparingDouble((Coordinate[] e) -> e[0].distance(e[1])));
 
 			Map<PathObject, List<PathObject>> neighbors = new HashMap<>();
 
 			var edgeIndex = new HPRtree();
-			for (QuadEdge edge : edges) {
-				var pathOrigin = getPathObject(edge.orig());
-				var pathDest = getPathObject(edge.dest());
+			for (var edge : edges) {
+				var pathOrigin = coordinateMap.get(edge[0]);
+				var pathDest = coordinateMap.get(edge[1]);
 				if (pathOrigin == null || pathDest == null || pathDest == pathOrigin ||
 					neighbors.getOrDefault(pathOrigin, Collections.emptyList()).contains(pathDest)) {
 					continue;
@@ -859,7 +1152,7 @@ public class DelaunayTools {
 				neighbors.computeIfAbsent(pathDest, a -> new ArrayList<>()).add(pathOrigin);
 
 				var env = createEnvelope(pathOrigin.getROI(), pathDest.getROI());
-				edgeIndex.insert(env, edge);
+				edgeIndex.insert(env, new ObjectEdge(pathOrigin, pathDest));
 			}
 			for (var entry : neighbors.entrySet()) {
 				entry.setValue(List.copyOf(entry.getValue()));
@@ -879,8 +1172,49 @@ public class DelaunayTools {
 			return getNeighborMap().index;
 		}
 		
-		private PathObject getPathObject(Vertex vertex) {
-			return coordinateMap.get(vertex.getCoordinate());
+		/**
+		 * Get the start and end coordinates of all edges in the triangulation.
+		 * For a tiled triangulation, edges are taken from the triangles assigned to each tile.
+		 */
+		private List<Coordinate[]> getEdgeCoordinates() {
+			List<Coordinate[]> edges = new ArrayList<>();
+			for (var tile : tiles) {
+				if (tile.isTiled()) {
+					for (var tri : getTriangles(tile.subdivision())) {
+						double cx = (tri[0].x + tri[1].x + tri[2].x) / 3.0;
+						double cy = (tri[0].y + tri[1].y + tri[2].y) / 3.0;
+						if (!tile.contains(cx, cy))
+							continue;
+						edges.add(new Coordinate[] {tri[0], tri[1]});
+						edges.add(new Coordinate[] {tri[1], tri[2]});
+						edges.add(new Coordinate[] {tri[2], tri[0]});
+					}
+				} else {
+					for (var item : tile.subdivision().getEdges()) {
+						var edge = (QuadEdge)item;
+						edges.add(new Coordinate[] {edge.orig().getCoordinate(), edge.dest().getCoordinate()});
+					}
+				}
+			}
+			return edges;
+		}
+		
+		/**
+		 * Get the Voronoi cell polygons for all coordinates.
+		 * The user data of each polygon is the coordinate that generated it.
+		 */
+		@SuppressWarnings("unchecked")
+		private List<Polygon> getVoronoiCellPolygons(GeometryFactory factory) {
+			if (tiles.size() == 1 && !tiles.get(0).isTiled())
+				return (List<Polygon>)tiles.get(0).subdivision().getVoronoiCellPolygons(factory);
+			List<Polygon> polygons = new ArrayList<>();
+			for (var tile : tiles) {
+				for (var polygon : (List<Polygon>)tile.subdivision().getVoronoiCellPolygons(factory)) {
+					if (polygon.getUserData() instanceof Coordinate c && tile.contains(c))
+						polygons.add(polygon);
+				}
+			}
+			return polygons;
 		}
 		
 		
@@ -894,8 +1228,7 @@ public class DelaunayTools {
 			
 			// We use a new GeometryFactory because we need floating point precision (it seems) to avoid 
 			// invalid polygons being returned
-			@SuppressWarnings("unchecked")
-			var polygons = (List<Polygon>)subdivision.getVoronoiCellPolygons(new GeometryFactory());
+			var polygons = getVoronoiCellPolygons(new GeometryFactory());
 			
 			// Create a spatial cache
 			var map = new HashMap<PathObject, Geometry>();
@@ -977,8 +1310,7 @@ public class DelaunayTools {
 
 			logger.debug("Calculating Voronoi faces for {} objects", size());
 
-			@SuppressWarnings("unchecked")
-			var polygons = (List<Polygon>)subdivision.getVoronoiCellPolygons(GeometryTools.getDefaultFactory());
+			var polygons = getVoronoiCellPolygons(GeometryTools.getDefaultFactory());
 
 			var map = new HashMap<PathObject, Geometry>();
 			var mapToMerge = new HashMap<PathObject, List<Geometry>>();
@@ -22,6 +22,7 @@
 package qupath.lib.analysis;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
@@ -279,18 +280,28 @@ public class DistanceTools {
 				List<Geometry> areaGeometries = new ArrayList<>();
 				List<Geometry> lineGeometries = new ArrayList<>();
 				List<Geometry> pointGeometries = new ArrayList<>();
+				
+				// Centroids only need coordinates, so we can avoid creating geometries
+				double[] xCentroids = null;
+				double[] yCentroids = null;
+				int nCentroids = 0;
+				if (distanceType == DistanceType.CENTROID_TO_CENTROID) {
+					xCentroids = new double[targetObjects.size()];
+					yCentroids = new double[targetObjects.size()];
+				}
+				
 				for (var annotation : targetObjects) {
 					var roi = annotation.getROI();
 					if (roi != null && roi.getZ() == z && roi.getT() == t) {
-						Geometry geom;
-
-						// Convert to centroid if required
-						if (distanceType == DistanceType.CENTROID_TO_CENTROID) {
-							 geom = PathObjectTools.getROI(annotation, preferNucleusForCentroids).getGeometry();
-							 geom = geom.getCentroid();
-						} else {
-							 geom = PathObjectTools.getROI(annotation, preferNucleusForNonCentroidTargets).getGeometry();
+						if (xCentroids != null) {
+							var roiCentroid = PathObjectTools.getROI(annotation, preferNucleusForCentroids);
+							xCentroids[nCentroids] = roiCentroid.getCentroidX() * pixelWidth;
+							yCentroids[nCentroids] = roiCentroid.getCentroidY() * pixelHeight;
+							nCentroids++;
+							continue;
 						}
+						
+						Geometry geom = PathObjectTools.getROI(annotation, preferNucleusForNonCentroidTargets).getGeometry();
 
 						if (transform != null) {
 							geom = transform.transform(geom);
@@ -320,13 +331,11 @@ public class DistanceTools {
 					}
 				}
 		
-				if (areaGeometries.isEmpty() && pointGeometries.isEmpty() && lineGeometries.isEmpty())
+				if (areaGeometries.isEmpty() && pointGeometries.isEmpty() && lineGeometries.isEmpty() && nCentroids == 0)
 					continue;
 				
 				var precisionModel = precision == null ? GeometryTools.getDefaultFactory().getPrecisionModel() : precision;
 				
-				List<Coordinate> pointCoords = new ArrayList<>();
-				
 				Geometry temp = null;
 				if (!areaGeometries.isEmpty())
 					temp = areaGeometries.size() == 1 ? areaGeometries.get(0) : GeometryCombiner.combine(areaGeometries);
@@ -337,17 +346,33 @@ public class DistanceTools {
 					temp = lineGeometries.size() == 1 ? lineGeometries.get(0) : GeometryCombiner.combine(lineGeometries);
 				Geometry lineGeometry = temp;
 				
-				// Identify points, and create an STRtree to find nearest neighbors more quickly if there are a lot of them
-				if (!pointGeometries.isEmpty()) {
+				// Identify points, and create a KD-tree to find nearest neighbors quickly
+				KdTree2D pointTree = null;
+				if (nCentroids > 0) {
+					for (int i = 0; i < nCentroids; i++) {
+						xCentroids[i] = precisionModel.makePrecise(xCentroids[i]);
+						yCentroids[i] = precisionModel.makePrecise(yCentroids[i]);
+					}
+					if (nCentroids < xCentroids.length) {
+						xCentroids = Arrays.copyOf(xCentroids, nCentroids);
+						yCentroids = Arrays.copyOf(yCentroids, nCentroids);
+					}
+					pointTree = KdTree2D.create(xCentroids, yCentroids);
+				} else if (!pointGeometries.isEmpty()) {
+					int nPoints = pointGeometries.stream().mapToInt(Geometry::getNumPoints).sum();
+					double[] xPoints = new double[nPoints];
+					double[] yPoints = new double[nPoints];
+					int ind = 0;
 					for (var geom : pointGeometries) {
 						for (var coord : geom.getCoordinates()) {
-							precisionModel.makePrecise(coord);
-							pointCoords.add(coord);
+							xPoints[ind] = precisionModel.makePrecise(coord.x);
+							yPoints[ind] = precisionModel.makePrecise(coord.y);
+							ind++;
 						}
 					}
+					pointTree = KdTree2D.create(xPoints, yPoints);
 				}
-				STRtree pointTree = pointCoords != null && pointCoords.size() > 1000 ? createCoordinateCache(pointCoords) : null;
-				CoordinateDistance coordinateDistance = new CoordinateDistance();
+				var finalPointTree = pointTree;
 				
 				int zi = z;
 				int ti = t;
@@ -371,12 +396,19 @@ public class DistanceTools {
 						distance = 0.0;
 					} else {
 						// Find the distance to the closest point, line or shape
-						Coordinate coord = new Coordinate(roi.getCentroidX() * pixelWidth, roi.getCentroidY() * pixelHeight);
-						precisionModel.makePrecise(coord);
+						double x = precisionModel.makePrecise(roi.getCentroidX() * pixelWidth);
+						double y = precisionModel.makePrecise(roi.getCentroidY() * pixelHeight);
 
-						double pointDistance = pointCoords == null ? Double.POSITIVE_INFINITY : computeCoordinateDistance(coord, pointCoords, pointTree, coordinateDistance);
-						double lineDistance = lineGeometry == null ? Double.POSITIVE_INFINITY : computeDistance(coord, lineGeometry, null, false);
-						double shapeDistance = shapeGeometry == null ? Double.POSITIVE_INFINITY : computeDistance(coord, shapeGeometry, locator, signedDistances);
+						double pointDistance = finalPointTree == null ? Double.POSITIVE_INFINITY : finalPointTree.nearestDistance(x, y);
+						double lineDistance = Double.POSITIVE_INFINITY;
+						double shapeDistance = Double.POSITIVE_INFINITY;
+						if (lineGeometry != null || shapeGeometry != null) {
+							Coordinate coord = new Coordinate(x, y);
+							if (lineGeometry != null)
+								lineDistance = computeDistance(coord, lineGeometry, null, false);
+							if (shapeGeometry != null)
+								shapeDistance = computeDistance(coord, shapeGeometry, locator, signedDistances);
+						}
 						distance = Math.min(lineDistance, Math.min(pointDistance, shapeDistance));
 					}
 
@@ -425,6 +457,7 @@ public class DistanceTools {
 	 * @return distance to the closest coordinate found in tree, or Double.POSITIVE_INFINITY is no coordinate is found
 	 * 
 	 * @see #createCoordinateCache(Collection)
+	 * @see KdTree2D
 	 */
 	public static double computeCoordinateDistance(Coordinate coord, STRtree tree) {
 		return computeCoordinateDistance(coord, tree, new CoordinateDistance());
@@ -432,8 +465,11 @@ public class DistanceTools {
 	
 	/**
 	 * Create an {@link STRtree} to enable nearest neighbor searching for a collection of coordinates.
+	 * <p>
+	 * Note that {@link KdTree2D} is usually much faster and more memory-efficient when only points are needed.
 	 * @param coords the coordinates to insert into the tree
 	 * @return the tree
+	 * @see KdTree2D
 	 */
 	public static STRtree createCoordinateCache(Collection<Coordinate> coords) {
 		var tree = new STRtree();
@@ -452,16 +488,6 @@ public class DistanceTools {
 		return nearest == null ? Double.POSITIVE_INFINITY : coord.distance(nearest);
 	}
 	
-	private static double computeCoordinateDistance(Coordinate coord, Collection<Coordinate> targets, STRtree tree, ItemDistance distance) {
-		if (tree != null) {
-			return computeCoordinateDistance(coord, tree, distance);
-		}
-		double d = Double.POSITIVE_INFINITY;
-		for (var target : targets)
-			d = Math.min(d, coord.distance(target));
-		return d;
-	}
-	
 	private static class CoordinateDistance implements ItemDistance {
 
 		@Override
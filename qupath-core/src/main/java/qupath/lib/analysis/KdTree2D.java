@@ -0,0 +1,360 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.analysis;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * A static 2D KD-tree for nearest neighbor and radius queries on points.
+ * <p>
+ * Points are stored in primitive arrays, which makes the tree much more compact and faster to query than
+ * a general-purpose spatial index (e.g. a JTS {@code STRtree} containing {@code Coordinate} objects).
+ * Query results are given as indices into the coordinate arrays used to create the tree.
+ * <p>
+ * The tree cannot be modified after it has been built, and is safe to query from multiple threads.
+ *
+ * @author Pete Bankhead
+ * @since v0.7.0
+ * @see DistanceTools
+ */
+public class KdTree2D {
+
+	/**
+	 * Maximum number of points to check by brute force, rather than subdividing further
+	 */
+	private static final int LEAF_SIZE = 8;
+
+	private final double[] xs;
+	private final double[] ys;
+	private final int[] inds;
+
+	private KdTree2D(double[] xs, double[] ys, int[] inds) {
+		this.xs = xs;
+		this.ys = ys;
+		this.inds = inds;
+		build(0, xs.length, 0);
+	}
+
+	/**
+	 * Create a tree containing the specified points.
+	 * The input arrays are copied, and so may be modified afterwards without affecting the tree.
+	 * @param x x-coordinates of the points
+	 * @param y y-coordinates of the points; must have the same length as x
+	 * @return the tree
+	 * @throws IllegalArgumentException if the number of x and y coordinates differ
+	 */
+	public static KdTree2D create(double[] x, double[] y) throws IllegalArgumentException {
+		if (x.length != y.length)
+			throw new IllegalArgumentException("Number of x (" + x.length + ") and y (" + y.length + ") coordinates must be the same");
+		int[] inds = IntStream.range(0, x.length).toArray();
+		return new KdTree2D(x.clone(), y.clone(), inds);
+	}
+
+	/**
+	 * Get the number of points in the tree.
+	 * @return
+	 */
+	public int size() {
+		return xs.length;
+	}
+
+	/**
+	 * Returns true if the tree contains no points.
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return xs.length == 0;
+	}
+
+	/**
+	 * Find the index of the closest point to the query location.
+	 * If several points are equally close, any one of them may be returned.
+	 * @param x
+	 * @param y
+	 * @return the index of the closest point, or -1 if the tree is empty
+	 */
+	public int nearest(double x, double y) {
+		if (isEmpty())
+			return -1;
+		var result = new Neighbors(1);
+		search(x, y, 0, xs.length, 0, result);
+		return result.inds[0];
+	}
+
+	/**
+	 * Find the distance from a query location to the closest point.
+	 * @param x
+	 * @param y
+	 * @return the distance to the closest point, or {@code Double.POSITIVE_INFINITY} if the tree is empty
+	 */
+	public double nearestDistance(double x, double y) {
+		if (isEmpty())
+			return Double.POSITIVE_INFINITY;
+		var result = new Neighbors(1);
+		search(x, y, 0, xs.length, 0, result);
+		return Math.sqrt(result.dist2[0]);
+	}
+
+	/**
+	 * Find the indices of the k closest points to a query location.
+	 * @param x
+	 * @param y
+	 * @param k the maximum number of neighbors to return
+	 * @return indices of up to k points, ordered by increasing distance
+	 */
+	public int[] kNearest(double x, double y, int k) {
+		if (k <= 0 || isEmpty())
+			return new int[0];
+		var result = new Neighbors(Math.min(k, xs.length));
+		search(x, y, 0, xs.length, 0, result);
+		return result.inds.clone();
+	}
+
+	/**
+	 * Find the indices of all points within a specified distance of a query location.
+	 * @param x
+	 * @param y
+	 * @param radius the maximum distance (inclusive)
+	 * @return indices of all points within the radius, in no particular order
+	 */
+	public int[] withinRadius(double x, double y, double radius) {
+		if (isEmpty() || !(radius >= 0))
+			return new int[0];
+		var result = new IntList();
+		searchRadius(x, y, radius * radius, 0, xs.length, 0, result);
+		return result.toArray();
+	}
+
+	/**
+	 * Find the distance to the closest point for multiple query locations, in parallel.
+	 * @param x x-coordinates of the query locations
+	 * @param y y-coordinates of the query locations
+	 * @return an array containing the distance to the closest point for each query location
+	 * @see #nearestDistance(double, double)
+	 */
+	public double[] nearestDistances(double[] x, double[] y) {
+		checkLengths(x, y);
+		double[] distances = new double[x.length];
+		IntStream.range(0, x.length).parallel().forEach(i -> distances[i] = nearestDistance(x[i], y[i]));
+		return distances;
+	}
+
+	/**
+	 * Find the k nearest neighbors for multiple query locations, in parallel.
+	 * @param x x-coordinates of the query locations
+	 * @param y y-coordinates of the query locations
+	 * @param k the maximum number of neighbors for each query location
+	 * @return an array containing the neighbor indices for each query location
+	 * @see #kNearest(double, double, int)
+	 */
+	public int[][] kNearest(double[] x, double[] y, int k) {
+		checkLengths(x, y);
+		int[][] neighbors = new int[x.length][];
+		IntStream.range(0, x.length).parallel().forEach(i -> neighbors[i] = kNearest(x[i], y[i], k));
+		return neighbors;
+	}
+
+	/**
+	 * Find all points within a specified distance for multiple query locations, in parallel.
+	 * @param x x-coordinates of the query locations
+	 * @param y y-coordinates of the query locations
+	 * @param radius the maximum distance (inclusive)
+	 * @return an array containing the indices of points within the radius for each query location
+	 * @see #withinRadius(double, double, double)
+	 */
+	public int[][] withinRadius(double[] x, double[] y, double radius) {
+		checkLengths(x, y);
+		int[][] neighbors = new int[x.length][];
+		IntStream.range(0, x.length).parallel().forEach(i -> neighbors[i] = withinRadius(x[i], y[i], radius));
+		return neighbors;
+	}
+
+	private static void checkLengths(double[] x, double[] y) {
+		if (x.length != y.length)
+			throw new IllegalArgumentException("Number of x (" + x.length + ") and y (" + y.length + ") coordinates must be the same");
+	}
+
+
+	/**
+	 * Recursively arrange points so that the median along the current axis is at the middle of the range,
+	 * with smaller values before and larger values afterwards.
+	 */
+	private void build(int from, int to, int axis) {
+		if (to - from <= LEAF_SIZE)
+			return;
+		int mid = (from + to) >>> 1;
+		select(from, to - 1, mid, axis == 0 ? xs : ys);
+		build(from, mid, 1 - axis);
+		build(mid + 1, to, 1 - axis);
+	}
+
+	/**
+	 * Quickselect, so that the kth element is in its sorted position within [left, right].
+	 */
+	private void select(int left, int right, int k, double[] values) {
+		while (right > left) {
+			// Median of three pivot, to avoid worst-case behavior for sorted input
+			int mid = (left + right) >>> 1;
+			if (values[mid] < values[left])
+				swap(left, mid);
+			if (values[right] < values[left])
+				swap(left, right);
+			if (values[right] < values[mid])
+				swap(mid, right);
+			double pivot = values[mid];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (values[i] < pivot)
+					i++;
+				while (values[j] > pivot)
+					j--;
+				if (i <= j) {
+					swap(i, j);
+					i++;
+					j--;
+				}
+			}
+			if (k <= j)
+				right = j;
+			else if (k >= i)
+				left = i;
+			else
+				return;
+		}
+	}
+
+	private void swap(int i, int j) {
+		double tx = xs[i];
+		xs[i] = xs[j];
+		xs[j] = tx;
+		double ty = ys[i];
+		ys[i] = ys[j];
+		ys[j] = ty;
+		int ti = inds[i];
+		inds[i] = inds[j];
+		inds[j] = ti;
+	}
+
+	private void search(double x, double y, int from, int to, int axis, Neighbors result) {
+		if (to - from <= LEAF_SIZE) {
+			for (int i = from; i < to; i++)
+				result.offer(inds[i], distance2(x, y, i));
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		result.offer(inds[mid], distance2(x, y, mid));
+		double diff = axis == 0 ? x - xs[mid] : y - ys[mid];
+		if (diff < 0) {
+			search(x, y, from, mid, 1 - axis, result);
+			if (diff * diff <= result.maxDistance2())
+				search(x, y, mid + 1, to, 1 - axis, result);
+		} else {
+			search(x, y, mid + 1, to, 1 - axis, result);
+			if (diff * diff <= result.maxDistance2())
+				search(x, y, from, mid, 1 - axis, result);
+		}
+	}
+
+	private void searchRadius(double x, double y, double radius2, int from, int to, int axis, IntList result) {
+		if (to - from <= LEAF_SIZE) {
+			for (int i = from; i < to; i++) {
+				if (distance2(x, y, i) <= radius2)
+					result.add(inds[i]);
+			}
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		if (distance2(x, y, mid) <= radius2)
+			result.add(inds[mid]);
+		double diff = axis == 0 ? x - xs[mid] : y - ys[mid];
+		if (diff <= 0 || diff * diff <= radius2)
+			searchRadius(x, y, radius2, from, mid, 1 - axis, result);
+		if (diff >= 0 || diff * diff <= radius2)
+			searchRadius(x, y, radius2, mid + 1, to, 1 - axis, result);
+	}
+
+	private double distance2(double x, double y, int i) {
+		double dx = x - xs[i];
+		double dy = y - ys[i];
+		return dx * dx + dy * dy;
+	}
+
+
+	/**
+	 * Bounded list of the closest points found so far, sorted by distance.
+	 */
+	private static class Neighbors {
+
+		private final int[] inds;
+		private final double[] dist2;
+		private int size = 0;
+
+		private Neighbors(int k) {
+			inds = new int[k];
+			dist2 = new double[k];
+		}
+
+		private double maxDistance2() {
+			return size < inds.length ? Double.POSITIVE_INFINITY : dist2[size - 1];
+		}
+
+		private void offer(int ind, double d2) {
+			if (size == inds.length) {
+				if (d2 >= dist2[size - 1])
+					return;
+				size--;
+			}
+			// Insertion sort - k is expected to be small
+			int i = size;
+			while (i > 0 && dist2[i - 1] > d2) {
+				dist2[i] = dist2[i - 1];
+				inds[i] = inds[i - 1];
+				i--;
+			}
+			dist2[i] = d2;
+			inds[i] = ind;
+			size++;
+		}
+
+	}
+
+
+	private static class IntList {
+
+		private int[] values = new int[16];
+		private int size = 0;
+
+		private void add(int value) {
+			if (size == values.length)
+				values = Arrays.copyOf(values, size * 2);
+			values[size++] = value;
+		}
+
+		private int[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+
+	}
+
+}
@@ -23,11 +23,14 @@ package qupath.lib.classifiers.pixel;
 
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
+import java.awt.image.WritableRaster;
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -36,6 +39,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import qupath.lib.awt.common.BufferedImageTools;
+import qupath.lib.color.ColorDeconvolutionStains;
 import qupath.lib.images.ImageData;
 import qupath.lib.images.servers.AbstractTileableImageServer;
 import qupath.lib.images.servers.ImageServer;
@@ -46,6 +50,7 @@ import qupath.lib.images.servers.ImageServerMetadata.ImageResolutionLevel;
 import qupath.lib.images.servers.PixelType;
 import qupath.lib.images.servers.TileRequest;
 import qupath.lib.images.servers.ImageServerBuilder.ServerBuilder;
+import qupath.lib.io.DiskImageCache;
 import qupath.lib.io.GsonTools;
 import qupath.lib.regions.RegionRequest;
 
@@ -79,6 +84,22 @@ public class PixelClassificationImageServer extends AbstractTileableImageServer
 	 */
 	private Map<TileRequest, BufferedImage> tileMap;
 	
+	/**
+	 * Optional disk cache, shared between all servers, so that classified tiles can be reused across sessions.
+	 */
+	private static volatile DiskImageCache resultCache;
+	
+	/**
+	 * Group used to identify tiles from this server within the result cache, or an empty string if tiles
+	 * should not be cached.
+	 */
+	private volatile String resultCacheGroup;
+	
+	/**
+	 * Color model of the last classified tile, used to restore tiles from the result cache.
+	 */
+	private volatile ColorModel lastColorModel;
+	
 
 	/**
 	 * Constructor.
@@ -201,6 +222,67 @@ public class PixelClassificationImageServer extends AbstractTileableImageServer
 	}
 	
 	
+	/**
+	 * Classify tiles in batches, adding the results to the tile cache.
+	 * <p>
+	 * This can be much faster than requesting the tiles individually if the classifier supports batch processing 
+	 * (see {@link PixelClassifier#batchApplyClassification(ImageData, List)}), because per-call overhead 
+	 * (e.g. when applying a deep learning model) is paid once per batch rather than once per tile.
+	 * <p>
+	 * Tiles that are already cached in memory or on disk are not classified again. 
+	 * Only tiles at the full resolution of the server are classified; lower-resolution tiles are generated 
+	 * from these when they are requested.
+	 * 
+	 * @param tiles the tiles to classify
+	 * @param batchSize the maximum number of tiles to pass to the classifier at once
+	 * @return the number of tiles that were classified
+	 * @throws IOException if the tiles could not be classified
+	 * @since v0.7.0
+	 */
+	public int prefetchTiles(Collection<TileRequest> tiles, int batchSize) throws IOException {
+		var memoryCache = getCache();
+		var diskCache = resultCache;
+		String group = diskCache == null ? "" : getResultCacheGroup();
+		double fullResDownsample = getDownsampleForResolution(0);
+		List<TileRequest> pending = new ArrayList<>();
+		for (var tile : tiles) {
+			if (Math.abs(tile.getDownsample() - fullResDownsample) > 1e-6)
+				continue;
+			if (getCachedTile(tile) != null)
+				continue;
+			if (!group.isEmpty()) {
+				var img = diskCache.get(group, getResultCacheKey(tile), this::getResultCacheColorModel);
+				if (img != null) {
+					if (memoryCache != null)
+						memoryCache.put(tile.getRegionRequest(), img);
+					continue;
+				}
+			}
+			pending.add(tile);
+		}
+		int n = Math.max(1, batchSize);
+		for (int i = 0; i < pending.size(); i += n) {
+			var batch = pending.subList(i, Math.min(pending.size(), i + n));
+			var requests = batch.stream().map(TileRequest::getRegionRequest).toList();
+			List<BufferedImage> results;
+			try {
+				results = classifier.batchApplyClassification(imageData, requests);
+			} catch (RuntimeException e) {
+				throw new IOException(e);
+			}
+			for (int j = 0; j < batch.size(); j++) {
+				var tile = batch.get(j);
+				var img = postprocessClassification(tile, results.get(j), group);
+				if (memoryCache != null)
+					memoryCache.put(tile.getRegionRequest(), img);
+			}
+		}
+		if (!pending.isEmpty())
+			logger.debug("Classified {} tiles in batches of up to {}", pending.size(), n);
+		return pending.size();
+	}
+	
+	
 	private BufferedImage tryToReadTile(TileRequest tile) {
 		try {
 			return readTile(tile);
@@ -212,6 +294,83 @@ public class PixelClassificationImageServer extends AbstractTileableImageServer
 	}
 	
 	
+	/**
+	 * Set a disk cache to store classified tiles, shared by all pixel classification servers.
+	 * <p>
+	 * Tiles are stored using a key derived from the full JSON representation of the classifier, the image type and stains, 
+	 * the path of the input server, and the size and last modified time of any local image files.
+	 * This means that running the same classifier on the same image again (e.g. to add measurements across a project) 
+	 * can reuse the previous predictions, rather than needing to apply the classifier again.
+	 * <p>
+	 * Servers created with a custom ID are not cached, because their output may depend upon other properties 
+	 * of the {@link ImageData}.
+	 * 
+	 * @param cache the cache to use, or null if tiles should not be cached on disk
+	 * @since v0.7.0
+	 */
+	public static void setResultCache(DiskImageCache cache) {
+		resultCache = cache;
+	}
+	
+	/**
+	 * Get the disk cache used to store classified tiles, if one has been set.
+	 * @return the cache, or null
+	 * @since v0.7.0
+	 * @see #setResultCache(DiskImageCache)
+	 */
+	public static DiskImageCache getResultCache() {
+		return resultCache;
+	}
+	
+	private String getResultCacheGroup() {
+		var group = resultCacheGroup;
+		if (group == null) {
+			group = createResultCacheGroup();
+			resultCacheGroup = group;
+		}
+		return group;
+	}
+	
+	private String createResultCacheGroup() {
+		// Custom IDs are used when the output can change, so we shouldn't cache on disk
+		if (customID != null)
+			return "";
+		var uris = server.getURIs();
+		if (uris == null || uris.isEmpty())
+			return "";
+		try {
+			var sb = new StringBuilder(GsonTools.getInstance().toJson(classifier));
+			sb.append('|').append(imageData.getImageType());
+			var stains = imageData.getColorDeconvolutionStains();
+			if (stains != null)
+				sb.append('|').append(ColorDeconvolutionStains.getColorDeconvolutionStainsAsString(stains, 8));
+			sb.append('|').append(DiskImageCache.createServerKey(server));
+			return DiskImageCache.createKey(sb.toString());
+		} catch (Exception e) {
+			logger.debug("Unable to create key for pixel classification cache: {}", e.getLocalizedMessage());
+			return "";
+		}
+	}
+	
+	private static String getResultCacheKey(TileRequest tileRequest) {
+		return String.format("%s|%d|%d|%d|%d|%d|%d",
+				Double.toString(tileRequest.getDownsample()),
+				tileRequest.getImageX(), tileRequest.getImageY(), tileRequest.getImageWidth(), tileRequest.getImageHeight(),
+				tileRequest.getZ(), tileRequest.getT());
+	}
+	
+	private ColorModel getResultCacheColorModel(WritableRaster raster) {
+		var cm = lastColorModel;
+		if (cm != null && cm.isCompatibleRaster(raster))
+			return cm;
+		try {
+			return getDefaultColorModel();
+		} catch (IOException e) {
+			logger.debug("Unable to get color model: {}", e.getLocalizedMessage());
+			return null;
+		}
+	}
+	
 	@Override
 	protected ColorModel getDefaultColorModel() throws IOException {
 		if (colorModel == null)
@@ -303,14 +462,20 @@ public class PixelClassificationImageServer extends AbstractTileableImageServer
 				var request2 = RegionRequest.createInstance(getPath(), fullResDownsample, tileRequest.getRegionRequest());
 				img = readRegion(request2);
 				img = BufferedImageTools.resize(img, tileRequest.getTileWidth(), tileRequest.getTileHeight(), allowSmoothInterpolation());
+				img = applyColorModel(img);
 			} else {
+				// Check the disk cache before classifying
+				var cache = resultCache;
+				String group = cache == null ? "" : getResultCacheGroup();
+				String key = group.isEmpty() ? null : getResultCacheKey(tileRequest);
+				if (key != null) {
+					img = cache.get(group, key, this::getResultCacheColorModel);
+					if (img != null)
+						return img;
+				}
 				// Classify at this resolution if need be
 				img = classifier.applyClassification(imageData, tileRequest.getRegionRequest());
-				img = BufferedImageTools.resize(img, tileRequest.getTileWidth(), tileRequest.getTileHeight(), allowSmoothInterpolation());
-			}
-			// If we have specified a color model, apply it now
-			if (colorModel != null && colorModel != img.getColorModel() && colorModel.isCompatibleRaster(img.getRaster())) {
-				img = new BufferedImage(colorModel, img.getRaster(), img.isAlphaPremultiplied(), null);
+				img = postprocessClassification(tileRequest, img, group);
 			}
 			return img;
 		} catch (IOException e) {
@@ -324,6 +489,31 @@ public class PixelClassificationImageServer extends AbstractTileableImageServer
 		}
 	}
 	
+	/**
+	 * Resize a classified tile and apply the color model, adding the result to the disk cache 
+	 * if the group is not empty.
+	 */
+	private BufferedImage postprocessClassification(TileRequest tileRequest, BufferedImage img, String group) {
+		img = BufferedImageTools.resize(img, tileRequest.getTileWidth(), tileRequest.getTileHeight(), allowSmoothInterpolation());
+		img = applyColorModel(img);
+		var cache = resultCache;
+		if (cache != null && !group.isEmpty()) {
+			lastColorModel = img.getColorModel();
+			cache.put(group, getResultCacheKey(tileRequest), img);
+		}
+		return img;
+	}
+	
+	/**
+	 * If we have specified a color model, apply it now.
+	 */
+	private BufferedImage applyColorModel(BufferedImage img) {
+		if (colorModel != null && colorModel != img.getColorModel() && colorModel.isCompatibleRaster(img.getRaster())) {
+			img = new BufferedImage(colorModel, img.getRaster(), img.isAlphaPremultiplied(), null);
+		}
+		return img;
+	}
+	
 	/**
 	 * Returns null (does not support ServerBuilders).
 	 */
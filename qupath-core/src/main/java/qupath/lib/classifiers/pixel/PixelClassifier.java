@@ -23,6 +23,8 @@ package qupath.lib.classifiers.pixel;
 
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import qupath.lib.images.ImageData;
 import qupath.lib.projects.Project;
@@ -72,6 +74,28 @@ public interface PixelClassifier {
      * @throws IOException if unable to read pixels from {@code server}
      */
     public BufferedImage applyClassification(ImageData<BufferedImage> server, RegionRequest request) throws IOException;
+    
+    /**
+     * Apply pixel classifier to several regions of an image.
+     * <p>
+     * This should give the same result as calling {@link #applyClassification(ImageData, RegionRequest)} 
+     * for each region, but classifiers that can process several regions together more efficiently 
+     * (e.g. by passing them to a deep learning model as a single batch) should override it.
+     * <p>
+     * The default implementation classifies each region in turn.
+     *
+     * @param imageData
+     * @param requests
+     * @return a {@code BufferedImage} for each request, in the same order as the requests
+     * @throws IOException if unable to read pixels from the image
+     * @since v0.7.0
+     */
+    public default List<BufferedImage> batchApplyClassification(ImageData<BufferedImage> imageData, List<RegionRequest> requests) throws IOException {
+    	List<BufferedImage> results = new ArrayList<>(requests.size());
+    	for (var request : requests)
+    		results.add(applyClassification(imageData, request));
+    	return results;
+    }
 
     /**
      * Get metadata that describes how the classifier should be called, and the kind of output it provides.
@@ -0,0 +1,380 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.servers;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.util.Arrays;
+import java.util.List;
+
+import qupath.lib.regions.RegionRequest;
+import qupath.lib.roi.interfaces.ROI;
+
+/**
+ * Helper class for {@link LabeledImageServer} that paints labels for area and point ROIs directly into an int array,
+ * without using Java2D.
+ * <p>
+ * ROIs are stored in drawing order, along with a coarse grid of bins containing the indices of the ROIs that
+ * overlap each bin. This is computed once, so that each tile only needs to visit the ROIs in the bins it overlaps,
+ * rather than querying the hierarchy.
+ * <p>
+ * Shapes are filled by sampling at pixel centers. This matches filling the shape with an unantialiased
+ * {@link java.awt.Graphics2D} using pure stroke control; with the default (normalized) stroke control,
+ * Java2D can differ by a pixel along boundaries.
+ *
+ * @author Pete Bankhead
+ * @since v0.7.0
+ */
+final class LabeledImageRasterizer {
+
+	/**
+	 * Flatness used when converting curved shapes (e.g. ellipses) to line segments, in output pixels.
+	 */
+	private static final double FLATNESS = 0.1;
+
+	private final ROI[] rois;
+	private final int[] labels;
+	private final boolean supported;
+
+	private final double binSize;
+	private final int nBinsX;
+	private final int nBinsY;
+	private final int[] binOffsets;
+	private final int[] binIndices;
+
+	/**
+	 * Create a rasterizer for the specified ROIs.
+	 * @param rois the ROIs, in the order in which they should be drawn (later ROIs overwrite earlier ones)
+	 * @param labels the label for each ROI
+	 * @param width width of the full-resolution image
+	 * @param height height of the full-resolution image
+	 * @param binSize size of each bin, in full-resolution pixels; this should usually be similar to the
+	 *                size of a tile
+	 */
+	LabeledImageRasterizer(List<ROI> rois, int[] labels, int width, int height, double binSize) {
+		if (rois.size() != labels.length)
+			throw new IllegalArgumentException("Number of ROIs (" + rois.size() + ") does not match number of labels (" + labels.length + ")");
+		if (!(binSize > 0))
+			throw new IllegalArgumentException("Bin size must be > 0!");
+		this.rois = rois.toArray(ROI[]::new);
+		this.labels = labels.clone();
+		this.supported = Arrays.stream(this.rois).noneMatch(ROI::isLine);
+		this.binSize = binSize;
+		this.nBinsX = Math.max(1, (int)Math.ceil(width / binSize));
+		this.nBinsY = Math.max(1, (int)Math.ceil(height / binSize));
+
+		// Count the ROIs in each bin, then fill the bins
+		int nBins = nBinsX * nBinsY;
+		int[] counts = new int[nBins + 1];
+		for (var roi : this.rois) {
+			int bx1 = binX(roi.getBoundsX() + roi.getBoundsWidth());
+			int by1 = binY(roi.getBoundsY() + roi.getBoundsHeight());
+			for (int by = binY(roi.getBoundsY()); by <= by1; by++) {
+				for (int bx = binX(roi.getBoundsX()); bx <= bx1; bx++)
+					counts[by * nBinsX + bx + 1]++;
+			}
+		}
+		for (int i = 1; i <= nBins; i++)
+			counts[i] += counts[i-1];
+		this.binOffsets = counts.clone();
+		this.binIndices = new int[counts[nBins]];
+		for (int i = 0; i < this.rois.length; i++) {
+			var roi = this.rois[i];
+			int bx1 = binX(roi.getBoundsX() + roi.getBoundsWidth());
+			int by1 = binY(roi.getBoundsY() + roi.getBoundsHeight());
+			for (int by = binY(roi.getBoundsY()); by <= by1; by++) {
+				for (int bx = binX(roi.getBoundsX()); bx <= bx1; bx++)
+					binIndices[counts[by * nBinsX + bx]++] = i;
+			}
+		}
+	}
+
+	private int binX(double x) {
+		return Math.clamp((long)Math.floor(x / binSize), 0, nBinsX - 1);
+	}
+
+	private int binY(double y) {
+		return Math.clamp((long)Math.floor(y / binSize), 0, nBinsY - 1);
+	}
+
+	/**
+	 * Query whether all the ROIs can be drawn by this rasterizer.
+	 * Lines are not supported, since they would require a stroke.
+	 * @return true if {@link #rasterize(RegionRequest, int, int, int[])} can be used, false otherwise
+	 */
+	boolean isSupported() {
+		return supported;
+	}
+
+	/**
+	 * Get the number of ROIs that can be drawn.
+	 * @return
+	 */
+	int size() {
+		return rois.length;
+	}
+
+	/**
+	 * Draw the labels for all ROIs that overlap a region.
+	 * @param request the region to draw
+	 * @param width the width of the output tile
+	 * @param height the height of the output tile
+	 * @param output array of length {@code width * height}, which should already contain the background label
+	 */
+	void rasterize(RegionRequest request, int width, int height, int[] output) {
+		if (output.length < width * height)
+			throw new IllegalArgumentException("Output array length " + output.length + " is too short for " + width + "x" + height + " tile");
+
+		double downsample = request.getDownsample();
+		double x0 = request.getX();
+		double y0 = request.getY();
+		double x1 = x0 + width * downsample;
+		double y1 = y0 + height * downsample;
+		var transform = new AffineTransform(1.0/downsample, 0, 0, 1.0/downsample, -x0/downsample, -y0/downsample);
+
+		Scanline scanline = null;
+		for (int ind : getCandidates(x0, y0, x1, y1)) {
+			var roi = rois[ind];
+			if (roi.getBoundsX() > x1 || roi.getBoundsY() > y1 ||
+					roi.getBoundsX() + roi.getBoundsWidth() < x0 || roi.getBoundsY() + roi.getBoundsHeight() < y0)
+				continue;
+			int label = labels[ind];
+			if (roi.isArea()) {
+				if (scanline == null)
+					scanline = new Scanline(width, height);
+				scanline.fill(roi.getShape().getPathIterator(transform, FLATNESS), label, output);
+			} else if (roi.isPoint()) {
+				for (var p : roi.getAllPoints()) {
+					int x = (int)((p.getX() - x0) / downsample);
+					int y = (int)((p.getY() - y0) / downsample);
+					if (x >= 0 && x < width && y >= 0 && y < height)
+						output[y * width + x] = label;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the indices of all ROIs in bins overlapping a region, in drawing order and without duplicates.
+	 */
+	private int[] getCandidates(double x0, double y0, double x1, double y1) {
+		int bx0 = binX(x0), bx1 = binX(x1);
+		int by0 = binY(y0), by1 = binY(y1);
+		if (bx0 == bx1 && by0 == by1) {
+			int bin = by0 * nBinsX + bx0;
+			return Arrays.copyOfRange(binIndices, binOffsets[bin], binOffsets[bin+1]);
+		}
+		int n = 0;
+		for (int by = by0; by <= by1; by++)
+			n += binOffsets[by * nBinsX + bx1 + 1] - binOffsets[by * nBinsX + bx0];
+		int[] candidates = new int[n];
+		n = 0;
+		for (int by = by0; by <= by1; by++) {
+			int start = binOffsets[by * nBinsX + bx0];
+			int len = binOffsets[by * nBinsX + bx1 + 1] - start;
+			System.arraycopy(binIndices, start, candidates, n, len);
+			n += len;
+		}
+		Arrays.sort(candidates);
+		int nUnique = 0;
+		for (int i = 0; i < n; i++) {
+			if (i == 0 || candidates[i] != candidates[i-1])
+				candidates[nUnique++] = candidates[i];
+		}
+		return nUnique == n ? candidates : Arrays.copyOf(candidates, nUnique);
+	}
+
+
+	/**
+	 * Scanline polygon filler using an active edge list.
+	 * Each instance reuses its buffers, and so should only be used by one thread.
+	 */
+	private static class Scanline {
+
+		private final int width;
+		private final int height;
+
+		// Edges that cross at least one row center, stored as parallel arrays
+		private int nEdges;
+		private int[] edgeRowStart = new int[16];
+		private int[] edgeRowEnd = new int[16];
+		private double[] edgeX = new double[16];
+		private double[] edgeSlope = new double[16];
+		private int[] edgeDir = new int[16];
+		private int[] edgeOrder = new int[16];
+		private final int[] rowCounts;
+
+		private int nActive;
+		private int[] active = new int[16];
+		private double[] activeX = new double[16];
+
+		private final double[] coords = new double[6];
+
+		Scanline(int width, int height) {
+			this.width = width;
+			this.height = height;
+			this.rowCounts = new int[height + 1];
+		}
+
+		void fill(PathIterator iterator, int label, int[] output) {
+			nEdges = 0;
+			double startX = 0, startY = 0, lastX = 0, lastY = 0;
+			while (!iterator.isDone()) {
+				switch (iterator.currentSegment(coords)) {
+					case PathIterator.SEG_MOVETO:
+						addEdge(lastX, lastY, startX, startY);
+						startX = lastX = coords[0];
+						startY = lastY = coords[1];
+						break;
+					case PathIterator.SEG_LINETO:
+						addEdge(lastX, lastY, coords[0], coords[1]);
+						lastX = coords[0];
+						lastY = coords[1];
+						break;
+					case PathIterator.SEG_CLOSE:
+						addEdge(lastX, lastY, startX, startY);
+						lastX = startX;
+						lastY = startY;
+						break;
+					default:
+						// Shouldn't happen, since the iterator should be flattened
+						throw new IllegalArgumentException("Unsupported path segment for rasterization");
+				}
+				iterator.next();
+			}
+			// Subpaths are implicitly closed when filling
+			addEdge(lastX, lastY, startX, startY);
+			if (nEdges < 2)
+				return;
+			scan(iterator.getWindingRule() == PathIterator.WIND_EVEN_ODD, label, output);
+		}
+
+		/**
+		 * Add an edge, if it crosses the center of any row in the output.
+		 * Rows are treated as half-open, so that a pixel at the top of a shape is filled but one at the bottom
+		 * is not.
+		 */
+		private void addEdge(double xa, double ya, double xb, double yb) {
+			if (ya == yb)
+				return;
+			int dir = 1;
+			if (ya > yb) {
+				double temp = xa; xa = xb; xb = temp;
+				temp = ya; ya = yb; yb = temp;
+				dir = -1;
+			}
+			int rowStart = Math.max(0, (int)Math.ceil(ya - 0.5));
+			int rowEnd = Math.min(height, (int)Math.ceil(yb - 0.5));
+			if (rowStart >= rowEnd)
+				return;
+			if (nEdges == edgeRowStart.length) {
+				int n = nEdges * 2;
+				edgeRowStart = Arrays.copyOf(edgeRowStart, n);
+				edgeRowEnd = Arrays.copyOf(edgeRowEnd, n);
+				edgeX = Arrays.copyOf(edgeX, n);
+				edgeSlope = Arrays.copyOf(edgeSlope, n);
+				edgeDir = Arrays.copyOf(edgeDir, n);
+			}
+			double slope = (xb - xa) / (yb - ya);
+			edgeRowStart[nEdges] = rowStart;
+			edgeRowEnd[nEdges] = rowEnd;
+			edgeX[nEdges] = xa + (rowStart + 0.5 - ya) * slope;
+			edgeSlope[nEdges] = slope;
+			edgeDir[nEdges] = dir;
+			nEdges++;
+		}
+
+		private void scan(boolean evenOdd, int label, int[] output) {
+			// Sort edges by the first row they cross (counting sort, since rows are bounded)
+			if (edgeOrder.length < nEdges)
+				edgeOrder = new int[edgeRowStart.length];
+			Arrays.fill(rowCounts, 0);
+			int minRow = height;
+			int maxRow = 0;
+			for (int i = 0; i < nEdges; i++) {
+				rowCounts[edgeRowStart[i] + 1]++;
+				minRow = Math.min(minRow, edgeRowStart[i]);
+				maxRow = Math.max(maxRow, edgeRowEnd[i]);
+			}
+			for (int r = 1; r <= height; r++)
+				rowCounts[r] += rowCounts[r-1];
+			for (int i = 0; i < nEdges; i++)
+				edgeOrder[rowCounts[edgeRowStart[i]]++] = i;
+			if (active.length < nEdges) {
+				active = new int[nEdges];
+				activeX = new double[nEdges];
+			}
+
+			nActive = 0;
+			int next = 0;
+			for (int row = minRow; row < maxRow; row++) {
+				// Update the active edges, discarding those that have ended
+				int n = 0;
+				for (int i = 0; i < nActive; i++) {
+					int e = active[i];
+					if (edgeRowEnd[e] > row) {
+						active[n] = e;
+						activeX[n] = edgeX[e] + (row - edgeRowStart[e]) * edgeSlope[e];
+						n++;
+					}
+				}
+				while (next < nEdges && edgeRowStart[edgeOrder[next]] == row) {
+					int e = edgeOrder[next++];
+					active[n] = e;
+					activeX[n] = edgeX[e];
+					n++;
+				}
+				nActive = n;
+
+				// Insertion sort by x - the order usually changes very little between rows
+				for (int i = 1; i < nActive; i++) {
+					int e = active[i];
+					double x = activeX[i];
+					int j = i - 1;
+					while (j >= 0 && activeX[j] > x) {
+						active[j+1] = active[j];
+						activeX[j+1] = activeX[j];
+						j--;
+					}
+					active[j+1] = e;
+					activeX[j+1] = x;
+				}
+
+				// Fill pixels with centers between crossings that are inside the shape
+				int offset = row * width;
+				int winding = 0;
+				for (int i = 0; i < nActive - 1; i++) {
+					winding += evenOdd ? 1 : edgeDir[active[i]];
+					boolean inside = evenOdd ? (winding & 1) != 0 : winding != 0;
+					if (!inside)
+						continue;
+					int xStart = Math.max(0, (int)Math.ceil(activeX[i] - 0.5));
+					int xEnd = Math.min(width, (int)Math.ceil(activeX[i+1] - 0.5));
+					if (xStart < xEnd)
+						Arrays.fill(output, offset + xStart, offset + xEnd, label);
+				}
+			}
+		}
+
+	}
+
+}
@@ -33,6 +33,7 @@ import java.awt.image.WritableRaster;
 import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -45,6 +46,7 @@ import java.util.Random;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -64,6 +66,7 @@ import qupath.lib.objects.PathObjectFilter;
 import qupath.lib.objects.PathObjectTools;
 import qupath.lib.objects.classes.PathClass;
 import qupath.lib.objects.hierarchy.PathObjectHierarchy;
+import qupath.lib.regions.ImagePlane;
 import qupath.lib.regions.ImageRegion;
 import qupath.lib.regions.RegionRequest;
 import qupath.lib.roi.RoiTools;
@@ -107,6 +110,14 @@ public class LabeledImageServer extends AbstractTileableImageServer implements G
 	private Map<PathObject, Integer> instanceClassMap = null;
 	private Map<Integer, PathObject> instanceClassMapInverse = null;
 
+	/**
+	 * Rasterizers for each plane, created lazily when tiles are requested.
+	 * Each is a snapshot of the objects on the plane, and is recreated if the hierarchy has changed.
+	 */
+	private final Map<ImagePlane, PlaneRasterizer> rasterizers = new ConcurrentHashMap<>();
+
+	private record PlaneRasterizer(long eventCount, LabeledImageRasterizer rasterizer) {}
+
 	private LabeledImageServer(final ImageData<BufferedImage> imageData, double downsample, int tileWidth, int tileHeight, LabeledServerParameters params, boolean multichannelOutput) {
 		super();
 
@@ -349,6 +360,8 @@ public class LabeledImageServer extends AbstractTileableImageServer implements G
 
 		private boolean grayscaleLut = false;
 
+		private boolean fastRasterization = false;
+
 		private float lineThickness = 1.0f;
 		private Map<PathClass, Integer> labels = new LinkedHashMap<>();
 		private Map<PathClass, Integer> boundaryLabels = new LinkedHashMap<>();
@@ -371,6 +384,7 @@ public class LabeledImageServer extends AbstractTileableImageServer implements G
 			this.roiFunction = params.roiFunction;
 			this.grayscaleLut = params.grayscaleLut;
 			this.shuffleInstanceLabels = params.shuffleInstanceLabels;
+			this.fastRasterization = params.fastRasterization;
 		}
 
 	}
@@ -520,6 +534,29 @@ public class LabeledImageServer extends AbstractTileableImageServer implements G
 		}
 
 
+		/**
+		 * Optionally draw labels using a dedicated rasterizer, rather than Java2D.
+		 * <p>
+		 * This is much faster when there are many objects (e.g. exporting instance labels for cells),
+		 * because the objects are indexed once and then each tile is painted directly into an array.
+		 * It is used only when the output is not multichannel, no boundary labels are set, and no
+		 * objects have line ROIs; otherwise, Java2D is used.
+		 * <p>
+		 * Shapes are filled by sampling at pixel centers, so pixels along object boundaries can differ
+		 * slightly from the default Java2D output.
+		 * The objects on each plane are indexed when the first tile is requested, and indexed again
+		 * if the hierarchy changes.
+		 * The default is false.
+		 * @param doFastRasterization
+		 * @return
+		 * @since v0.7.0
+		 */
+		public Builder fastRasterization(boolean doFastRasterization) {
+			params.fastRasterization = doFastRasterization;
+			return this;
+		}
+
+
 		/**
 		 * @return
 		 * @deprecated in favor of {@link #useInstanceLabels()}
@@ -872,6 +909,14 @@ public class LabeledImageServer extends AbstractTileableImageServer implements G
 	protected BufferedImage readTile(TileRequest tileRequest) throws IOException {
 		long startTime = System.currentTimeMillis();
 
+		var rasterizer = getRasterizer(tileRequest.getRegionRequest().getImagePlane());
+		if (rasterizer != null) {
+			var img = createRasterizedTile(tileRequest, rasterizer);
+			long endTime = System.currentTimeMillis();
+			logger.trace("Labelled tile rasterized in {} ms", endTime - startTime);
+			return img;
+		}
+
 		var pathObjects = hierarchy.getAllObjectsForRegion(tileRequest.getRegionRequest(), null)
 				.stream()
 				.filter(params.objectFilter)
@@ -891,6 +936,100 @@ public class LabeledImageServer extends AbstractTileableImageServer implements G
 	}
 
 
+	/**
+	 * Get a rasterizer for all the objects on a plane, if rasterization is possible.
+	 * @param plane
+	 * @return the rasterizer, or null if tiles should be painted with Java2D
+	 */
+	private LabeledImageRasterizer getRasterizer(ImagePlane plane) {
+		if (!params.fastRasterization || multichannelOutput || !params.boundaryLabels.isEmpty())
+			return null;
+		long eventCount = hierarchy.getEventCount();
+		var rasterizer = rasterizers.compute(plane, (p, current) -> {
+			if (current != null && current.eventCount() == eventCount)
+				return current;
+			return new PlaneRasterizer(eventCount, createRasterizer(p));
+		}).rasterizer();
+		return rasterizer.isSupported() ? rasterizer : null;
+	}
+
+	/**
+	 * Create a rasterizer containing all the objects to draw on a plane,
+	 * using the same drawing order as {@link #createIndexedColorTile(TileRequest, Collection)}.
+	 */
+	private LabeledImageRasterizer createRasterizer(ImagePlane plane) {
+		long startTime = System.currentTimeMillis();
+		List<ROI> rois = new ArrayList<>();
+		List<Integer> labels = new ArrayList<>();
+		if (instanceClassMapInverse != null) {
+			for (int c : params.labels.values()) {
+				var pathObject = instanceClassMapInverse.get(c);
+				if (pathObject != null && isOnPlane(pathObject, plane))
+					addRoi(rois, labels, params.roiFunction.apply(pathObject), c);
+			}
+		} else {
+			Map<PathClass, List<PathObject>> objectsByClass = hierarchy.getObjects(null, null).stream()
+					.filter(params.objectFilter)
+					.filter(p -> isOnPlane(p, plane))
+					.collect(Collectors.groupingBy(p -> getPathClass(p.getPathClass())));
+			for (var entry : params.labels.entrySet()) {
+				var pathObjects = objectsByClass.getOrDefault(getPathClass(entry.getKey()), Collections.emptyList());
+				for (var pathObject : pathObjects)
+					addRoi(rois, labels, params.roiFunction.apply(pathObject), entry.getValue());
+			}
+		}
+		double binSize = Math.max(getMetadata().getPreferredTileWidth(), getMetadata().getPreferredTileHeight()) * getDownsampleForResolution(0);
+		var rasterizer = new LabeledImageRasterizer(rois, labels.stream().mapToInt(i -> i).toArray(), getWidth(), getHeight(), binSize);
+		long endTime = System.currentTimeMillis();
+		logger.debug("Indexed {} objects for rasterizing {} in {} ms", rasterizer.size(), plane, endTime - startTime);
+		return rasterizer;
+	}
+
+	private static void addRoi(List<ROI> rois, List<Integer> labels, ROI roi, int label) {
+		if (roi != null && !roi.isEmpty()) {
+			rois.add(roi);
+			labels.add(label);
+		}
+	}
+
+	private static boolean isOnPlane(PathObject pathObject, ImagePlane plane) {
+		var roi = pathObject.getROI();
+		return roi != null && roi.getZ() == plane.getZ() && roi.getT() == plane.getT();
+	}
+
+	/**
+	 * Create a tile using a rasterizer. This gives the same output types as
+	 * {@link #createIndexedColorTile(TileRequest, Collection)}.
+	 */
+	private BufferedImage createRasterizedTile(TileRequest tileRequest, LabeledImageRasterizer rasterizer) {
+		int width = tileRequest.getTileWidth();
+		int height = tileRequest.getTileHeight();
+		int[] labels = new int[width * height];
+		int bgLabel = params.labels.get(params.unannotatedClass);
+		if (bgLabel != 0)
+			Arrays.fill(labels, bgLabel);
+		rasterizer.rasterize(tileRequest.getRegionRequest(), width, height, labels);
+
+		if (maxLabel >= 65536) {
+			// Labels are packed as RGB values, as they would be when drawn with Java2D
+			var img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+			for (int i = 0; i < labels.length; i++)
+				labels[i] &= 0xFFFFFF;
+			img.getRaster().setDataElements(0, 0, width, height, labels);
+			return img;
+		}
+		WritableRaster raster;
+		if (maxLabel > 255)
+			raster = WritableRaster.createWritableRaster(
+					new BandedSampleModel(DataBuffer.TYPE_USHORT, width, height, 1),
+					null);
+		else
+			raster = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY).getRaster();
+		raster.setSamples(0, 0, width, height, 0, labels);
+		return new BufferedImage(colorModel, raster, false, null);
+	}
+
+
 	private BufferedImage createMultichannelTile(TileRequest tileRequest, Collection<PathObject> pathObjects) {
 
 		int nChannels = nChannels();
@@ -0,0 +1,66 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.writers;
+
+/**
+ * Throughput information for a pipelined tile export performed by a {@link TileExporter}.
+ * <p>
+ * Stage times are summed across all threads, so can exceed the elapsed time.
+ *
+ * @param writtenCount number of images (including labeled images) that were written
+ * @param failedCount number of images that could not be written
+ * @param bytesWritten total number of encoded bytes written
+ * @param elapsedNanos wall time from submitting the first tile until all images were written, in nanoseconds
+ * @param readNanos total time spent reading images, in nanoseconds
+ * @param labelNanos total time spent rendering labeled images, in nanoseconds
+ * @param encodeNanos total time spent encoding images, in nanoseconds
+ * @param writeNanos total time spent writing encoded images, in nanoseconds
+ * @since v0.7.0
+ */
+public record TileExportMetrics(int writtenCount, int failedCount, long bytesWritten, long elapsedNanos,
+		long readNanos, long labelNanos, long encodeNanos, long writeNanos) {
+
+	/**
+	 * Get the number of images written per second.
+	 * @return
+	 */
+	public double getImagesPerSecond() {
+		return elapsedNanos == 0 ? Double.NaN : writtenCount * 1e9 / elapsedNanos;
+	}
+
+	/**
+	 * Get the number of megabytes written per second.
+	 * @return
+	 */
+	public double getMegabytesPerSecond() {
+		return elapsedNanos == 0 ? Double.NaN : bytesWritten / (1024.0 * 1024.0) * 1e9 / elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Tile export: %d images written (%d failed) in %.2f s (%.1f images/s, %.2f MB/s), " +
+						"total stage times read=%.1f s, label=%.1f s, encode=%.1f s, write=%.1f s",
+				writtenCount, failedCount, elapsedNanos / 1e9, getImagesPerSecond(), getMegabytesPerSecond(),
+				readNanos / 1e9, labelNanos / 1e9, encodeNanos / 1e9, writeNanos / 1e9);
+	}
+
+}
@@ -0,0 +1,406 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.writers;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import qupath.lib.common.GeneralTools;
+import qupath.lib.common.ThreadTools;
+import qupath.lib.images.servers.AbstractImageServer;
+import qupath.lib.images.servers.ImageServer;
+import qupath.lib.images.servers.ImageServerBuilder.ServerBuilder;
+import qupath.lib.images.servers.ImageServerMetadata;
+import qupath.lib.regions.RegionRequest;
+
+/**
+ * Staged pipeline used by {@link TileExporter} to read, encode and write tiles using separate thread pools.
+ * <p>
+ * Reading from the image, rendering labeled images, encoding and writing each happen in their own pool,
+ * so that slow I/O does not prevent other tiles from being read and encoded.
+ * The number of images in flight is bounded, so that tiles are not read much faster than they can be written.
+ * <p>
+ * Encoded images can be written either as separate files, or to a sequence of uncompressed zip archives
+ * containing a fixed number of tiles each.
+ *
+ * @author Pete Bankhead
+ * @since v0.7.0
+ */
+class TileExportPipeline {
+
+	private static final Logger logger = LoggerFactory.getLogger(TileExportPipeline.class);
+
+	private final Path dirOutput;
+	private final int tileWidth, tileHeight;
+	private final ArchiveWriter archiveWriter;
+
+	private final ExecutorService readPool;
+	private final ExecutorService labelPool;
+	private final ExecutorService encodePool;
+	private final ExecutorService writePool;
+
+	private final int maxInFlight;
+	private final Semaphore permits;
+
+	private final LongAdder readNanos = new LongAdder();
+	private final LongAdder labelNanos = new LongAdder();
+	private final LongAdder encodeNanos = new LongAdder();
+	private final LongAdder writeNanos = new LongAdder();
+	private final LongAdder bytesWritten = new LongAdder();
+	private final AtomicInteger writtenCount = new AtomicInteger();
+	private final AtomicInteger failedCount = new AtomicInteger();
+
+	private final long startTime = System.nanoTime();
+
+	/**
+	 * Create a new pipeline.
+	 * @param dirOutput the base output directory
+	 * @param tileWidth the requested tile width, used if tiles need to be resized or padded
+	 * @param tileHeight the requested tile height, used if tiles need to be resized or padded
+	 * @param archiveWriter optional archive writer; if null, each image will be written to a separate file
+	 */
+	TileExportPipeline(Path dirOutput, int tileWidth, int tileHeight, ArchiveWriter archiveWriter) {
+		this.dirOutput = dirOutput;
+		this.tileWidth = tileWidth;
+		this.tileHeight = tileHeight;
+		this.archiveWriter = archiveWriter;
+
+		int nThreads = ThreadTools.getParallelism();
+		this.readPool = Executors.newFixedThreadPool(nThreads, ThreadTools.createThreadFactory("tile-exporter-read-", true));
+		this.labelPool = Executors.newFixedThreadPool(nThreads, ThreadTools.createThreadFactory("tile-exporter-label-", true));
+		this.encodePool = Executors.newFixedThreadPool(nThreads, ThreadTools.createThreadFactory("tile-exporter-encode-", true));
+		// Archives must be written sequentially, but separate files benefit from concurrent writes on network drives
+		this.writePool = Executors.newFixedThreadPool(archiveWriter == null ? nThreads : 1,
+				ThreadTools.createThreadFactory("tile-exporter-write-", true));
+
+		this.maxInFlight = nThreads * 4;
+		this.permits = new Semaphore(maxInFlight);
+	}
+
+	/**
+	 * Submit an image for export.
+	 * This will block if too many images are already in flight.
+	 * @param item the image to export
+	 * @throws InterruptedException if interrupted while waiting to submit the image
+	 */
+	void submit(ExportItem item) throws InterruptedException {
+		permits.acquire();
+		var readStagePool = item.isLabel() ? labelPool : readPool;
+		var readStageNanos = item.isLabel() ? labelNanos : readNanos;
+		CompletableFuture.supplyAsync(() -> timed(readStageNanos,
+						() -> TileExporter.readTileImage(item.server(), item.request(), tileWidth, tileHeight, item.ensureSize())), readStagePool)
+				.thenApplyAsync(img -> timed(encodeNanos, () -> encode(item, img)), encodePool)
+				.thenAcceptAsync(bytes -> timed(writeNanos, () -> write(item, bytes)), writePool)
+				.whenComplete((v, e) -> {
+					if (e == null) {
+						writtenCount.incrementAndGet();
+					} else {
+						failedCount.incrementAndGet();
+						var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+						logger.error("Error writing tile {}: {}", item.name(), cause.getMessage(), cause);
+					}
+					permits.release();
+				});
+	}
+
+	/**
+	 * Wait for all submitted images to be written, then shut down the pipeline.
+	 * @return metrics summarizing the export
+	 * @throws InterruptedException if interrupted while waiting; in this case, all pending tasks are cancelled
+	 * @throws IOException if an archive could not be closed
+	 */
+	TileExportMetrics finish() throws InterruptedException, IOException {
+		try {
+			permits.acquire(maxInFlight);
+		} catch (InterruptedException e) {
+			cancel();
+			throw e;
+		}
+		shutdownPools(false);
+		if (archiveWriter != null)
+			archiveWriter.close();
+		return new TileExportMetrics(
+				writtenCount.get(), failedCount.get(), bytesWritten.sum(),
+				System.nanoTime() - startTime,
+				readNanos.sum(), labelNanos.sum(), encodeNanos.sum(), writeNanos.sum());
+	}
+
+	/**
+	 * Cancel all pending tasks.
+	 */
+	void cancel() {
+		shutdownPools(true);
+		if (archiveWriter != null) {
+			try {
+				archiveWriter.close();
+			} catch (IOException e) {
+				logger.warn("Unable to close archive: {}", e.getMessage(), e);
+			}
+		}
+	}
+
+	private void shutdownPools(boolean now) {
+		for (var pool : new ExecutorService[] {readPool, labelPool, encodePool, writePool}) {
+			if (now)
+				pool.shutdownNow();
+			else
+				pool.shutdown();
+		}
+	}
+
+	private byte[] encode(ExportItem item, BufferedImage img) throws IOException {
+		// Wrap the image so that writers can still access metadata (e.g. pixel sizes) from the original server
+		var server = new PreparedImageServer(item.server(), img, item.request().getDownsample());
+		var ext = GeneralTools.getExtension(item.name()).orElse(null);
+		var writers = ImageWriterTools.getCompatibleWriters(server, ext);
+		for (var writer : writers) {
+			try (var stream = new ByteArrayOutputStream()) {
+				writer.writeImage(server, stream);
+				return stream.toByteArray();
+			} catch (Exception e) {
+				logger.warn("Unable to write image", e);
+			}
+		}
+		throw new IOException("Unable to write " + item.name() + "!  No compatible writer found.");
+	}
+
+	private Void write(ExportItem item, byte[] bytes) throws IOException {
+		if (archiveWriter == null) {
+			var path = dirOutput.resolve(item.name());
+			Files.write(path, bytes);
+		} else {
+			archiveWriter.write(item.tileIndex(), item.name(), bytes);
+		}
+		bytesWritten.add(bytes.length);
+		return null;
+	}
+
+	private static <T> T timed(LongAdder nanos, IOSupplier<T> supplier) {
+		long start = System.nanoTime();
+		try {
+			return supplier.get();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			nanos.add(System.nanoTime() - start);
+		}
+	}
+
+	@FunctionalInterface
+	private interface IOSupplier<T> {
+		T get() throws IOException;
+	}
+
+
+	/**
+	 * An image to export.
+	 * @param server the server from which the image should be read
+	 * @param request the region to read
+	 * @param name the output path, relative to the output directory (or within an archive)
+	 * @param isLabel true if this is a labeled image rather than the original pixels
+	 * @param ensureSize true if the image should be resized or padded to match the tile size
+	 * @param tileIndex index of the tile, used to determine the archive to which the image should be written
+	 */
+	record ExportItem(ImageServer<BufferedImage> server, RegionRequest request, String name,
+			boolean isLabel, boolean ensureSize, int tileIndex) {}
+
+
+	/**
+	 * Write images to a sequence of uncompressed zip archives, each containing a fixed number of tiles.
+	 * <p>
+	 * This is not thread-safe, and should only be called from a single thread.
+	 */
+	static class ArchiveWriter {
+
+		private final Path dirOutput;
+		private final String baseName;
+		private final int tilesPerArchive;
+		private final int nTiles;
+		private final int imagesPerTile;
+
+		private final Map<Integer, ZipOutputStream> openArchives = new HashMap<>();
+		private final Map<Integer, Integer> remainingImages = new HashMap<>();
+
+		/**
+		 * Create a new archive writer.
+		 * @param dirOutput directory in which the archives should be created
+		 * @param baseName base name for each archive
+		 * @param tilesPerArchive maximum number of tiles to include in each archive
+		 * @param nTiles total number of tiles that will be written
+		 * @param imagesPerTile number of images written for each tile (e.g. 2 if there are labeled images)
+		 */
+		ArchiveWriter(Path dirOutput, String baseName, int tilesPerArchive, int nTiles, int imagesPerTile) {
+			this.dirOutput = dirOutput;
+			this.baseName = baseName;
+			this.tilesPerArchive = tilesPerArchive;
+			this.nTiles = nTiles;
+			this.imagesPerTile = imagesPerTile;
+		}
+
+		/**
+		 * Get the name of the archive that will contain a specified tile.
+		 * @param tileIndex
+		 * @return
+		 */
+		String getArchiveName(int tileIndex) {
+			return String.format("%s-%04d.zip", baseName, tileIndex / tilesPerArchive);
+		}
+
+		void write(int tileIndex, String name, byte[] bytes) throws IOException {
+			int archiveIndex = tileIndex / tilesPerArchive;
+			var zip = openArchives.get(archiveIndex);
+			if (zip == null) {
+				var path = dirOutput.resolve(getArchiveName(tileIndex));
+				if (Files.exists(path))
+					logger.warn("Overwriting existing archive {}", path);
+				zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+				openArchives.put(archiveIndex, zip);
+				int nArchiveTiles = Math.min(tilesPerArchive, nTiles - archiveIndex * tilesPerArchive);
+				remainingImages.put(archiveIndex, nArchiveTiles * imagesPerTile);
+			}
+			// Images are usually compressed already, so store them directly - which also keeps this thread fast
+			var crc = new CRC32();
+			crc.update(bytes);
+			var entry = new ZipEntry(name.replace('\\', '/'));
+			entry.setMethod(ZipEntry.STORED);
+			entry.setSize(bytes.length);
+			entry.setCompressedSize(bytes.length);
+			entry.setCrc(crc.getValue());
+			zip.putNextEntry(entry);
+			zip.write(bytes);
+			zip.closeEntry();
+
+			// Close the archive as soon as it is complete
+			int remaining = remainingImages.merge(archiveIndex, -1, Integer::sum);
+			if (remaining <= 0) {
+				remainingImages.remove(archiveIndex);
+				openArchives.remove(archiveIndex).close();
+			}
+		}
+
+		void close() throws IOException {
+			IOException exception = null;
+			for (var zip : openArchives.values()) {
+				try {
+					zip.close();
+				} catch (IOException e) {
+					exception = e;
+				}
+			}
+			openArchives.clear();
+			remainingImages.clear();
+			if (exception != null)
+				throw exception;
+		}
+
+	}
+
+
+	/**
+	 * Simple server to provide an image that has already been read, while retaining the relevant
+	 * metadata from the original server.
+	 * This avoids adding single-use images to the tile cache.
+	 */
+	private static class PreparedImageServer extends AbstractImageServer<BufferedImage> {
+
+		private final BufferedImage img;
+		private final ImageServerMetadata metadata;
+
+		private PreparedImageServer(ImageServer<BufferedImage> server, BufferedImage img, double downsample) {
+			super(BufferedImage.class);
+			this.img = img;
+			var originalMetadata = server.getMetadata();
+			var builder = new ImageServerMetadata.Builder(originalMetadata)
+					.width(img.getWidth())
+					.height(img.getHeight())
+					.sizeZ(1)
+					.sizeT(1)
+					.preferredTileSize(img.getWidth(), img.getHeight())
+					.levelsFromDownsamples(1.0);
+			var cal = originalMetadata.getPixelCalibration();
+			if (cal.hasPixelSizeMicrons())
+				builder.pixelSizeMicrons(cal.getPixelWidthMicrons() * downsample, cal.getPixelHeightMicrons() * downsample);
+			if (!Double.isNaN(originalMetadata.getMagnification()))
+				builder.magnification(originalMetadata.getMagnification() / downsample);
+			this.metadata = builder.build();
+		}
+
+		@Override
+		public BufferedImage readRegion(RegionRequest request) throws IOException {
+			if (request.getDownsample() != 1.0 || request.getX() != 0 || request.getY() != 0
+					|| request.getWidth() != img.getWidth() || request.getHeight() != img.getHeight())
+				throw new IllegalArgumentException("Only the full image can be returned, but I got a request for " + request);
+			return img;
+		}
+
+		@Override
+		public Collection<URI> getURIs() {
+			return Collections.emptyList();
+		}
+
+		@Override
+		protected String createID() {
+			return UUID.randomUUID().toString();
+		}
+
+		@Override
+		public String getServerType() {
+			return "Tile export image";
+		}
+
+		@Override
+		public ImageServerMetadata getOriginalMetadata() {
+			return metadata;
+		}
+
+		@Override
+		protected ServerBuilder<BufferedImage> createServerBuilder() {
+			return null;
+		}
+
+	}
+
+}
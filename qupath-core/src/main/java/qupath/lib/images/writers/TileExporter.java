@@ -37,6 +37,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
@@ -101,8 +102,13 @@ public class TileExporter  {
 	private boolean exportJson = false;
 	private String labelId = null;
 
+	private boolean pipelined = false;
+	private int tilesPerArchive = 0;
+
 	private ImageServer<BufferedImage> serverLabeled;
 
+	private TileExportMetrics lastMetrics;
+
 	/**
 	 * Create a builder to export tiles.
 	 * @param imageData
@@ -450,6 +456,50 @@ public class TileExporter  {
 		return this;
 	}
 	
+	/**
+	 * Optionally export tiles using a staged pipeline, where reading, rendering labeled images, encoding 
+	 * and writing are performed in separate thread pools with a bounded number of tiles in flight.
+	 * <p>
+	 * This can substantially improve throughput when exporting many tiles, particularly when writing 
+	 * to a slow or network drive.
+	 * Metrics describing the export are available from {@link #getLastExportMetrics()} afterwards.
+	 * @param pipelined
+	 * @return this exporter
+	 * @since v0.7.0
+	 */
+	public TileExporter pipelined(boolean pipelined) {
+		this.pipelined = pipelined;
+		return this;
+	}
+	
+	/**
+	 * Optionally write tiles to zip archives, each containing up to the specified number of tiles, 
+	 * rather than writing each tile to a separate file.
+	 * Labeled images are written to the same archive as the corresponding tile, and images are stored 
+	 * without further compression.
+	 * <p>
+	 * Writing archives requires a pipelined export, and so implies {@link #pipelined(boolean)}.
+	 * @param tilesPerArchive the maximum number of tiles per archive, or 0 to write separate files
+	 * @return this exporter
+	 * @since v0.7.0
+	 */
+	public TileExporter archive(int tilesPerArchive) {
+		if (tilesPerArchive < 0)
+			throw new IllegalArgumentException("Number of tiles per archive must be >= 0");
+		this.tilesPerArchive = tilesPerArchive;
+		return this;
+	}
+	
+	/**
+	 * Get metrics describing the last pipelined export.
+	 * @return the metrics, or null if no pipelined export has been completed
+	 * @see #pipelined(boolean)
+	 * @since v0.7.0
+	 */
+	public TileExportMetrics getLastExportMetrics() {
+		return lastMetrics;
+	}
+	
 	
 	/**
 	 * Create region requests, along with information about whether we have a partial tile (which should not be resized/padded) or not.
@@ -565,11 +615,16 @@ public class TileExporter  {
 		if (!new File(dirOutput).isDirectory())
 			throw new IOException("Output directory " + dirOutput + " does not exist!");
 		
+		boolean useArchive = tilesPerArchive > 0;
+		boolean usePipeline = pipelined || useArchive;
+		
 		// Make sure we have any required subdirectories
-		if (imageSubDir != null)
-			new File(dirOutput, imageSubDir).mkdirs();
-		if (labelSubDir != null)
-			new File(dirOutput, labelSubDir).mkdirs();
+		if (!useArchive) {
+			if (imageSubDir != null)
+				new File(dirOutput, imageSubDir).mkdirs();
+			if (labelSubDir != null)
+				new File(dirOutput, labelSubDir).mkdirs();
+		}
 
 		if (serverLabeled != null) {
 			if (extLabeled == null)
@@ -586,8 +641,6 @@ public class TileExporter  {
 		if (requests.size() > 1)
 			logger.info("Exporting {} tiles", requests.size());
 
-		var pool = Executors.newFixedThreadPool(ThreadTools.getParallelism(), ThreadTools.createThreadFactory("tile-exporter", true));
-
 		String imageName = GeneralTools.stripInvalidFilenameChars(
 				GeneralTools.stripExtension(server.getMetadata().getName())
 				);
@@ -616,7 +669,21 @@ public class TileExporter  {
 		
 		// Maintain a record of what we exported
 		List<TileExportEntry> exportImages = new ArrayList<>();
+		
+		// Either submit independent tasks to a pool, or pass tiles through a pipeline
+		ExecutorService pool = null;
+		TileExportPipeline pipeline = null;
+		TileExportPipeline.ArchiveWriter archiveWriter = null;
+		if (usePipeline) {
+			if (useArchive)
+				archiveWriter = new TileExportPipeline.ArchiveWriter(Paths.get(dirOutput), imageName + "-tiles",
+						tilesPerArchive, requests.size(), serverLabeled == null ? 1 : 2);
+			pipeline = new TileExportPipeline(Paths.get(dirOutput), tileWidth, tileHeight, archiveWriter);
+		} else {
+			pool = Executors.newFixedThreadPool(ThreadTools.getParallelism(), ThreadTools.createThreadFactory("tile-exporter", true));
+		}
 
+		int tileIndex = 0;
 		for (var r : requests) {
 			
 			boolean ensureSize = !r.partialTile;
@@ -646,17 +713,35 @@ public class TileExporter  {
 				taskLabels = new ExportTask(serverLabeled, r.request.updatePath(serverLabeled.getPath()),
 						pathLabelsOutput, tileWidth, tileHeight, ensureSize);
 			}
-			exportImages.add(new TileExportEntry(
+			var entry = new TileExportEntry(
 					r.request.updatePath(imagePathName),
 //					pixelSize,
 					exportImageName,
-					exportLabelName));
-
-			if (taskImage != null)
-				pool.submit(taskImage);
-			if (taskLabels != null) {
-				pool.submit(taskLabels);
+					exportLabelName);
+			if (archiveWriter != null)
+				entry.archive = archiveWriter.getArchiveName(tileIndex);
+			exportImages.add(entry);
+
+			if (pipeline != null) {
+				try {
+					pipeline.submit(new TileExportPipeline.ExportItem(server, r.request, exportImageName, false, ensureSize, tileIndex));
+					if (taskLabels != null)
+						pipeline.submit(new TileExportPipeline.ExportItem(serverLabeled, r.request.updatePath(serverLabeled.getPath()),
+								exportLabelName, true, ensureSize, tileIndex));
+				} catch (InterruptedException e) {
+					pipeline.cancel();
+					logger.error("Tile export interrupted: {}", e.getLocalizedMessage());
+					Thread.currentThread().interrupt();
+					throw new IOException(e);
+				}
+			} else {
+				if (taskImage != null)
+					pool.submit(taskImage);
+				if (taskLabels != null) {
+					pool.submit(taskLabels);
+				}
 			}
+			tileIndex++;
 		}
 		
 		// Write JSON, if we need to
@@ -694,6 +779,18 @@ public class TileExporter  {
 			}
 		}
 
+		if (pipeline != null) {
+			try {
+				lastMetrics = pipeline.finish();
+				logger.info("{}", lastMetrics);
+			} catch (InterruptedException e) {
+				logger.error("Tile export interrupted: {}", e.getLocalizedMessage());
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			}
+			return;
+		}
+
 		pool.shutdown();
 		try {
 			pool.awaitTermination(24, TimeUnit.HOURS);
@@ -743,6 +840,7 @@ public class TileExporter  {
 //		private PixelCalibration pixel_size;
 		private String image;
 		private String labels;
+		private String archive;
 		
 		TileExportEntry (RegionRequest region, String image, String labels) {
 			this.region = region;
@@ -853,6 +951,26 @@ public class TileExporter  {
 		return img;
 	}
 	
+	/**
+	 * Read the image for a tile, resizing or padding it to the tile size if required.
+	 * @param server the server from which to read
+	 * @param request the region to read
+	 * @param tileWidth the expected tile width
+	 * @param tileHeight the expected tile height
+	 * @param ensureSize if true, ensure the image has the specified tile width and height
+	 * @return the image for the tile
+	 * @throws IOException
+	 */
+	static BufferedImage readTileImage(ImageServer<BufferedImage> server, RegionRequest request, int tileWidth, int tileHeight, boolean ensureSize) throws IOException {
+		if (!ensureSize)
+			return server.readRegion(request);
+		var img = server.readRegion(request.intersect2D(0, 0, server.getWidth(), server.getHeight()));
+		if (img.getWidth() == tileWidth && img.getHeight() == tileHeight)
+			return img;
+		logger.warn("Adjusting tile to {}x{} pixels for {}", tileWidth, tileHeight, request);
+		return readFixedSizeRegion(server, request, tileWidth, tileHeight);
+	}
+	
 	private static BufferedImage readFixedSizeRegion(ImageServer<BufferedImage> server, RegionRequest request, int width, int height) throws IOException {
 		
 		BufferedImage img;
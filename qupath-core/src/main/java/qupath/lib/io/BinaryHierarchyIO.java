@@ -0,0 +1,1253 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
+import org.locationtech.jts.io.WKBWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import qupath.lib.geom.Point2;
+import qupath.lib.measurements.MeasurementList;
+import qupath.lib.measurements.MeasurementList.MeasurementListType;
+import qupath.lib.measurements.MeasurementListFactory;
+import qupath.lib.objects.PathAnnotationObject;
+import qupath.lib.objects.PathCellObject;
+import qupath.lib.objects.PathDetectionObject;
+import qupath.lib.objects.PathObject;
+import qupath.lib.objects.PathObjects;
+import qupath.lib.objects.PathRootObject;
+import qupath.lib.objects.PathTileObject;
+import qupath.lib.objects.TMACoreObject;
+import qupath.lib.objects.classes.PathClass;
+import qupath.lib.objects.hierarchy.DefaultTMAGrid;
+import qupath.lib.objects.hierarchy.DeferredObjects;
+import qupath.lib.objects.hierarchy.PathObjectHierarchy;
+import qupath.lib.regions.ImagePlane;
+import qupath.lib.regions.ImageRegion;
+import qupath.lib.roi.EllipseROI;
+import qupath.lib.roi.GeometryTools;
+import qupath.lib.roi.LineROI;
+import qupath.lib.roi.PointsROI;
+import qupath.lib.roi.PolygonROI;
+import qupath.lib.roi.PolylineROI;
+import qupath.lib.roi.ROIs;
+import qupath.lib.roi.RectangleROI;
+import qupath.lib.roi.interfaces.ROI;
+
+/**
+ * Compact binary encoding for a {@link PathObjectHierarchy}, used within .qpdata files instead of Java serialization
+ * (from data file version 5).
+ * <p>
+ * Objects are written depth-first, in chunks containing up to a few thousand objects.
+ * Each chunk is self-contained: classifications and measurement names are interned within the chunk,
+ * and measurements are stored by column rather than by object.
+ * This means that only one chunk needs to be held in memory at a time when reading or writing,
+ * in addition to the objects themselves.
+ * <p>
+ * Detections (along with their descendants) are written after all other objects, grouped by parent and by tile.
+ * Each detection chunk records the bounding box of its objects, so that it can optionally be loaded lazily
+ * when the hierarchy is queried for an overlapping region.
+ * <p>
+ * Objects of types that aren't known here (e.g. from extensions) are written using Java serialization,
+ * along with all their descendants.
+ *
+ * @author Pete Bankhead
+ */
+final class BinaryHierarchyIO {
+
+	private static final Logger logger = LoggerFactory.getLogger(BinaryHierarchyIO.class);
+
+	/**
+	 * Marker written to an object stream immediately before the binary-encoded hierarchy.
+	 */
+	static final String MARKER = "Binary hierarchy";
+
+	private static final int FORMAT_VERSION = 1;
+
+	private static final int MAX_CHUNK_OBJECTS = 4096;
+	private static final long MAX_CHUNK_VERTICES = 500_000;
+
+	private static final byte CHUNK_OBJECTS = 1;
+	private static final byte CHUNK_TMA_GRID = 2;
+	private static final byte CHUNK_DETECTIONS = 3;
+
+	// Size of the tiles used to group detections, according to their centroids
+	private static final int DETECTION_TILE_SIZE = 2048;
+
+	private static final byte TYPE_ROOT = 0;
+	private static final byte TYPE_ANNOTATION = 1;
+	private static final byte TYPE_DETECTION = 2;
+	private static final byte TYPE_CELL = 3;
+	private static final byte TYPE_TILE = 4;
+	private static final byte TYPE_TMA_CORE = 5;
+	private static final byte TYPE_SERIALIZED = 6;
+
+	private static final int FLAG_NAME = 1;
+	private static final int FLAG_COLOR = 1 << 1;
+	private static final int FLAG_METADATA = 1 << 2;
+	private static final int FLAG_LOCKED = 1 << 3;
+	private static final int FLAG_CLASS = 1 << 4;
+	private static final int FLAG_PROBABILITY = 1 << 5;
+	private static final int FLAG_MISSING = 1 << 6;
+
+	private static final byte ROI_NONE = 0;
+	private static final byte ROI_RECTANGLE = 1;
+	private static final byte ROI_ELLIPSE = 2;
+	private static final byte ROI_LINE = 3;
+	private static final byte ROI_POINTS = 4;
+	private static final byte ROI_POLYGON = 5;
+	private static final byte ROI_POLYLINE = 6;
+	private static final byte ROI_GEOMETRY = 7;
+	// Flag added to the ROI type if vertices are stored as floats rather than doubles
+	private static final byte ROI_FLAG_FLOAT = 0x10;
+
+	private static final int COLUMN_DOUBLE = 1;
+	private static final int COLUMN_DENSE = 1 << 1;
+
+	private BinaryHierarchyIO() {
+		throw new AssertionError("Cannot instantiate this class");
+	}
+
+
+	/**
+	 * Write a hierarchy to an output.
+	 * <p>
+	 * Detection chunks that were read lazily and haven't been loaded yet are written directly from their 
+	 * original bytes, without creating the objects.
+	 * The hierarchy is locked for reading while it is written, so that it can't be modified by other threads.
+	 * @param out the output; usually an {@link ObjectOutputStream} for a .qpdata file
+	 * @param hierarchy the hierarchy to write
+	 * @throws IOException
+	 */
+	static void writeHierarchy(DataOutput out, PathObjectHierarchy hierarchy) throws IOException {
+		try {
+			// Deferred objects that weren't created here need to be loaded first - but this is expected to be rare
+			while (!hierarchy.applyToDeferredObjects(deferred -> tryWriteHierarchy(out, hierarchy, deferred))) {
+				logger.debug("Loading deferred objects before writing");
+				hierarchy.loadDeferredObjects();
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Try to write a hierarchy, provided that all its deferred objects can be written without loading them.
+	 * @return true if the hierarchy was written, false if nothing was written because some deferred objects need to be loaded
+	 * @throws UncheckedIOException if an exception occurred while writing
+	 */
+	private static boolean tryWriteHierarchy(DataOutput out, PathObjectHierarchy hierarchy, List<DeferredObjects> deferred) throws UncheckedIOException {
+		if (!deferred.stream().allMatch(DeferredChunk.class::isInstance))
+			return false;
+		try {
+			writeHierarchy(out, hierarchy, deferred.stream().map(DeferredChunk.class::cast).toList());
+			return true;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void writeHierarchy(DataOutput out, PathObjectHierarchy hierarchy, List<DeferredChunk> deferred) throws IOException {
+		long startTime = System.currentTimeMillis();
+		out.writeInt(FORMAT_VERSION);
+
+		var writer = new ChunkWriter(out);
+		var tmaGrid = hierarchy.getTMAGrid();
+		Map<TMACoreObject, Integer> coreIndices = new IdentityHashMap<>();
+		Map<Integer, List<PathObject>> detectionsByParent = new LinkedHashMap<>();
+
+		// We need to know the new indices of the parents of any deferred detections
+		Map<PathObject, Integer> deferredParentIndices = new IdentityHashMap<>();
+		for (var chunk : deferred)
+			deferredParentIndices.put(chunk.getParent(), null);
+
+		// Traverse the hierarchy depth-first, writing objects in chunks - but deferring detections
+		var stack = new ArrayDeque<Iterator<PathObject>>();
+		PathObject next = hierarchy.getRootObject();
+		int nObjects = 0;
+		while (next != null) {
+			var children = getType(next) == TYPE_SERIALIZED ? Collections.<PathObject>emptyList() : next.getChildObjects();
+			if (children.stream().anyMatch(PathObject::isDetection)) {
+				detectionsByParent.put(nObjects, children.stream().filter(PathObject::isDetection).toList());
+				children = children.stream().filter(p -> !p.isDetection()).toList();
+			}
+			writer.add(next, children.size());
+			if (deferredParentIndices.containsKey(next))
+				deferredParentIndices.put(next, nObjects);
+			nObjects++;
+			if (next instanceof TMACoreObject core)
+				coreIndices.put(core, coreIndices.size());
+			if (!children.isEmpty())
+				stack.push(new ArrayList<>(children).iterator());
+			next = null;
+			while (!stack.isEmpty()) {
+				var iter = stack.peek();
+				if (iter.hasNext()) {
+					next = iter.next();
+					break;
+				}
+				stack.pop();
+			}
+		}
+		writer.flush();
+
+		for (var entry : detectionsByParent.entrySet()) {
+			nObjects += writer.addDetections(entry.getKey(), entry.getValue());
+		}
+
+		int nDeferred = 0;
+		for (var chunk : deferred) {
+			Integer parentIndex = deferredParentIndices.get(chunk.getParent());
+			if (parentIndex == null || chunk.bytes == null) {
+				logger.warn("Unable to write deferred objects - parent {} was not written", chunk.getParent());
+				continue;
+			}
+			writer.addDeferredChunk(parentIndex, chunk.bytes);
+			nDeferred++;
+		}
+
+		if (tmaGrid != null) {
+			var bytes = new ByteArrayOutputStream();
+			var dos = new DataOutputStream(bytes);
+			dos.writeByte(CHUNK_TMA_GRID);
+			var cores = tmaGrid.getTMACoreList();
+			writeVarInt(dos, tmaGrid.getGridWidth());
+			writeVarInt(dos, cores.size());
+			for (var core : cores) {
+				Integer ind = coreIndices.get(core);
+				if (ind == null)
+					logger.warn("TMA core {} is not in the hierarchy and will not be written", core);
+				writeVarInt(dos, ind == null ? 0 : ind + 1);
+			}
+			dos.flush();
+			out.writeInt(bytes.size());
+			out.write(bytes.toByteArray());
+		}
+
+		out.writeInt(0);
+		long endTime = System.currentTimeMillis();
+		if (nDeferred == 0)
+			logger.debug("Wrote {} objects in {} ms", nObjects, endTime - startTime);
+		else
+			logger.debug("Wrote {} objects in {} ms ({} deferred detection chunks copied)", nObjects, endTime - startTime, nDeferred);
+	}
+
+
+	/**
+	 * Read a hierarchy previously written with {@link #writeHierarchy(DataOutput, PathObjectHierarchy)}.
+	 * @param in the input; usually an {@link java.io.ObjectInputStream} for a .qpdata file
+	 * @return a new hierarchy
+	 * @throws IOException
+	 */
+	static PathObjectHierarchy readHierarchy(DataInput in) throws IOException {
+		return readHierarchy(in, false);
+	}
+
+	/**
+	 * Read a hierarchy previously written with {@link #writeHierarchy(DataOutput, PathObjectHierarchy)},
+	 * optionally deferring the creation of detection objects until they are required.
+	 * @param in the input; usually an {@link java.io.ObjectInputStream} for a .qpdata file
+	 * @param lazy if true, add detections to the hierarchy as {@link DeferredObjects}
+	 * @return a new hierarchy
+	 * @throws IOException
+	 */
+	static PathObjectHierarchy readHierarchy(DataInput in, boolean lazy) throws IOException {
+		long startTime = System.currentTimeMillis();
+		int version = in.readInt();
+		if (version > FORMAT_VERSION)
+			throw new IOException("Unsupported binary hierarchy version " + version + " (maximum supported is " + FORMAT_VERSION + ")");
+
+		var reader = new ChunkReader(lazy);
+		byte[] buffer = new byte[0];
+		int len;
+		while ((len = in.readInt()) > 0) {
+			if (buffer.length < len)
+				buffer = new byte[len];
+			in.readFully(buffer, 0, len);
+			var dis = new DataInputStream(new ByteArrayInputStream(buffer, 0, len));
+			byte chunkType = dis.readByte();
+			switch (chunkType) {
+			case CHUNK_OBJECTS:
+				reader.readObjects(dis);
+				break;
+			case CHUNK_TMA_GRID:
+				reader.readTMAGrid(dis);
+				break;
+			case CHUNK_DETECTIONS:
+				reader.readDetections(dis, buffer, len);
+				break;
+			default:
+				logger.warn("Skipping unknown chunk type {}", chunkType);
+			}
+		}
+		var hierarchy = reader.createHierarchy();
+		long endTime = System.currentTimeMillis();
+		if (reader.deferred.isEmpty())
+			logger.debug("Read {} objects in {} ms", reader.nObjects, endTime - startTime);
+		else
+			logger.debug("Read {} objects in {} ms ({} detection chunks deferred)", reader.nObjects, endTime - startTime, reader.deferred.size());
+		return hierarchy;
+	}
+
+
+	private static byte getType(PathObject pathObject) {
+		var cls = pathObject.getClass();
+		if (cls == PathRootObject.class)
+			return TYPE_ROOT;
+		if (cls == PathAnnotationObject.class)
+			return TYPE_ANNOTATION;
+		if (cls == PathDetectionObject.class)
+			return TYPE_DETECTION;
+		if (cls == PathCellObject.class)
+			return TYPE_CELL;
+		if (cls == PathTileObject.class)
+			return TYPE_TILE;
+		if (cls == TMACoreObject.class)
+			return TYPE_TMA_CORE;
+		return TYPE_SERIALIZED;
+	}
+
+
+	/**
+	 * Helper class to buffer objects and write them as a single chunk.
+	 */
+	private static class ChunkWriter {
+
+		private final DataOutput out;
+
+		private final List<PathObject> objects = new ArrayList<>();
+		private final List<Integer> childCounts = new ArrayList<>();
+		private long nVertices = 0;
+
+		private final Buffer buffer = new Buffer();
+		private final DataOutputStream dos = new DataOutputStream(buffer);
+
+		private final Map<String, Integer> strings = new HashMap<>();
+		private final Map<PathClass, Integer> pathClasses = new HashMap<>();
+
+		// Fields used when writing detection chunks
+		private int parentIndex = -1;
+		private int nTopLevel = 0;
+		private TileKey tile;
+		private double minX, minY, maxX, maxY;
+
+		ChunkWriter(DataOutput out) {
+			this.out = out;
+			resetBounds();
+		}
+
+		void add(PathObject pathObject, int nChildren) throws IOException {
+			objects.add(pathObject);
+			childCounts.add(nChildren);
+			var roi = pathObject.getROI();
+			if (roi != null)
+				nVertices += roi.getNumPoints();
+			if (parentIndex < 0 && isFull())
+				flush();
+		}
+
+		private boolean isFull() {
+			return objects.size() >= MAX_CHUNK_OBJECTS || nVertices >= MAX_CHUNK_VERTICES;
+		}
+
+		/**
+		 * Write detections with a common parent, grouped into chunks according to their location.
+		 * @param parentIndex index of the parent in the order in which objects were written
+		 * @param detections the detections
+		 * @return the number of objects written, including descendants
+		 */
+		int addDetections(int parentIndex, Collection<? extends PathObject> detections) throws IOException {
+			flush();
+			Map<TileKey, List<PathObject>> tiles = new LinkedHashMap<>();
+			for (var detection : detections)
+				tiles.computeIfAbsent(TileKey.forObject(detection), k -> new ArrayList<>()).add(detection);
+			this.parentIndex = parentIndex;
+			int count = 0;
+			try {
+				for (var entry : tiles.entrySet()) {
+					tile = entry.getKey();
+					for (var detection : entry.getValue()) {
+						count += addSubtree(detection);
+						nTopLevel++;
+						if (isFull())
+							flush();
+					}
+					flush();
+				}
+			} finally {
+				this.parentIndex = -1;
+				this.tile = null;
+			}
+			return count;
+		}
+
+		/**
+		 * Write a detection chunk that was read previously, updating only the index of its parent.
+		 * @param parentIndex index of the parent in the order in which objects were written
+		 * @param bytes the bytes of the original chunk
+		 */
+		void addDeferredChunk(int parentIndex, byte[] bytes) throws IOException {
+			flush();
+			// Skip the chunk type and the original parent index
+			var dis = new DataInputStream(new ByteArrayInputStream(bytes));
+			dis.readByte();
+			readVarInt(dis);
+			int offset = bytes.length - dis.available();
+
+			buffer.reset();
+			dos.writeByte(CHUNK_DETECTIONS);
+			writeVarInt(dos, parentIndex);
+			dos.write(bytes, offset, bytes.length - offset);
+			dos.flush();
+			out.writeInt(buffer.size());
+			out.write(buffer.array(), 0, buffer.size());
+		}
+
+		private int addSubtree(PathObject pathObject) throws IOException {
+			if (getType(pathObject) == TYPE_SERIALIZED) {
+				add(pathObject, 0);
+				updateBounds(pathObject.getROI());
+				return 1;
+			}
+			add(pathObject, pathObject.nChildObjects());
+			updateBounds(pathObject.getROI());
+			int count = 1;
+			for (var child : pathObject.getChildObjectsAsArray())
+				count += addSubtree(child);
+			return count;
+		}
+
+		private void updateBounds(ROI roi) {
+			if (roi == null)
+				return;
+			if (Double.isNaN(minX)) {
+				minX = roi.getBoundsX();
+				minY = roi.getBoundsY();
+				maxX = minX + roi.getBoundsWidth();
+				maxY = minY + roi.getBoundsHeight();
+			} else {
+				minX = Math.min(minX, roi.getBoundsX());
+				minY = Math.min(minY, roi.getBoundsY());
+				maxX = Math.max(maxX, roi.getBoundsX() + roi.getBoundsWidth());
+				maxY = Math.max(maxY, roi.getBoundsY() + roi.getBoundsHeight());
+			}
+		}
+
+		private void resetBounds() {
+			minX = Double.NaN;
+			minY = Double.NaN;
+			maxX = Double.NaN;
+			maxY = Double.NaN;
+		}
+
+		void flush() throws IOException {
+			if (objects.isEmpty())
+				return;
+			buffer.reset();
+			strings.clear();
+			pathClasses.clear();
+
+			if (parentIndex < 0)
+				dos.writeByte(CHUNK_OBJECTS);
+			else {
+				dos.writeByte(CHUNK_DETECTIONS);
+				writeVarInt(dos, parentIndex);
+				writeVarInt(dos, nTopLevel);
+				writeVarInt(dos, tile.z() + 1);
+				writeVarInt(dos, tile.t() + 1);
+				dos.writeDouble(minX);
+				dos.writeDouble(minY);
+				dos.writeDouble(maxX);
+				dos.writeDouble(maxY);
+				nTopLevel = 0;
+				resetBounds();
+			}
+			writeVarInt(dos, objects.size());
+			writeMeasurements();
+			for (int i = 0; i < objects.size(); i++)
+				writeObject(objects.get(i), childCounts.get(i));
+			dos.flush();
+
+			out.writeInt(buffer.size());
+			out.write(buffer.array(), 0, buffer.size());
+
+			objects.clear();
+			childCounts.clear();
+			nVertices = 0;
+		}
+
+		private void writeMeasurements() throws IOException {
+			int n = objects.size();
+			Map<String, Column> columns = new LinkedHashMap<>();
+			for (int i = 0; i < n; i++) {
+				var pathObject = objects.get(i);
+				if (!pathObject.hasMeasurements() || getType(pathObject) == TYPE_SERIALIZED)
+					continue;
+				var ml = pathObject.getMeasurementList();
+				var names = ml.getNames();
+				var values = ml.values();
+				int nValues = Math.min(names.size(), values.length);
+				for (int j = 0; j < nValues; j++) {
+					columns.computeIfAbsent(names.get(j), k -> new Column(n)).set(i, values[j]);
+				}
+			}
+			writeVarInt(dos, columns.size());
+			for (var entry : columns.entrySet()) {
+				var column = entry.getValue();
+				writeString(entry.getKey());
+				int flags = 0;
+				if (!column.allFloat)
+					flags |= COLUMN_DOUBLE;
+				if (column.count == n)
+					flags |= COLUMN_DENSE;
+				dos.writeByte(flags);
+				if (column.count != n) {
+					for (long word : column.present)
+						dos.writeLong(word);
+				}
+				for (int i = 0; i < n; i++) {
+					if (column.isPresent(i)) {
+						if (column.allFloat)
+							dos.writeFloat((float)column.values[i]);
+						else
+							dos.writeDouble(column.values[i]);
+					}
+				}
+			}
+		}
+
+		private void writeObject(PathObject pathObject, int nChildren) throws IOException {
+			byte type = getType(pathObject);
+			dos.writeByte(type);
+			if (type == TYPE_SERIALIZED) {
+				var bytes = new ByteArrayOutputStream();
+				try (var oos = new ObjectOutputStream(bytes)) {
+					oos.writeObject(pathObject);
+				}
+				writeVarInt(dos, bytes.size());
+				bytes.writeTo(dos);
+				return;
+			}
+
+			String name = pathObject.getName();
+			Integer color = pathObject.getColor();
+			PathClass pathClass = pathObject.getPathClass();
+			double probability = pathObject.getClassProbability();
+			int flags = 0;
+			if (name != null)
+				flags |= FLAG_NAME;
+			if (color != null)
+				flags |= FLAG_COLOR;
+			if (pathObject.hasMetadata())
+				flags |= FLAG_METADATA;
+			if (pathObject.isLocked())
+				flags |= FLAG_LOCKED;
+			if (pathClass != null && pathClass != PathClass.NULL_CLASS)
+				flags |= FLAG_CLASS;
+			if (!Double.isNaN(probability))
+				flags |= FLAG_PROBABILITY;
+			if (pathObject instanceof TMACoreObject core && core.isMissing())
+				flags |= FLAG_MISSING;
+			dos.writeByte(flags);
+
+			var id = pathObject.getID();
+			dos.writeLong(id.getMostSignificantBits());
+			dos.writeLong(id.getLeastSignificantBits());
+			if (name != null)
+				writeUTF8(dos, name);
+			if (color != null)
+				dos.writeInt(color);
+			if ((flags & FLAG_CLASS) != 0)
+				writePathClass(pathClass);
+			if ((flags & FLAG_PROBABILITY) != 0)
+				dos.writeDouble(probability);
+			if ((flags & FLAG_METADATA) != 0) {
+				var metadata = new ArrayList<>(pathObject.getMetadata().entrySet());
+				writeVarInt(dos, metadata.size());
+				for (var entry : metadata) {
+					writeString(entry.getKey());
+					writeUTF8(dos, entry.getValue());
+				}
+			}
+			if (type != TYPE_ROOT)
+				writeROI(dos, pathObject.getROI());
+			if (pathObject instanceof PathCellObject cell)
+				writeROI(dos, cell.getNucleusROI());
+			writeVarInt(dos, nChildren);
+		}
+
+		/**
+		 * Write a string that is likely to be repeated within the chunk.
+		 */
+		private void writeString(String s) throws IOException {
+			Integer ind = strings.get(s);
+			if (ind == null) {
+				strings.put(s, strings.size());
+				writeVarInt(dos, 0);
+				writeUTF8(dos, s);
+			} else {
+				writeVarInt(dos, ind + 1);
+			}
+		}
+
+		private void writePathClass(PathClass pathClass) throws IOException {
+			if (pathClass == null || pathClass == PathClass.NULL_CLASS) {
+				writeVarInt(dos, 0);
+				return;
+			}
+			Integer ind = pathClasses.get(pathClass);
+			if (ind != null) {
+				writeVarInt(dos, ind + 2);
+				return;
+			}
+			writeVarInt(dos, 1);
+			writePathClass(pathClass.getParentClass());
+			writeString(pathClass.getName());
+			var color = pathClass.getColor();
+			dos.writeBoolean(color != null);
+			if (color != null)
+				dos.writeInt(color);
+			pathClasses.put(pathClass, pathClasses.size());
+		}
+
+	}
+
+
+	/**
+	 * Helper class to read chunks and reconstruct the hierarchy.
+	 */
+	private static class ChunkReader {
+
+		private final boolean lazy;
+
+		private final PathRootObject root = new PathRootObject();
+		private final ArrayDeque<Frame> stack = new ArrayDeque<>();
+		private final List<TMACoreObject> cores = new ArrayList<>();
+		private DefaultTMAGridInfo tmaGrid;
+
+		// Objects that may be parents of detection chunks, in the order they were read
+		private final List<PathObject> parentObjects = new ArrayList<>();
+		private boolean readingDetections = false;
+		private final List<DeferredChunk> deferred = new ArrayList<>();
+		private List<PathObject> topLevelObjects;
+
+		private final List<String> strings = new ArrayList<>();
+		private final List<PathClass> pathClasses = new ArrayList<>();
+
+		private long nObjects = 0;
+
+		ChunkReader(boolean lazy) {
+			this.lazy = lazy;
+		}
+
+		void readObjects(DataInputStream dis) throws IOException {
+			strings.clear();
+			pathClasses.clear();
+			int n = readVarInt(dis);
+			var measurements = readMeasurements(dis, n);
+			for (int i = 0; i < n; i++) {
+				readObject(dis, measurements[i]);
+				nObjects++;
+			}
+		}
+
+		/**
+		 * Read a chunk of detections, or retain it for reading later if lazy loading is being used.
+		 * @param dis input stream, positioned after the chunk type
+		 * @param bytes the bytes for the full chunk
+		 * @param len the length of the chunk
+		 * @throws IOException
+		 */
+		void readDetections(DataInputStream dis, byte[] bytes, int len) throws IOException {
+			int parentIndex = readVarInt(dis);
+			if (parentIndex < 0 || parentIndex >= parentObjects.size())
+				throw new IOException("Invalid parent index " + parentIndex);
+			if (lazy) {
+				var region = readDetectionRegion(dis);
+				deferred.add(new DeferredChunk(parentIndex, region, Arrays.copyOf(bytes, len)));
+			} else {
+				readDetectionObjects(dis, parentObjects.get(parentIndex));
+			}
+		}
+
+		private void readDetectionObjects(DataInputStream dis, PathObject parent) throws IOException {
+			int nTopLevel = readVarInt(dis);
+			readDetectionRegion(dis);
+			stack.push(new Frame(parent, nTopLevel));
+			popCompletedFrames();
+			readingDetections = true;
+			try {
+				readObjects(dis);
+			} finally {
+				readingDetections = false;
+			}
+			if (!stack.isEmpty())
+				throw new IOException("Detection chunk ended unexpectedly");
+		}
+
+		private static ImageRegion readDetectionRegion(DataInputStream dis) throws IOException {
+			int z = readVarInt(dis) - 1;
+			int t = readVarInt(dis) - 1;
+			double minX = dis.readDouble();
+			double minY = dis.readDouble();
+			double maxX = dis.readDouble();
+			double maxY = dis.readDouble();
+			if (Double.isNaN(minX))
+				return ImageRegion.createInstance(-Integer.MAX_VALUE/2, -Integer.MAX_VALUE/2, Integer.MAX_VALUE, Integer.MAX_VALUE, -1, -1);
+			int x = (int)Math.floor(minX);
+			int y = (int)Math.floor(minY);
+			int width = Math.max(1, (int)Math.ceil(maxX) - x);
+			int height = Math.max(1, (int)Math.ceil(maxY) - y);
+			return ImageRegion.createInstance(x, y, width, height, z, t);
+		}
+
+		/**
+		 * Read the objects from a single detection chunk that was previously deferred.
+		 * @param bytes
+		 * @return the top-level objects, with their descendants added as child objects
+		 * @throws IOException
+		 */
+		static List<PathObject> readDeferredChunk(byte[] bytes) throws IOException {
+			var dis = new DataInputStream(new ByteArrayInputStream(bytes));
+			if (dis.readByte() != CHUNK_DETECTIONS)
+				throw new IOException("Expected a detection chunk");
+			readVarInt(dis);
+			var reader = new ChunkReader(false);
+			reader.readDetectionObjects(dis, null);
+			return reader.topLevelObjects == null ? Collections.emptyList() : reader.topLevelObjects;
+		}
+
+		void readTMAGrid(DataInputStream dis) throws IOException {
+			int gridWidth = readVarInt(dis);
+			int n = readVarInt(dis);
+			int[] indices = new int[n];
+			for (int i = 0; i < n; i++)
+				indices[i] = readVarInt(dis) - 1;
+			tmaGrid = new DefaultTMAGridInfo(gridWidth, indices);
+		}
+
+		PathObjectHierarchy createHierarchy() throws IOException {
+			if (!stack.isEmpty())
+				throw new IOException("Binary hierarchy ended unexpectedly");
+			var hierarchy = new PathObjectHierarchy();
+			var newRoot = hierarchy.getRootObject();
+			copyProperties(root, newRoot);
+			if (tmaGrid != null) {
+				List<TMACoreObject> gridCores = new ArrayList<>();
+				for (int ind : tmaGrid.indices) {
+					if (ind < 0 || ind >= cores.size())
+						throw new IOException("Invalid TMA core index " + ind);
+					gridCores.add(cores.get(ind));
+				}
+				// Setting the grid also adds the cores to the hierarchy
+				root.removeChildObjects(new ArrayList<PathObject>(gridCores));
+				hierarchy.setTMAGrid(DefaultTMAGrid.create(gridCores, tmaGrid.gridWidth));
+			}
+			newRoot.addChildObjects(root.getChildObjects());
+			if (!deferred.isEmpty()) {
+				for (var chunk : deferred) {
+					var parent = parentObjects.get(chunk.parentIndex);
+					chunk.parent = parent == root ? newRoot : parent;
+				}
+				hierarchy.addDeferredObjects(deferred);
+			}
+			return hierarchy;
+		}
+
+		private static void copyProperties(PathObject source, PathObject target) {
+			target.setID(source.getID());
+			target.setName(source.getName());
+			target.setColor(source.getColor());
+			if (source.hasMetadata())
+				target.getMetadata().putAll(source.getMetadata());
+			if (source.hasMeasurements())
+				target.getMeasurementList().putAll(source.getMeasurementList());
+		}
+
+		private MeasurementList[] readMeasurements(DataInputStream dis, int n) throws IOException {
+			int nColumns = readVarInt(dis);
+			var measurements = new MeasurementList[n];
+			if (nColumns == 0)
+				return measurements;
+
+			String[] names = new String[nColumns];
+			long[][] present = new long[nColumns][];
+			double[][] values = new double[nColumns][];
+			boolean[] isDouble = new boolean[nColumns];
+			int nWords = (n + 63) / 64;
+			for (int c = 0; c < nColumns; c++) {
+				names[c] = readString(dis);
+				int flags = dis.readByte();
+				isDouble[c] = (flags & COLUMN_DOUBLE) != 0;
+				long[] words = new long[nWords];
+				if ((flags & COLUMN_DENSE) != 0) {
+					Arrays.fill(words, -1L);
+				} else {
+					for (int w = 0; w < nWords; w++)
+						words[w] = dis.readLong();
+				}
+				present[c] = words;
+				double[] columnValues = new double[n];
+				for (int i = 0; i < n; i++) {
+					if (isPresent(words, i))
+						columnValues[i] = isDouble[c] ? dis.readDouble() : dis.readFloat();
+				}
+				values[c] = columnValues;
+			}
+
+			// Create measurement lists - using floats whenever this is lossless
+			for (int i = 0; i < n; i++) {
+				int count = 0;
+				boolean needsDouble = false;
+				for (int c = 0; c < nColumns; c++) {
+					if (isPresent(present[c], i)) {
+						count++;
+						needsDouble = needsDouble || isDouble[c];
+					}
+				}
+				if (count == 0)
+					continue;
+				var ml = MeasurementListFactory.createMeasurementList(count,
+						needsDouble ? MeasurementListType.DOUBLE : MeasurementListType.FLOAT);
+				for (int c = 0; c < nColumns; c++) {
+					if (isPresent(present[c], i))
+						ml.put(names[c], values[c][i]);
+				}
+				ml.close();
+				measurements[i] = ml;
+			}
+			return measurements;
+		}
+
+		private void readObject(DataInputStream dis, MeasurementList measurements) throws IOException {
+			byte type = dis.readByte();
+			if (type == TYPE_SERIALIZED) {
+				byte[] bytes = new byte[readVarInt(dis)];
+				dis.readFully(bytes);
+				PathObject pathObject = null;
+				try (var ois = PathIO.createObjectInputStream(new ByteArrayInputStream(bytes))) {
+					pathObject = (PathObject)ois.readObject();
+				} catch (ClassNotFoundException e) {
+					logger.error("Unable to read object: {}", e.getMessage(), e);
+				}
+				if (!readingDetections)
+					parentObjects.add(pathObject);
+				addToParent(pathObject, 0);
+				return;
+			}
+
+			int flags = dis.readByte();
+			var id = new UUID(dis.readLong(), dis.readLong());
+			String name = (flags & FLAG_NAME) != 0 ? readUTF8(dis) : null;
+			Integer color = (flags & FLAG_COLOR) != 0 ? dis.readInt() : null;
+			PathClass pathClass = (flags & FLAG_CLASS) != 0 ? readPathClass(dis) : null;
+			double probability = (flags & FLAG_PROBABILITY) != 0 ? dis.readDouble() : Double.NaN;
+			Map<String, String> metadata = null;
+			if ((flags & FLAG_METADATA) != 0) {
+				int nMetadata = readVarInt(dis);
+				metadata = new LinkedHashMap<>();
+				for (int i = 0; i < nMetadata; i++)
+					metadata.put(readString(dis), readUTF8(dis));
+			}
+			ROI roi = type == TYPE_ROOT ? null : readROI(dis);
+			ROI roiNucleus = type == TYPE_CELL ? readROI(dis) : null;
+			int nChildren = readVarInt(dis);
+
+			PathObject pathObject = switch (type) {
+				case TYPE_ROOT -> root;
+				case TYPE_ANNOTATION -> PathObjects.createAnnotationObject(roi, pathClass, measurements);
+				case TYPE_DETECTION -> PathObjects.createDetectionObject(roi, pathClass, measurements);
+				case TYPE_CELL -> PathObjects.createCellObject(roi, roiNucleus, pathClass, measurements);
+				case TYPE_TILE -> PathObjects.createTileObject(roi, pathClass, measurements);
+				case TYPE_TMA_CORE -> {
+					var core = new TMACoreObject();
+					core.setROI(roi);
+					core.setPathClass(pathClass);
+					core.setMissing((flags & FLAG_MISSING) != 0);
+					cores.add(core);
+					yield core;
+				}
+				default -> throw new IOException("Unknown object type " + type);
+			};
+			if ((type == TYPE_ROOT || type == TYPE_TMA_CORE) && measurements != null)
+				pathObject.getMeasurementList().putAll(measurements);
+			if (!Double.isNaN(probability))
+				pathObject.setPathClass(pathClass, probability);
+			pathObject.setID(id);
+			if (name != null)
+				pathObject.setName(name);
+			// Set color after the classification, since setting the classification can reset the color
+			if (color != null)
+				pathObject.setColor(color);
+			if (metadata != null)
+				pathObject.getMetadata().putAll(metadata);
+			if ((flags & FLAG_LOCKED) != 0)
+				pathObject.setLocked(true);
+			if (!readingDetections)
+				parentObjects.add(pathObject);
+
+			if (type == TYPE_ROOT) {
+				if (!stack.isEmpty())
+					throw new IOException("Root object found within the hierarchy");
+			} else
+				addToParent(pathObject, nChildren);
+			if (nChildren > 0 || type == TYPE_ROOT)
+				stack.push(new Frame(pathObject, nChildren));
+			popCompletedFrames();
+		}
+
+		private void addToParent(PathObject pathObject, int nChildren) throws IOException {
+			var frame = stack.peek();
+			if (frame == null)
+				throw new IOException("Object found outside the hierarchy");
+			frame.remaining--;
+			if (pathObject != null)
+				frame.children.add(pathObject);
+			if (nChildren == 0)
+				popCompletedFrames();
+		}
+
+		private void popCompletedFrames() {
+			while (!stack.isEmpty() && stack.peek().remaining == 0) {
+				var frame = stack.pop();
+				if (frame.parent == null)
+					topLevelObjects = frame.children;
+				else
+					frame.parent.addChildObjects(frame.children);
+			}
+		}
+
+		private String readString(DataInputStream dis) throws IOException {
+			int ind = readVarInt(dis);
+			if (ind == 0) {
+				var s = readUTF8(dis);
+				strings.add(s);
+				return s;
+			}
+			return strings.get(ind - 1);
+		}
+
+		private PathClass readPathClass(DataInputStream dis) throws IOException {
+			int ind = readVarInt(dis);
+			if (ind == 0)
+				return null;
+			if (ind > 1)
+				return pathClasses.get(ind - 2);
+			var parent = readPathClass(dis);
+			var name = readString(dis);
+			Integer color = dis.readBoolean() ? dis.readInt() : null;
+			var pathClass = PathClass.getInstance(parent, name, color);
+			pathClasses.add(pathClass);
+			return pathClass;
+		}
+
+	}
+
+	private static class Frame {
+
+		private final PathObject parent;
+		private final List<PathObject> children;
+		private int remaining;
+
+		private Frame(PathObject parent, int nChildren) {
+			this.parent = parent;
+			this.remaining = nChildren;
+			this.children = new ArrayList<>(nChildren);
+		}
+
+	}
+
+	private record DefaultTMAGridInfo(int gridWidth, int[] indices) {}
+
+	/**
+	 * Key used to group detections by plane and tile when writing.
+	 */
+	private record TileKey(int z, int t, int x, int y) {
+
+		static TileKey forObject(PathObject pathObject) {
+			var roi = pathObject.getROI();
+			if (roi == null)
+				return new TileKey(-1, -1, 0, 0);
+			return new TileKey(roi.getZ(), roi.getT(),
+					(int)Math.floor(roi.getCentroidX() / DETECTION_TILE_SIZE),
+					(int)Math.floor(roi.getCentroidY() / DETECTION_TILE_SIZE));
+		}
+
+	}
+
+	/**
+	 * Detection chunk that has been read from the input, but not yet parsed.
+	 */
+	private static class DeferredChunk implements DeferredObjects {
+
+		private final int parentIndex;
+		private final ImageRegion region;
+		private PathObject parent;
+		private byte[] bytes;
+
+		private DeferredChunk(int parentIndex, ImageRegion region, byte[] bytes) {
+			this.parentIndex = parentIndex;
+			this.region = region;
+			this.bytes = bytes;
+		}
+
+		@Override
+		public PathObject getParent() {
+			return parent;
+		}
+
+		@Override
+		public ImageRegion getRegion() {
+			return region;
+		}
+
+		@Override
+		public Collection<PathObject> load() throws IOException {
+			if (bytes == null)
+				return Collections.emptyList();
+			var pathObjects = ChunkReader.readDeferredChunk(bytes);
+			bytes = null;
+			return pathObjects;
+		}
+
+	}
+
+
+	/**
+	 * Column of measurement values for a single chunk.
+	 */
+	private static class Column {
+
+		private final double[] values;
+		private final long[] present;
+		private int count = 0;
+		private boolean allFloat = true;
+
+		Column(int n) {
+			values = new double[n];
+			present = new long[(n + 63) / 64];
+		}
+
+		void set(int i, double value) {
+			values[i] = value;
+			if (!isPresent(i)) {
+				present[i >> 6] |= 1L << i;
+				count++;
+			}
+			if (allFloat && !Double.isNaN(value) && (double)(float)value != value)
+				allFloat = false;
+		}
+
+		boolean isPresent(int i) {
+			return BinaryHierarchyIO.isPresent(present, i);
+		}
+
+	}
+
+	private static boolean isPresent(long[] words, int i) {
+		return (words[i >> 6] & (1L << i)) != 0;
+	}
+
+
+	private static void writeROI(DataOutputStream dos, ROI roi) throws IOException {
+		if (roi == null) {
+			dos.writeByte(ROI_NONE);
+			return;
+		}
+		if (roi instanceof RectangleROI || roi instanceof EllipseROI) {
+			dos.writeByte(roi instanceof RectangleROI ? ROI_RECTANGLE : ROI_ELLIPSE);
+			writePlane(dos, roi.getImagePlane());
+			dos.writeDouble(roi.getBoundsX());
+			dos.writeDouble(roi.getBoundsY());
+			dos.writeDouble(roi.getBoundsWidth());
+			dos.writeDouble(roi.getBoundsHeight());
+		} else if (roi instanceof LineROI line) {
+			dos.writeByte(ROI_LINE);
+			writePlane(dos, roi.getImagePlane());
+			dos.writeDouble(line.getX1());
+			dos.writeDouble(line.getY1());
+			dos.writeDouble(line.getX2());
+			dos.writeDouble(line.getY2());
+		} else if (roi instanceof PointsROI || roi instanceof PolygonROI || roi instanceof PolylineROI) {
+			byte type = roi instanceof PointsROI ? ROI_POINTS : roi instanceof PolygonROI ? ROI_POLYGON : ROI_POLYLINE;
+			var points = roi.getAllPoints();
+			boolean allFloat = true;
+			for (var p : points) {
+				if ((double)(float)p.getX() != p.getX() || (double)(float)p.getY() != p.getY()) {
+					allFloat = false;
+					break;
+				}
+			}
+			dos.writeByte(allFloat ? type | ROI_FLAG_FLOAT : type);
+			writePlane(dos, roi.getImagePlane());
+			writeVarInt(dos, points.size());
+			for (var p : points) {
+				if (allFloat) {
+					dos.writeFloat((float)p.getX());
+					dos.writeFloat((float)p.getY());
+				} else {
+					dos.writeDouble(p.getX());
+					dos.writeDouble(p.getY());
+				}
+			}
+		} else {
+			dos.writeByte(ROI_GEOMETRY);
+			writePlane(dos, roi.getImagePlane());
+			byte[] wkb = new WKBWriter(2).write(roi.getGeometry());
+			writeVarInt(dos, wkb.length);
+			dos.write(wkb);
+		}
+	}
+
+	private static ROI readROI(DataInputStream dis) throws IOException {
+		int typeAndFlags = dis.readByte();
+		int type = typeAndFlags & 0x0F;
+		if (type == ROI_NONE)
+			return null;
+		var plane = readPlane(dis);
+		switch (type) {
+		case ROI_RECTANGLE:
+			return ROIs.createRectangleROI(dis.readDouble(), dis.readDouble(), dis.readDouble(), dis.readDouble(), plane);
+		case ROI_ELLIPSE:
+			return ROIs.createEllipseROI(dis.readDouble(), dis.readDouble(), dis.readDouble(), dis.readDouble(), plane);
+		case ROI_LINE:
+			return ROIs.createLineROI(dis.readDouble(), dis.readDouble(), dis.readDouble(), dis.readDouble(), plane);
+		case ROI_POINTS:
+		case ROI_POLYGON:
+		case ROI_POLYLINE:
+			boolean isFloat = (typeAndFlags & ROI_FLAG_FLOAT) != 0;
+			int n = readVarInt(dis);
+			double[] x = new double[n];
+			double[] y = new double[n];
+			for (int i = 0; i < n; i++) {
+				x[i] = isFloat ? dis.readFloat() : dis.readDouble();
+				y[i] = isFloat ? dis.readFloat() : dis.readDouble();
+			}
+			if (type == ROI_POINTS)
+				return ROIs.createPointsROI(x, y, plane);
+			else if (type == ROI_POLYGON)
+				return ROIs.createPolygonROI(x, y, plane);
+			else
+				return ROIs.createPolylineROI(x, y, plane);
+		case ROI_GEOMETRY:
+			byte[] wkb = new byte[readVarInt(dis)];
+			dis.readFully(wkb);
+			try {
+				var geometry = new WKBReader(GeometryTools.getDefaultFactory()).read(wkb);
+				return GeometryTools.geometryToROI(geometry, plane);
+			} catch (ParseException e) {
+				throw new IOException("Unable to read ROI geometry", e);
+			}
+		default:
+			throw new IOException("Unknown ROI type " + type);
+		}
+	}
+
+	private static void writePlane(DataOutputStream dos, ImagePlane plane) throws IOException {
+		// Channel is usually -1, so shift it to be non-negative
+		writeVarInt(dos, plane.getC() + 1);
+		writeVarInt(dos, plane.getZ());
+		writeVarInt(dos, plane.getT());
+	}
+
+	private static ImagePlane readPlane(DataInputStream dis) throws IOException {
+		int c = readVarInt(dis) - 1;
+		int z = readVarInt(dis);
+		int t = readVarInt(dis);
+		return ImagePlane.getPlaneWithChannel(c, z, t);
+	}
+
+	private static void writeUTF8(DataOutputStream dos, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(dos, bytes.length);
+		dos.write(bytes);
+	}
+
+	private static String readUTF8(DataInputStream dis) throws IOException {
+		byte[] bytes = new byte[readVarInt(dis)];
+		dis.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Write a non-negative int using 1-5 bytes, depending upon its magnitude.
+	 */
+	private static void writeVarInt(DataOutputStream dos, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			dos.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		dos.writeByte(value);
+	}
+
+	private static int readVarInt(DataInputStream dis) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = dis.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new IOException("Invalid variable-length integer");
+	}
+
+	/**
+	 * Byte array output stream that provides access to its buffer, to avoid copying.
+	 */
+	private static class Buffer extends ByteArrayOutputStream {
+
+		Buffer() {
+			super(1024 * 1024);
+		}
+
+		byte[] array() {
+			return buf;
+		}
+
+	}
+
+}
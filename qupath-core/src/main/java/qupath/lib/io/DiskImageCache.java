@@ -0,0 +1,586 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.io;
+
+import java.awt.image.BandedSampleModel;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferDouble;
+import java.awt.image.DataBufferFloat;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferShort;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import qupath.lib.common.ThreadTools;
+import qupath.lib.images.servers.ImageServer;
+
+/**
+ * A bounded, persistent cache for images stored on disk.
+ * <p>
+ * Each image is stored as a separate file containing the raw pixel values, which can be read back
+ * much more quickly than most images can be decoded or computed again.
+ * Files are read and written in a single operation without memory-mapping, so that they can always be
+ * deleted or replaced afterwards (which can otherwise fail on Windows).
+ * Images are identified by a group and a key: the group is used as a subdirectory name, and should
+ * usually be created with {@link #createKey(String)} from a string that identifies the source of the images,
+ * while the key identifies an image within the group.
+ * <p>
+ * Images are written in a background thread. When the total size exceeds the maximum, the least-recently-accessed
+ * images are removed. Access times are also stored as file timestamps, so that they persist across sessions;
+ * these are updated in batches, so that they don't compete with writing new images.
+ *
+ * @author Pete Bankhead
+ * @since v0.7.0
+ */
+public class DiskImageCache implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(DiskImageCache.class);
+
+	private static final int MAGIC = 0x51505443; // QPTC
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 8 * Integer.BYTES;
+	private static final String EXT = ".tile";
+
+	// Fraction of the maximum size to retain after eviction, so that we don't need to evict after every write
+	private static final double EVICTION_TARGET = 0.9;
+
+	// Minimum interval between requests to update file timestamps after images are accessed
+	private static final long TOUCH_INTERVAL_MILLIS = 1000;
+
+	private final Path directory;
+	private final long maxSizeBytes;
+
+	private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+	private final AtomicLong sizeBytes = new AtomicLong();
+
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+
+	private final ExecutorService pool;
+
+	// Files that have been accessed since their timestamps were last updated
+	private final Set<Path> pendingTouches = ConcurrentHashMap.newKeySet();
+	private final AtomicLong lastTouchRequest = new AtomicLong();
+
+	private DiskImageCache(Path directory, long maxSizeBytes, boolean discardWhenBusy) {
+		this.directory = directory;
+		this.maxSizeBytes = maxSizeBytes;
+		// Single thread for writing, with a bounded queue.
+		// If we can't keep up, images are either not written or written by the calling thread
+		RejectedExecutionHandler handler = discardWhenBusy ? new ThreadPoolExecutor.DiscardPolicy() : new ThreadPoolExecutor.CallerRunsPolicy();
+		this.pool = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(256),
+				ThreadTools.createThreadFactory("disk-image-cache-", true),
+				handler);
+	}
+
+	/**
+	 * Create a disk cache using the specified directory.
+	 * Existing images within the directory will be reused, and any that have not been accessed within the specified
+	 * number of days will be removed.
+	 * @param directory the directory used to store images; this will be created if necessary
+	 * @param maxSizeBytes the maximum size of the cache, in bytes
+	 * @param maxAgeDays the maximum number of days since an image was last accessed for it to be retained;
+	 *                   if &le; 0, images are only removed based upon the maximum size
+	 * @param discardWhenBusy if true, images are not written if too many writes are already pending;
+	 *                        otherwise, images are written by the calling thread when the cache is busy.
+	 *                        Discarding is preferable when responsiveness matters more than the cache being complete.
+	 * @return the cache
+	 * @throws IOException if the directory cannot be created
+	 */
+	public static DiskImageCache create(Path directory, long maxSizeBytes, int maxAgeDays, boolean discardWhenBusy) throws IOException {
+		if (maxSizeBytes <= 0)
+			throw new IllegalArgumentException("Maximum disk cache size must be > 0");
+		Files.createDirectories(directory);
+		var cache = new DiskImageCache(directory, maxSizeBytes, discardWhenBusy);
+		// Scan existing files in the background
+		cache.pool.execute(() -> cache.initialize(maxAgeDays));
+		return cache;
+	}
+
+	private void initialize(int maxAgeDays) {
+		long minTimestamp = maxAgeDays <= 0 ? Long.MIN_VALUE : System.currentTimeMillis() - TimeUnit.DAYS.toMillis(maxAgeDays);
+		int nRemoved = 0;
+		try (var stream = Files.walk(directory, 2)) {
+			for (var path : (Iterable<Path>)stream.filter(p -> p.getFileName().toString().endsWith(EXT))::iterator) {
+				try {
+					long timestamp = Files.getLastModifiedTime(path).toMillis();
+					if (timestamp < minTimestamp) {
+						Files.deleteIfExists(path);
+						nRemoved++;
+						continue;
+					}
+					long size = Files.size(path);
+					if (entries.putIfAbsent(path, new Entry(size, timestamp)) == null)
+						sizeBytes.addAndGet(size);
+				} catch (IOException e) {
+					logger.debug("Unable to read cached image {}: {}", path, e.getMessage());
+				}
+			}
+		} catch (IOException e) {
+			logger.warn("Unable to initialize disk image cache: {}", e.getMessage(), e);
+		}
+		logger.debug("Disk image cache {} initialized with {} images ({} MB), {} expired images removed",
+				directory, entries.size(), sizeBytes.get() / (1024 * 1024), nRemoved);
+		evictIfNeeded();
+	}
+
+	/**
+	 * Get the directory used to store images.
+	 * @return
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Create a key from an input string.
+	 * This is a SHA-256 hash of the input, and so can be used as a file or directory name.
+	 * @param input
+	 * @return
+	 */
+	public static String createKey(String input) {
+		try {
+			var digest = MessageDigest.getInstance("SHA-256");
+			return HexFormat.of().formatHex(digest.digest(input.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			// SHA-256 should always be available
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Create a string that identifies the pixels of an image server, which can be used to create a group.
+	 * This contains the server path and URIs, along with the size and last modified time of any local files,
+	 * so that it changes if an image file is changed.
+	 * @param server
+	 * @return
+	 */
+	public static String createServerKey(ImageServer<?> server) {
+		var sb = new StringBuilder(server.getPath());
+		for (URI uri : server.getURIs()) {
+			sb.append('|').append(uri);
+			if ("file".equals(uri.getScheme())) {
+				try {
+					var path = Path.of(uri);
+					sb.append('|').append(Files.size(path))
+						.append('|').append(Files.getLastModifiedTime(path).toMillis());
+				} catch (Exception e) {
+					logger.debug("Unable to query file attributes for {}: {}", uri, e.getMessage());
+				}
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Read an image from the cache, if available.
+	 * <p>
+	 * Images with a standard {@link BufferedImage} type are restored directly. Otherwise, a color model must be
+	 * supplied for the raster that was read.
+	 * @param group the group containing the image
+	 * @param key the key for the image within the group
+	 * @param colorModelFunction function to supply a compatible color model for images without a standard type;
+	 *                           if the function returns null or an incompatible color model, the image is treated as missing
+	 * @return the image, or null if it is not in the cache
+	 */
+	public BufferedImage get(String group, String key, Function<WritableRaster, ColorModel> colorModelFunction) {
+		var path = getPath(group, key);
+		var entry = entries.get(path);
+		if (entry == null) {
+			missCount.increment();
+			return null;
+		}
+		try {
+			var img = readImage(path, colorModelFunction);
+			if (img == null) {
+				remove(path);
+				missCount.increment();
+				return null;
+			}
+			entry.lastAccess = System.currentTimeMillis();
+			hitCount.increment();
+			// Update the file timestamp so that the access order is retained across sessions
+			pendingTouches.add(path);
+			requestTouches();
+			return img;
+		} catch (IOException e) {
+			logger.debug("Unable to read cached image {}: {}", path, e.getMessage());
+			remove(path);
+			missCount.increment();
+			return null;
+		}
+	}
+
+	/**
+	 * Request that an image is written to the cache.
+	 * Depending upon how the cache was created, this either returns immediately (and the image may not be
+	 * written if the cache is busy), or writes the image using the calling thread if the cache is busy.
+	 * <p>
+	 * The image should not be modified afterwards.
+	 * @param group the group containing the image
+	 * @param key the key for the image within the group
+	 * @param img the image
+	 */
+	public void put(String group, String key, BufferedImage img) {
+		if (img == null)
+			return;
+		var path = getPath(group, key);
+		if (entries.containsKey(path))
+			return;
+		pool.execute(() -> {
+			try {
+				if (entries.containsKey(path))
+					return;
+				long size = writeImage(path, img);
+				if (entries.putIfAbsent(path, new Entry(size, System.currentTimeMillis())) == null)
+					sizeBytes.addAndGet(size);
+				evictIfNeeded();
+			} catch (IOException e) {
+				logger.debug("Unable to write cached image {}: {}", path, e.getMessage());
+			}
+		});
+	}
+
+	/**
+	 * Get the number of requests for an image that was found in the cache.
+	 * @return
+	 */
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	/**
+	 * Get the number of requests for an image that was not found in the cache.
+	 * @return
+	 */
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	/**
+	 * Get the number of images removed to keep the cache within its size limit.
+	 * @return
+	 */
+	public long getEvictionCount() {
+		return evictionCount.sum();
+	}
+
+	/**
+	 * Get the number of images currently in the cache.
+	 * @return
+	 */
+	public long getImageCount() {
+		return entries.size();
+	}
+
+	/**
+	 * Get the total size of all images currently in the cache, in bytes.
+	 * @return
+	 */
+	public long getSizeBytes() {
+		return sizeBytes.get();
+	}
+
+	/**
+	 * Get the maximum size of the cache, in bytes.
+	 * @return
+	 */
+	public long getMaxSizeBytes() {
+		return maxSizeBytes;
+	}
+
+	/**
+	 * Stop writing images to the cache.
+	 * Images already written remain on disk, and can be used by a new cache created for the same directory.
+	 */
+	@Override
+	public void close() {
+		logger.debug("Closing disk image cache {} ({} images, {} hits, {} misses)",
+				directory, getImageCount(), getHitCount(), getMissCount());
+		if (!pendingTouches.isEmpty())
+			pool.execute(this::touchPending);
+		pool.shutdown();
+	}
+
+
+	private Path getPath(String group, String key) {
+		return directory.resolve(group).resolve(createKey(key) + EXT);
+	}
+
+	private void evictIfNeeded() {
+		if (sizeBytes.get() <= maxSizeBytes)
+			return;
+		long target = (long)(maxSizeBytes * EVICTION_TARGET);
+		var sorted = new ArrayList<>(entries.entrySet());
+		sorted.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+		for (var entry : sorted) {
+			if (sizeBytes.get() <= target)
+				break;
+			remove(entry.getKey());
+			evictionCount.increment();
+		}
+	}
+
+	private void remove(Path path) {
+		var entry = entries.remove(path);
+		if (entry != null)
+			sizeBytes.addAndGet(-entry.size);
+		try {
+			Files.deleteIfExists(path);
+		} catch (IOException e) {
+			logger.debug("Unable to delete cached image {}: {}", path, e.getMessage());
+		}
+	}
+
+	/**
+	 * Request that pending file timestamps are updated.
+	 * This submits at most one task per interval, so that frequent cache hits can't fill the queue and
+	 * prevent new images from being written. If a task is discarded because the cache is busy, the
+	 * timestamps remain pending until a later request.
+	 */
+	private void requestTouches() {
+		long now = System.currentTimeMillis();
+		long last = lastTouchRequest.get();
+		if (now - last >= TOUCH_INTERVAL_MILLIS && lastTouchRequest.compareAndSet(last, now))
+			pool.execute(this::touchPending);
+	}
+
+	private void touchPending() {
+		var timestamp = FileTime.fromMillis(System.currentTimeMillis());
+		var iter = pendingTouches.iterator();
+		while (iter.hasNext()) {
+			var path = iter.next();
+			iter.remove();
+			try {
+				if (entries.containsKey(path))
+					Files.setLastModifiedTime(path, timestamp);
+			} catch (IOException e) {
+				logger.trace("Unable to update timestamp for {}", path, e);
+			}
+		}
+	}
+
+
+	/**
+	 * Write the image as a header followed by the raw contents of each bank of the data buffer.
+	 * Images with a standard type are written directly; other images are first copied to a banked raster.
+	 * @return the number of bytes written
+	 */
+	private static long writeImage(Path path, BufferedImage img) throws IOException {
+		int type = img.getType();
+		WritableRaster raster = img.getRaster();
+		// Indexed images need their original color model, so are handled in the same way as custom images
+		if (type == BufferedImage.TYPE_CUSTOM || type == BufferedImage.TYPE_BYTE_INDEXED || type == BufferedImage.TYPE_BYTE_BINARY
+				|| !hasStandardLayout(img)) {
+			type = BufferedImage.TYPE_CUSTOM;
+			var banded = Raster.createWritableRaster(
+					new BandedSampleModel(raster.getDataBuffer().getDataType(), raster.getWidth(), raster.getHeight(), raster.getNumBands()),
+					null);
+			banded.setRect(-raster.getMinX(), -raster.getMinY(), raster);
+			raster = banded;
+		}
+		var buffer = raster.getDataBuffer();
+		int bytesPerElement = DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+		long size = HEADER_BYTES + (long)buffer.getSize() * buffer.getNumBanks() * bytesPerElement;
+
+		if (size > Integer.MAX_VALUE)
+			throw new IOException("Image is too large to cache (" + size + " bytes)");
+		var bb = ByteBuffer.allocate((int)size).order(ByteOrder.nativeOrder());
+		bb.putInt(MAGIC);
+		bb.putInt(VERSION);
+		bb.putInt(type);
+		bb.putInt(raster.getWidth());
+		bb.putInt(raster.getHeight());
+		bb.putInt(raster.getNumBands());
+		bb.putInt(buffer.getDataType());
+		bb.putInt(buffer.getNumBanks());
+		for (int b = 0; b < buffer.getNumBanks(); b++)
+			putBank(bb, buffer, b);
+
+		Files.createDirectories(path.getParent());
+		var temp = Files.createTempFile(path.getParent(), "tile", ".tmp");
+		try {
+			Files.write(temp, bb.array());
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+		return size;
+	}
+
+	/**
+	 * Read an image. For custom images, the color model must be supplied by the function.
+	 * @return the image, or null if it could not be reconstructed
+	 */
+	private static BufferedImage readImage(Path path, Function<WritableRaster, ColorModel> colorModelFunction) throws IOException {
+		var bb = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.nativeOrder());
+		if (bb.remaining() < HEADER_BYTES || bb.getInt() != MAGIC || bb.getInt() != VERSION)
+			return null;
+		int type = bb.getInt();
+		int width = bb.getInt();
+		int height = bb.getInt();
+		int nBands = bb.getInt();
+		int dataType = bb.getInt();
+		int nBanks = bb.getInt();
+
+		WritableRaster raster;
+		BufferedImage img = null;
+		if (type == BufferedImage.TYPE_CUSTOM) {
+			raster = Raster.createWritableRaster(new BandedSampleModel(dataType, width, height, nBands), null);
+		} else {
+			img = new BufferedImage(width, height, type);
+			raster = img.getRaster();
+		}
+		var buffer = raster.getDataBuffer();
+		if (buffer.getDataType() != dataType || buffer.getNumBanks() != nBanks || raster.getNumBands() != nBands)
+			return null;
+		// Check the file isn't truncated
+		long expectedBytes = (long)buffer.getSize() * nBanks * (DataBuffer.getDataTypeSize(dataType) / 8);
+		if (bb.remaining() < expectedBytes)
+			return null;
+		for (int b = 0; b < nBanks; b++)
+			getBank(bb, buffer, b);
+		if (img != null)
+			return img;
+
+		var colorModel = colorModelFunction == null ? null : colorModelFunction.apply(raster);
+		if (colorModel == null || !colorModel.isCompatibleRaster(raster))
+			return null;
+		return new BufferedImage(colorModel, raster, colorModel.isAlphaPremultiplied(), null);
+	}
+
+	private static boolean hasStandardLayout(BufferedImage img) {
+		var raster = img.getRaster();
+		if (raster.getParent() != null || raster.getMinX() != 0 || raster.getMinY() != 0
+				|| raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0)
+			return false;
+		var buffer = raster.getDataBuffer();
+		for (int offset : buffer.getOffsets()) {
+			if (offset != 0)
+				return false;
+		}
+		// Compare with the buffer that would be created for a new image of the same type
+		var expected = new BufferedImage(1, 1, img.getType()).getSampleModel()
+				.createCompatibleSampleModel(img.getWidth(), img.getHeight());
+		return expected.equals(raster.getSampleModel()) && buffer.getSize() == expected.createDataBuffer().getSize();
+	}
+
+	private static void putBank(ByteBuffer bb, DataBuffer buffer, int bank) {
+		int n = buffer.getSize();
+		int pos = bb.position();
+		if (buffer instanceof DataBufferByte db) {
+			bb.put(db.getData(bank), 0, n);
+			return;
+		} else if (buffer instanceof DataBufferUShort db) {
+			bb.asShortBuffer().put(db.getData(bank), 0, n);
+			pos += n * Short.BYTES;
+		} else if (buffer instanceof DataBufferShort db) {
+			bb.asShortBuffer().put(db.getData(bank), 0, n);
+			pos += n * Short.BYTES;
+		} else if (buffer instanceof DataBufferInt db) {
+			bb.asIntBuffer().put(db.getData(bank), 0, n);
+			pos += n * Integer.BYTES;
+		} else if (buffer instanceof DataBufferFloat db) {
+			bb.asFloatBuffer().put(db.getData(bank), 0, n);
+			pos += n * Float.BYTES;
+		} else if (buffer instanceof DataBufferDouble db) {
+			bb.asDoubleBuffer().put(db.getData(bank), 0, n);
+			pos += n * Double.BYTES;
+		} else
+			throw new IllegalArgumentException("Unsupported data buffer " + buffer);
+		bb.position(pos);
+	}
+
+	private static void getBank(ByteBuffer bb, DataBuffer buffer, int bank) {
+		int n = buffer.getSize();
+		int pos = bb.position();
+		if (buffer instanceof DataBufferByte db) {
+			bb.get(db.getData(bank), 0, n);
+			return;
+		} else if (buffer instanceof DataBufferUShort db) {
+			bb.asShortBuffer().get(db.getData(bank), 0, n);
+			pos += n * Short.BYTES;
+		} else if (buffer instanceof DataBufferShort db) {
+			bb.asShortBuffer().get(db.getData(bank), 0, n);
+			pos += n * Short.BYTES;
+		} else if (buffer instanceof DataBufferInt db) {
+			bb.asIntBuffer().get(db.getData(bank), 0, n);
+			pos += n * Integer.BYTES;
+		} else if (buffer instanceof DataBufferFloat db) {
+			bb.asFloatBuffer().get(db.getData(bank), 0, n);
+			pos += n * Float.BYTES;
+		} else if (buffer instanceof DataBufferDouble db) {
+			bb.asDoubleBuffer().get(db.getData(bank), 0, n);
+			pos += n * Double.BYTES;
+		} else
+			throw new IllegalArgumentException("Unsupported data buffer " + buffer);
+		bb.position(pos);
+	}
+
+
+	private static class Entry {
+
+		private final long size;
+		private volatile long lastAccess;
+
+		private Entry(long size, long lastAccess) {
+			this.size = size;
+			this.lastAccess = lastAccess;
+		}
+
+	}
+
+}
@@ -4,7 +4,7 @@
  * %%
  * Copyright (C) 2014 - 2016 The Queen's University of Belfast, Northern Ireland
  * Contact: IP Management (ipmanagement@qub.ac.uk)
- * Copyright (C) 2018 - 2024 QuPath developers, The University of Edinburgh
+ * Copyright (C) 2018 - 2025 QuPath developers, The University of Edinburgh
  * %%
  * QuPath is free software: you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as
@@ -23,15 +23,21 @@
 
 package qupath.lib.io;
 
+import com.google.gson.Gson;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 import com.google.gson.JsonSyntaxException;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import qupath.lib.color.ColorDeconvolutionStains;
 import qupath.lib.common.GeneralTools;
 import qupath.lib.common.LogTools;
+import qupath.lib.common.ThreadTools;
 import qupath.lib.images.ImageData;
 import qupath.lib.images.servers.ImageServer;
 import qupath.lib.images.servers.ImageServerBuilder.DefaultImageServerBuilder;
@@ -52,6 +58,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.ObjectInputFilter;
 import java.io.ObjectInputFilter.FilterInfo;
 import java.io.ObjectInputFilter.Status;
@@ -66,6 +73,7 @@ import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -79,6 +87,11 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
@@ -98,8 +111,14 @@ public class PathIO {
 	 * Version 2 switched to integers, and includes Locale information
 	 * Version 3 stores JSON instead of a server path
 	 * Version 4 stores PathObject UUIDs as a separate field
+	 * Version 5 stores the hierarchy using a chunked binary encoding rather than Java serialization
 	 */
-	private static final int DATA_FILE_VERSION = 3;
+	private static final int DATA_FILE_VERSION = 5;
+	
+	/**
+	 * Data file version written when the binary hierarchy encoding is not requested.
+	 */
+	private static final int LEGACY_DATA_FILE_VERSION = 3;
 	
 	/**
 	 * Input filter for deserialization that is limited to QuPath-related classes.
@@ -108,7 +127,39 @@ public class PathIO {
 	
 	private PathIO() {}
 	
-	private static int requestedDataFileVersion = DATA_FILE_VERSION - 1;
+	// Binary hierarchies are opt-in for now, since they can't be read by earlier versions of QuPath
+	private static int requestedDataFileVersion = 2;
+	
+	private static boolean lazyObjectLoading = false;
+	
+	/**
+	 * Request that detections are loaded lazily when reading data files.
+	 * <p>
+	 * If true, annotations and TMA cores are read immediately but detections are added to the hierarchy as
+	 * {@link qupath.lib.objects.hierarchy.DeferredObjects DeferredObjects}.
+	 * These are only created when the hierarchy is queried for an overlapping region (e.g. when the
+	 * objects are displayed in a viewer), or for all detections.
+	 * This can make opening images with very large numbers of detections much faster.
+	 * <p>
+	 * This is only supported for data files written using data file version 5 or later.
+	 * 
+	 * @param lazy
+	 * @since v0.7.0
+	 * @see PathObjectHierarchy#addDeferredObjects(Collection)
+	 */
+	public static void setLazyObjectLoading(boolean lazy) {
+		lazyObjectLoading = lazy;
+	}
+	
+	/**
+	 * Query whether detections should be loaded lazily when reading data files.
+	 * @return
+	 * @since v0.7.0
+	 * @see #setLazyObjectLoading(boolean)
+	 */
+	public static boolean isLazyObjectLoading() {
+		return lazyObjectLoading;
+	}
 	
 	/**
 	 * Get the requested version for .qpdata files.
@@ -139,6 +190,9 @@ public class PathIO {
 	 * <li><b>2</b> Switched versions to use integers, added Locale information (used in QuPath v0.1.2)</li>
 	 * <li><b>3</b> Switched {@link ImageServer} paths to be a JSON representation rather than a single path/URL</li>
 	 * <li><b>4</b> Added support for UUID to be stored in each {@link PathObject} (introduced QuPath v0.4.0)</li>
+	 * <li><b>5</b> Store the {@link PathObjectHierarchy} using a compact, chunked binary encoding rather than Java serialization.
+	 *              This is much faster to read and write for large numbers of objects, and always includes UUIDs
+	 *              (introduced QuPath v0.7.0)</li>
 	 * </ul>
 	 * 
 	 * @param version integer representation of the requested version
@@ -243,7 +297,7 @@ public class PathIO {
 		} else {
 			String json = serverString;
 			var wrapper = GsonTools.getInstance().fromJson(json, ServerBuilderWrapper.class);
-			if (warnIfInvalid && !Objects.equals(wrapper.dataVersion, DATA_FILE_VERSION)) {
+			if (warnIfInvalid && (wrapper.dataVersion < LEGACY_DATA_FILE_VERSION || wrapper.dataVersion > DATA_FILE_VERSION)) {
 				logger.warn("Attempting to read data file version {} written by QuPath {} (expected data file version {})", wrapper.dataVersion, wrapper.qupathVersion, DATA_FILE_VERSION);
 			}
 			return (ServerBuilder<T>)wrapper.server;
@@ -265,9 +319,9 @@ public class PathIO {
 		private ServerBuilder<T> server;
 		private String id;
 		
-		static <T> ServerBuilderWrapper<T>  create(ServerBuilder<T> builder, String id) {
+		static <T> ServerBuilderWrapper<T>  create(ServerBuilder<T> builder, String id, int dataVersion) {
 			var wrapper = new ServerBuilderWrapper<T>();
-			wrapper.dataVersion = DATA_FILE_VERSION;
+			wrapper.dataVersion = dataVersion;
 			wrapper.qupathVersion = GeneralTools.getVersion();
 			wrapper.server = builder;
 			wrapper.id = id;
@@ -340,6 +394,8 @@ public class PathIO {
 							Locale.setDefault(Category.FORMAT, (Locale) input);
 							localeChanged = true;
 						}
+					} else if (BinaryHierarchyIO.MARKER.equals(input)) {
+						hierarchy = BinaryHierarchyIO.readHierarchy(inStream, lazyObjectLoading);
 					} else if (input instanceof PathObjectHierarchy readHierarchy) {
 						// Clumsy... but we need to ensure we have a fully-initialized hierarchy
 						// (which deserialization alone doesn't achieve)
@@ -398,10 +454,11 @@ public class PathIO {
 			}
 
 			long endTime = System.currentTimeMillis();
+			// Don't count objects here, since that would load any deferred objects
 			if (hierarchy != null)
-				logger.debug(String.format("Hierarchy with %d object(s) read in %.2f seconds",
-						hierarchy.nObjects(),
-						(endTime - startTime)/1000.));
+				logger.debug("Hierarchy read in {} seconds (deferred objects: {})",
+						GeneralTools.formatNumber((endTime - startTime)/1000., 2),
+						hierarchy.hasDeferredObjects());
 
 			return imageData;
 		} catch (ClassNotFoundException e1) {
@@ -657,7 +714,9 @@ public class PathIO {
 			ObjectOutputStream outStream = new ObjectOutputStream(outputStream);
 			
 			// Write the identifier
-			outStream.writeUTF("Data file version " + DATA_FILE_VERSION);
+			boolean writeBinaryHierarchy = requestedDataFileVersion >= DATA_FILE_VERSION;
+			int dataVersion = writeBinaryHierarchy ? DATA_FILE_VERSION : LEGACY_DATA_FILE_VERSION;
+			outStream.writeUTF("Data file version " + dataVersion);
 			
 			// Write JSON object including QuPath version and ServerBuilder
 			// Note that the builder may be null, in which case the server cannot be recreated
@@ -670,7 +729,7 @@ public class PathIO {
 			} else {
 				serverPath = imageData.getLastSavedPath();
 			}
-			var wrapper = ServerBuilderWrapper.create(builder, serverPath);
+			var wrapper = ServerBuilderWrapper.create(builder, serverPath, dataVersion);
 			String json = GsonTools.getInstance().toJson(wrapper);
 			outStream.writeObject(json);
 			
@@ -684,8 +743,13 @@ public class PathIO {
 			
 			// Write the rest of the main image metadata
 			PathObjectHierarchy hierarchy = imageData.getHierarchy();
-			logger.info(String.format("Writing object hierarchy with %d object(s)...", hierarchy.nObjects()));
-			outStream.writeObject(hierarchy);
+			// Don't count objects here, since that would load any deferred objects before they are needed
+			logger.info("Writing object hierarchy...");
+			if (writeBinaryHierarchy) {
+				outStream.writeObject(BinaryHierarchyIO.MARKER);
+				BinaryHierarchyIO.writeHierarchy(outStream, hierarchy);
+			} else
+				outStream.writeObject(hierarchy);
 			
 			// Write any remaining (serializable) properties
 			Map<String, Object> map = new HashMap<>();
@@ -702,7 +766,7 @@ public class PathIO {
 			outStream.writeObject("EOF");
 			
 			long endTime = System.currentTimeMillis();
-			logger.info(String.format("Image data written in %.2f seconds", (endTime - startTime)/1000.));
+			logger.info("Image data written in {} seconds", GeneralTools.formatNumber((endTime - startTime)/1000., 2));
 		}
 	}
 	
@@ -762,6 +826,8 @@ public class PathIO {
 							Locale.setDefault(Category.FORMAT, (Locale)input);
 							localeChanged = true;
 						}
+					} else if (BinaryHierarchyIO.MARKER.equals(input)) {
+						return BinaryHierarchyIO.readHierarchy(inStream, lazyObjectLoading);
 					} else if (input instanceof PathObjectHierarchy newHierarchy) {
 						/* This would ideally be unnecessary, but it's needed to ensure that the PathObjectHierarchy
 						 * has been property initialized.
@@ -888,6 +954,119 @@ public class PathIO {
 		}
 	}
 	
+	/**
+	 * Read {@link PathObject}s from an input stream containing GeoJSON, passing them to a consumer in batches.
+	 * <p>
+	 * This supports the same representations as {@link #readObjectsFromGeoJSON(InputStream)}, but parses 
+	 * features one at a time rather than first reading the entire JSON into memory.
+	 * Each batch of features is converted to objects in parallel.
+	 * This makes it suitable for reading very large numbers of objects.
+	 * 
+	 * @param stream the input stream containing JSON data to read
+	 * @param consumer consumer to accept each batch of objects, in the order they appear in the stream
+	 * @return the total number of objects read
+	 * @throws IOException
+	 * @throws JsonParseException
+	 * @since v0.7.0
+	 * @see #importObjectsFromGeoJSON(InputStream, PathObjectHierarchy)
+	 */
+	public static long readObjectsFromGeoJSON(InputStream stream, Consumer<? super List<PathObject>> consumer) throws IOException, JsonParseException {
+		var gson = GsonTools.getInstance();
+		var elementAdapter = gson.getAdapter(JsonElement.class);
+		var batch = new GeoJsonBatch(consumer);
+		try (var reader = gson.newJsonReader(new InputStreamReader(new BufferedInputStream(stream), StandardCharsets.UTF_8))) {
+			var token = reader.peek();
+			if (token == JsonToken.BEGIN_ARRAY) {
+				readGeoJsonArray(reader, elementAdapter, batch);
+			} else if (token == JsonToken.BEGIN_OBJECT) {
+				// Stream the features of a FeatureCollection, otherwise read the object in full
+				var jsonObject = new JsonObject();
+				boolean hasFeatures = false;
+				reader.beginObject();
+				while (reader.hasNext()) {
+					String name = reader.nextName();
+					if ("features".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+						readGeoJsonArray(reader, elementAdapter, batch);
+						hasFeatures = true;
+					} else
+						jsonObject.add(name, elementAdapter.read(reader));
+				}
+				reader.endObject();
+				if (!hasFeatures)
+					batch.add(jsonObject);
+			} else {
+				logger.warn("Unable to read objects from JSON starting with {}", token);
+			}
+		}
+		batch.flush();
+		return batch.count;
+	}
+	
+	/**
+	 * Read objects from GeoJSON and add them to a hierarchy.
+	 * The objects are added in a single {@link PathObjectHierarchy#beginBulkUpdate() bulk update} after all 
+	 * have been parsed, firing a single hierarchy change event.
+	 * If the objects can't be read, the hierarchy is unchanged.
+	 * 
+	 * @param stream the input stream containing JSON data to read
+	 * @param hierarchy the hierarchy to which the objects should be added
+	 * @return the number of objects added
+	 * @throws IOException
+	 * @throws JsonParseException
+	 * @since v0.7.0
+	 * @see #readObjectsFromGeoJSON(InputStream, Consumer)
+	 */
+	public static long importObjectsFromGeoJSON(InputStream stream, PathObjectHierarchy hierarchy) throws IOException, JsonParseException {
+		var update = hierarchy.beginBulkUpdate();
+		long n = readObjectsFromGeoJSON(stream, update::addObjects);
+		update.commit();
+		return n;
+	}
+	
+	private static void readGeoJsonArray(JsonReader reader, TypeAdapter<JsonElement> elementAdapter, GeoJsonBatch batch) throws IOException {
+		reader.beginArray();
+		while (reader.hasNext())
+			batch.add(elementAdapter.read(reader));
+		reader.endArray();
+	}
+	
+	/**
+	 * Helper class to convert GeoJSON elements to objects in batches.
+	 */
+	private static class GeoJsonBatch {
+		
+		private static final int BATCH_SIZE = 1024;
+		
+		private final Consumer<? super List<PathObject>> consumer;
+		private List<JsonElement> elements = new ArrayList<>();
+		private long count = 0;
+		
+		private GeoJsonBatch(Consumer<? super List<PathObject>> consumer) {
+			this.consumer = consumer;
+		}
+		
+		void add(JsonElement element) {
+			elements.add(element);
+			if (elements.size() >= BATCH_SIZE)
+				flush();
+		}
+		
+		void flush() {
+			if (elements.isEmpty())
+				return;
+			var stream = elements.size() > 1 ? elements.parallelStream() : elements.stream();
+			List<PathObject> pathObjects = stream
+					.<PathObject>flatMap(e -> GsonTools.parseObjectsFromGeoJSON(e).stream())
+					.toList();
+			elements = new ArrayList<>();
+			if (!pathObjects.isEmpty()) {
+				count += pathObjects.size();
+				consumer.accept(pathObjects);
+			}
+		}
+		
+	}
+	
 	
 	private static final String EXT_ZIP = ".zip";
 	private static final String EXT_GZIP = ".gz";
@@ -987,22 +1166,95 @@ public class PathIO {
 	 */
 	public static void exportObjectsAsGeoJSON(OutputStream stream, Collection<? extends PathObject> pathObjects, GeoJsonExportOptions... options) throws IOException {
 		Collection<GeoJsonExportOptions> optionList = Arrays.asList(options);
-		
-		// If exclude measurements, 'transform' each PathObject to get rid of measurements
-		if (optionList.contains(GeoJsonExportOptions.EXCLUDE_MEASUREMENTS))
-			pathObjects = pathObjects.stream().map(e -> PathObjectTools.transformObject(e, null, false)).toList();
+		boolean prettyJson = optionList.contains(GeoJsonExportOptions.PRETTY_JSON);
+		boolean excludeMeasurements = optionList.contains(GeoJsonExportOptions.EXCLUDE_MEASUREMENTS);
+		boolean featureCollection = optionList.contains(GeoJsonExportOptions.FEATURE_COLLECTION);
 		
 		var writer = new OutputStreamWriter(new BufferedOutputStream(stream), StandardCharsets.UTF_8);
-		var gson = GsonTools.getInstance(optionList.contains(GeoJsonExportOptions.PRETTY_JSON));
+		var gson = GsonTools.getInstance(prettyJson);
+		
+		if (!featureCollection && pathObjects.size() == 1) {
+			gson.toJson(toExportObject(pathObjects.iterator().next(), excludeMeasurements), PathObject.class, writer);
+			writer.flush();
+			return;
+		}
 		
-		if (optionList.contains(GeoJsonExportOptions.FEATURE_COLLECTION))
-			gson.toJson(FeatureCollection.wrap(pathObjects), writer);
-		else if (pathObjects.size() == 1) {
-			gson.toJson(pathObjects.iterator().next(), writer);
+		// Write features one at a time, so that we don't need to hold the full JSON in memory
+		var jsonWriter = gson.newJsonWriter(writer);
+		if (featureCollection) {
+			jsonWriter.beginObject();
+			jsonWriter.name("type").value("FeatureCollection");
+			jsonWriter.name("features");
+		}
+		jsonWriter.beginArray();
+		// Pretty-printed JSON needs to be written sequentially to get the indentation right
+		if (prettyJson || pathObjects.size() < GEOJSON_PARALLEL_THRESHOLD) {
+			for (var pathObject : pathObjects)
+				gson.toJson(toExportObject(pathObject, excludeMeasurements), PathObject.class, jsonWriter);
 		} else {
-			gson.toJson(pathObjects, new TypeToken<List<PathObject>>() {}.getType(), writer);				
+			writeFeaturesParallel(jsonWriter, gson, pathObjects, excludeMeasurements);
+		}
+		jsonWriter.endArray();
+		if (featureCollection)
+			jsonWriter.endObject();
+		jsonWriter.flush();
+	}
+	
+	// Minimum number of objects before converting to GeoJSON in parallel
+	private static final int GEOJSON_PARALLEL_THRESHOLD = 1000;
+	
+	private static final int GEOJSON_CHUNK_SIZE = 256;
+	
+	/**
+	 * Shared pool for converting objects to GeoJSON. Idle threads are discarded, and the number of 
+	 * chunks being converted at any time is limited by {@link ThreadTools#getParallelism()}.
+	 */
+	private static final ExecutorService geoJsonPool = Executors.newCachedThreadPool(ThreadTools.createThreadFactory("geojson-export", true));
+	
+	/**
+	 * If exclude measurements, 'transform' a PathObject to get rid of measurements.
+	 */
+	private static PathObject toExportObject(PathObject pathObject, boolean excludeMeasurements) {
+		return excludeMeasurements ? PathObjectTools.transformObject(pathObject, null, false) : pathObject;
+	}
+	
+	/**
+	 * Convert objects to GeoJSON in parallel chunks, writing the results in order.
+	 * The number of chunks that can be converted ahead of being written is limited, so that memory use is bounded.
+	 */
+	private static void writeFeaturesParallel(JsonWriter jsonWriter, Gson gson, Collection<? extends PathObject> pathObjects, boolean excludeMeasurements) throws IOException {
+		int nThreads = ThreadTools.getParallelism();
+		var pending = new ArrayDeque<Future<List<String>>>();
+		try {
+			var iter = pathObjects.iterator();
+			while (iter.hasNext()) {
+				List<PathObject> chunk = new ArrayList<>(GEOJSON_CHUNK_SIZE);
+				while (iter.hasNext() && chunk.size() < GEOJSON_CHUNK_SIZE)
+					chunk.add(iter.next());
+				pending.add(geoJsonPool.submit(() -> chunk.stream()
+						.<String>map(p -> gson.toJson(toExportObject(p, excludeMeasurements), PathObject.class))
+						.toList()));
+				if (pending.size() >= nThreads)
+					writeJsonValues(jsonWriter, pending.poll());
+			}
+			while (!pending.isEmpty())
+				writeJsonValues(jsonWriter, pending.poll());
+		} finally {
+			for (var future : pending)
+				future.cancel(true);
+		}
+	}
+	
+	private static void writeJsonValues(JsonWriter jsonWriter, Future<List<String>> future) throws IOException {
+		try {
+			for (var json : future.get())
+				jsonWriter.jsonValue(json);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("GeoJSON export interrupted");
+		} catch (ExecutionException e) {
+			throw new IOException("Unable to convert objects to GeoJSON", e.getCause());
 		}
-		writer.flush();
 	}
 	
 	
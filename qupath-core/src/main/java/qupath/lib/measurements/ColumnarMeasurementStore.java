@@ -0,0 +1,579 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.measurements;
+
+import java.io.ObjectStreamException;
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import qupath.lib.measurements.MeasurementList.MeasurementListType;
+
+/**
+ * Columnar storage for the measurements of many objects.
+ * <p>
+ * Rather than each object having its own measurement list containing names and values,
+ * the store contains one primitive array per measurement name.
+ * Each measurement list created by the store is a lightweight view that refers to a single row.
+ * This greatly reduces the memory required when there are millions of objects with the same measurements,
+ * and makes it possible to read all values for a measurement in bulk with {@link #getColumn(String)}.
+ * <p>
+ * As with other measurement lists, each list returns its names in the order in which they were added to that list.
+ * This order is stored as a reference to an immutable layout, which is shared by all lists that have the same names
+ * in the same order.
+ * <p>
+ * Reading values does not require any locking. Writing values is also lock-free, except when a name
+ * is added to (or removed from) a list, or storage needs to be expanded for new rows.
+ * Concurrent writes to the same row and measurement are not coordinated, so the last write wins.
+ * <p>
+ * Measurement lists are serialized as regular (standalone) lists, containing a copy of the values.
+ * Rows are not reused when an object is discarded, so a store should generally be associated with
+ * a single collection of objects (e.g. those within an object hierarchy).
+ *
+ * @author Pete Bankhead
+ * @since v0.7.0
+ * @see MeasurementListFactory#createColumnarStore(MeasurementListType)
+ */
+public class ColumnarMeasurementStore {
+
+	private static final int CHUNK_SHIFT = 12;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	// Missing values are stored as NaNs with a specific bit pattern, so they can be distinguished from
+	// measurements that are NaN, but still behave as NaN when the column is read
+	private static final int MISSING_FLOAT_BITS = 0x7fc0dead;
+	private static final float MISSING_FLOAT = Float.intBitsToFloat(MISSING_FLOAT_BITS);
+	private static final long MISSING_DOUBLE_BITS = 0x7ff80000deadbeefL;
+	private static final double MISSING_DOUBLE = Double.longBitsToDouble(MISSING_DOUBLE_BITS);
+
+	private final MeasurementListType type;
+
+	private final Map<String, Column> columnMap = new ConcurrentHashMap<>();
+	private volatile List<Column> columns = Collections.emptyList();
+
+	private final AtomicInteger nRows = new AtomicInteger();
+
+	// Shared layouts, so that lists with the same names in the same order use the same instance
+	private final Map<List<Column>, Layout> layouts = new ConcurrentHashMap<>();
+	private final Layout emptyLayout = new Layout(this, Collections.emptyList());
+
+	ColumnarMeasurementStore(MeasurementListType type) {
+		if (type != MeasurementListType.FLOAT && type != MeasurementListType.DOUBLE)
+			throw new IllegalArgumentException("Columnar measurement store requires FLOAT or DOUBLE type, not " + type);
+		this.type = type;
+	}
+
+	/**
+	 * Get the type of values stored (either float or double).
+	 * @return
+	 */
+	public MeasurementListType getType() {
+		return type;
+	}
+
+	/**
+	 * Create a new (empty) measurement list, backed by a new row in this store.
+	 * @return
+	 */
+	public MeasurementList createMeasurementList() {
+		return new ColumnarMeasurementList(this, nRows.getAndIncrement());
+	}
+
+	/**
+	 * Get the number of rows that have been created.
+	 * This is the number of measurement lists created by the store.
+	 * @return
+	 */
+	public int nRows() {
+		return nRows.get();
+	}
+
+	/**
+	 * Get the names of all measurements in the store.
+	 * Individual measurement lists may only contain a subset of these.
+	 * @return an unmodifiable snapshot of the names, in the order in which they were added
+	 */
+	public List<String> getNames() {
+		return columns.stream().map(c -> c.name).toList();
+	}
+
+	/**
+	 * Get the row index for a measurement list.
+	 * @param list the measurement list
+	 * @return the row index, or -1 if the list was not created by this store
+	 */
+	public int getRow(MeasurementList list) {
+		if (list instanceof ColumnarMeasurementList columnar && columnar.store == this)
+			return columnar.row;
+		return -1;
+	}
+
+	/**
+	 * Get all the values for a measurement, ordered by row index.
+	 * Rows that don't contain the measurement have the value {@code Double.NaN}.
+	 * @param name the measurement name
+	 * @return an array with length {@link #nRows()}; all values will be NaN if the measurement is not found
+	 */
+	public double[] getColumn(String name) {
+		int n = nRows();
+		double[] values = new double[n];
+		var column = columnMap.get(name);
+		if (column == null) {
+			Arrays.fill(values, Double.NaN);
+			return values;
+		}
+		column.copyTo(values, n);
+		return values;
+	}
+
+	/**
+	 * Get the values for a measurement from multiple measurement lists.
+	 * This is more efficient than requesting each value separately, because the column lookup is only needed once.
+	 * @param name the measurement name
+	 * @param lists the measurement lists; these may be from this store, or any other implementation
+	 * @return an array of values in the same order as the lists; missing values are NaN
+	 */
+	public double[] getValues(String name, List<? extends MeasurementList> lists) {
+		double[] values = new double[lists.size()];
+		var column = columnMap.get(name);
+		int i = 0;
+		for (var list : lists) {
+			int row = getRow(list);
+			if (row >= 0)
+				values[i] = column == null ? Double.NaN : column.get(row);
+			else
+				values[i] = list.get(name);
+			i++;
+		}
+		return values;
+	}
+
+	private Column getColumnForWriting(String name) {
+		var column = columnMap.get(name);
+		if (column != null)
+			return column;
+		synchronized (this) {
+			column = columnMap.get(name);
+			if (column == null) {
+				column = type == MeasurementListType.FLOAT ? new FloatColumn(name.intern()) : new DoubleColumn(name.intern());
+				var newColumns = new ArrayList<>(columns);
+				newColumns.add(column);
+				columns = Collections.unmodifiableList(newColumns);
+				columnMap.put(name, column);
+			}
+			return column;
+		}
+	}
+
+
+	private Layout getLayout(List<Column> columns) {
+		if (columns.isEmpty())
+			return emptyLayout;
+		return layouts.computeIfAbsent(columns, c -> new Layout(this, c));
+	}
+
+
+	/**
+	 * Immutable list of the columns used by a measurement list, in the order in which they were added.
+	 * Layouts cache the result of adding or removing a column, so that finding the next layout is usually fast.
+	 */
+	private static class Layout {
+
+		private final ColumnarMeasurementStore store;
+		private final List<Column> columns;
+		private final Set<Column> columnSet;
+
+		private final Map<Column, Layout> additions = new ConcurrentHashMap<>();
+		private final Map<Column, Layout> removals = new ConcurrentHashMap<>();
+
+		private Layout(ColumnarMeasurementStore store, List<Column> columns) {
+			this.store = store;
+			this.columns = List.copyOf(columns);
+			this.columnSet = Collections.newSetFromMap(new IdentityHashMap<>());
+			this.columnSet.addAll(columns);
+		}
+
+		boolean contains(Column column) {
+			return columnSet.contains(column);
+		}
+
+		Layout withColumn(Column column) {
+			if (contains(column))
+				return this;
+			return additions.computeIfAbsent(column, c -> {
+				var list = new ArrayList<>(columns);
+				list.add(c);
+				return store.getLayout(list);
+			});
+		}
+
+		Layout withoutColumn(Column column) {
+			if (!contains(column))
+				return this;
+			return removals.computeIfAbsent(column, c -> {
+				var list = new ArrayList<>(columns);
+				list.remove(c);
+				return store.getLayout(list);
+			});
+		}
+
+	}
+
+
+	private abstract static class Column {
+
+		protected final String name;
+
+		Column(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Get the value at the specified row.
+		 * Missing values are NaN.
+		 */
+		abstract double get(int row);
+
+		/**
+		 * Set the value at the specified row.
+		 */
+		abstract void set(int row, double value);
+
+		/**
+		 * Remove the value at the specified row.
+		 * @return the previous value, or NaN if there was no value
+		 */
+		abstract double remove(int row);
+
+		/**
+		 * Copy the first n values to a double array.
+		 */
+		abstract void copyTo(double[] values, int n);
+
+	}
+
+
+	/**
+	 * Column storing values in float arrays.
+	 * Values are stored in chunks so that expanding a column never requires copying (or losing) existing values.
+	 * The array of chunks is only ever replaced (never modified after being published), so that reading it
+	 * via a volatile field ensures the contents of each chunk are visible.
+	 */
+	private static class FloatColumn extends Column {
+
+		private volatile float[][] chunks = new float[0][];
+
+		FloatColumn(String name) {
+			super(name);
+		}
+
+		private float getRaw(int row) {
+			var chunks = this.chunks;
+			int c = row >>> CHUNK_SHIFT;
+			if (c >= chunks.length || chunks[c] == null)
+				return MISSING_FLOAT;
+			return chunks[c][row & CHUNK_MASK];
+		}
+
+		@Override
+		double get(int row) {
+			return getRaw(row);
+		}
+
+		@Override
+		void set(int row, double value) {
+			float val = Double.isNaN(value) ? Float.NaN : (float)value;
+			getChunk(row >>> CHUNK_SHIFT)[row & CHUNK_MASK] = val;
+		}
+
+		@Override
+		double remove(int row) {
+			int c = row >>> CHUNK_SHIFT;
+			var chunks = this.chunks;
+			if (c >= chunks.length || chunks[c] == null)
+				return Double.NaN;
+			var chunk = chunks[c];
+			float previous = chunk[row & CHUNK_MASK];
+			chunk[row & CHUNK_MASK] = MISSING_FLOAT;
+			return Float.floatToRawIntBits(previous) == MISSING_FLOAT_BITS ? Double.NaN : previous;
+		}
+
+		private float[] getChunk(int c) {
+			var chunks = this.chunks;
+			if (c < chunks.length && chunks[c] != null)
+				return chunks[c];
+			synchronized (this) {
+				chunks = this.chunks;
+				if (c < chunks.length && chunks[c] != null)
+					return chunks[c];
+				var chunk = new float[CHUNK_SIZE];
+				Arrays.fill(chunk, MISSING_FLOAT);
+				var newChunks = Arrays.copyOf(chunks, Math.max(chunks.length, c + 1));
+				newChunks[c] = chunk;
+				this.chunks = newChunks;
+				return chunk;
+			}
+		}
+
+		@Override
+		void copyTo(double[] values, int n) {
+			var chunks = this.chunks;
+			for (int i = 0; i < n; i++) {
+				int c = i >>> CHUNK_SHIFT;
+				if (c >= chunks.length || chunks[c] == null)
+					values[i] = Double.NaN;
+				else
+					values[i] = chunks[c][i & CHUNK_MASK];
+			}
+		}
+
+	}
+
+
+	/**
+	 * Column storing values in double arrays.
+	 * @see FloatColumn
+	 */
+	private static class DoubleColumn extends Column {
+
+		private volatile double[][] chunks = new double[0][];
+
+		DoubleColumn(String name) {
+			super(name);
+		}
+
+		private double getRaw(int row) {
+			var chunks = this.chunks;
+			int c = row >>> CHUNK_SHIFT;
+			if (c >= chunks.length || chunks[c] == null)
+				return MISSING_DOUBLE;
+			return chunks[c][row & CHUNK_MASK];
+		}
+
+		@Override
+		double get(int row) {
+			return getRaw(row);
+		}
+
+		@Override
+		void set(int row, double value) {
+			getChunk(row >>> CHUNK_SHIFT)[row & CHUNK_MASK] = Double.isNaN(value) ? Double.NaN : value;
+		}
+
+		@Override
+		double remove(int row) {
+			int c = row >>> CHUNK_SHIFT;
+			var chunks = this.chunks;
+			if (c >= chunks.length || chunks[c] == null)
+				return Double.NaN;
+			var chunk = chunks[c];
+			double previous = chunk[row & CHUNK_MASK];
+			chunk[row & CHUNK_MASK] = MISSING_DOUBLE;
+			return Double.doubleToRawLongBits(previous) == MISSING_DOUBLE_BITS ? Double.NaN : previous;
+		}
+
+		private double[] getChunk(int c) {
+			var chunks = this.chunks;
+			if (c < chunks.length && chunks[c] != null)
+				return chunks[c];
+			synchronized (this) {
+				chunks = this.chunks;
+				if (c < chunks.length && chunks[c] != null)
+					return chunks[c];
+				var chunk = new double[CHUNK_SIZE];
+				Arrays.fill(chunk, MISSING_DOUBLE);
+				var newChunks = Arrays.copyOf(chunks, Math.max(chunks.length, c + 1));
+				newChunks[c] = chunk;
+				this.chunks = newChunks;
+				return chunk;
+			}
+		}
+
+		@Override
+		void copyTo(double[] values, int n) {
+			var chunks = this.chunks;
+			for (int start = 0; start < n; start += CHUNK_SIZE) {
+				int c = start >>> CHUNK_SHIFT;
+				int len = Math.min(CHUNK_SIZE, n - start);
+				if (c >= chunks.length || chunks[c] == null)
+					Arrays.fill(values, start, start + len, Double.NaN);
+				else
+					System.arraycopy(chunks[c], 0, values, start, len);
+			}
+		}
+
+	}
+
+
+	/**
+	 * Measurement list that is a view of a single row of a {@link ColumnarMeasurementStore}.
+	 */
+	static class ColumnarMeasurementList implements MeasurementList {
+
+		@Serial
+		private static final long serialVersionUID = 1L;
+
+		private final transient ColumnarMeasurementStore store;
+		private final transient int row;
+
+		// Columns containing values for this row, in the order they were added
+		private transient volatile Layout layout;
+
+		private transient volatile Map<String, Number> mapView;
+
+		private ColumnarMeasurementList(ColumnarMeasurementStore store, int row) {
+			this.store = store;
+			this.row = row;
+			this.layout = store.emptyLayout;
+		}
+
+		@Override
+		public void put(String name, double value) {
+			var column = store.getColumnForWriting(name);
+			column.set(row, value);
+			if (!layout.contains(column)) {
+				synchronized (this) {
+					layout = layout.withColumn(column);
+				}
+			}
+		}
+
+		private List<Column> getColumnsWithValues() {
+			return layout.columns;
+		}
+
+		@Override
+		public List<Measurement> getMeasurements() {
+			return getColumnsWithValues().stream()
+					.map(c -> MeasurementFactory.createMeasurement(c.name, c.get(row)))
+					.toList();
+		}
+
+		@Override
+		public Measurement getByIndex(int ind) {
+			var column = getColumnsWithValues().get(ind);
+			return MeasurementFactory.createMeasurement(column.name, column.get(row));
+		}
+
+		@Override
+		public double[] values() {
+			return getColumnsWithValues().stream()
+					.mapToDouble(c -> c.get(row))
+					.toArray();
+		}
+
+		@Override
+		public double remove(String name) {
+			var column = store.columnMap.get(name);
+			if (column == null || !layout.contains(column))
+				return Double.NaN;
+			synchronized (this) {
+				layout = layout.withoutColumn(column);
+			}
+			return column.remove(row);
+		}
+
+		@Override
+		public List<String> getNames() {
+			return getColumnsWithValues().stream()
+					.map(c -> c.name)
+					.toList();
+		}
+
+		@Override
+		public double get(String name) {
+			var column = store.columnMap.get(name);
+			return column == null || !layout.contains(column) ? Double.NaN : column.get(row);
+		}
+
+		@Override
+		public boolean containsKey(String name) {
+			var column = store.columnMap.get(name);
+			return column != null && layout.contains(column);
+		}
+
+		@Override
+		public int size() {
+			return layout.columns.size();
+		}
+
+		@Override
+		public void removeAll(String... measurementNames) {
+			for (var name : measurementNames)
+				remove(name);
+		}
+
+		@Override
+		public void clear() {
+			List<Column> columns;
+			synchronized (this) {
+				columns = layout.columns;
+				layout = store.emptyLayout;
+			}
+			for (var column : columns)
+				column.remove(row);
+		}
+
+		@Override
+		public Map<String, Number> asMap() {
+			if (mapView == null) {
+				synchronized(this) {
+					if (mapView == null)
+						mapView = Collections.synchronizedMap(new MeasurementsMap(this));
+				}
+			}
+			return mapView;
+		}
+
+		@Override
+		public String toString() {
+			return "[" + String.join(", ", getMeasurements().stream()
+					.map(m -> m.getName() + ": " + m.getValue())
+					.toList()) + "]";
+		}
+
+		/**
+		 * Serialize as a standalone list, rather than the entire store.
+		 * @return
+		 * @throws ObjectStreamException
+		 */
+		@Serial
+		private Object writeReplace() throws ObjectStreamException {
+			var columns = getColumnsWithValues();
+			var list = MeasurementListFactory.createMeasurementList(columns.size(), store.type);
+			for (var column : columns)
+				list.put(column.name, column.get(row));
+			list.close();
+			return list;
+		}
+
+	}
+
+}
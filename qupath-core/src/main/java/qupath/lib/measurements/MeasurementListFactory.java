@@ -52,4 +52,21 @@ public class MeasurementListFactory {
 			return new DefaultMeasurementList(capacity);
 		}
 	}
+
+	/**
+	 * Create a columnar measurement store, which can be used to create many measurement lists
+	 * that share storage for their values.
+	 * This can be much more memory-efficient than creating standalone lists when there are many objects
+	 * with the same measurements.
+	 * @param type the type of values to store; must be {@link MeasurementList.MeasurementListType#FLOAT FLOAT}
+	 *             or {@link MeasurementList.MeasurementListType#DOUBLE DOUBLE}
+	 * @return
+	 * @throws IllegalArgumentException if the type is not supported
+	 * @since v0.7.0
+	 * @see ColumnarMeasurementStore#createMeasurementList()
+	 */
+	public static ColumnarMeasurementStore createColumnarStore(MeasurementList.MeasurementListType type) throws IllegalArgumentException {
+		return new ColumnarMeasurementStore(type);
+	}
+
 }
@@ -4,7 +4,7 @@
  * %%
  * Copyright (C) 2014 - 2016 The Queen's University of Belfast, Northern Ireland
  * Contact: IP Management (ipmanagement@qub.ac.uk)
- * Copyright (C) 2018 - 2024 QuPath developers, The University of Edinburgh
+ * Copyright (C) 2018 - 2025 QuPath developers, The University of Edinburgh
  * %%
  * QuPath is free software: you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as
@@ -23,7 +23,6 @@
 
 package qupath.lib.measurements;
 
-import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -53,6 +52,9 @@ import org.slf4j.LoggerFactory;
  * Therefore, if many lists of the same measurements are made, remembering to close each list when it is fully
  * populated can improve performance and greatly reduce memory requirements.
  * <p>
+ * Reading from a closed list does not require any locking, because the names and values are accessed through
+ * an immutable snapshot. Modifying a list (or reading from a list that is open) is synchronized.
+ * <p>
  * These lists can be instantiated through the {@link MeasurementListFactory} class.
  * 
  * @author Pete Bankhead
@@ -95,6 +97,30 @@ class NumericMeasurementList {
 	}
 	
 	
+	/**
+	 * Snapshot of a closed list, which can be read without synchronization.
+	 * The names and map are immutable. The values array may be updated in place when an existing 
+	 * measurement is set, but is replaced whenever measurements are added or removed.
+	 */
+	private static class ReadView {
+		
+		private final List<String> names;
+		private final Map<String, Integer> map;
+		private final Object values;
+		
+		private ReadView(List<String> names, Map<String, Integer> map, Object values) {
+			this.names = names;
+			this.map = map;
+			this.values = values;
+		}
+		
+		private int indexOf(String name) {
+			Integer ind = map.get(name);
+			return ind == null ? -1 : ind;
+		}
+		
+	}
+	
 	
 	private abstract static class AbstractNumericMeasurementList implements MeasurementList {
 		
@@ -109,6 +135,8 @@ class NumericMeasurementList {
 		private Map<String, Integer> map; // Optional map for fast measurement lookup
 		
 		private transient volatile Map<String, Number> mapView;
+		
+		private transient volatile ReadView readView; // Snapshot for lock-free reads, only available when closed
 
 		AbstractNumericMeasurementList(int capacity) {
 			names = new ArrayList<>(capacity);
@@ -123,14 +151,33 @@ class NumericMeasurementList {
 		 */
 		protected abstract void setValue(int index, double value);
 		
+		/**
+		 * Get the value at the specified index of a values array.
+		 * @param values the array, as returned by {@link #getValuesArray()}
+		 * @param index
+		 * @return
+		 */
+		protected abstract double getValue(Object values, int index);
+		
+		/**
+		 * Remove the value at the specified index.
+		 * This should replace the values array, rather than shift the values in place, 
+		 * since the previous array may still be accessed through a {@link ReadView}.
+		 * @param index
+		 * @return the value that was removed
+		 */
+		protected abstract double removeValue(int index);
+		
 		boolean isClosed() {
 			return isClosed;
 		}
 
 		@Override
 		public synchronized void close() {
-			if (isClosed())
+			if (isClosed()) {
+				updateReadView();
 				return;
+			}
 			compactStorage();
 			// Try to get a shared list & map
 			NameMap nameMap = getNameMap();				
@@ -138,8 +185,39 @@ class NumericMeasurementList {
 			this.namesUnmodifiable = names; // NameMap always returns an unmodifiable list
 			this.map = nameMap.getMap();
 			isClosed = true;
+			updateReadView();
 		}
 		
+		/**
+		 * Update the read view, if the list is closed.
+		 * This is required after closing, and also after deserialization.
+		 */
+		private void updateReadView() {
+			if (!isClosed || map == null) {
+				readView = null;
+				return;
+			}
+			var values = getValuesArray();
+			var view = readView;
+			if (view == null || view.names != names || view.values != values)
+				readView = new ReadView(names, map, values);
+		}
+		
+		/**
+		 * Get a snapshot for reading without synchronization, if available.
+		 * @return the snapshot, or null if the list is open
+		 */
+		private ReadView getReadView() {
+			var view = readView;
+			if (view == null && isClosed) {
+				// May be null after deserialization
+				synchronized (this) {
+					updateReadView();
+					view = readView;
+				}
+			}
+			return view;
+		}
 		
 		private NameMap getNameMap() {
 			NameMap nameMap = namesPool.get(names);
@@ -157,8 +235,8 @@ class NumericMeasurementList {
 		
 
 		@Override
-		public synchronized boolean isEmpty() {
-			return names.isEmpty();
+		public boolean isEmpty() {
+			return size() == 0;
 		}
 		
 		/**
@@ -176,35 +254,111 @@ class NumericMeasurementList {
 		}
 		
 		@Override
-		public final synchronized int size() {
-			return names.size();
+		public final int size() {
+			var view = getReadView();
+			if (view != null)
+				return view.names.size();
+			synchronized (this) {
+				return names.size();
+			}
 		}
 
 		@Override
-		public synchronized List<String> getNames() {
-			if (names.isEmpty())
-				return Collections.emptyList();
-			// Try to return the same unmodifiable list of names if we can - this speeds up comparisons
-			if (isClosed()) {
-				if (namesUnmodifiable == null) {
-					var nameMap = getNameMap();
-					namesUnmodifiable = nameMap.getUnmodifiableNames();
+		public List<String> getNames() {
+			var view = getReadView();
+			if (view != null)
+				return view.names;
+			synchronized (this) {
+				if (names.isEmpty())
+					return Collections.emptyList();
+				// Try to return the same unmodifiable list of names if we can - this speeds up comparisons
+				if (isClosed()) {
+					if (namesUnmodifiable == null) {
+						var nameMap = getNameMap();
+						namesUnmodifiable = nameMap.getUnmodifiableNames();
+					}
 				}
+				if (namesUnmodifiable == null) {
+					// We need to make a defensive copy, since the underlying list may be modified
+					return List.copyOf(names);
+				} else
+					assert names.size() == namesUnmodifiable.size();
+				return namesUnmodifiable;
 			}
-			if (namesUnmodifiable == null) {
-				// We need to make a defensive copy, since the underlying list may be modified
-				return List.copyOf(names);
-//				namesUnmodifiable = Collections.unmodifiableList(names);
-			} else
-				assert names.size() == namesUnmodifiable.size();
-			return namesUnmodifiable;
 		}
 
 		@Override
-		public synchronized boolean containsKey(String measurementName) {
-			if (!isClosed)
+		public boolean containsKey(String measurementName) {
+			var view = getReadView();
+			if (view != null)
+				return view.map.containsKey(measurementName);
+			synchronized (this) {
 				logger.trace("containsKey called on open NumericMeasurementList - consider closing list earlier for efficiency");
-			return names.contains(measurementName);
+				return names.contains(measurementName);
+			}
+		}
+		
+		@Override
+		public double get(String name) {
+			var view = getReadView();
+			if (view != null) {
+				int ind = view.indexOf(name);
+				return ind >= 0 ? getValue(view.values, ind) : Double.NaN;
+			}
+			synchronized (this) {
+				int ind = getMeasurementIndex(name);
+				if (ind >= 0 && ind < names.size())
+					return getValue(getValuesArray(), ind);
+				return Double.NaN;
+			}
+		}
+		
+		@Override
+		public List<Measurement> getMeasurements() {
+			var view = getReadView();
+			if (view != null)
+				return getMeasurements(view.names, view.values, view.names.size());
+			synchronized (this) {
+				return getMeasurements(names, getValuesArray(), names.size());
+			}
+		}
+		
+		private List<Measurement> getMeasurements(List<String> names, Object values, int n) {
+			if (n == 0)
+				return Collections.emptyList();
+			else if (n == 1)
+				return List.of(MeasurementFactory.createMeasurement(names.get(0), getValue(values, 0)));
+			else
+				return IntStream.range(0, n)
+					.mapToObj(i -> MeasurementFactory.createMeasurement(names.get(i), getValue(values, i)))
+					.toList();
+		}
+
+		@Override
+		public Measurement getByIndex(int ind) {
+			var view = getReadView();
+			if (view != null)
+				return MeasurementFactory.createMeasurement(view.names.get(ind), getValue(view.values, ind));
+			synchronized (this) {
+				return MeasurementFactory.createMeasurement(names.get(ind), getValue(getValuesArray(), ind));
+			}
+		}
+
+		@Override
+		public double[] values() {
+			var view = getReadView();
+			if (view != null)
+				return values(view.values, view.names.size());
+			synchronized (this) {
+				return values(getValuesArray(), names.size());
+			}
+		}
+		
+		private double[] values(Object values, int n) {
+			double[] result = new double[n];
+			for (int i = 0; i < n; i++)
+				result[i] = getValue(values, i);
+			return result;
 		}
 		
 		@Override
@@ -218,6 +372,7 @@ class NumericMeasurementList {
 		void ensureListOpen() {
 			if (isClosed()) {
 				isClosed = false;
+				readView = null;
 				map = null;
 				names = new ArrayList<>(names);	
 				namesUnmodifiable = null;
@@ -233,7 +388,7 @@ class NumericMeasurementList {
 				// If the list is closed, we have to reopen it
 				ensureListOpen();
 				names.add(name.intern());
-				setValue(size()-1, value);
+				setValue(names.size()-1, value);
 			}
 		}
 		
@@ -257,7 +412,7 @@ class NumericMeasurementList {
 		}
 
 		@Override
-		public synchronized String toString() {
+		public String toString() {
 			return "[" + getMeasurements().stream()
 					.map(AbstractNumericMeasurementList::toString)
 					.collect(Collectors.joining(", ")) + "]";
@@ -274,20 +429,17 @@ class NumericMeasurementList {
 			if (ind < 0)
 				return Double.NaN;
 			ensureListOpen();
-			var values = getValuesArray();
 			names.remove(ind);
-			double value = Array.getDouble(values, ind);
-			System.arraycopy(values, ind+1, values, ind, Array.getLength(values)-ind-1);
-			return value;
+			return removeValue(ind);
 		}
 
 		@Override
 		public synchronized void removeAll(String... measurementNames) {
-			isClosed = isClosed();
+			boolean wasClosed = isClosed();
 			for (String name : measurementNames) {
 				remove(name);
 			}
-			if (isClosed)
+			if (wasClosed)
 				close();
 		}
 
@@ -309,34 +461,8 @@ class NumericMeasurementList {
 		}
 		
 		@Override
-		public synchronized double get(String name) {
-			int ind = getMeasurementIndex(name);
-			if (ind >= 0 && ind < size())
-				return values[ind];
-			return Double.NaN;
-		}
-
-		@Override
-		public synchronized List<Measurement> getMeasurements() {
-			int n = size();
-			if (n == 0)
-				return Collections.emptyList();
-			else if (n == 1)
-				return List.of(getByIndex(0));
-			else
-				return IntStream.range(0, n)
-					.mapToObj(this::getByIndex)
-					.toList();
-		}
-
-		@Override
-		public synchronized Measurement getByIndex(int ind) {
-			return MeasurementFactory.createMeasurement(names.get(ind), values[ind]);
-		}
-
-		@Override
-		public synchronized double[] values() {
-			return Arrays.copyOf(values, size());
+		protected double getValue(Object values, int index) {
+			return ((double[])values)[index];
 		}
 
 		private void ensureArraySize(int length) {
@@ -347,17 +473,28 @@ class NumericMeasurementList {
 		@Override
 		protected synchronized void setValue(int index, double value) {
 			ensureArraySize(index + 1);
-			values[index] = (float)value;
+			values[index] = value;
+		}
+		
+		@Override
+		protected double removeValue(int index) {
+			double value = values[index];
+			double[] newValues = new double[values.length - 1];
+			System.arraycopy(values, 0, newValues, 0, index);
+			System.arraycopy(values, index+1, newValues, index, values.length-index-1);
+			values = newValues;
+			return value;
 		}
 
 		@Override
 		public synchronized void compactStorage() {
 			super.compactStorage();
-			int size = size();
+			int size = names.size();
 			if (size < values.length)
 				values = Arrays.copyOf(values, size);
 		}
 
+		@Override
 		protected Object getValuesArray() {
 			return values;
 		}
@@ -377,8 +514,13 @@ class NumericMeasurementList {
 			// Close from the start... will be opened as needed
 			close();
 		}
+		
+		@Override
+		protected double getValue(Object values, int index) {
+			return ((float[])values)[index];
+		}
 
-		private synchronized void ensureArraySize(int length) {
+		private void ensureArraySize(int length) {
 			if (values.length < length)
 				values = Arrays.copyOf(values, Math.max(values.length + EXPAND, length));
 		}
@@ -389,54 +531,29 @@ class NumericMeasurementList {
 			values[index] = (float)value;
 		}
 		
+		@Override
+		protected double removeValue(int index) {
+			double value = values[index];
+			float[] newValues = new float[values.length - 1];
+			System.arraycopy(values, 0, newValues, 0, index);
+			System.arraycopy(values, index+1, newValues, index, values.length-index-1);
+			values = newValues;
+			return value;
+		}
+		
 		@Override
 		public synchronized void compactStorage() {
 			super.compactStorage();
-			int size = size();
+			int size = names.size();
 			if (size < values.length)
 				values = Arrays.copyOf(values, size);
 		}
 
-		@Override
-		public synchronized double get(String name) {
-			int ind = getMeasurementIndex(name);
-			if (ind >= 0 && ind < size())
-				return values[ind];
-			return Double.NaN;
-		}
-
-		@Override
-		public synchronized List<Measurement> getMeasurements() {
-			int n = size();
-			if (n == 0)
-				return Collections.emptyList();
-			else if (n == 1)
-				return List.of(getByIndex(0));
-			else
-				return IntStream.range(0, n)
-						.mapToObj(this::getByIndex)
-						.toList();
-		}
-
-		@Override
-		public synchronized Measurement getByIndex(int ind) {
-			return MeasurementFactory.createMeasurement(names.get(ind), values[ind]);
-		}
-		
 		@Override
 		protected Object getValuesArray() {
 			return values;
 		}
 
-		@Override
-		public synchronized double[] values() {
-			int n = size();
-			double[] result = new double[n];
-			for (int i = 0; i < n; i++)
-				result[i] = values[i];
-			return result;
-		}
-
 	}
 
 }
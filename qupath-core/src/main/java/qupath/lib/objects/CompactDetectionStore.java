@@ -0,0 +1,173 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.objects;
+
+import java.util.Collection;
+import java.util.List;
+
+import qupath.lib.measurements.ColumnarMeasurementStore;
+import qupath.lib.measurements.MeasurementList.MeasurementListType;
+import qupath.lib.measurements.MeasurementListFactory;
+import qupath.lib.objects.classes.PathClass;
+import qupath.lib.roi.PolygonVertexStore;
+import qupath.lib.roi.interfaces.ROI;
+
+/**
+ * Helper for creating very large numbers of detection objects with a small memory footprint.
+ * <p>
+ * Objects created by the store are regular detections (or cells, or tiles), so can be used anywhere
+ * other objects are used. However, they are represented more compactly:
+ * <ul>
+ *   <li>polygon vertices are packed into arrays shared via a {@link PolygonVertexStore}, and geometries aren't cached</li>
+ *   <li>measurements are stored in a {@link ColumnarMeasurementStore}</li>
+ *   <li>IDs of new objects are generated only when they are first requested</li>
+ * </ul>
+ * Classifications aren't affected, since each {@link PathClass} is already shared between objects.
+ * <p>
+ * Storage is only reclaimed when all the objects created by a store are no longer reachable, so a store
+ * should generally be used for the detections within a single hierarchy.
+ *
+ * @author Pete Bankhead
+ * @since v0.7.0
+ * @see qupath.lib.objects.hierarchy.PathObjectHierarchy#getCompactDetectionStore()
+ */
+public class CompactDetectionStore {
+
+	private final PolygonVertexStore vertexStore;
+	private final ColumnarMeasurementStore measurementStore;
+
+	/**
+	 * Create a store with a new float measurement store.
+	 */
+	public CompactDetectionStore() {
+		this(MeasurementListFactory.createColumnarStore(MeasurementListType.FLOAT));
+	}
+
+	/**
+	 * Create a store that uses an existing measurement store.
+	 * @param measurementStore the store to use for measurement lists
+	 */
+	public CompactDetectionStore(ColumnarMeasurementStore measurementStore) {
+		this.vertexStore = new PolygonVertexStore();
+		this.measurementStore = measurementStore;
+	}
+
+	/**
+	 * Get the store used for polygon vertices.
+	 * @return
+	 */
+	public PolygonVertexStore getVertexStore() {
+		return vertexStore;
+	}
+
+	/**
+	 * Get the store used for measurements.
+	 * @return
+	 */
+	public ColumnarMeasurementStore getMeasurementStore() {
+		return measurementStore;
+	}
+
+	/**
+	 * Create a compact detection object.
+	 * @param roi the ROI of the detection
+	 * @param pathClass the classification (may be null)
+	 * @return the detection
+	 * @throws IllegalArgumentException if the ROI is null
+	 * @see PathObjects#createDetectionObject(ROI, PathClass)
+	 */
+	public PathObject createDetectionObject(ROI roi, PathClass pathClass) throws IllegalArgumentException {
+		var pathObject = PathObjects.createDetectionObject(vertexStore.compact(roi), pathClass, measurementStore.createMeasurementList());
+		pathObject.deferID();
+		return pathObject;
+	}
+
+	/**
+	 * Create a compact cell object.
+	 * @param roiCell the ROI of the cell boundary
+	 * @param roiNucleus the ROI of the nucleus (may be null)
+	 * @param pathClass the classification (may be null)
+	 * @return the cell
+	 * @see PathObjects#createCellObject(ROI, ROI, PathClass)
+	 */
+	public PathObject createCellObject(ROI roiCell, ROI roiNucleus, PathClass pathClass) {
+		var pathObject = PathObjects.createCellObject(vertexStore.compact(roiCell), vertexStore.compact(roiNucleus),
+				pathClass, measurementStore.createMeasurementList());
+		pathObject.deferID();
+		return pathObject;
+	}
+
+	/**
+	 * Create a compact copy of a detection object.
+	 * The copy has the same ID, classification, name, color, measurements and metadata as the original,
+	 * but no parent or child objects.
+	 * <p>
+	 * The ID is copied using {@link PathObject#getID()}, so an ID that is still deferred on the original
+	 * will be generated on the original before being copied.
+	 * @param pathObject the detection to copy
+	 * @return the compact copy, or the original object if it was already compact
+	 * @throws IllegalArgumentException if the object is not a detection
+	 */
+	public PathObject compact(PathObject pathObject) throws IllegalArgumentException {
+		if (!pathObject.isDetection())
+			throw new IllegalArgumentException("Only detections can be compacted, not " + pathObject);
+		ROI roi = pathObject.getROI();
+		ROI roiCompact = vertexStore.compact(roi);
+		ROI roiNucleus = PathObjectTools.getNucleusROI(pathObject);
+		ROI roiNucleusCompact = vertexStore.compact(roiNucleus);
+		if (roi == roiCompact && roiNucleus == roiNucleusCompact && measurementStore.getRow(pathObject.getMeasurementList()) >= 0)
+			return pathObject;
+
+		var pathClass = pathObject.getPathClass();
+		var measurements = measurementStore.createMeasurementList();
+		PathObject newObject;
+		if (pathObject instanceof PathCellObject)
+			newObject = PathObjects.createCellObject(roiCompact, roiNucleusCompact, pathClass, measurements);
+		else if (pathObject instanceof PathTileObject)
+			newObject = PathObjects.createTileObject(roiCompact, pathClass, measurements);
+		else
+			newObject = PathObjects.createDetectionObject(roiCompact, pathClass, measurements);
+		if (!pathObject.getMeasurementList().isEmpty())
+			measurements.putAll(pathObject.getMeasurementList());
+		newObject.setName(pathObject.getName());
+		newObject.setColor(pathObject.getColor());
+		if (pathObject.hasMetadata())
+			newObject.getMetadata().putAll(pathObject.getMetadata());
+		newObject.setID(pathObject.getID());
+		return newObject;
+	}
+
+	/**
+	 * Create compact copies of multiple detection objects, in parallel.
+	 * <p>
+	 * As with {@link #compact(PathObject)}, any deferred IDs are generated on the originals, so this
+	 * loses the benefit of deferring IDs for objects that need to be copied.
+	 * @param pathObjects the detections to copy
+	 * @return a list of compact copies, in the same order as the input
+	 * @throws IllegalArgumentException if any object is not a detection
+	 * @see #compact(PathObject)
+	 */
+	public List<PathObject> compactAll(Collection<? extends PathObject> pathObjects) throws IllegalArgumentException {
+		return pathObjects.parallelStream().map(this::compact).toList();
+	}
+
+}
@@ -932,7 +932,7 @@ public abstract class PathObject implements Externalizable, MinimalMetadataStore
 		if (id == null) {
 			synchronized (this) {
 				if (id == null) {
-					logger.debug("Generating a new UUID on request");
+					logger.trace("Generating a new UUID on request");
 					id = UUID.randomUUID();
 				}
 			}
@@ -970,6 +970,15 @@ public abstract class PathObject implements Externalizable, MinimalMetadataStore
 	public void refreshID() {
 		setID(UUID.randomUUID());
 	}
+
+	/**
+	 * Discard the current ID, so that a new random ID is only generated if it is requested.
+	 * This can substantially reduce memory use when there are very many objects whose IDs are never needed.
+	 * @see CompactDetectionStore
+	 */
+	void deferID() {
+		id = null;
+	}
 	
 	/**
 	 * Ensure that we have a child list with a minimum capacity.
@@ -1114,7 +1123,7 @@ public abstract class PathObject implements Externalizable, MinimalMetadataStore
 		// This is not currently used, but exists in case future QuPath versions need 
 		// improved flexibility while wanting v0.4.0 to still be able to open the data files.
 		if (PathIO.getRequestedDataFileVersion() >= 4) {
-			out.writeObject(id);
+			out.writeObject(getID());
 			// Number of additional fields to write as objects
 			int nFields = 1;
 			if (metadata != null) {
@@ -1131,8 +1140,8 @@ public abstract class PathObject implements Externalizable, MinimalMetadataStore
 			if (metadata != null) {
 				tempMetadata.putAll(metadata);
 			}
-			if (id != null && !tempMetadata.containsKey(METADATA_KEY_ID))
-				tempMetadata.put(METADATA_KEY_ID, id.toString());
+			if (!tempMetadata.containsKey(METADATA_KEY_ID))
+				tempMetadata.put(METADATA_KEY_ID, getID().toString());
 			
 			// We always have metadata now
 			out.writeObject(tempMetadata);
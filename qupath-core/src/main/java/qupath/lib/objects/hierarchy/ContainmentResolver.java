@@ -0,0 +1,228 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+
+package qupath.lib.objects.hierarchy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import org.locationtech.jts.geom.Coordinate;
+
+import qupath.lib.objects.PathObject;
+import qupath.lib.roi.interfaces.ROI;
+
+/**
+ * Helper class to find parents for large numbers of detections in parallel, based upon their centroids.
+ * <p>
+ * Rather than querying potential parents for each detection in turn, the detection centroids are indexed once.
+ * Each potential parent then tests only the centroids within its bounding box (using its cached {@link RoiRelate}),
+ * and potential parents are processed in parallel.
+ *
+ * @author Pete Bankhead
+ * @since v0.7.0
+ */
+class ContainmentResolver {
+
+	private final PathObjectTileCache tileCache;
+
+	ContainmentResolver(PathObjectTileCache tileCache) {
+		this.tileCache = tileCache;
+	}
+
+	/**
+	 * Assign each object to the first potential parent that contains its centroid.
+	 * @param defaultParent the parent for objects that are not contained by any potential parent
+	 * @param parents potential parents, in order of preference
+	 * @param pathObjects the objects that need parents
+	 * @return a map from each parent to its new child objects, in the order in which they were provided
+	 */
+	Map<PathObject, List<PathObject>> assignToFirstContaining(PathObject defaultParent, List<? extends PathObject> parents, List<? extends PathObject> pathObjects) {
+		var ranks = findFirstContaining(parents, pathObjects);
+		Map<PathObject, List<PathObject>> map = new IdentityHashMap<>();
+		for (int i = 0; i < ranks.length; i++) {
+			var parent = ranks[i] < 0 ? defaultParent : parents.get(ranks[i]);
+			map.computeIfAbsent(parent, p -> new ArrayList<>()).add(pathObjects.get(i));
+		}
+		return map;
+	}
+
+	/**
+	 * Assign each object to the deepest descendant of a parent that contains its centroid, moving down the
+	 * hierarchy one level at a time.
+	 * Only descendants that are not detections are considered as potential parents.
+	 * @param parent the starting parent
+	 * @param pathObjects the objects that need parents
+	 * @param childOrder comparator to determine which child to prefer whenever more than one contains the centroid
+	 * @return a map from each parent to its new child objects, in the order in which they were provided
+	 */
+	Map<PathObject, List<PathObject>> assignToDescendants(PathObject parent, List<? extends PathObject> pathObjects, Comparator<PathObject> childOrder) {
+		Map<PathObject, List<PathObject>> map = new ConcurrentHashMap<>();
+		assignToDescendants(parent, pathObjects, childOrder, map);
+		return map;
+	}
+
+	private void assignToDescendants(PathObject parent, List<? extends PathObject> pathObjects, Comparator<PathObject> childOrder,
+			Map<PathObject, List<PathObject>> map) {
+		if (pathObjects.isEmpty())
+			return;
+		var children = parent.getChildObjects()
+				.stream()
+				.filter(p -> !p.isDetection() && p.hasROI())
+				.sorted(childOrder)
+				.toList();
+		if (children.isEmpty()) {
+			map.put(parent, new ArrayList<>(pathObjects));
+			return;
+		}
+		var assigned = assignToFirstContaining(parent, children, pathObjects);
+		var remaining = assigned.remove(parent);
+		if (remaining != null)
+			map.put(parent, remaining);
+		assigned.entrySet()
+				.parallelStream()
+				.forEach(entry -> assignToDescendants(entry.getKey(), entry.getValue(), childOrder, map));
+	}
+
+	/**
+	 * For each object, find the index of the first potential parent that contains its centroid.
+	 * @param parents potential parents, in order of preference
+	 * @param pathObjects the objects that need parents
+	 * @return an array giving the index of the parent for each object, or -1 if no parent contains the centroid
+	 */
+	int[] findFirstContaining(List<? extends PathObject> parents, List<? extends PathObject> pathObjects) {
+		int n = pathObjects.size();
+		var ranks = new AtomicIntegerArray(n);
+		for (int i = 0; i < n; i++)
+			ranks.set(i, Integer.MAX_VALUE);
+		var index = new CentroidIndex(pathObjects);
+		var relates = getRoiRelates(parents);
+		IntStream.range(0, parents.size()).parallel().forEach(rank -> {
+			var relate = relates[rank];
+			if (relate == null)
+				return;
+			var roi = parents.get(rank).getROI();
+			index.forEachInBounds(roi, ind -> {
+				// Skip the test if we already have a preferred parent
+				if (ranks.get(ind) < rank || !relate.contains(new Coordinate(index.x[ind], index.y[ind])))
+					return;
+				int current = ranks.get(ind);
+				while (rank < current && !ranks.compareAndSet(ind, current, rank))
+					current = ranks.get(ind);
+			});
+		});
+		int[] result = new int[n];
+		for (int i = 0; i < n; i++) {
+			int rank = ranks.get(i);
+			result[i] = rank == Integer.MAX_VALUE ? -1 : rank;
+		}
+		return result;
+	}
+
+	/**
+	 * Get the RoiRelate for each potential parent before searching for objects, so that these are created 
+	 * in parallel without holding any shared lock.
+	 * @param parents potential parents
+	 * @return an array of RoiRelates, with null entries for parents that don't have a non-empty area ROI
+	 */
+	private RoiRelate[] getRoiRelates(List<? extends PathObject> parents) {
+		var relates = new RoiRelate[parents.size()];
+		IntStream.range(0, parents.size()).parallel().forEach(i -> {
+			var roi = parents.get(i).getROI();
+			if (roi != null && !roi.isEmpty() && roi.isArea())
+				relates[i] = tileCache.getRoiRelate(roi);
+		});
+		return relates;
+	}
+
+
+	/**
+	 * Centroids of objects sorted by x coordinate, so that those within a bounding box can be found quickly.
+	 */
+	private static class CentroidIndex {
+
+		private final double[] x;
+		private final double[] y;
+		private final int[] z;
+		private final int[] t;
+		// Indices into the arrays above, sorted by x
+		private final int[] order;
+		private final double[] sortedX;
+
+		private CentroidIndex(List<? extends PathObject> pathObjects) {
+			int n = pathObjects.size();
+			x = new double[n];
+			y = new double[n];
+			z = new int[n];
+			t = new int[n];
+			IntStream.range(0, n).parallel().forEach(i -> {
+				var roi = pathObjects.get(i).getROI();
+				if (roi == null) {
+					x[i] = Double.NaN;
+					y[i] = Double.NaN;
+				} else {
+					x[i] = roi.getCentroidX();
+					y[i] = roi.getCentroidY();
+					z[i] = roi.getZ();
+					t[i] = roi.getT();
+				}
+			});
+			order = IntStream.range(0, n)
+					.parallel()
+					.filter(i -> !Double.isNaN(x[i]))
+					.boxed()
+					.sorted(Comparator.comparingDouble(i -> x[i]))
+					.mapToInt(Integer::intValue)
+					.toArray();
+			sortedX = Arrays.stream(order).mapToDouble(i -> x[i]).toArray();
+		}
+
+		private void forEachInBounds(ROI roi, IntConsumer consumer) {
+			double minX = roi.getBoundsX();
+			double maxX = minX + roi.getBoundsWidth();
+			double minY = roi.getBoundsY();
+			double maxY = minY + roi.getBoundsHeight();
+			int start = Arrays.binarySearch(sortedX, minX);
+			if (start < 0)
+				start = -start - 1;
+			else {
+				// Binary search might not find the first match
+				while (start > 0 && sortedX[start - 1] == minX)
+					start--;
+			}
+			for (int i = start; i < sortedX.length && sortedX[i] <= maxX; i++) {
+				int ind = order[i];
+				if (y[ind] >= minY && y[ind] <= maxY && z[ind] == roi.getZ() && t[ind] == roi.getT())
+					consumer.accept(ind);
+			}
+		}
+
+	}
+
+}
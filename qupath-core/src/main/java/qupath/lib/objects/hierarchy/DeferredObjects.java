@@ -0,0 +1,67 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.objects.hierarchy;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import qupath.lib.objects.PathObject;
+import qupath.lib.regions.ImageRegion;
+
+/**
+ * Interface defining a group of objects that belong to a {@link PathObjectHierarchy},
+ * but have not been loaded yet.
+ * <p>
+ * This is used to populate the hierarchy lazily: the objects are only created when they are
+ * requested for a region that overlaps {@link #getRegion()}, or when all objects in the hierarchy are needed.
+ *
+ * @author Pete Bankhead
+ * @since v0.7.0
+ * @see PathObjectHierarchy#addDeferredObjects(Collection)
+ */
+public interface DeferredObjects {
+
+	/**
+	 * Get the object that should become the parent of the loaded objects.
+	 * This should already be in the hierarchy.
+	 * @return
+	 */
+	PathObject getParent();
+
+	/**
+	 * Get a region that contains the bounding boxes of all the objects that will be loaded,
+	 * including their descendants.
+	 * @return
+	 */
+	ImageRegion getRegion();
+
+	/**
+	 * Create the objects.
+	 * Any descendants should already be added as child objects of the objects that are returned.
+	 * <p>
+	 * This is called at most once for each instance.
+	 * @return the objects that should be added as children of {@link #getParent()}
+	 * @throws IOException if the objects could not be read
+	 */
+	Collection<PathObject> load() throws IOException;
+
+}
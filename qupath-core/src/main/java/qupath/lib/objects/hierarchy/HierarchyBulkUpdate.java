@@ -0,0 +1,148 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+
+package qupath.lib.objects.hierarchy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import qupath.lib.objects.PathObject;
+
+/**
+ * A set of changes to be applied to a {@link PathObjectHierarchy} in a single step.
+ * <p>
+ * This is useful when making large changes, such as replacing all the detections in an image.
+ * Rather than updating the spatial cache, resolving parent objects and firing events for each change,
+ * the changes are recorded and then applied together when {@link #commit()} is called.
+ * Parent objects for any inserted detections are found in parallel.
+ * <p>
+ * Changes are applied in a fixed order, regardless of the order in which they were recorded:
+ * first objects are removed, then added below the root object, and finally inserted.
+ * The hierarchy is not changed at all until the update is committed.
+ * <p>
+ * Changes may be recorded from multiple threads.
+ *
+ * @author Pete Bankhead
+ * @since v0.7.0
+ * @see PathObjectHierarchy#beginBulkUpdate()
+ */
+public final class HierarchyBulkUpdate {
+
+	private final PathObjectHierarchy hierarchy;
+
+	private final List<PathObject> toRemove = new ArrayList<>();
+	private final List<PathObject> toRemoveKeepChildren = new ArrayList<>();
+	private final List<PathObject> toAdd = new ArrayList<>();
+	private final List<PathObject> toInsert = new ArrayList<>();
+
+	private boolean committed = false;
+
+	HierarchyBulkUpdate(PathObjectHierarchy hierarchy) {
+		this.hierarchy = hierarchy;
+	}
+
+	/**
+	 * Get the hierarchy that will be updated.
+	 * @return
+	 */
+	public PathObjectHierarchy getHierarchy() {
+		return hierarchy;
+	}
+
+	/**
+	 * Request that objects are removed from the hierarchy.
+	 * @param pathObjects the objects to remove
+	 * @param keepChildren if true, retain children and descendants of the objects being removed
+	 * @return this update
+	 * @see PathObjectHierarchy#removeObjects(Collection, boolean)
+	 */
+	public synchronized HierarchyBulkUpdate removeObjects(Collection<? extends PathObject> pathObjects, boolean keepChildren) {
+		checkNotCommitted();
+		if (keepChildren)
+			toRemoveKeepChildren.addAll(pathObjects);
+		else
+			toRemove.addAll(pathObjects);
+		return this;
+	}
+
+	/**
+	 * Request that objects are added as children of the root object, without seeking an appropriate parent.
+	 * @param pathObjects the objects to add
+	 * @return this update
+	 * @see PathObjectHierarchy#addObjects(Collection)
+	 */
+	public synchronized HierarchyBulkUpdate addObjects(Collection<? extends PathObject> pathObjects) {
+		checkNotCommitted();
+		toAdd.addAll(pathObjects);
+		return this;
+	}
+
+	/**
+	 * Request that objects are inserted into the hierarchy, below the most appropriate parent.
+	 * TMA cores cannot be inserted, and will be ignored.
+	 * Objects without ROIs are added below the root object.
+	 * @param pathObjects the objects to insert
+	 * @return this update
+	 * @see PathObjectHierarchy#insertPathObjects(Collection)
+	 */
+	public synchronized HierarchyBulkUpdate insertObjects(Collection<? extends PathObject> pathObjects) {
+		checkNotCommitted();
+		toInsert.addAll(pathObjects);
+		return this;
+	}
+
+	/**
+	 * Query whether any changes have been recorded.
+	 * @return
+	 */
+	public synchronized boolean isEmpty() {
+		return toRemove.isEmpty() && toRemoveKeepChildren.isEmpty() && toAdd.isEmpty() && toInsert.isEmpty();
+	}
+
+	/**
+	 * Query whether the update has already been committed.
+	 * @return
+	 */
+	public synchronized boolean isCommitted() {
+		return committed;
+	}
+
+	/**
+	 * Apply all the recorded changes to the hierarchy, firing a single event if the hierarchy changed.
+	 * @return true if the hierarchy changed, false otherwise
+	 * @throws IllegalStateException if the update has already been committed
+	 */
+	public synchronized boolean commit() throws IllegalStateException {
+		checkNotCommitted();
+		committed = true;
+		if (isEmpty())
+			return false;
+		return hierarchy.commitBulkUpdate(toRemove, toRemoveKeepChildren, toAdd, toInsert);
+	}
+
+	private void checkNotCommitted() throws IllegalStateException {
+		if (committed)
+			throw new IllegalStateException("Bulk update has already been committed");
+	}
+
+}
@@ -23,6 +23,8 @@
 
 package qupath.lib.objects.hierarchy;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serial;
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -31,13 +33,20 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
@@ -45,6 +54,11 @@ import org.slf4j.LoggerFactory;
 
 import qupath.lib.analysis.DelaunayTools;
 import qupath.lib.common.LogTools;
+import qupath.lib.common.ThreadTools;
+import qupath.lib.measurements.ColumnarMeasurementStore;
+import qupath.lib.measurements.MeasurementList.MeasurementListType;
+import qupath.lib.measurements.MeasurementListFactory;
+import qupath.lib.objects.CompactDetectionStore;
 import qupath.lib.objects.DefaultPathObjectComparator;
 import qupath.lib.objects.PathAnnotationObject;
 import qupath.lib.objects.PathCellObject;
@@ -73,6 +87,15 @@ import qupath.lib.roi.interfaces.ROI;
  * Note: Be cautious when deserializing - it may not result in a hierarchy in a valid state.
  * As a workaround, you can construct a new PathObjectHierarchy and call setHierarchy(deserializedHierarchy) to
  * ensure that you have a properly-constructed hierarchy with the same data within it.
+ * <p>
+ * Changes to the hierarchy are serialized, but queries for all objects (e.g. {@link #getAllObjects(boolean)},
+ * {@link #nObjects()}) do not block one another, and return a snapshot of the last complete state
+ * if another thread is currently changing the hierarchy.
+ * The snapshot is refreshed whenever the hierarchy is changed or a structural event is fired, so any changes made directly
+ * to child object lists should be followed by an event (as is already required for the spatial cache).
+ * <p>
+ * Listeners are notified after the changes are complete and the lock has been released, so they can safely query
+ * the hierarchy (or wait for another thread that does).
  * 
  * @author Pete Bankhead
  */
@@ -83,8 +106,8 @@ public final class PathObjectHierarchy implements Serializable {
 	
 	private static final Logger logger = LoggerFactory.getLogger(PathObjectHierarchy.class);
 	
-	private TMAGrid tmaGrid = null;
-	private PathObject rootObject = new PathRootObject();
+	private volatile TMAGrid tmaGrid = null;
+	private volatile PathObject rootObject = new PathRootObject();
 	
 	private final transient PathObjectSelectionModel selectionModel = new PathObjectSelectionModel();
 	private final transient List<PathObjectHierarchyListener> listeners = new ArrayList<>();
@@ -97,6 +120,37 @@ public final class PathObjectHierarchy implements Serializable {
 
 	private transient AtomicLong eventCount = new AtomicLong();
 
+	// Number of changes in a bulk update above which the spatial cache is reset, rather than updated
+	private static final int BULK_CACHE_RESET_THRESHOLD = 10_000;
+
+	// Events are delivered to listeners after this delay if > 0, rather than immediately
+	private transient volatile long eventCoalescingMillis = 0;
+	private final transient List<PathObjectHierarchyEvent> pendingEvents = new ArrayList<>();
+	private transient boolean eventFlushScheduled = false;
+	private final transient AtomicLong deliveredEventCount = new AtomicLong();
+
+	// Events fired while the write lock is held, which are delivered to listeners once the lock is released
+	private final transient List<PathObjectHierarchyEvent> eventsAwaitingUnlock = new ArrayList<>();
+
+	// Lock used for all structural changes; queries use the read lock only when the snapshot is out of date
+	private final transient ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// Incremented whenever the structure might change, so that out-of-date snapshots can be identified
+	private final transient AtomicLong version = new AtomicLong();
+
+	// Flattened list of all objects, shared by queries until the hierarchy changes
+	private transient volatile ObjectSnapshot snapshot;
+
+	// Optional shared storage for detection measurements, created lazily
+	private transient volatile ColumnarMeasurementStore measurementStore;
+
+	// Optional compact storage for detections, created lazily
+	private transient volatile CompactDetectionStore compactDetectionStore;
+
+	// Objects that belong to the hierarchy, but haven't been loaded yet
+	private transient List<DeferredObjects> deferredObjects;
+	private transient volatile boolean hasDeferredObjects = false;
+
 	/**
 	 * Default constructor, creates an empty hierarchy.
 	 */
@@ -104,14 +158,284 @@ public final class PathObjectHierarchy implements Serializable {
 		super();
 	}
 
+	/**
+	 * Get a columnar measurement store associated with this hierarchy.
+	 * This can be used to create measurement lists for large numbers of detections, where the values are stored
+	 * in one float array per measurement rather than in each object.
+	 * <p>
+	 * The store is not serialized; measurement lists created from it are written as standalone lists.
+	 * @return the store, created if necessary
+	 * @since v0.7.0
+	 * @see ColumnarMeasurementStore#createMeasurementList()
+	 */
+	public ColumnarMeasurementStore getColumnarMeasurementStore() {
+		var store = measurementStore;
+		if (store == null) {
+			synchronized (this) {
+				store = measurementStore;
+				if (store == null) {
+					store = MeasurementListFactory.createColumnarStore(MeasurementListType.FLOAT);
+					measurementStore = store;
+				}
+			}
+		}
+		return store;
+	}
+
+	/**
+	 * Get a compact detection store associated with this hierarchy.
+	 * This can be used to create (or convert) large numbers of detections with a smaller memory footprint,
+	 * using the measurement store returned by {@link #getColumnarMeasurementStore()}.
+	 * <p>
+	 * The store is not serialized; objects created from it are written in the same way as any other objects.
+	 * @return the store, created if necessary
+	 * @since v0.7.0
+	 */
+	public CompactDetectionStore getCompactDetectionStore() {
+		var store = compactDetectionStore;
+		if (store == null) {
+			synchronized (this) {
+				store = compactDetectionStore;
+				if (store == null) {
+					store = new CompactDetectionStore(getColumnarMeasurementStore());
+					compactDetectionStore = store;
+				}
+			}
+		}
+		return store;
+	}
+
+	/**
+	 * Add objects that belong to this hierarchy, but which should only be loaded when they are needed.
+	 * <p>
+	 * Deferred objects are loaded automatically whenever the hierarchy is queried for a region that overlaps
+	 * {@link DeferredObjects#getRegion()}, or for all objects that might include them.
+	 * Loading deferred objects does not fire a hierarchy event, because conceptually the objects were already
+	 * part of the hierarchy.
+	 * <p>
+	 * Note that the child lists of the parent objects are incomplete until the objects are loaded.
+	 * Code that traverses child objects directly (rather than via the hierarchy) should call
+	 * {@link #loadDeferredObjects()} first.
+	 * 
+	 * @param deferred the deferred objects; each parent should already be in the hierarchy
+	 * @since v0.7.0
+	 * @see #loadDeferredObjects()
+	 */
+	public void addDeferredObjects(Collection<? extends DeferredObjects> deferred) {
+		if (deferred.isEmpty())
+			return;
+		lockForWrite();
+		try {
+			if (deferredObjects == null)
+				deferredObjects = new ArrayList<>();
+			deferredObjects.addAll(deferred);
+			hasDeferredObjects = true;
+		} finally {
+			unlockForWrite();
+		}
+	}
+
+	/**
+	 * Query whether the hierarchy contains any objects that have not yet been loaded.
+	 * @return
+	 * @since v0.7.0
+	 * @see #addDeferredObjects(Collection)
+	 */
+	public boolean hasDeferredObjects() {
+		return hasDeferredObjects;
+	}
+
+	/**
+	 * Apply a function to the deferred objects that have not been loaded yet.
+	 * <p>
+	 * The hierarchy is locked for reading while the function is applied, so that the deferred objects can't be loaded 
+	 * and objects can't be added or removed by other threads.
+	 * This makes it possible to use the deferred objects without loading them (e.g. to write them to a file), 
+	 * while being sure that they don't overlap with the objects that are already in the hierarchy.
+	 * <p>
+	 * The function must not modify the hierarchy or load any deferred objects.
+	 * Deferred objects whose parent is no longer in the hierarchy may be included; these would be discarded if loaded.
+	 * @param <T> the type of the result
+	 * @param function function that accepts an unmodifiable list of deferred objects, which may be empty
+	 * @return the result of the function
+	 * @since v0.7.0
+	 * @see #addDeferredObjects(Collection)
+	 */
+	public <T> T applyToDeferredObjects(Function<List<DeferredObjects>, T> function) {
+		lock.readLock().lock();
+		try {
+			return function.apply(deferredObjects == null ? Collections.emptyList() : Collections.unmodifiableList(deferredObjects));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Load all deferred objects, so that every object is accessible by traversing the child lists
+	 * of the root object.
+	 * @since v0.7.0
+	 * @see #addDeferredObjects(Collection)
+	 */
+	public void loadDeferredObjects() {
+		loadDeferredObjects(d -> true);
+	}
+
+	private void loadDeferredObjects(ImageRegion region) {
+		if (!hasDeferredObjects)
+			return;
+		if (region == null)
+			loadDeferredObjects();
+		else
+			loadDeferredObjects(d -> region.intersects(d.getRegion()));
+	}
+
+	/**
+	 * Load deferred objects that will become the children of any of the specified objects.
+	 */
+	private void loadDeferredObjectsForParents(Collection<? extends PathObject> parents) {
+		if (!hasDeferredObjects)
+			return;
+		Set<PathObject> set = Collections.newSetFromMap(new IdentityHashMap<>());
+		set.addAll(parents);
+		loadDeferredObjects(d -> set.contains(d.getParent()));
+	}
+
+	private void loadDeferredObjects(Predicate<DeferredObjects> predicate) {
+		if (!hasDeferredObjects)
+			return;
+		lockForWrite();
+		try {
+			if (deferredObjects == null)
+				return;
+			List<PathObject> loaded = new ArrayList<>();
+			var iter = deferredObjects.iterator();
+			while (iter.hasNext()) {
+				var deferred = iter.next();
+				if (!predicate.test(deferred))
+					continue;
+				iter.remove();
+				var parent = deferred.getParent();
+				if (!inHierarchy(parent)) {
+					logger.debug("Discarding deferred objects - parent {} is no longer in the hierarchy", parent);
+					continue;
+				}
+				try {
+					var pathObjects = deferred.load();
+					parent.addChildObjects(pathObjects);
+					loaded.addAll(pathObjects);
+				} catch (IOException e) {
+					logger.error("Unable to load objects: {}", e.getMessage(), e);
+				}
+			}
+			if (deferredObjects.isEmpty()) {
+				deferredObjects = null;
+				hasDeferredObjects = false;
+			}
+			if (!loaded.isEmpty()) {
+				logger.debug("Loaded {} deferred objects ({} chunks remaining)", loaded.size(),
+						deferredObjects == null ? 0 : deferredObjects.size());
+				tileCache.objectsAdded(loaded, true);
+				subdivisionManager.clear();
+			}
+		} finally {
+			unlockForWrite();
+		}
+	}
+
+	/**
+	 * Acquire the write lock before changing the hierarchy.
+	 * This must not be called by a thread that holds only the read lock.
+	 */
+	private void lockForWrite() {
+		lock.writeLock().lock();
+		version.incrementAndGet();
+	}
+
+	private void unlockForWrite() {
+		unlockForWrite(true);
+	}
+
+	/**
+	 * Release the write lock, and notify listeners of any events if all changes are complete.
+	 * @param structureChanged if true, discard the snapshot (so that removed objects can be garbage collected)
+	 */
+	private void unlockForWrite(boolean structureChanged) {
+		List<PathObjectHierarchyEvent> events = List.of();
+		if (lock.getWriteHoldCount() == 1) {
+			if (structureChanged)
+				snapshot = null;
+			if (!eventsAwaitingUnlock.isEmpty()) {
+				events = new ArrayList<>(eventsAwaitingUnlock);
+				eventsAwaitingUnlock.clear();
+			}
+		}
+		lock.writeLock().unlock();
+		for (var event : events) {
+			long delay = eventCoalescingMillis;
+			if (delay <= 0)
+				deliverEvent(event);
+			else
+				queueEvent(event, delay);
+		}
+	}
+
+	/**
+	 * Get a flattened list of all objects in the hierarchy, starting with the root object.
+	 * <p>
+	 * The same list is shared by all queries until the hierarchy is changed.
+	 * If another thread is changing the hierarchy, the list from before the change is returned rather than waiting.
+	 * @param loadDeferred if true, load any deferred objects first; otherwise, these will not be included
+	 * @return an unmodifiable list
+	 */
+	private List<PathObject> getObjectSnapshot(boolean loadDeferred) {
+		// Loading increments the version, so any snapshot created without deferred objects will be replaced
+		if (loadDeferred)
+			loadDeferredObjects();
+		// The current thread might be in the middle of making changes
+		if (lock.isWriteLockedByCurrentThread())
+			return collectAllObjects();
+		var current = snapshot;
+		if (current != null && (current.version() == version.get() || lock.isWriteLocked()))
+			return current.objects();
+		lock.readLock().lock();
+		try {
+			current = snapshot;
+			long currentVersion = version.get();
+			if (current == null || current.version() != currentVersion) {
+				current = new ObjectSnapshot(currentVersion, collectAllObjects());
+				snapshot = current;
+			}
+			return current.objects();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private List<PathObject> collectAllObjects() {
+		var root = getRootObject();
+		List<PathObject> list = new ArrayList<>();
+		list.add(root);
+		root.getDescendantObjects(list);
+		return Collections.unmodifiableList(list);
+	}
+
+	private record ObjectSnapshot(long version, List<PathObject> objects) {}
+
+	@Serial
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		// Ensure we don't lose any objects that haven't been loaded
+		loadDeferredObjects();
+		out.defaultWriteObject();
+	}
+
 	
 	/**
 	 * Check if the hierarchy is empty (i.e. no objects apart from the root object, no feature maps)
 	 * 
 	 * @return
 	 */
-	public synchronized boolean isEmpty() {
-		return (tmaGrid == null || tmaGrid.nCores() == 0) && !rootObject.hasChildObjects();// && featureMaps.isEmpty();
+	public boolean isEmpty() {
+		return (tmaGrid == null || tmaGrid.nCores() == 0) && !rootObject.hasChildObjects() && !hasDeferredObjects;// && featureMaps.isEmpty();
 	}
 	
 	/**
@@ -150,7 +474,7 @@ public final class PathObjectHierarchy implements Serializable {
 	 * Get the TMAGrid, or null if there is no TMA grid associated with this hierarchy.
 	 * @return
 	 */
-	public synchronized TMAGrid getTMAGrid() {
+	public TMAGrid getTMAGrid() {
 		return tmaGrid;
 	}
 	
@@ -168,16 +492,21 @@ public final class PathObjectHierarchy implements Serializable {
 	 * Otherwise, if null then any existing TMA grid will be removed.
 	 * @param tmaGrid
 	 */
-	public synchronized void setTMAGrid(TMAGrid tmaGrid) {
-		if (this.tmaGrid == tmaGrid)
-			return;
-		if (this.tmaGrid != null) {
-			removeObjects(new ArrayList<>(this.tmaGrid.getTMACoreList()), false);
+	public void setTMAGrid(TMAGrid tmaGrid) {
+		lockForWrite();
+		try {
+			if (this.tmaGrid == tmaGrid)
+				return;
+			if (this.tmaGrid != null) {
+				removeObjects(new ArrayList<>(this.tmaGrid.getTMACoreList()), false);
+			}
+			this.tmaGrid = tmaGrid;
+			if (tmaGrid != null)
+				addObjects(tmaGrid.getTMACoreList());
+			fireHierarchyChangedEvent(getRootObject());
+		} finally {
+			unlockForWrite();
 		}
-		this.tmaGrid = tmaGrid;
-		if (tmaGrid != null)
-			addObjects(tmaGrid.getTMACoreList());
-		fireHierarchyChangedEvent(getRootObject());
 	}
 	
 
@@ -209,8 +538,13 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @param fireChangeEvents if true, an event will be added after adding the object. Choose false if a single event should be added after making multiple changes.
 	 * @return true if the hierarchy changed as a result of this call, false otherwise
 	 */
-	public synchronized boolean insertPathObject(PathObject pathObject, boolean fireChangeEvents) {
-		return insertPathObject(getRootObject(), pathObject, fireChangeEvents, !fireChangeEvents);
+	public boolean insertPathObject(PathObject pathObject, boolean fireChangeEvents) {
+		lockForWrite();
+		try {
+			return insertPathObject(getRootObject(), pathObject, fireChangeEvents, !fireChangeEvents);
+		} finally {
+			unlockForWrite();
+		}
 	}
 	
 	/**
@@ -220,7 +554,7 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @param pathObjects the objects to add
 	 * @return true if the hierarchy changed as a result of this call, false otherwise
 	 */
-	public synchronized boolean insertPathObjects(Collection<? extends PathObject> pathObjects) {
+	public boolean insertPathObjects(Collection<? extends PathObject> pathObjects) {
 		var selectedObjects =  new ArrayList<>(pathObjects);
 		int nObjects = selectedObjects.size();
 		selectedObjects.removeIf(PathObject::isTMACore);
@@ -229,25 +563,42 @@ public final class PathObjectHierarchy implements Serializable {
 		
 		if (selectedObjects.isEmpty())
 			return false;
-		removeObjects(selectedObjects, true);
-		selectedObjects.sort(PathObjectHierarchy.HIERARCHY_COMPARATOR.reversed());
-		boolean singleObject = selectedObjects.size() == 1;
-		// We don't want to reset caches for every object if we have only detections, since previously-inserted objects don't impact the potential parent
-		boolean allDetections = selectedObjects.stream().allMatch(PathObject::isDetection);
-		for (var pathObject : selectedObjects) {
-//			hierarchy.insertPathObject(pathObject, true);
-			insertPathObject(getRootObject(), pathObject, singleObject, !singleObject && !allDetections);
-//			insertPathObject(pathObject, selectedObjects.size() == 1);
+		// Parents for multiple detections can be found in parallel, since detections can't be parents themselves.
+		// Detections that are already below the right parent aren't moved.
+		if (selectedObjects.size() > 1 && selectedObjects.stream().allMatch(p -> p.isDetection() && p.hasROI())) {
+			return commitBulkUpdate(Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), selectedObjects);
+		}
+		lockForWrite();
+		try {
+			removeObjects(selectedObjects, true);
+			selectedObjects.sort(PathObjectHierarchy.HIERARCHY_COMPARATOR.reversed());
+			boolean singleObject = selectedObjects.size() == 1;
+			for (var pathObject : selectedObjects) {
+//				hierarchy.insertPathObject(pathObject, true);
+				insertPathObject(getRootObject(), pathObject, singleObject, !singleObject);
+//				insertPathObject(pathObject, selectedObjects.size() == 1);
+			}
+			if (!singleObject)
+				tileCache.runWithCacheUpdated(() -> fireHierarchyChangedEvent(this));
+			return true;
+		} finally {
+			unlockForWrite();
 		}
-		if (!singleObject)
-			fireHierarchyChangedEvent(this);
-		return true;
 	}
 	
 	/**
 	 * Attempt to resolve the parent-child relationships between all objects within the hierarchy.
 	 */
-	public synchronized void resolveHierarchy() {
+	public void resolveHierarchy() {
+		lockForWrite();
+		try {
+			resolveHierarchyImpl();
+		} finally {
+			unlockForWrite();
+		}
+	}
+
+	private void resolveHierarchyImpl() {
 		List<? extends PathObject> tmaCores = tmaGrid == null ? Collections.emptyList() : tmaGrid.getTMACoreList();
 		var annotations = getAnnotationObjects();
 		if (annotations.isEmpty() && tmaCores.isEmpty()) {
@@ -255,21 +606,40 @@ public final class PathObjectHierarchy implements Serializable {
 			return;
 		}
 		var detections = getDetectionObjects();
-		if (annotations.size() > 1 && detections.size() > 1000) {
-			logger.warn("Resolving hierarchy that contains {} annotations and {} detections - this may be slow!",
-					annotations.size(), detections.size());
-		} else if (annotations.size() > 100) {
+		if (annotations.size() > 100) {
 			logger.warn("Resolving hierarchy with {} annotations - this may be slow!", annotations.size());
 		}
-		if (!tmaCores.isEmpty()) {
-			// Need to remove annotations first (they will be re-inserted later) so we can resolve detections if needed
-			if (!annotations.isEmpty())
-				removeObjects(annotations, true);
-			var remainingDetections = detections.stream().filter(p -> p.getParent() == rootObject).toList();
-			if (!remainingDetections.isEmpty())
-				insertPathObjects(remainingDetections);
-		}
+		logger.debug("Resolving hierarchy with {} annotations, {} TMA cores and {} detections",
+				annotations.size(), tmaCores.size(), detections.size());
+
+		// Remove detections that aren't children of other detections, so that annotations can be resolved quickly
+		var topLevelDetections = detections.stream()
+				.filter(p -> p.getParent() != null && !p.getParent().isDetection())
+				.toList();
+		var detectionsByParent = topLevelDetections.stream().collect(Collectors.groupingBy(PathObject::getParent));
+		for (var entry : detectionsByParent.entrySet())
+			entry.getKey().removeChildObjects(entry.getValue());
+
 		insertPathObjects(annotations);
+
+		// Assign detections in parallel, descending the hierarchy one level at a time.
+		// This follows the order in which parents would claim detections if they were inserted individually:
+		// TMA cores first (smallest first), then annotations (largest first).
+		Comparator<PathObject> childOrder = Comparator.comparing((PathObject p) -> !p.isTMACore())
+				.thenComparing((p1, p2) -> p1.isTMACore() ? HIERARCHY_COMPARATOR.compare(p1, p2) : HIERARCHY_COMPARATOR.compare(p2, p1));
+		var parentMap = new ContainmentResolver(tileCache)
+				.assignToDescendants(getRootObject(), topLevelDetections, childOrder);
+		for (var entry : parentMap.entrySet())
+			entry.getKey().addChildObjects(entry.getValue());
+
+		// The cache might have been rebuilt while the detections were removed
+		if (topLevelDetections.size() > BULK_CACHE_RESET_THRESHOLD) {
+			tileCache.resetCache();
+			fireHierarchyChangedEvent(this);
+		} else {
+			tileCache.objectsAdded(topLevelDetections, false);
+			tileCache.runWithCacheUpdated(() -> fireHierarchyChangedEvent(this));
+		}
 	}
 	
 	/**
@@ -277,10 +647,10 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @param pathObjectParent the first potential parent; this can be used to help filter out 'impossible' parents to aid performance
 	 * @param pathObject the object to insert
 	 * @param fireChangeEvents if true, fire hierarchy change events after inserting the object
-	 * @param resetCache if true, reset the tile cache after adding the object; this is only used if fireChangeEvents is false
+	 * @param updateCache if true, update the tile cache after adding the object; this is only used if fireChangeEvents is false
 	 * @return
 	 */
-	private synchronized boolean insertPathObject(PathObject pathObjectParent, PathObject pathObject, boolean fireChangeEvents, boolean resetCache) {
+	private boolean insertPathObject(PathObject pathObjectParent, PathObject pathObject, boolean fireChangeEvents, boolean updateCache) {
 		
 		if (pathObject.isTMACore()) {
 			logger.warn("TMA core objects cannot be inserted - use resolveHierarchy() instead");
@@ -289,6 +659,9 @@ public final class PathObjectHierarchy implements Serializable {
 
 		// Get all the annotations that might be a parent of this object
 		var region = ImageRegion.createInstance(pathObject.getROI());
+		// Ensure any detections that might become children of this object are loaded
+		if (!pathObject.isDetection())
+			loadDeferredObjects(region);
 		Collection<PathObject> tempSet = new HashSet<>();
 		tempSet.add(getRootObject());
 		tileCache.getObjectsForRegion(PathAnnotationObject.class, region, tempSet, true);
@@ -339,8 +712,8 @@ public final class PathObjectHierarchy implements Serializable {
 				// Notify listeners of changes, if required
 				if (fireChangeEvents)
 					fireObjectAddedEvent(this, pathObject);
-				else if (resetCache)
-					tileCache.resetCache();
+				else if (updateCache)
+					tileCache.objectsAdded(Collections.singletonList(pathObject), false);
 				return true;
 			}
 		}
@@ -354,8 +727,13 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @param keepChildren if true, retain all children and descendants of the object being removed; if false, remove these also
 	 * @return
 	 */
-	public synchronized boolean removeObject(PathObject pathObject, boolean keepChildren) {
-		return removeObject(pathObject, keepChildren, true);
+	public boolean removeObject(PathObject pathObject, boolean keepChildren) {
+		lockForWrite();
+		try {
+			return removeObject(pathObject, keepChildren, true);
+		} finally {
+			unlockForWrite();
+		}
 	}
 	
 	/**
@@ -364,8 +742,13 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @param keepChildren if true, retain all children and descendants of the object being removed; if false, remove these also
 	 * @return
 	 */
-	public synchronized boolean removeObjectWithoutUpdate(PathObject pathObject, boolean keepChildren) {
-		return removeObject(pathObject, keepChildren, false);
+	public boolean removeObjectWithoutUpdate(PathObject pathObject, boolean keepChildren) {
+		lockForWrite();
+		try {
+			return removeObject(pathObject, keepChildren, false);
+		} finally {
+			unlockForWrite();
+		}
 	}
 	
 	/**
@@ -375,7 +758,7 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @param fireEvent if true, fire a hierarchy event. May be false if one wishes to complete several changes before updating listeners later.
 	 * @return
 	 */
-	private synchronized boolean removeObject(PathObject pathObject, boolean keepChildren, boolean fireEvent) {
+	private boolean removeObject(PathObject pathObject, boolean keepChildren, boolean fireEvent) {
 		// Check the object is within the hierarchy & has a valid parent (from which it can be removed)
 		PathObject pathObjectParent = pathObject.getParent();
 		if (!inHierarchy(pathObject) || pathObjectParent == null) {
@@ -383,6 +766,9 @@ public final class PathObjectHierarchy implements Serializable {
 			return false;
 		}
 
+		if (keepChildren)
+			loadDeferredObjectsForParents(Collections.singleton(pathObject));
+
 		// Can't keep children if there aren't any
 		boolean hasChildren = pathObject.hasChildObjects();
 		
@@ -398,9 +784,12 @@ public final class PathObjectHierarchy implements Serializable {
 		if (fireEvent) {
 			if (keepChildren || !hasChildren)
 				fireObjectRemovedEvent(this, pathObject, pathObjectParent);
-			else
-				fireHierarchyChangedEvent(this, pathObjectParent);
-		}
+			else {
+				tileCache.objectsRemoved(Collections.singletonList(pathObject), true);
+				tileCache.runWithCacheUpdated(() -> fireHierarchyChangedEvent(this, pathObjectParent));
+			}
+		} else
+			tileCache.objectsRemoved(Collections.singletonList(pathObject), !keepChildren);
 		return true;
 	}
 	
@@ -411,13 +800,45 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @param pathObjects the objects to remove
 	 * @param keepChildren if true, retain children and descendants of the objects being removed
 	 */
-	public synchronized void removeObjects(Collection<? extends PathObject> pathObjects, boolean keepChildren) {
+	public void removeObjects(Collection<? extends PathObject> pathObjects, boolean keepChildren) {
 		
 		if (pathObjects.isEmpty())
 			return;
-		
+
+		lockForWrite();
+		try {
+			removeObjectsImpl(pathObjects, keepChildren);
+		} finally {
+			unlockForWrite();
+		}
+	}
+
+	private void removeObjectsImpl(Collection<? extends PathObject> pathObjects, boolean keepChildren) {
+		List<PathObject> removed = new ArrayList<>();
+		var childrenToKeep = detachObjects(pathObjects, keepChildren, removed);
+		if (removed.isEmpty())
+			return;
+		// Update the cache - any children we keep will still be in the cache, we just need to change their parent
+		tileCache.objectsRemoved(removed, !keepChildren);
+		// Add children back if required (note: this can be quite slow!)
+		for (PathObject pathObject : childrenToKeep) {
+			addPathObjectImpl(pathObject, false);
+		}
+		tileCache.runWithCacheUpdated(() -> fireHierarchyChangedEvent(this));
+	}
+
+	/**
+	 * Remove objects from their parents, without updating the cache or firing events.
+	 * @param pathObjects the objects to remove
+	 * @param keepChildren if true, return the children of the removed objects that should be retained
+	 * @param removed collection to which the objects that were removed will be added
+	 * @return the child objects that should be added back to the hierarchy
+	 */
+	private Collection<PathObject> detachObjects(Collection<? extends PathObject> pathObjects, boolean keepChildren, Collection<PathObject> removed) {
 		List<PathObject> pathObjectSet = new ArrayList<>(pathObjects);
 		pathObjectSet.sort((o1, o2) -> Integer.compare(o2.getLevel(), o1.getLevel()));
+		if (keepChildren)
+			loadDeferredObjectsForParents(pathObjectSet);
 		
 		// Determine the parents for each object
 		Map<PathObject, List<PathObject>> map = new HashMap<>();
@@ -430,7 +851,7 @@ public final class PathObjectHierarchy implements Serializable {
 		}
 		
 		if (map.isEmpty())
-			return;
+			return Collections.emptyList();
 		
 		// Loop through and remove objects, keeping children if necessary
 		Set<PathObject> childrenToKeep = new LinkedHashSet<>();
@@ -438,19 +859,149 @@ public final class PathObjectHierarchy implements Serializable {
 			PathObject parent = entry.getKey();
 			List<PathObject> children = entry.getValue();
 			parent.removeChildObjects(children);
+			removed.addAll(children);
 			if (keepChildren) {
 				for (PathObject child : children)
 					childrenToKeep.addAll(child.getChildObjects());
 			}
 		}
 		childrenToKeep.removeAll(pathObjects);
-		// Add children back if required (note: this can be quite slow!)
-		tileCache.resetCache();
-		for (PathObject pathObject : childrenToKeep) {
-			addPathObjectImpl(pathObject, false);
+		return childrenToKeep;
+	}
+
+	/**
+	 * Begin recording changes that should be applied to the hierarchy in a single step.
+	 * <p>
+	 * This is much more efficient than adding, removing or inserting objects separately whenever large numbers of
+	 * objects are involved, since the spatial cache is updated and events are fired only once when the update
+	 * is committed.
+	 * @return a new bulk update, which must be committed to apply the changes
+	 * @since v0.7.0
+	 * @see HierarchyBulkUpdate#commit()
+	 */
+	public HierarchyBulkUpdate beginBulkUpdate() {
+		return new HierarchyBulkUpdate(this);
+	}
+
+	/**
+	 * Apply the changes recorded in a {@link HierarchyBulkUpdate}.
+	 */
+	boolean commitBulkUpdate(Collection<? extends PathObject> toRemove, Collection<? extends PathObject> toRemoveKeepChildren,
+			Collection<? extends PathObject> toAdd, Collection<? extends PathObject> toInsert) {
+		// Separate objects that require parents to be found.
+		// Objects without ROIs can only be added below the root.
+		List<PathObject> insertDetections = new ArrayList<>();
+		List<PathObject> insertOthers = new ArrayList<>();
+		List<PathObject> addToRoot = new ArrayList<>(toAdd);
+		for (var pathObject : toInsert) {
+			if (pathObject.isTMACore())
+				logger.warn("TMA core objects cannot be inserted - use resolveHierarchy() instead");
+			else if (!pathObject.hasROI())
+				addToRoot.add(pathObject);
+			else if (pathObject.isDetection())
+				insertDetections.add(pathObject);
+			else
+				insertOthers.add(pathObject);
+		}
+		for (var pathObject : toAdd) {
+			if (pathObject instanceof PathRootObject)
+				throw new IllegalArgumentException("PathRootObject cannot be added as child to another PathObject");
+		}
+
+		lockForWrite();
+		try {
+			int nChanges = toRemove.size() + toRemoveKeepChildren.size() + toAdd.size() + toInsert.size();
+			// For large changes, it's faster to rebuild the cache when it is next needed than to update it.
+			// But inserting objects other than detections uses the cache to find their parents and children, 
+			// so then it needs to be kept up to date until the end - otherwise it would be rebuilt immediately.
+			boolean resetCache = nChanges > BULK_CACHE_RESET_THRESHOLD;
+			boolean resetCacheNow = resetCache && insertOthers.isEmpty();
+
+			// Remove objects, including any that will be inserted elsewhere.
+			// Detections are only moved later, if they aren't already below the right parent.
+			List<PathObject> removed = new ArrayList<>();
+			List<PathObject> removedWithDescendants = new ArrayList<>();
+			var childrenToKeep = new ArrayList<>(detachObjects(toRemoveKeepChildren, true, removed));
+			detachObjects(toRemove, false, removedWithDescendants);
+			List<PathObject> moved = new ArrayList<>();
+			childrenToKeep.addAll(detachObjects(insertOthers, true, moved));
+			boolean changes = !removed.isEmpty() || !removedWithDescendants.isEmpty() || !moved.isEmpty();
+			if (resetCacheNow) {
+				tileCache.resetCache();
+			} else {
+				tileCache.objectsRemoved(removed, false);
+				tileCache.objectsRemoved(removedWithDescendants, true);
+			}
+			if (!childrenToKeep.isEmpty()) {
+				// Don't keep children that are being removed or inserted elsewhere
+				Set<PathObject> excluded = Collections.newSetFromMap(new IdentityHashMap<>());
+				excluded.addAll(toRemove);
+				excluded.addAll(toInsert);
+				childrenToKeep.removeIf(excluded::contains);
+				getRootObject().addChildObjects(childrenToKeep);
+			}
+
+			// Add objects below the root
+			List<PathObject> added = new ArrayList<>(addToRoot);
+			if (!addToRoot.isEmpty()) {
+				getRootObject().addChildObjects(addToRoot);
+				changes = true;
+			}
+
+			// Insert objects that might be parents, largest first; these are expected to be relatively few
+			insertOthers.sort(HIERARCHY_COMPARATOR.reversed());
+			for (var pathObject : insertOthers) {
+				insertPathObject(getRootObject(), pathObject, false, true);
+				changes = true;
+			}
+
+			// Find parents for detections in parallel, then add them in one step
+			if (!insertDetections.isEmpty()) {
+				List<PathObject> possibleParents = new ArrayList<>(getObjects(null, PathAnnotationObject.class));
+				if (tmaGrid != null)
+					possibleParents.addAll(tmaGrid.getTMACoreList());
+				possibleParents.sort(HIERARCHY_COMPARATOR);
+				var parentMap = new ContainmentResolver(tileCache)
+						.assignToFirstContaining(getRootObject(), possibleParents, insertDetections);
+				// Leave detections that are already in the right place, and detach the others from their
+				// current parents in one step per parent (since removing children one by one is slow)
+				Map<PathObject, List<PathObject>> previousParents = new IdentityHashMap<>();
+				for (var entry : parentMap.entrySet()) {
+					var parent = entry.getKey();
+					var list = entry.getValue();
+					list.removeIf(p -> p.getParent() == parent);
+					for (var pathObject : list) {
+						if (pathObject.getParent() != null)
+							previousParents.computeIfAbsent(pathObject.getParent(), p -> new ArrayList<>()).add(pathObject);
+					}
+				}
+				for (var entry : previousParents.entrySet())
+					entry.getKey().removeChildObjects(entry.getValue());
+				for (var entry : parentMap.entrySet()) {
+					if (!entry.getValue().isEmpty()) {
+						entry.getKey().addChildObjects(entry.getValue());
+						added.addAll(entry.getValue());
+						changes = true;
+					}
+				}
+			}
+
+			if (!changes)
+				return false;
+			if (resetCache) {
+				tileCache.resetCache();
+				fireHierarchyChangedEvent(this);
+			} else {
+				tileCache.objectsAdded(added, true);
+				tileCache.runWithCacheUpdated(() -> fireHierarchyChangedEvent(this));
+			}
+			return true;
+		} finally {
+			unlockForWrite();
 		}
-		fireHierarchyChangedEvent(this);
 	}
+
+
 	
 	
 	/**
@@ -460,7 +1011,7 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @param pathObject
 	 * @return
 	 */
-	private synchronized boolean inHierarchy(PathObject pathObject) { // made private as only called here
+	private boolean inHierarchy(PathObject pathObject) { // made private as only called here
 		if (pathObject == null)
 			return false;
 		while (pathObject.getParent() != null)
@@ -469,8 +1020,7 @@ public final class PathObjectHierarchy implements Serializable {
 	}
 	
 	
-	// TODO: Be very cautious about this!!!!  Use of tileCache inside a synchronized method might lead to deadlocks?
-	private synchronized boolean addPathObjectToList(PathObject pathObjectParent, PathObject pathObject, boolean fireChangeEvents) {
+	private boolean addPathObjectToList(PathObject pathObjectParent, PathObject pathObject, boolean fireChangeEvents) {
 		pathObjectParent.addChildObject(pathObject);
 		// Notify listeners of changes, if required
 		if (fireChangeEvents)
@@ -485,7 +1035,7 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @return
 	 */
 	public boolean addObject(PathObject pathObject) {
-		return addPathObjectImpl(pathObject, true);
+		return addObject(pathObject, true);
 	}
 	
 	/**
@@ -496,7 +1046,12 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @since v0.4.0; replaces {@code addPathObjectWithoutUpdate(PathObject)}
 	 */
 	public boolean addObject(PathObject pathObject, boolean fireUpdate) {
-		return addPathObjectImpl(pathObject, fireUpdate);
+		lockForWrite();
+		try {
+			return addPathObjectImpl(pathObject, fireUpdate);
+		} finally {
+			unlockForWrite();
+		}
 	}
 
 	
@@ -509,13 +1064,18 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @return
 	 * @since v0.4.0 (replaces {@code addPathObjectBelowParent(PathObject, PathObject, boolean)}
 	 */
-	public synchronized boolean addObjectBelowParent(PathObject pathObjectParent, PathObject pathObject, boolean fireUpdate) {
+	public boolean addObjectBelowParent(PathObject pathObjectParent, PathObject pathObject, boolean fireUpdate) {
 		if (pathObjectParent == pathObject)
 			throw new IllegalArgumentException("Cannot add a PathObject as a descendent of itself!");
-		if (pathObjectParent == null)
-			return addPathObjectImpl(pathObject, fireUpdate);
-		else
-			return addPathObjectToList(pathObjectParent, pathObject, fireUpdate);
+		lockForWrite();
+		try {
+			if (pathObjectParent == null)
+				return addPathObjectImpl(pathObject, fireUpdate);
+			else
+				return addPathObjectToList(pathObjectParent, pathObject, fireUpdate);
+		} finally {
+			unlockForWrite();
+		}
 	}
 	
 	
@@ -525,7 +1085,7 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @param fireUpdate if true, fire an update event after the object is added
 	 * @return
 	 */
-	private synchronized boolean addPathObjectImpl(PathObject pathObject, boolean fireUpdate) {
+	private boolean addPathObjectImpl(PathObject pathObject, boolean fireUpdate) {
 		if (pathObject == getRootObject() || !pathObject.hasROI())
 			return false;
 		return addPathObjectToList(getRootObject(), pathObject, fireUpdate);
@@ -537,33 +1097,42 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @return
 	 * @since v0.4.0; replaces {@code addPathObjects(Collection)}
 	 */
-	public synchronized boolean addObjects(Collection<? extends PathObject> pathObjects) {
-		boolean changes = false;
-		int n = pathObjects.size();
-		int counter = 0;
-		for (PathObject pathObject : pathObjects) {
-			if (n > 10000) {
-				if (counter % 1000 == 0)
-					logger.debug("Adding {} of {}", counter, n);
-			} else if (n > 1000 && counter % 100 == 0)
-				logger.debug("Adding {} of {}", counter, n);
-			changes = addPathObjectToList(getRootObject(), pathObject, false) || changes;
-			counter++;
+	public boolean addObjects(Collection<? extends PathObject> pathObjects) {
+		// Copy the objects before locking, so that threads adding objects in parallel spend less time waiting
+		List<PathObject> added = new ArrayList<>(pathObjects);
+		if (added.isEmpty())
+			return false;
+		for (var pathObject : added) {
+			if (pathObject instanceof PathRootObject)
+				throw new IllegalArgumentException("PathRootObject cannot be added as child to another PathObject");
 		}
-		if (changes) {
-			fireHierarchyChangedEvent(getRootObject());
+		logger.debug("Adding {} objects", added.size());
+		lockForWrite();
+		try {
+			getRootObject().addChildObjects(added);
+			tileCache.objectsAdded(added, true);
+			tileCache.runWithCacheUpdated(() -> fireHierarchyChangedEvent(getRootObject()));
+		} finally {
+			unlockForWrite();
 		}
-		return changes;
+		return true;
 	}
 
 	
 	/**
 	 * Remove all objects from the hierarchy.
 	 */
-	public synchronized void clearAll() {
-		getRootObject().clearChildObjects();
-		tmaGrid = null;
-		fireHierarchyChangedEvent(getRootObject());
+	public void clearAll() {
+		lockForWrite();
+		try {
+			getRootObject().clearChildObjects();
+			tmaGrid = null;
+			deferredObjects = null;
+			hasDeferredObjects = false;
+			fireHierarchyChangedEvent(getRootObject());
+		} finally {
+			unlockForWrite();
+		}
 	}
 	
 
@@ -574,7 +1143,7 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @deprecated v0.6.0; use {@link #getAllPointObjects()} instead, and filter by object type if required.
 	 */
 	@Deprecated
-	public synchronized Collection<PathObject> getPointObjects(Class<? extends PathObject> cls) {
+	public Collection<PathObject> getPointObjects(Class<? extends PathObject> cls) {
 		LogTools.warnOnce(logger, "getPointObjects() is deprecated, use getAllPointObjects() instead");
 		Collection<PathObject> pathObjects = getObjects(null, cls);
 		if (!pathObjects.isEmpty()) {
@@ -649,10 +1218,13 @@ public final class PathObjectHierarchy implements Serializable {
 			pathObjects.addAll(tileCache.getObjectsForRegion(cls, null, null, true));
 			return pathObjects;
 		}
-		if (cls == null || cls.isAssignableFrom(PathRootObject.class))
-			pathObjects.add(getRootObject());
-		
-		return PathObjectTools.getDescendantObjects(getRootObject(), pathObjects, cls);
+		// Annotations and TMA cores are never deferred
+		boolean loadDeferred = cls == null || !(PathAnnotationObject.class.isAssignableFrom(cls) || TMACoreObject.class.isAssignableFrom(cls));
+		for (var pathObject : getObjectSnapshot(loadDeferred)) {
+			if (cls == null || cls.isInstance(pathObject))
+				pathObjects.add(pathObject);
+		}
+		return pathObjects;
 	}
 	
 	/**
@@ -663,11 +1235,17 @@ public final class PathObjectHierarchy implements Serializable {
 	 *                   Some listeners may delay processing in expectation of an update event where isChanging is false.
 	 */
 	public void updateObject(PathObject pathObject, boolean isChanging) {
-		if (inHierarchy(pathObject))
-			removeObject(pathObject, true, false);
-		addPathObjectImpl(pathObject, false);
-		fireObjectsChangedEvent(this, Collections.singletonList(pathObject), isChanging);
-//		fireHierarchyChangedEvent(this, pathObject);
+		lockForWrite();
+		try {
+			if (inHierarchy(pathObject))
+				removeObject(pathObject, true, false);
+			if (addPathObjectImpl(pathObject, false))
+				tileCache.objectsAdded(Collections.singletonList(pathObject), false);
+			tileCache.runWithCacheUpdated(() -> fireObjectsChangedEvent(this, Collections.singletonList(pathObject), isChanging));
+//			fireHierarchyChangedEvent(this, pathObject);
+		} finally {
+			unlockForWrite();
+		}
 	}
 	
 
@@ -682,10 +1260,11 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @return
 	 * @since {@link #getAllObjects(boolean)}
 	 */
-	public synchronized List<PathObject> getFlattenedObjectList(List<PathObject> list) {
+	public List<PathObject> getFlattenedObjectList(List<PathObject> list) {
+		var objects = getObjectSnapshot(true);
 		if (list == null)
-			list = new ArrayList<>(nObjects()+ 1);
-		getObjects(list, PathObject.class);
+			return new ArrayList<>(objects);
+		list.addAll(objects);
 		return list;
 	}
 	
@@ -695,17 +1274,13 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @return
 	 * @since v0.4.0
 	 */
-	public synchronized Collection<PathObject> getAllObjects(boolean includeRoot) {
-		var set = new LinkedHashSet<PathObject>(nObjects() + 1, 1f);
-		getObjects(set, PathObject.class);
-		if (includeRoot) {
-			// Root already be included
-			if (set.add(getRootObject())) {
-				logger.warn("Root object was added!");
-			}
-		} else {
-			set.remove(getRootObject());
-		}
+	public Collection<PathObject> getAllObjects(boolean includeRoot) {
+		var objects = getObjectSnapshot(true);
+		// The root object is always first
+		if (!includeRoot)
+			objects = objects.subList(1, objects.size());
+		var set = new LinkedHashSet<PathObject>(objects.size(), 1f);
+		set.addAll(objects);
 		return set;
 	}
 	
@@ -714,8 +1289,8 @@ public final class PathObjectHierarchy implements Serializable {
 	 * Number of objects in the hierarchy, excluding the root.
 	 * @return
 	 */
-	public synchronized int nObjects() {
-		return PathObjectTools.countDescendants(getRootObject());
+	public int nObjects() {
+		return getObjectSnapshot(true).size() - 1;
 	}
 	
 	/**
@@ -723,12 +1298,19 @@ public final class PathObjectHierarchy implements Serializable {
 	 * In practice, this means copying the root and TMA grid of the second hierarchy.
 	 * @param hierarchy
 	 */
-	public synchronized void setHierarchy(PathObjectHierarchy hierarchy) {
+	public void setHierarchy(PathObjectHierarchy hierarchy) {
 		if (this == hierarchy)
 			return;
-		rootObject = hierarchy.getRootObject();
-		tmaGrid = hierarchy.tmaGrid;
-		fireHierarchyChangedEvent(rootObject);
+		lockForWrite();
+		try {
+			rootObject = hierarchy.getRootObject();
+			tmaGrid = hierarchy.tmaGrid;
+			deferredObjects = hierarchy.deferredObjects == null ? null : new ArrayList<>(hierarchy.deferredObjects);
+			hasDeferredObjects = deferredObjects != null && !deferredObjects.isEmpty();
+			fireHierarchyChangedEvent(rootObject);
+		} finally {
+			unlockForWrite();
+		}
 	}
 	
 	/**
@@ -754,7 +1336,9 @@ public final class PathObjectHierarchy implements Serializable {
 		if (roi.isEmpty() || !roi.isArea())
 			return Collections.emptyList();
 
-		Collection<PathObject> pathObjects = tileCache.getObjectsForRegion(cls, ImageRegion.createInstance(roi), new HashSet<>(), true);
+		var region = ImageRegion.createInstance(roi);
+		loadDeferredObjects(region);
+		Collection<PathObject> pathObjects = tileCache.getObjectsForRegion(cls, region, new HashSet<>(), true);
 		return filterObjectsForROI(roi, pathObjects);
 	}
 
@@ -893,6 +1477,7 @@ public final class PathObjectHierarchy implements Serializable {
 	 */
 	@Deprecated
 	public Collection<PathObject> getObjectsForRegion(Class<? extends PathObject> cls, ImageRegion region, Collection<PathObject> pathObjects) {
+		loadDeferredObjects(region);
 		return tileCache.getObjectsForRegion(cls, region, pathObjects, true);
 	}
 
@@ -911,6 +1496,7 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @since v0.6.0
 	 */
 	public Collection<PathObject> getAllObjectsForRegion(ImageRegion region, Collection<PathObject> pathObjects) {
+		loadDeferredObjects(region);
 		return tileCache.getObjectsForRegion(null, region, pathObjects, true);
 	}
 
@@ -975,6 +1561,7 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @since v0.6.0
 	 */
 	public Collection<PathObject> getAllDetectionsForRegion(ImageRegion region, Collection<PathObject> pathObjects) {
+		loadDeferredObjects(region);
 		return tileCache.getObjectsForRegion(PathDetectionObject.class, region, pathObjects, true);
 	}
 
@@ -1002,6 +1589,7 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @since v0.6.0
 	 */
 	public boolean hasObjectsForRegion(Class<? extends PathObject> cls, ImageRegion region) {
+		loadDeferredObjects(region);
 		return tileCache.hasObjectsForRegion(cls, region, true);
 	}
 
@@ -1015,6 +1603,7 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @since v0.6.0
 	 */
 	public boolean hasObjectsForRegion(ImageRegion region) {
+		loadDeferredObjects(region);
 		return tileCache.hasObjectsForRegion(null, region, true);
 	}
 
@@ -1041,6 +1630,7 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @since v0.6.0
 	 */
 	public boolean hasDetectionsForRegion(ImageRegion region) {
+		loadDeferredObjects(region);
 		return tileCache.hasObjectsForRegion(PathDetectionObject.class, region, true);
 	}
 	
@@ -1125,26 +1715,121 @@ public final class PathObjectHierarchy implements Serializable {
 	}
 	
 	
-	synchronized void fireEvent(PathObjectHierarchyEvent event) {
-		synchronized(listeners) {
+	void fireEvent(PathObjectHierarchyEvent event) {
+		// Structure change events may follow changes made directly to child lists, so are treated in the same way 
+		// as other changes - but other events don't invalidate the snapshot
+		boolean structureChanged = event.isStructureChangeEvent();
+		if (structureChanged)
+			lockForWrite();
+		else
+			lock.writeLock().lock();
+		try {
 			eventCount.incrementAndGet();
-			if (!event.isChanging()) {
-				if (event.isStructureChangeEvent()) {
-					var changed = event.getChangedObjects();
-					var classes = changed.stream().map(PathObject::getClass).distinct().toList();
-					if (classes.isEmpty() || classes.contains(PathRootObject.class))
-						resetNeighbors();
-					else {
-						for (var cls : classes) {
-							resetNeighborsForClass(cls);
-						}
+			if (structureChanged && !event.isChanging()) {
+				var changed = event.getChangedObjects();
+				var classes = changed.stream().map(PathObject::getClass).distinct().toList();
+				if (classes.isEmpty() || classes.contains(PathRootObject.class))
+					resetNeighbors();
+				else {
+					for (var cls : classes) {
+						resetNeighborsForClass(cls);
 					}
 				}
 			}
+			// The tile cache must always be updated immediately, to remain consistent with the hierarchy.
+			// Other listeners are notified when the write lock is released.
+			tileCache.hierarchyChanged(event);
+			eventsAwaitingUnlock.add(event);
+		} finally {
+			unlockForWrite(structureChanged);
+		}
+	}
 
+	/**
+	 * Notify all listeners except the tile cache, which is updated as soon as the event is fired.
+	 */
+	private void deliverEvent(PathObjectHierarchyEvent event) {
+		synchronized(listeners) {
+			deliveredEventCount.incrementAndGet();
 			for (PathObjectHierarchyListener listener : listeners) {
-				listener.hierarchyChanged(event);
+				if (listener != tileCache)
+					listener.hierarchyChanged(event);
+			}
+		}
+	}
+
+	private void queueEvent(PathObjectHierarchyEvent event, long delay) {
+		synchronized (pendingEvents) {
+			pendingEvents.add(event);
+			if (!eventFlushScheduled) {
+				eventFlushScheduled = true;
+				EventDispatcher.executor.schedule(this::flushEventsQuietly, delay, TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	private void flushEventsQuietly() {
+		try {
+			flushEvents();
+		} catch (Exception e) {
+			logger.error("Exception notifying hierarchy listeners: {}", e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Set a delay used to coalesce events before listeners are notified.
+	 * <p>
+	 * By default, this is 0 and listeners are notified immediately on the thread that changed the hierarchy.
+	 * If the delay is greater than 0, events are collected for this number of milliseconds and then merged into
+	 * a single event, which is delivered on a background thread.
+	 * This can considerably reduce the work done by listeners whenever objects are changed one at a time
+	 * (e.g. by calling {@link #addObject(PathObject)} in a loop).
+	 * <p>
+	 * The spatial cache used by the hierarchy is always updated immediately, so queries remain consistent.
+	 * {@link #getEventCount()} is also incremented immediately, while {@link #getDeliveredEventCount()} is only
+	 * incremented when the merged event has been delivered.
+	 * 
+	 * @param delayMillis the delay in milliseconds; if &le; 0, any pending events are delivered immediately
+	 * @since v0.7.0
+	 * @see PathObjectHierarchyEvent#merge(List)
+	 * @see #flushEvents()
+	 */
+	public void setEventCoalescingDelay(long delayMillis) {
+		eventCoalescingMillis = Math.max(0, delayMillis);
+		if (delayMillis <= 0)
+			flushEvents();
+	}
+
+	/**
+	 * Get the delay used to coalesce events before listeners are notified.
+	 * @return the delay in milliseconds, or 0 if listeners are notified immediately
+	 * @since v0.7.0
+	 * @see #setEventCoalescingDelay(long)
+	 */
+	public long getEventCoalescingDelay() {
+		return eventCoalescingMillis;
+	}
+
+	/**
+	 * Merge any pending events and notify listeners immediately, on the calling thread.
+	 * This has no effect unless events are being coalesced.
+	 * @since v0.7.0
+	 * @see #setEventCoalescingDelay(long)
+	 */
+	public void flushEvents() {
+		// Synchronize on the listeners so that events are delivered in order, but don't hold the write lock - 
+		// since listeners may need to query the hierarchy from another thread
+		synchronized (listeners) {
+			List<PathObjectHierarchyEvent> events;
+			synchronized (pendingEvents) {
+				eventFlushScheduled = false;
+				if (pendingEvents.isEmpty())
+					return;
+				events = new ArrayList<>(pendingEvents);
+				pendingEvents.clear();
 			}
+			logger.trace("Delivering {} merged hierarchy events", events.size());
+			deliverEvent(PathObjectHierarchyEvent.merge(events));
 		}
 	}
 
@@ -1170,11 +1855,23 @@ public final class PathObjectHierarchy implements Serializable {
 		}
 	}
 
-	private synchronized void resetNeighborsForClass(Class<? extends PathObject> cls) {
+	/**
+	 * Get the number of events that were delivered to listeners.
+	 * This is the same as {@link #getEventCount()} unless events are being coalesced, in which case it
+	 * may be much lower because multiple events are merged before they are delivered.
+	 * @return the number of events delivered
+	 * @since v0.7.0
+	 * @see #setEventCoalescingDelay(long)
+	 */
+	public long getDeliveredEventCount() {
+		return deliveredEventCount.get();
+	}
+
+	private void resetNeighborsForClass(Class<? extends PathObject> cls) {
 		subdivisionManager.clear();
 	}
 
-	private synchronized void resetNeighbors() {
+	private void resetNeighbors() {
 		subdivisionManager.clear();
 	}
 
@@ -1188,7 +1885,7 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @return
 	 * @since v0.6.0
 	 */
-	public synchronized List<PathObject> findAllNeighbors(PathObject pathObject) {
+	public List<PathObject> findAllNeighbors(PathObject pathObject) {
 		var subdivision = getSubdivision(pathObject);
 		return subdivision == null ? Collections.emptyList() : subdivision.getNeighbors(pathObject);
 	}
@@ -1203,7 +1900,7 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @return
 	 * @since v0.6.0
 	 */
-	public synchronized PathObject findNearestNeighbor(PathObject pathObject) {
+	public PathObject findNearestNeighbor(PathObject pathObject) {
 		var subdivision = getSubdivision(pathObject);
 		return subdivision == null ? null : subdivision.getNearestNeighbor(pathObject);
 	}
@@ -1219,7 +1916,8 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @return
 	 * @since v0.6.0
 	 */
-	public synchronized DelaunayTools.Subdivision getSubdivision(PathObject pathObject) {
+	public DelaunayTools.Subdivision getSubdivision(PathObject pathObject) {
+		loadDeferredObjects();
 		return subdivisionManager.getSubdivision(pathObject);
 	}
 
@@ -1232,7 +1930,8 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @return
 	 * @since v0.6.0
 	 */
-	public synchronized DelaunayTools.Subdivision getDetectionSubdivision(ImagePlane plane) {
+	public DelaunayTools.Subdivision getDetectionSubdivision(ImagePlane plane) {
+		loadDeferredObjects();
 		return subdivisionManager.getSubdivision(PathDetectionObject.class, plane);
 	}
 
@@ -1244,7 +1943,8 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @return
 	 * @since v0.6.0
 	 */
-	public synchronized DelaunayTools.Subdivision getCellSubdivision(ImagePlane plane) {
+	public DelaunayTools.Subdivision getCellSubdivision(ImagePlane plane) {
+		loadDeferredObjects();
 		return subdivisionManager.getSubdivision(PathCellObject.class, plane);
 	}
 
@@ -1256,7 +1956,7 @@ public final class PathObjectHierarchy implements Serializable {
 	 * @return
 	 * @since v0.6.0
 	 */
-	public synchronized DelaunayTools.Subdivision getAnnotationSubdivision(ImagePlane plane) {
+	public DelaunayTools.Subdivision getAnnotationSubdivision(ImagePlane plane) {
 		return subdivisionManager.getSubdivision(PathAnnotationObject.class, plane);
 	}
 
@@ -1273,21 +1973,30 @@ public final class PathObjectHierarchy implements Serializable {
 		return "Hierarchy: " + nObjects() + " objects";
 	}
 
+	private static class EventDispatcher {
+
+		// Single thread, so that events for each hierarchy are delivered in order
+		private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+				ThreadTools.createThreadFactory("hierarchy-events", true));
+
+	}
+
 	private class SubdivisionManager {
 
 		private static final DelaunayTools.Subdivision EMPTY = DelaunayTools.createFromCentroids(Collections.emptyList(), true);
 
-		private static final Map<Class<? extends PathObject>,
+		// Replaced (rather than cleared) on reset, so that subdivisions computed concurrently from an earlier state are discarded
+		private volatile Map<Class<? extends PathObject>,
 				Map<ImagePlane, DelaunayTools.Subdivision>> subdivisionMap = new ConcurrentHashMap<>();
 
-		synchronized DelaunayTools.Subdivision getSubdivision(PathObject pathObject) {
+		DelaunayTools.Subdivision getSubdivision(PathObject pathObject) {
 			if (pathObject == null || !pathObject.hasROI()) {
 				return EMPTY;
 			}
 			return getSubdivision(pathObject.getClass(), pathObject.getROI().getImagePlane());
 		}
 
-		synchronized DelaunayTools.Subdivision getSubdivision(Class<? extends PathObject> cls, ImagePlane plane) {
+		DelaunayTools.Subdivision getSubdivision(Class<? extends PathObject> cls, ImagePlane plane) {
 			var map = subdivisionMap.computeIfAbsent(cls, k -> new ConcurrentHashMap<>());
 			return map.computeIfAbsent(plane, k -> computeSubdivision(cls, plane));
 		}
@@ -1300,12 +2009,12 @@ public final class PathObjectHierarchy implements Serializable {
 			return DelaunayTools.createFromCentroids(pathObjects, true);
 		}
 
-		private synchronized void clear() {
-			subdivisionMap.clear();
+		private void clear() {
+			subdivisionMap = new ConcurrentHashMap<>();
 		}
 
-		private synchronized void clearClass(Class<? extends PathObject> cls) {
-			subdivisionMap.getOrDefault(cls, Collections.emptyMap()).clear();
+		private void clearClass(Class<? extends PathObject> cls) {
+			subdivisionMap.remove(cls);
 		}
 
 	}
@@ -23,14 +23,17 @@
 
 package qupath.lib.objects.hierarchy;
 
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.Set;
 import java.util.WeakHashMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -40,11 +43,11 @@ import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.Location;
-import org.locationtech.jts.index.SpatialIndex;
 import org.locationtech.jts.index.quadtree.Quadtree;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import qupath.lib.objects.PathDetectionObject;
 import qupath.lib.objects.PathObject;
 import qupath.lib.objects.TemporaryObject;
 import qupath.lib.objects.hierarchy.events.PathObjectHierarchyEvent;
@@ -61,6 +64,10 @@ import qupath.lib.roi.interfaces.ROI;
  * In practice, the cache itself is constructed lazily whenever a request is made 
  * through getObjectsForRegion, to avoid rebuilding it too often when the hierarchy
  * is changing a lot.
+ * <p>
+ * Once constructed, the cache is updated incrementally when objects are added or removed,
+ * so that editing a hierarchy containing millions of detections does not require the spatial index
+ * to be rebuilt. It is only reset for events where it isn't known exactly which objects have changed.
  * 
  * @author Pete Bankhead
  *
@@ -74,10 +81,17 @@ class PathObjectTileCache implements PathObjectHierarchyListener {
 	 */
 	private static final Envelope MAX_ENVELOPE = new Envelope(-Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, Double.MAX_VALUE);
 	
+	/**
+	 * Maximum number of objects that may be removed by searching the entire index for their class
+	 * (because they couldn't be found using their current bounding box) before it is considered better to
+	 * reset the cache.
+	 */
+	private static final int MAX_SEARCH_REMOVALS = 8;
+	
 	/**
 	 * Store a spatial index according to the class of PathObject.
 	 */
-	private final Map<Class<? extends PathObject>, SpatialIndex> map = new HashMap<>();
+	private final Map<Class<? extends PathObject>, ObjectIndex> map = new HashMap<>();
 	
 	/**
 	 * Map to cache Geometries, specifically for annotations.
@@ -91,7 +105,10 @@ class PathObjectTileCache implements PathObjectHierarchyListener {
 	private static final Map<ROI, RoiRelate> relateMap = Collections.synchronizedMap(new WeakHashMap<>());
 
 	private final PathObjectHierarchy hierarchy;
-	private boolean isActive = false;
+	private volatile boolean isActive = false;
+	
+	// Set when the hierarchy has already updated the cache, so structure change events can be ignored
+	private boolean cacheUpdatedByHierarchy = false;
 	
 	private final ReentrantReadWriteLock rwl = new ReentrantReadWriteLock();
     private final Lock r = rwl.readLock();
@@ -109,31 +126,23 @@ class PathObjectTileCache implements PathObjectHierarchyListener {
 		logger.trace("Cache reset!");
 	}
 	
-//	int cacheCounter = 0;
-
-	private void constructCache(Class<? extends PathObject> limitToClass) {
+	private void constructCache() {
 		w.lock();
 		try {
-	//		logger.info("Skipping cache reconstruction...");
 			long startTime = System.currentTimeMillis();
 			isActive = true;
-			if (limitToClass == null)
-				map.clear();
-			else
-				map.remove(limitToClass);
-			addToCache(hierarchy.getRootObject(), true, limitToClass);
+			map.clear();
+			addToCache(hierarchy.getRootObject(), true);
 			long endTime = System.currentTimeMillis();
             logger.debug("Cache reconstructed in {} ms", endTime - startTime);
 		} finally {
 			w.unlock();
 		}
-//		cacheCounter += (endTime - startTime);
-//		logger.info("Cache count: " + (cacheCounter)/1000.);
 	}
 	
 	private void ensureCacheConstructed() {
 		if (!isActive())
-			constructCache(null);
+			constructCache();
 	}
 	
 	// TRUE if the cache has been constructed
@@ -143,29 +152,27 @@ class PathObjectTileCache implements PathObjectHierarchyListener {
 	
 	/**
 	 * Add a PathObject to the cache, optionally including children.
+	 * <p>
+	 * This doesn't acquire the lock! The locking is done first.
 	 * 
 	 * @param pathObject
 	 * @param includeChildren
-	 * @param limitToClass
 	 */
-	private void addToCache(PathObject pathObject, boolean includeChildren, Class<? extends PathObject> limitToClass) {
+	private void addToCache(PathObject pathObject, boolean includeChildren) {
 		// If the cache isn't active, we can ignore this... it will be constructed when it is needed
 		if (!isActive())
 			return;
 
 		if (pathObject.hasROI()) {
 			Class<? extends PathObject> cls = pathObject.getClass();
-			if (limitToClass == null || cls == limitToClass) {
-                SpatialIndex mapObjects = map.computeIfAbsent(cls, k -> createSpatialIndex());
-                Envelope envelope = getEnvelope(pathObject);
-				mapObjects.insert(envelope, pathObject);
-			}
+			ObjectIndex index = map.computeIfAbsent(cls, ObjectIndex::new);
+			index.insert(pathObject, getEnvelope(pathObject));
 		}
 		
 		// Add the children
 		if (includeChildren && !(pathObject instanceof TemporaryObject) && pathObject.hasChildObjects()) {
 			for (PathObject child : pathObject.getChildObjectsAsArray())
-				addToCache(child, includeChildren, limitToClass);
+				addToCache(child, includeChildren);
 		}
 	}
 
@@ -191,7 +198,16 @@ class PathObjectTileCache implements PathObjectHierarchyListener {
 	}
 
 	RoiRelate getRoiRelate(ROI roi) {
-		return relateMap.computeIfAbsent(roi, r -> new RoiRelate(r, getGeometry(r)));
+		// Don't use computeIfAbsent, since that would hold the lock for the map while the RoiRelate is created.
+		// Occasionally two threads might create a RoiRelate for the same ROI, but only one will be retained.
+		var relate = relateMap.get(roi);
+		if (relate == null) {
+			relate = new RoiRelate(roi, getGeometry(roi));
+			var previous = relateMap.putIfAbsent(roi, relate);
+			if (previous != null)
+				relate = previous;
+		}
+		return relate;
 	}
 
 	boolean containsCentroid(PathObject possibleParent, PathObject possibleChild) {
@@ -214,10 +230,6 @@ class PathObjectTileCache implements PathObjectHierarchyListener {
 	}
 	
 	
-	private SpatialIndex createSpatialIndex() {
-		return new Quadtree();
-	}
-	
 	private Envelope getEnvelope(PathObject pathObject) {
 		return getEnvelope(pathObject.getROI());
 	}
@@ -235,36 +247,109 @@ class PathObjectTileCache implements PathObjectHierarchyListener {
 	
 	
 	/**
+	 * Remove an object from the cache, without removing its descendants.
+	 * <p>
 	 * This doesn't acquire the lock! The locking is done first.
 	 * 
-	 * @param pathObject
-	 * @param removeChildren
+	 * @param pathObject the object to remove
+	 * @param allowSearch if true, search the entire index for the object's class if it can't be found
+	 *                    using its current bounding box (e.g. because its ROI has changed since it was added)
+	 * @return true if the object was removed, false if it could not be found
 	 */
-	private void removeFromCache(PathObject pathObject, boolean removeChildren) {
+	private boolean removeFromCache(PathObject pathObject, boolean allowSearch) {
 		// If the cache isn't active, then nothing to remove
 		if (!isActive())
-			return;
-		
-		SpatialIndex mapObjects = map.get(pathObject.getClass());
+			return false;
 		
-		// We can remove objects from a Quadtree
-		if (mapObjects instanceof Quadtree) {
-			if (mapObjects.remove(MAX_ENVELOPE, pathObject)) {
-				logger.debug("Removed {} from cache", pathObject);
-			} else
-				logger.debug("Unable to remove {} from cache", pathObject);
-			// Remove the children
-			if (removeChildren) {
-				for (PathObject child : pathObject.getChildObjectsAsArray())
-					removeFromCache(child, removeChildren);
-			}
-		} else if (mapObjects != null && !removeChildren) {
-			// We can't remove objects from a STRtree, but since we're just removing one object we can rebuild only the cache for this class
-			constructCache(pathObject.getClass());
+		var index = map.get(pathObject.getClass());
+		if (index == null)
+			return false;
+		var envelope = pathObject.hasROI() ? getEnvelope(pathObject) : null;
+		if (index.remove(pathObject, envelope, allowSearch)) {
+			logger.trace("Removed {} from cache", pathObject);
+			return true;
 		} else {
-			// If we need to remove multiple objects, better to just rebuild the entire cache
-			constructCache(null);
+			logger.trace("Unable to remove {} from cache", pathObject);
+			return false;
+		}
+	}
+
+	/**
+	 * Notify the cache that objects have been added to the hierarchy.
+	 * This is called directly by the hierarchy, rather than relying upon an event.
+	 * Objects that are already in the cache are updated rather than duplicated, as long as their ROIs are unchanged.
+	 * @param pathObjects the objects that were added
+	 * @param includeDescendants if true, also add all descendants of the objects
+	 */
+	void objectsAdded(Collection<? extends PathObject> pathObjects, boolean includeDescendants) {
+		if (!isActive())
+			return;
+		w.lock();
+		try {
+			for (var pathObject : getObjectsToUpdate(pathObjects, includeDescendants)) {
+				removeFromCache(pathObject, false);
+				addToCache(pathObject, false);
+			}
+		} finally {
+			w.unlock();
+		}
+	}
+
+	/**
+	 * Notify the cache that objects have been removed from the hierarchy.
+	 * This is called directly by the hierarchy, rather than relying upon an event.
+	 * @param pathObjects the objects that were removed
+	 * @param includeDescendants if true, also remove all descendants of the objects
+	 */
+	void objectsRemoved(Collection<? extends PathObject> pathObjects, boolean includeDescendants) {
+		if (!isActive())
+			return;
+		w.lock();
+		try {
+			int nSearches = 0;
+			for (var pathObject : getObjectsToUpdate(pathObjects, includeDescendants)) {
+				if (!removeFromCache(pathObject, false) && pathObject.hasROI()) {
+					// Searching is expensive for large indexes - so if we need to do it often, better to reset
+					if (nSearches++ >= MAX_SEARCH_REMOVALS) {
+						logger.debug("Resetting cache after {} objects could not be found", nSearches);
+						resetCache();
+						return;
+					}
+					removeFromCache(pathObject, true);
+				}
+			}
+		} finally {
+			w.unlock();
+		}
+	}
+
+	/**
+	 * Request that events fired within the specified runnable do not cause the cache to be reset,
+	 * because the hierarchy has already updated the cache directly.
+	 * @param runnable
+	 */
+	void runWithCacheUpdated(Runnable runnable) {
+		boolean previous = cacheUpdatedByHierarchy;
+		cacheUpdatedByHierarchy = true;
+		try {
+			runnable.run();
+		} finally {
+			cacheUpdatedByHierarchy = previous;
+		}
+	}
+
+	private static Collection<PathObject> getObjectsToUpdate(Collection<? extends PathObject> pathObjects, boolean includeDescendants) {
+		if (!includeDescendants)
+			return Collections.unmodifiableCollection(pathObjects);
+		// Use a set so that objects aren't handled twice if their ancestors are also in the collection
+		Set<PathObject> set = Collections.newSetFromMap(new IdentityHashMap<>());
+		var queue = new ArrayDeque<PathObject>(pathObjects);
+		while (!queue.isEmpty()) {
+			var pathObject = queue.pop();
+			if (set.add(pathObject) && !(pathObject instanceof TemporaryObject) && pathObject.hasChildObjects())
+				queue.addAll(pathObject.getChildObjects());
 		}
+		return set;
 	}
 
 	
@@ -296,7 +381,7 @@ class PathObjectTileCache implements PathObjectHierarchyListener {
 		r.lock();
 		try {
 			// Iterate through all the classes, getting objects of the specified class or subclasses thereof
-			for (Entry<Class<? extends PathObject>, SpatialIndex> entry : map.entrySet()) {
+			for (Entry<Class<? extends PathObject>, ObjectIndex> entry : map.entrySet()) {
 				if (cls == null || (includeSubclasses && cls.isAssignableFrom(entry.getKey())) || Objects.equals(cls, entry.getKey())) {
 					if (entry.getValue() != null) {
 						List<PathObject> list = entry.getValue().query(envelope);
@@ -337,10 +422,10 @@ class PathObjectTileCache implements PathObjectHierarchyListener {
 		r.lock();
 		try {
 			// Iterate through all the classes, getting objects of the specified class or subclasses thereof
-			for (Entry<Class<? extends PathObject>, SpatialIndex> entry : map.entrySet()) {
+			for (Entry<Class<? extends PathObject>, ObjectIndex> entry : map.entrySet()) {
 				if (cls == null || Objects.equals(cls, entry.getKey()) || (includeSubclasses && cls.isAssignableFrom(entry.getKey()))) {
 					if (entry.getValue() != null) {
-						var list = (List<PathObject>)entry.getValue().query(envelope);
+						var list = entry.getValue().query(envelope);
 						for (var pathObject : list) {
 							var roi = pathObject.getROI();
 							if (roi == null)
@@ -370,12 +455,14 @@ class PathObjectTileCache implements PathObjectHierarchyListener {
 			boolean singleChange = event.getChangedObjects().size() == 1;
 			PathObject singleObject = singleChange ? event.getChangedObjects().getFirst() : null;
 			if (singleChange && event.getEventType() == HierarchyEventType.ADDED) {
+				// The object might already be in the cache (e.g. if it has been moved), but won't have been
+				// added by anything else - so don't search the entire index for it
 				removeFromCache(singleObject, false);
-				addToCache(singleObject, false, singleObject.getClass());
+				addToCache(singleObject, false);
 			} else if (singleChange && event.getEventType() == HierarchyEventType.REMOVED) {
-				removeFromCache(singleObject, false);
+				removeFromCache(singleObject, true);
 			} else if (event.getEventType() == HierarchyEventType.OTHER_STRUCTURE_CHANGE || event.getEventType() == HierarchyEventType.CHANGE_OTHER) {
-				if (!event.isChanging())
+				if (!event.isChanging() && !cacheUpdatedByHierarchy)
 					resetCache();
 			}
 		} finally {
@@ -383,4 +470,50 @@ class PathObjectTileCache implements PathObjectHierarchyListener {
 		}
 	}
 	
+	
+	/**
+	 * Spatial index for objects of a single class.
+	 * <p>
+	 * Objects can be removed efficiently using their bounding box, but this might have changed since they were
+	 * added (if the ROI has been set to something else).
+	 * We therefore store the bounding box used when adding objects other than detections (which are rarely edited),
+	 * to avoid needing to search the entire index.
+	 * For detections, storing bounding boxes would considerably increase memory use, so we search the index if
+	 * necessary instead.
+	 */
+	private static class ObjectIndex {
+		
+		private final Quadtree tree = new Quadtree();
+		private final Map<PathObject, Envelope> envelopes;
+		
+		private ObjectIndex(Class<? extends PathObject> cls) {
+			if (PathDetectionObject.class.isAssignableFrom(cls))
+				envelopes = null;
+			else
+				envelopes = new IdentityHashMap<>();
+		}
+		
+		void insert(PathObject pathObject, Envelope envelope) {
+			tree.insert(envelope, pathObject);
+			if (envelopes != null)
+				envelopes.put(pathObject, envelope);
+		}
+		
+		boolean remove(PathObject pathObject, Envelope envelope, boolean allowSearch) {
+			if (envelopes != null) {
+				var previous = envelopes.remove(pathObject);
+				return previous != null && tree.remove(previous, pathObject);
+			}
+			if (envelope != null && tree.remove(envelope, pathObject))
+				return true;
+			return allowSearch && tree.remove(MAX_ENVELOPE, pathObject);
+		}
+		
+		@SuppressWarnings("unchecked")
+		List<PathObject> query(Envelope envelope) {
+			return tree.query(envelope);
+		}
+		
+	}
+	
 }
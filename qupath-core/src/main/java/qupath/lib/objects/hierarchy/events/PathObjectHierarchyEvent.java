@@ -26,6 +26,7 @@ package qupath.lib.objects.hierarchy.events;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 import qupath.lib.objects.PathObject;
@@ -145,6 +146,56 @@ public class PathObjectHierarchyEvent {
 		return new PathObjectHierarchyEvent(source, hierarchy, type, null, new ArrayList<>(pathObjects), isChanging);
 	}
 
+	/**
+	 * Merge several events for the same hierarchy into a single event, with the union of the changed objects.
+	 * <p>
+	 * If all events have the same type (and, for structure changes, the same parent) then this is retained.
+	 * Otherwise, the merged event is an {@link HierarchyEventType#OTHER_STRUCTURE_CHANGE} below the root object
+	 * if any structure has changed, or a {@link HierarchyEventType#CHANGE_OTHER} event if not.
+	 * The merged event is only flagged as changing if all the events are changing.
+	 * 
+	 * @param events the events to merge, in the order in which they were fired
+	 * @return the merged event, or the original event if only one is provided
+	 * @throws IllegalArgumentException if no events are provided, or the events refer to different hierarchies
+	 * @since v0.7.0
+	 */
+	public static PathObjectHierarchyEvent merge(List<? extends PathObjectHierarchyEvent> events) throws IllegalArgumentException {
+		if (events.isEmpty())
+			throw new IllegalArgumentException("Cannot merge an empty list of events");
+		var first = events.getFirst();
+		if (events.size() == 1)
+			return first;
+		
+		var hierarchy = first.getHierarchy();
+		Object source = first.getSource();
+		var type = first.getEventType();
+		var parent = first.parentObject;
+		boolean isChanging = true;
+		boolean structureChanged = false;
+		var pathObjects = new LinkedHashSet<PathObject>();
+		for (var event : events) {
+			if (event.getHierarchy() != hierarchy)
+				throw new IllegalArgumentException("Cannot merge events from different hierarchies");
+			if (event.getSource() != source)
+				source = hierarchy;
+			if (event.getEventType() != type)
+				type = null;
+			if (event.parentObject != parent)
+				parent = null;
+			isChanging = isChanging && event.isChanging();
+			structureChanged = structureChanged || event.isStructureChangeEvent();
+			pathObjects.addAll(event.getChangedObjects());
+		}
+		if (type == null || (structureChanged && parent == null)) {
+			if (structureChanged) {
+				type = HierarchyEventType.OTHER_STRUCTURE_CHANGE;
+				parent = hierarchy.getRootObject();
+			} else
+				type = HierarchyEventType.CHANGE_OTHER;
+		}
+		return new PathObjectHierarchyEvent(source, hierarchy, type, structureChanged ? parent : null, new ArrayList<>(pathObjects), isChanging);
+	}
+
 	/**
 	 * Returns true if changes are still being made, so more events will be fired.
 	 * This enables listeners to postpone expensive operations that could be called often until 
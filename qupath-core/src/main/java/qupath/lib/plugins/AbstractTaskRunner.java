@@ -23,14 +23,23 @@
 
 package qupath.lib.plugins;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,14 +49,27 @@ import qupath.lib.common.ThreadTools;
 /**
  * Abstract PluginRunner to help with the creation of plugin runners for specific circumstances,
  * e.g. running through a GUI, or from a command line only.
+ * <p>
+ * Since v0.7.0, tasks are run using a work-stealing thread pool that is shared by all task runners, 
+ * rather than creating a new pool for every call to {@link #runTasks(String, Collection)}.
+ * The shared pool uses {@link ThreadTools#getParallelism()} threads, and is replaced if this changes; 
+ * runners that request a different number of threads use a dedicated pool for each call.
+ * Because the shared pool is a {@link ForkJoinPool}, parallel streams used within tasks run in the same pool 
+ * (rather than the common pool).
+ * If tasks provide a size estimate (see {@link PathTask#getSizeEstimate()}), the largest tasks are started first.
+ * Timing information for the most recent batch of tasks is available from {@link #getLastMetrics()}.
  */
 public abstract class AbstractTaskRunner implements TaskRunner {
 	
 	private static final Logger logger = LoggerFactory.getLogger(AbstractTaskRunner.class);
 
-	private static int counter = 0;
+	/**
+	 * Shared pool, which is replaced if the parallelism changes
+	 */
+	private static ForkJoinPool sharedPool;
+
+	private static final AtomicInteger counter = new AtomicInteger();
 
-	private ExecutorService pool;
 	private ExecutorCompletionService<Runnable> service;
 
 	private Map<Future<Runnable>, Runnable> pendingTasks = new ConcurrentHashMap<>();
@@ -58,6 +80,8 @@ public abstract class AbstractTaskRunner implements TaskRunner {
 
 	private int numThreads;
 
+	private volatile TaskRunnerMetrics lastMetrics;
+
 	/**
 	 * Constructor for a PluginRunner that uses the default number of threads, read from
 	 * {@link ThreadTools#getParallelism()}.
@@ -91,34 +115,104 @@ public abstract class AbstractTaskRunner implements TaskRunner {
 		// Reset cancelled status
 		tasksCancelled = false;
 		
-		// Ensure we have a pool
-		if (pool == null || pool.isShutdown()) {
-			int n = numThreads <= 0 ? ThreadTools.getParallelism() : numThreads;
-			pool = Executors.newFixedThreadPool(n, ThreadTools.createThreadFactory("task-runner-"+(++counter)+"-", false));
-			logger.debug("New threadpool created with {} threads", n);
-			service = new ExecutorCompletionService<>(pool);
-		} else if (service == null)
-			service = new ExecutorCompletionService<>(pool);
-		
-		monitor = makeProgressMonitor();
-		monitor.startMonitoring(message, tasks.size(), true);
-		for (Runnable task : tasks) {
-			// If a task if null, then skip it - otherwise the monitor can get stuck
-			if (task == null) {
-				logger.warn("Skipping null task");
-				continue;
+		int n = numThreads <= 0 ? ThreadTools.getParallelism() : numThreads;
+		// If we're called from a task that is already running in a shared pool, we need a new pool -
+		// otherwise we could block all the threads that would be needed to run the new tasks.
+		// We also need a new pool if the number of threads differs from the shared pool.
+		ExecutorService dedicatedPool = null;
+		boolean isNested = Thread.currentThread() instanceof TaskRunnerThread;
+		if (isNested || n != ThreadTools.getParallelism()) {
+			String prefix = isNested ? "task-runner-nested-" : "task-runner-";
+			dedicatedPool = Executors.newFixedThreadPool(n, ThreadTools.createThreadFactory(prefix + counter.incrementAndGet() + "-", true));
+			logger.debug("New threadpool created with {} threads{}", n, isNested ? " for nested tasks" : "");
+		}
+		
+		var recorder = new MetricsRecorder(tasks.size(), n);
+		try {
+			monitor = makeProgressMonitor();
+			monitor.startMonitoring(message, tasks.size(), true);
+			// Hold the lock while submitting, so that the shared pool can't be replaced until all tasks are submitted
+			synchronized (AbstractTaskRunner.class) {
+				service = new ExecutorCompletionService<>(dedicatedPool == null ? getSharedPool(n) : dedicatedPool);
+				for (Runnable task : sortBySize(tasks)) {
+					// If a task if null, then skip it - otherwise the monitor can get stuck
+					if (task == null) {
+						logger.warn("Skipping null task");
+						continue;
+					}
+					Future<Runnable> future = service.submit(new TimedTask(task, recorder), task);
+					pendingTasks.put(future, task);
+				}
 			}
-			Future<Runnable> future = service.submit(task, task);
-			pendingTasks.put(future, task);
+			awaitCompletion();
+		} finally {
+			if (dedicatedPool != null)
+				dedicatedPool.shutdownNow();
 		}
-		// TODO: See if this needs to be shutdown here, or there's a better way..?
-		// In any case, it was inhibiting application shutdown just letting it be...
-		pool.shutdown();
-		awaitCompletion();
+		lastMetrics = recorder.build();
+		tasksComplete(lastMetrics);
 		
 		// Post-process any PathTasks
 		postProcess(tasks.stream().filter(t -> t instanceof PathTask).map(t -> (PathTask)t).toList());
 	}
+	
+	/**
+	 * Get timing information for the most recent batch of tasks passed to {@link #runTasks(String, Collection)}.
+	 * @return the metrics, or null if no tasks have been run
+	 * @since v0.7.0
+	 */
+	public TaskRunnerMetrics getLastMetrics() {
+		return lastMetrics;
+	}
+	
+	/**
+	 * Called after all tasks in a batch have finished running (or been cancelled), but before any post-processing.
+	 * The default implementation logs the metrics at debug level; subclasses may override this to report them elsewhere.
+	 * @param metrics timing information for the tasks
+	 * @since v0.7.0
+	 */
+	protected void tasksComplete(TaskRunnerMetrics metrics) {
+		logger.debug("{}", metrics);
+	}
+	
+	/**
+	 * Sort tasks so that those with the largest size estimates come first.
+	 * Tasks without a size estimate retain their original order, after any tasks with an estimate.
+	 */
+	private static List<Runnable> sortBySize(Collection<? extends Runnable> tasks) {
+		var list = new ArrayList<Runnable>(tasks);
+		if (list.stream().anyMatch(t -> Double.isFinite(getSizeEstimate(t))))
+			list.sort(Comparator.comparingDouble(AbstractTaskRunner::getSizeEstimate).reversed());
+		return list;
+	}
+	
+	private static double getSizeEstimate(Runnable task) {
+		if (task instanceof PathTask pathTask) {
+			double size = pathTask.getSizeEstimate();
+			if (Double.isFinite(size))
+				return size;
+		}
+		return Double.NEGATIVE_INFINITY;
+	}
+	
+	/**
+	 * Get the shared pool, creating a new one if the number of threads has changed.
+	 * Tasks that were already submitted to a previous pool will still be completed before that pool shuts down.
+	 */
+	private static synchronized ForkJoinPool getSharedPool(int nThreads) {
+		if (sharedPool != null && sharedPool.getParallelism() == nThreads)
+			return sharedPool;
+		if (sharedPool != null) {
+			logger.debug("Shutting down shared threadpool with {} threads", sharedPool.getParallelism());
+			sharedPool.shutdown();
+		}
+		logger.debug("New shared threadpool created with {} threads", nThreads);
+		// Use the context classloader of the thread creating the pool, since tasks may require classes from extensions
+		var classLoader = Thread.currentThread().getContextClassLoader();
+		String prefix = "task-runner-" + counter.incrementAndGet() + "-";
+		sharedPool = new ForkJoinPool(nThreads, pool -> new TaskRunnerThread(pool, prefix, classLoader), null, false);
+		return sharedPool;
+	}
 
 	
 	/**
@@ -154,21 +248,28 @@ public abstract class AbstractTaskRunner implements TaskRunner {
 				monitor.pluginCompleted("");
 		} catch (InterruptedException e) {
 			logger.error("Plugin interrupted: {}", e.getMessage(), e);
+			cancelPendingTasks();
 			monitor.pluginCompleted("Completed with error " + e.getMessage());
 		} catch (ExecutionException e) {
 			logger.error("Error running plugin: {}", e.getMessage(), e);
-			if (pool != null)
-				pool.shutdownNow();
+			cancelPendingTasks();
 			monitor.pluginCompleted("Completed with error " + e.getMessage());
 		} catch (Exception e) {
 			logger.error("Error running plugin: {}", e.getMessage(), e);
-			if (pool != null)
-				pool.shutdownNow();
+			cancelPendingTasks();
 			monitor.pluginCompleted("Completed with error " + e.getMessage());
 		} finally {
 			pendingTasks.clear();
 		}
 	}
+	
+	/**
+	 * Cancel all pending tasks - we can't shut down the pool, since it may be shared.
+	 */
+	private void cancelPendingTasks() {
+		for (var future : pendingTasks.keySet())
+			future.cancel(true);
+	}
 
 	
 	/**
@@ -205,5 +306,79 @@ public abstract class AbstractTaskRunner implements TaskRunner {
 		return tasksCancelled;
 	}
 	
+	
+	/**
+	 * Worker thread for the shared pools.
+	 */
+	private static class TaskRunnerThread extends ForkJoinWorkerThread {
+		
+		private TaskRunnerThread(ForkJoinPool pool, String prefix, ClassLoader classLoader) {
+			super(null, pool, true);
+			setName(prefix + getPoolIndex());
+			setContextClassLoader(classLoader);
+		}
+		
+	}
+	
+	
+	/**
+	 * Wrap a task to record when it starts and how long it takes to run.
+	 */
+	private static class TimedTask implements Runnable {
+		
+		private final Runnable task;
+		private final MetricsRecorder recorder;
+		private final long submitNanos = System.nanoTime();
+		
+		private TimedTask(Runnable task, MetricsRecorder recorder) {
+			this.task = task;
+			this.recorder = recorder;
+		}
+
+		@Override
+		public void run() {
+			long startNanos = System.nanoTime();
+			try {
+				task.run();
+			} finally {
+				recorder.record(startNanos - submitNanos, System.nanoTime() - startNanos);
+			}
+		}
+		
+	}
+	
+	
+	private static class MetricsRecorder {
+		
+		private final int taskCount;
+		private final int nThreads;
+		private final long startNanos = System.nanoTime();
+		
+		private final AtomicInteger completedCount = new AtomicInteger();
+		private final LongAdder totalRunNanos = new LongAdder();
+		private final AtomicLong maxRunNanos = new AtomicLong();
+		private final LongAdder totalQueueNanos = new LongAdder();
+		private final AtomicLong maxQueueNanos = new AtomicLong();
+		
+		private MetricsRecorder(int taskCount, int nThreads) {
+			this.taskCount = taskCount;
+			this.nThreads = nThreads;
+		}
+		
+		private void record(long queueNanos, long runNanos) {
+			completedCount.incrementAndGet();
+			totalQueueNanos.add(queueNanos);
+			maxQueueNanos.accumulateAndGet(queueNanos, Math::max);
+			totalRunNanos.add(runNanos);
+			maxRunNanos.accumulateAndGet(runNanos, Math::max);
+		}
+		
+		private TaskRunnerMetrics build() {
+			return new TaskRunnerMetrics(taskCount, completedCount.get(), nThreads, System.nanoTime() - startNanos,
+					totalRunNanos.sum(), maxRunNanos.get(), totalQueueNanos.sum(), maxQueueNanos.get());
+		}
+		
+	}
+	
 
-}
\ No newline at end of file
+}
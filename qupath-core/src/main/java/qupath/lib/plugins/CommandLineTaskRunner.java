@@ -39,6 +39,8 @@ import qupath.lib.regions.ImageRegion;
  */
 public class CommandLineTaskRunner extends AbstractTaskRunner {
 	
+	private static final Logger logger = LoggerFactory.getLogger(CommandLineTaskRunner.class);
+	
 	/**
 	 * Constructor for a PluginRunner that send progress to a log, and runs tasks using the default number of threads
 	 */
@@ -59,6 +61,17 @@ public class CommandLineTaskRunner extends AbstractTaskRunner {
 		return new CommandLineProgressMonitor();
 	}
 	
+	/**
+	 * Log the timing information for the tasks, if more than one task was run.
+	 */
+	@Override
+	protected void tasksComplete(TaskRunnerMetrics metrics) {
+		if (metrics.taskCount() > 1)
+			logger.info("{}", metrics);
+		else
+			super.tasksComplete(metrics);
+	}
+	
 	
 	
 	/**
@@ -89,6 +89,12 @@ public class DetectionPluginTools {
 		}
 
 
+		@Override
+		public double getSizeEstimate() {
+			return roi == null ? Double.NaN : roi.getArea();
+		}
+
+
 		/**
 		 * Check if the detection can run using the current ROI.
 		 * Current purpose is to return false if the ROI is a PointsROI... but may be overridden.
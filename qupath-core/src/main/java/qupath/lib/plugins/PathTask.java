@@ -49,5 +49,17 @@ public interface PathTask extends Runnable {
 	 * @return
 	 */
 	default String getLastResultsDescription() {return null;}
+	
+	/**
+	 * Get an estimate of the relative amount of work required by this task, e.g. the area of the ROI to process in pixels.
+	 * This may be used by a {@link TaskRunner} to start the largest tasks first, so that a few large tasks
+	 * are less likely to be left running at the end while other threads are idle.
+	 * <p>
+	 * Default implementation returns {@code Double.NaN}, indicating that the size is unknown.
+	 * 
+	 * @return the estimated size, or {@code Double.NaN} if this is unknown
+	 * @since v0.7.0
+	 */
+	default double getSizeEstimate() {return Double.NaN;}
 
 }
@@ -0,0 +1,84 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.plugins;
+
+/**
+ * Timing information for a batch of tasks run by a {@link TaskRunner}.
+ *
+ * @param taskCount number of tasks submitted
+ * @param completedCount number of tasks that were run to completion (successfully or not)
+ * @param nThreads number of threads available to run the tasks
+ * @param elapsedNanos wall time from submitting the first task until all tasks were complete, in nanoseconds
+ * @param totalRunNanos sum of the time spent running each task, in nanoseconds
+ * @param maxRunNanos longest time spent running a single task, in nanoseconds
+ * @param totalQueueNanos sum of the time each task spent waiting to start after it was submitted, in nanoseconds
+ * @param maxQueueNanos longest time a single task spent waiting to start, in nanoseconds
+ * @since v0.7.0
+ */
+public record TaskRunnerMetrics(int taskCount, int completedCount, int nThreads, long elapsedNanos,
+		long totalRunNanos, long maxRunNanos, long totalQueueNanos, long maxQueueNanos) {
+
+	/**
+	 * Get the mean time spent running each completed task.
+	 * @return the mean time in milliseconds, or {@code Double.NaN} if no tasks were completed
+	 */
+	public double getMeanRunMillis() {
+		return completedCount == 0 ? Double.NaN : totalRunNanos / 1e6 / completedCount;
+	}
+
+	/**
+	 * Get the mean time each completed task spent waiting to start.
+	 * @return the mean time in milliseconds, or {@code Double.NaN} if no tasks were completed
+	 */
+	public double getMeanQueueMillis() {
+		return completedCount == 0 ? Double.NaN : totalQueueNanos / 1e6 / completedCount;
+	}
+
+	/**
+	 * Get the number of tasks completed per second.
+	 * @return
+	 */
+	public double getThroughput() {
+		return elapsedNanos == 0 ? Double.NaN : completedCount * 1e9 / elapsedNanos;
+	}
+
+	/**
+	 * Get the proportion of the available thread time that was spent running tasks.
+	 * Low values indicate that threads were often idle, e.g. because there were fewer tasks than threads,
+	 * or because a small number of long-running tasks were still running after all others were complete.
+	 * @return the utilization, between 0 and 1
+	 */
+	public double getUtilization() {
+		if (elapsedNanos == 0 || nThreads == 0)
+			return Double.NaN;
+		return Math.min(1.0, (double)totalRunNanos / ((double)elapsedNanos * nThreads));
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Tasks: %d/%d completed in %.2f s with %d threads (%.2f tasks/s, utilization %.1f%%), " +
+						"run time mean=%.1f ms, max=%.1f ms, queue time mean=%.1f ms, max=%.1f ms",
+				completedCount, taskCount, elapsedNanos / 1e9, nThreads, getThroughput(), getUtilization() * 100.0,
+				getMeanRunMillis(), maxRunNanos / 1e6, getMeanQueueMillis(), maxQueueNanos / 1e6);
+	}
+
+}
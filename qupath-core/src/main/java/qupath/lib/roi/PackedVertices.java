@@ -0,0 +1,127 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.roi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import qupath.lib.geom.Point2;
+
+/**
+ * Immutable vertices that refer to a range within arrays shared with other vertices.
+ * <p>
+ * This avoids the overhead of allocating separate (and often partially-filled) arrays for each ROI
+ * when there are very many small polygons, e.g. the boundaries of detected cells.
+ * The shared arrays are never modified after the range has been written.
+ *
+ * @author Pete Bankhead
+ * @since v0.7.0
+ * @see PolygonVertexStore
+ */
+class PackedVertices implements Vertices {
+
+	private final float[] x;
+	private final float[] y;
+	private final int offset;
+	private final int size;
+
+	PackedVertices(final float[] x, final float[] y, final int offset, final int size) {
+		this.x = x;
+		this.y = y;
+		this.offset = offset;
+		this.size = size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public float[] getX(float[] xArray) {
+		return getArray(x, xArray);
+	}
+
+	@Override
+	public float[] getY(float[] yArray) {
+		return getArray(y, yArray);
+	}
+
+	private float[] getArray(final float[] src, float[] dst) {
+		if (dst == null || dst.length < size)
+			return Arrays.copyOfRange(src, offset, offset + size);
+		System.arraycopy(src, offset, dst, 0, size);
+		return dst;
+	}
+
+	@Override
+	public Point2 get(int idx) {
+		checkIndex(idx);
+		return new Point2(x[offset + idx], y[offset + idx]);
+	}
+
+	@Override
+	public float getX(int idx) {
+		checkIndex(idx);
+		return x[offset + idx];
+	}
+
+	@Override
+	public float getY(int idx) {
+		checkIndex(idx);
+		return y[offset + idx];
+	}
+
+	private void checkIndex(int idx) {
+		if (idx < 0 || idx >= size)
+			throw new ArrayIndexOutOfBoundsException(idx + " is outside the range for size " + size);
+	}
+
+	@Override
+	public List<Point2> getPoints() {
+		List<Point2> points = new ArrayList<>(size);
+		for (int i = offset; i < offset + size; i++)
+			points.add(new Point2(x[i], y[i]));
+		return points;
+	}
+
+	/**
+	 * Create standalone vertices containing a copy of the values.
+	 */
+	@Override
+	public Vertices duplicate() {
+		return VerticesFactory.createVertices(getX(null), getY(null), false);
+	}
+
+	/**
+	 * Does nothing, since the storage is shared.
+	 */
+	@Override
+	public void compact() {}
+
+}
@@ -115,9 +115,23 @@ public class PolygonROI extends AbstractPathROI implements Serializable {
 		vertices = VerticesFactory.createVertices(x, y, copyVertices);
 	}
 
+	PolygonROI(Vertices vertices, ImagePlane plane) {
+		super(plane);
+		this.vertices = vertices;
+	}
+
+	/**
+	 * Packed vertices are used when memory is a priority, so we avoid caching anything derived from them.
+	 */
+	private boolean isPacked() {
+		return vertices instanceof PackedVertices;
+	}
+
 
 	@Override
 	public Geometry getGeometry() {
+		if (isPacked())
+			return super.getGeometry();
 		return getGeometryInternal().copy();
 	}
 
@@ -130,7 +144,8 @@ public class PolygonROI extends AbstractPathROI implements Serializable {
 		var geom = cachedGeometry == null ? null : cachedGeometry.get();
 		if (geom == null) {
 			geom = super.getGeometry();
-			cachedGeometry = new SoftReference<>(geom);
+			if (!isPacked())
+				cachedGeometry = new SoftReference<>(geom);
 		}
 		return geom;
 	}
@@ -273,6 +288,8 @@ public class PolygonROI extends AbstractPathROI implements Serializable {
 
 	@Override
 	public Shape getShape() {
+		if (isPacked())
+			return createShape();
 		return new Path2D.Float(getShapeInternal());
 	}
 
@@ -0,0 +1,141 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.roi;
+
+import java.util.Arrays;
+
+import qupath.lib.regions.ImagePlane;
+import qupath.lib.roi.interfaces.ROI;
+
+/**
+ * Compact storage for the vertices of many polygon ROIs.
+ * <p>
+ * Vertices are appended to large float arrays that are shared between ROIs, rather than each ROI having
+ * its own arrays. The polygons created by the store also don't cache their {@link org.locationtech.jts.geom.Geometry}
+ * or {@link java.awt.Shape}, which are instead generated whenever they are requested.
+ * This trades a little speed for a much smaller memory footprint when there are millions of small polygons,
+ * e.g. the boundaries of detected cells.
+ * <p>
+ * ROIs created by the store behave exactly like other polygon ROIs and are immutable.
+ * Storage is never reclaimed while any ROI from the same block remains reachable,
+ * so a store should generally be used for a single collection of objects.
+ *
+ * @author Pete Bankhead
+ * @since v0.7.0
+ */
+public class PolygonVertexStore {
+
+	private static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+
+	private final int blockSize;
+
+	private float[] x;
+	private float[] y;
+	private int position;
+
+	private long nVertices;
+	private int nPolygons;
+
+	/**
+	 * Create a store with a default block size.
+	 */
+	public PolygonVertexStore() {
+		this(DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Create a store with a specified block size.
+	 * @param blockSize number of vertices in each block of shared arrays; polygons with more than
+	 *                  a quarter of this number of vertices are stored in their own arrays
+	 * @throws IllegalArgumentException if the block size is less than 16
+	 */
+	public PolygonVertexStore(int blockSize) throws IllegalArgumentException {
+		if (blockSize < 16)
+			throw new IllegalArgumentException("Block size must be at least 16, but was " + blockSize);
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * Create a polygon ROI with vertices stored in this store.
+	 * @param x x-coordinates of the vertices
+	 * @param y y-coordinates of the vertices
+	 * @param plane the plane for the ROI
+	 * @return a new polygon ROI
+	 * @throws IllegalArgumentException if the lengths of the coordinate arrays differ
+	 */
+	public PolygonROI createPolygonROI(float[] x, float[] y, ImagePlane plane) throws IllegalArgumentException {
+		if (x.length != y.length)
+			throw new IllegalArgumentException("Array lengths " + x.length + " and " + y.length + " do not match!");
+		return new PolygonROI(append(x, y, x.length), plane);
+	}
+
+	/**
+	 * Get a compact version of a ROI.
+	 * Polygon ROIs are copied into this store, while all other ROIs are returned unchanged.
+	 * @param roi the input ROI (may be null)
+	 * @return a polygon ROI using this store if the input was a polygon, otherwise the input ROI
+	 */
+	public ROI compact(ROI roi) {
+		if (roi instanceof PolygonROI polygon && !(polygon.getVertices() instanceof PackedVertices)) {
+			var vertices = polygon.getVertices();
+			int n = vertices.size();
+			var packed = append(vertices.getX(null), vertices.getY(null), n);
+			return new PolygonROI(packed, roi.getImagePlane());
+		}
+		return roi;
+	}
+
+	/**
+	 * Get the total number of vertices added to the store.
+	 * @return
+	 */
+	public synchronized long nVertices() {
+		return nVertices;
+	}
+
+	/**
+	 * Get the total number of polygons created by the store.
+	 * @return
+	 */
+	public synchronized int nPolygons() {
+		return nPolygons;
+	}
+
+	private synchronized PackedVertices append(float[] xSource, float[] ySource, int n) {
+		nVertices += n;
+		nPolygons++;
+		// Don't waste the current block on very large polygons
+		if (n > blockSize / 4)
+			return new PackedVertices(Arrays.copyOf(xSource, n), Arrays.copyOf(ySource, n), 0, n);
+		if (x == null || position + n > x.length) {
+			x = new float[blockSize];
+			y = new float[blockSize];
+			position = 0;
+		}
+		System.arraycopy(xSource, 0, x, position, n);
+		System.arraycopy(ySource, 0, y, position, n);
+		var vertices = new PackedVertices(x, y, position, n);
+		position += n;
+		return vertices;
+	}
+
+}
@@ -0,0 +1,92 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.analysis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import qupath.lib.objects.PathObject;
+import qupath.lib.objects.PathObjects;
+import qupath.lib.regions.ImagePlane;
+import qupath.lib.roi.ROIs;
+
+@SuppressWarnings("javadoc")
+public class TestDelaunayTools {
+
+	@ParameterizedTest
+	@ValueSource(booleans = {false, true})
+	public void test_tiledTriangulation(boolean separateClusters) {
+		var pathObjects = createRandomPoints(3000, separateClusters);
+
+		var subdivision = DelaunayTools.createFromCentroids(pathObjects, false);
+		var tiledSubdivision = DelaunayTools.createFromCentroids(pathObjects, false, 200);
+
+		assertEquals(subdivision.size(), tiledSubdivision.size());
+
+		// Neighbors should be identical, although the order might differ for equal distances
+		var neighbors = subdivision.getAllNeighbors();
+		var tiledNeighbors = tiledSubdivision.getAllNeighbors();
+		assertEquals(neighbors.keySet(), tiledNeighbors.keySet());
+		for (var pathObject : pathObjects) {
+			assertEquals(
+					new HashSet<>(subdivision.getNeighbors(pathObject)),
+					new HashSet<>(tiledSubdivision.getNeighbors(pathObject)));
+		}
+
+		var predicate = DelaunayTools.centroidDistancePredicate(20, false);
+		assertEquals(subdivision.getClusters(predicate).size(), tiledSubdivision.getClusters(predicate).size());
+
+		// Voronoi faces should match, except possibly at the outer boundary
+		var faces = subdivision.getVoronoiFaces();
+		var tiledFaces = tiledSubdivision.getVoronoiFaces();
+		assertEquals(faces.size(), tiledFaces.size());
+		for (var pathObject : pathObjects) {
+			var roi = pathObject.getROI();
+			if (roi.getCentroidX() < 100 || roi.getCentroidX() > 900 || roi.getCentroidY() < 100 || roi.getCentroidY() > 900)
+				continue;
+			assertEquals(faces.get(pathObject).getArea(), tiledFaces.get(pathObject).getArea(), 1e-3);
+		}
+	}
+
+	private static List<PathObject> createRandomPoints(int n, boolean separateClusters) {
+		var rng = new Random(42L);
+		var plane = ImagePlane.getDefaultPlane();
+		List<PathObject> pathObjects = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			double x = rng.nextDouble() * 1000;
+			double y = rng.nextDouble() * 1000;
+			// Leave a large gap in the middle, so that some triangles are much larger than the tiles
+			if (separateClusters && x > 300 && x < 700)
+				x = x < 500 ? x - 250 : x + 250;
+			pathObjects.add(PathObjects.createDetectionObject(ROIs.createPointsROI(x, y, plane)));
+		}
+		return pathObjects;
+	}
+
+}
@@ -0,0 +1,116 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.analysis;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("javadoc")
+public class TestKdTree2D {
+
+	@Test
+	public void test_emptyTree() {
+		var tree = KdTree2D.create(new double[0], new double[0]);
+		assertTrue(tree.isEmpty());
+		assertEquals(-1, tree.nearest(1, 2));
+		assertEquals(Double.POSITIVE_INFINITY, tree.nearestDistance(1, 2));
+		assertEquals(0, tree.kNearest(1, 2, 5).length);
+		assertEquals(0, tree.withinRadius(1, 2, 10).length);
+		assertThrows(IllegalArgumentException.class, () -> KdTree2D.create(new double[2], new double[3]));
+	}
+
+	@Test
+	public void test_randomPoints() {
+		var rng = new Random(100L);
+		int n = 5000;
+		double[] x = new double[n];
+		double[] y = new double[n];
+		for (int i = 0; i < n; i++) {
+			// Round some coordinates to check duplicate values are handled
+			x[i] = i % 3 == 0 ? Math.round(rng.nextDouble() * 50) : rng.nextDouble() * 1000;
+			y[i] = rng.nextDouble() * 1000;
+		}
+		var tree = KdTree2D.create(x, y);
+		assertEquals(n, tree.size());
+
+		int nQueries = 500;
+		double[] qx = new double[nQueries];
+		double[] qy = new double[nQueries];
+		for (int i = 0; i < nQueries; i++) {
+			qx[i] = rng.nextDouble() * 1100 - 50;
+			qy[i] = rng.nextDouble() * 1100 - 50;
+		}
+
+		int k = 7;
+		double radius = 40;
+		double[] distances = tree.nearestDistances(qx, qy);
+		int[][] neighbors = tree.kNearest(qx, qy, k);
+		int[][] withinRadius = tree.withinRadius(qx, qy, radius);
+
+		for (int q = 0; q < nQueries; q++) {
+			double[] d = bruteForceDistances(x, y, qx[q], qy[q]);
+			int[] sorted = IntStream.range(0, n).boxed()
+					.sorted(Comparator.comparingDouble(i -> d[i]))
+					.mapToInt(i -> i)
+					.toArray();
+
+			assertEquals(d[sorted[0]], distances[q], 1e-12);
+			assertEquals(d[sorted[0]], d[tree.nearest(qx[q], qy[q])], 1e-12);
+
+			assertEquals(k, neighbors[q].length);
+			for (int i = 0; i < k; i++)
+				assertEquals(d[sorted[i]], d[neighbors[q][i]], 1e-12);
+
+			int[] expectedRadius = IntStream.range(0, n).filter(i -> d[i] <= radius).toArray();
+			int[] actualRadius = withinRadius[q].clone();
+			Arrays.sort(actualRadius);
+			assertArrayEquals(expectedRadius, actualRadius);
+		}
+	}
+
+	@Test
+	public void test_inputCopied() {
+		double[] x = {0, 10, 20};
+		double[] y = {0, 0, 0};
+		var tree = KdTree2D.create(x, y);
+		x[1] = 100;
+		assertEquals(1, tree.nearest(11, 1));
+		assertArrayEquals(new int[] {2, 1, 0}, tree.kNearest(25, 0, 5));
+	}
+
+	private static double[] bruteForceDistances(double[] x, double[] y, double qx, double qy) {
+		double[] d = new double[x.length];
+		for (int i = 0; i < x.length; i++)
+			d[i] = Math.sqrt((x[i] - qx) * (x[i] - qx) + (y[i] - qy) * (y[i] - qy));
+		return d;
+	}
+
+}
@@ -0,0 +1,141 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.servers;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import qupath.lib.images.ImageData;
+import qupath.lib.objects.PathObject;
+import qupath.lib.objects.PathObjects;
+import qupath.lib.objects.classes.PathClass;
+import qupath.lib.regions.ImageRegion;
+import qupath.lib.regions.RegionRequest;
+import qupath.lib.roi.ROIs;
+
+@SuppressWarnings("javadoc")
+public class TestLabeledImageServer {
+
+	@Test
+	public void test_instanceLabels() throws Exception {
+		// 400 objects, so labels need more than 8 bits
+		List<PathObject> pathObjects = new ArrayList<>();
+		for (int y = 0; y < 200; y += 10) {
+			for (int x = 0; x < 300; x += 15) {
+				pathObjects.add(PathObjects.createDetectionObject(ROIs.createRectangleROI(x + 1, y + 1, 12, 8)));
+			}
+		}
+		var imageData = createImageData(pathObjects);
+
+		var server = new LabeledImageServer.Builder(imageData)
+				.useDetections()
+				.useInstanceLabels()
+				.tileSize(64)
+				.build();
+		assertEquals(PixelType.UINT16, server.getPixelType());
+
+		var img = server.readRegion(RegionRequest.createInstance(server));
+		var raster = img.getRaster();
+		for (var entry : server.getInstanceLabels().entrySet()) {
+			var roi = entry.getKey().getROI();
+			int x = (int)roi.getBoundsX();
+			int y = (int)roi.getBoundsY();
+			assertEquals(entry.getValue(), raster.getSample(x, y, 0));
+			assertEquals(entry.getValue(), raster.getSample(x + 11, y + 7, 0));
+			assertEquals(0, raster.getSample(x + 12, y + 8, 0));
+		}
+
+		checkSameAsJava2D(imageData, new LabeledImageServer.Builder(imageData)
+				.useDetections()
+				.useInstanceLabels()
+				.tileSize(64));
+	}
+
+	@Test
+	public void test_classLabels() throws Exception {
+		var pathClass1 = PathClass.fromString("First");
+		var pathClass2 = PathClass.fromString("Second");
+		var imageData = createImageData(List.of(
+				PathObjects.createAnnotationObject(ROIs.createRectangleROI(20, 20, 200, 100), pathClass2),
+				PathObjects.createAnnotationObject(ROIs.createRectangleROI(100, 50, 150, 120), pathClass1),
+				PathObjects.createAnnotationObject(ROIs.createRectangleROI(10, 150, 20, 20), pathClass2)
+		));
+
+		var builder = new LabeledImageServer.Builder(imageData)
+				.backgroundLabel(0)
+				.addLabel(pathClass1, 1)
+				.addLabel(pathClass2, 2)
+				.tileSize(64);
+
+		// Later labels should be drawn on top
+		var server = builder.build();
+		var raster = server.readRegion(RegionRequest.createInstance(server)).getRaster();
+		assertEquals(0, raster.getSample(5, 5, 0));
+		assertEquals(2, raster.getSample(50, 50, 0));
+		assertEquals(2, raster.getSample(150, 100, 0));
+		assertEquals(1, raster.getSample(150, 150, 0));
+		assertEquals(2, raster.getSample(15, 155, 0));
+
+		checkSameAsJava2D(imageData, builder);
+	}
+
+	@Test
+	public void test_lineFallback() throws Exception {
+		var imageData = createImageData(List.of(
+				PathObjects.createAnnotationObject(ROIs.createRectangleROI(20, 20, 100, 100)),
+				PathObjects.createAnnotationObject(ROIs.createLineROI(0, 0, 250, 180))
+		));
+		checkSameAsJava2D(imageData, new LabeledImageServer.Builder(imageData)
+				.useAnnotations()
+				.useInstanceLabels()
+				.tileSize(64));
+	}
+
+	private static void checkSameAsJava2D(ImageData<BufferedImage> imageData, LabeledImageServer.Builder builder) throws Exception {
+		var server = builder.fastRasterization(true).build();
+		var serverJava2D = builder.fastRasterization(false).build();
+		// Use integer coordinates at full resolution, since Java2D can differ by a pixel along other boundaries
+		for (var region : List.of(ImageRegion.createInstance(0, 0, 300, 200, 0, 0), ImageRegion.createInstance(37, 23, 150, 100, 0, 0))) {
+			var request = RegionRequest.createInstance(server.getPath(), 1.0, region);
+			var img = server.readRegion(request);
+			var imgJava2D = serverJava2D.readRegion(request.updatePath(serverJava2D.getPath()));
+			assertEquals(imgJava2D.getRaster().getDataBuffer().getDataType(), img.getRaster().getDataBuffer().getDataType());
+			assertArrayEquals(
+					imgJava2D.getRaster().getSamples(0, 0, imgJava2D.getWidth(), imgJava2D.getHeight(), 0, (int[])null),
+					img.getRaster().getSamples(0, 0, img.getWidth(), img.getHeight(), 0, (int[])null));
+		}
+	}
+
+	private static ImageData<BufferedImage> createImageData(List<PathObject> pathObjects) {
+		var img = new BufferedImage(300, 200, BufferedImage.TYPE_BYTE_GRAY);
+		var imageData = new ImageData<>(new WrappedBufferedImageServer("sample", img));
+		imageData.getHierarchy().addObjects(pathObjects);
+		return imageData;
+	}
+
+}
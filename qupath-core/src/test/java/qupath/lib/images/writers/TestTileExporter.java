@@ -0,0 +1,149 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.writers;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.zip.ZipFile;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import qupath.lib.images.ImageData;
+import qupath.lib.images.servers.WrappedBufferedImageServer;
+
+@SuppressWarnings("javadoc")
+public class TestTileExporter {
+
+	@Test
+	public void test_pipelinedExport(@TempDir Path dir) throws Exception {
+		var imageData = createImageData();
+
+		var dirDefault = Files.createDirectory(dir.resolve("default"));
+		var exporter = createExporter(imageData);
+		exporter.writeTiles(dirDefault.toString());
+		assertNull(exporter.getLastExportMetrics());
+		var expected = readFiles(dirDefault);
+		// 4 columns and 3 rows of complete tiles
+		assertEquals(12, expected.size());
+
+		var dirPipelined = Files.createDirectory(dir.resolve("pipelined"));
+		exporter = createExporter(imageData).pipelined(true);
+		exporter.writeTiles(dirPipelined.toString());
+		assertImagesEqual(expected, readFiles(dirPipelined));
+
+		var metrics = exporter.getLastExportMetrics();
+		assertNotNull(metrics);
+		assertEquals(12, metrics.writtenCount());
+		assertEquals(0, metrics.failedCount());
+	}
+
+	@Test
+	public void test_archiveExport(@TempDir Path dir) throws Exception {
+		var imageData = createImageData();
+
+		var dirDefault = Files.createDirectory(dir.resolve("default"));
+		createExporter(imageData).writeTiles(dirDefault.toString());
+		var expected = readFiles(dirDefault);
+
+		var dirArchive = Files.createDirectory(dir.resolve("archive"));
+		createExporter(imageData).archive(5).writeTiles(dirArchive.toString());
+		try (var stream = Files.list(dirArchive)) {
+			var archives = stream.map(p -> p.getFileName().toString()).sorted().toList();
+			assertEquals(3, archives.size());
+			assertEquals("sample-tiles-0000.zip", archives.getFirst());
+		}
+
+		Map<String, BufferedImage> images = new TreeMap<>();
+		int[] expectedCounts = {5, 5, 2};
+		for (int i = 0; i < expectedCounts.length; i++) {
+			try (var zip = new ZipFile(dirArchive.resolve(String.format("sample-tiles-%04d.zip", i)).toFile())) {
+				assertEquals(expectedCounts[i], zip.size());
+				for (var entry : zip.stream().toList()) {
+					try (var stream = zip.getInputStream(entry)) {
+						images.put(entry.getName(), ImageIO.read(new ByteArrayInputStream(stream.readAllBytes())));
+					}
+				}
+			}
+		}
+		assertImagesEqual(expected, images);
+	}
+
+	private static TileExporter createExporter(ImageData<BufferedImage> imageData) {
+		return new TileExporter(imageData)
+				.tileSize(64)
+				.imageExtension(".png");
+	}
+
+	private static ImageData<BufferedImage> createImageData() {
+		var img = new BufferedImage(300, 200, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < img.getHeight(); y++) {
+			for (int x = 0; x < img.getWidth(); x++) {
+				img.setRGB(x, y, (x * 3) << 16 | (y * 5) << 8 | (x + y) % 256);
+			}
+		}
+		return new ImageData<>(new WrappedBufferedImageServer("sample", img));
+	}
+
+	private static Map<String, BufferedImage> readFiles(Path dir) throws IOException {
+		try (var stream = Files.list(dir)) {
+			return stream.collect(Collectors.toMap(
+					p -> p.getFileName().toString(),
+					p -> {
+						try {
+							return ImageIO.read(p.toFile());
+						} catch (IOException e) {
+							throw new RuntimeException(e);
+						}
+					},
+					(a, b) -> a,
+					TreeMap::new));
+		}
+	}
+
+	private static void assertImagesEqual(Map<String, BufferedImage> expected, Map<String, BufferedImage> actual) {
+		assertEquals(expected.keySet(), actual.keySet());
+		for (var entry : expected.entrySet()) {
+			var img = entry.getValue();
+			var img2 = actual.get(entry.getKey());
+			assertEquals(img.getWidth(), img2.getWidth());
+			assertEquals(img.getHeight(), img2.getHeight());
+			assertArrayEquals(
+					img.getRGB(0, 0, img.getWidth(), img.getHeight(), null, 0, img.getWidth()),
+					img2.getRGB(0, 0, img2.getWidth(), img2.getHeight(), null, 0, img2.getWidth()));
+		}
+	}
+
+}
@@ -0,0 +1,193 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import qupath.lib.color.ColorModelFactory;
+import qupath.lib.images.servers.PixelType;
+
+@SuppressWarnings("javadoc")
+public class TestDiskImageCache {
+
+	@Test
+	public void test_readWrite(@TempDir Path dir) throws Exception {
+		var group = DiskImageCache.createKey("group");
+		try (var cache = DiskImageCache.create(dir, 100 * 1024 * 1024, 0, false)) {
+			assertNull(cache.get(group, "rgb", null));
+
+			var rgb = new BufferedImage(32, 16, BufferedImage.TYPE_INT_RGB);
+			rgb.setRGB(5, 6, 0xff00ff);
+			cache.put(group, "rgb", rgb);
+
+			var colorModel = ColorModelFactory.createColorModel(PixelType.FLOAT32, 2, false, 0xff0000, 0x00ff00);
+			var floats = new BufferedImage(colorModel, colorModel.createCompatibleWritableRaster(20, 10), false, null);
+			floats.getRaster().setSample(3, 4, 1, 2.5f);
+			cache.put(group, "float", floats);
+
+			waitFor(() -> cache.getImageCount() == 2);
+
+			var rgb2 = cache.get(group, "rgb", null);
+			assertNotNull(rgb2);
+			assertEquals(BufferedImage.TYPE_INT_RGB, rgb2.getType());
+			assertEquals(rgb.getRGB(5, 6), rgb2.getRGB(5, 6));
+
+			// Custom images require a color model
+			assertNull(cache.get(group, "float", null));
+			cache.put(group, "float", floats);
+			waitFor(() -> cache.getImageCount() == 2);
+			var floats2 = cache.get(group, "float", r -> colorModel);
+			assertNotNull(floats2);
+			assertArrayEquals(
+					floats.getRaster().getPixels(0, 0, 20, 10, (float[])null),
+					floats2.getRaster().getPixels(0, 0, 20, 10, (float[])null));
+		}
+
+		// Images should be available to a new cache using the same directory
+		try (var cache = DiskImageCache.create(dir, 100 * 1024 * 1024, 0, false)) {
+			waitFor(() -> cache.getImageCount() == 2);
+			assertNotNull(cache.get(group, "rgb", null));
+			assertNull(cache.get(DiskImageCache.createKey("other"), "rgb", null));
+			assertEquals(1, cache.getHitCount());
+			assertEquals(1, cache.getMissCount());
+		}
+	}
+
+	@Test
+	public void test_eviction(@TempDir Path dir) throws Exception {
+		var group = DiskImageCache.createKey("group");
+		// Each image is just over 64 KB, so the cache can hold 4
+		try (var cache = DiskImageCache.create(dir, 300 * 1024, 0, false)) {
+			for (int i = 0; i < 10; i++) {
+				cache.put(group, "image-" + i, new BufferedImage(256, 256, BufferedImage.TYPE_BYTE_GRAY));
+				int n = i + 1;
+				waitFor(() -> cache.getImageCount() + cache.getEvictionCount() == n);
+				// Keep accessing the first image, so that it is retained
+				assertNotNull(cache.get(group, "image-0", null));
+				// Ensure access times differ
+				Thread.sleep(5);
+			}
+			assertTrue(cache.getSizeBytes() <= cache.getMaxSizeBytes());
+			assertTrue(cache.getEvictionCount() > 0);
+			assertNotNull(cache.get(group, "image-0", null));
+			assertNotNull(cache.get(group, "image-9", null));
+			assertNull(cache.get(group, "image-1", null));
+		}
+	}
+
+	@Test
+	public void test_filesReleasedAfterReading(@TempDir Path dir) throws Exception {
+		var group = DiskImageCache.createKey("group");
+		try (var cache = DiskImageCache.create(dir, 100 * 1024 * 1024, 0, false)) {
+			cache.put(group, "image", new BufferedImage(64, 64, BufferedImage.TYPE_BYTE_GRAY));
+			waitFor(() -> cache.getImageCount() == 1);
+			assertNotNull(cache.get(group, "image", null));
+			// Files shouldn't remain mapped (or open) after reading, so can be deleted immediately
+			for (var file : listCacheFiles(dir))
+				Files.delete(file);
+			assertNull(cache.get(group, "image", null));
+			assertEquals(0, cache.getImageCount());
+		}
+	}
+
+	@Test
+	public void test_hitsDontPreventWrites(@TempDir Path dir) throws Exception {
+		var group = DiskImageCache.createKey("group");
+		try (var cache = DiskImageCache.create(dir, 100 * 1024 * 1024, 0, true)) {
+			cache.put(group, "image-0", new BufferedImage(16, 16, BufferedImage.TYPE_BYTE_GRAY));
+			waitFor(() -> cache.getImageCount() == 1);
+			// Many more hits than the writer queue can hold
+			for (int i = 0; i < 10_000; i++)
+				assertNotNull(cache.get(group, "image-0", null));
+			cache.put(group, "image-1", new BufferedImage(16, 16, BufferedImage.TYPE_BYTE_GRAY));
+			waitFor(() -> cache.getImageCount() == 2);
+			assertEquals(10_000, cache.getHitCount());
+		}
+	}
+
+	@Test
+	public void test_accessTimePersisted(@TempDir Path dir) throws Exception {
+		var group = DiskImageCache.createKey("group");
+		var oldTime = FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(10));
+		try (var cache = DiskImageCache.create(dir, 100 * 1024 * 1024, 0, false)) {
+			cache.put(group, "image", new BufferedImage(16, 16, BufferedImage.TYPE_BYTE_GRAY));
+			waitFor(() -> cache.getImageCount() == 1);
+		}
+		var file = listCacheFiles(dir).getFirst();
+		Files.setLastModifiedTime(file, oldTime);
+
+		try (var cache = DiskImageCache.create(dir, 100 * 1024 * 1024, 0, false)) {
+			waitFor(() -> cache.getImageCount() == 1);
+			assertNotNull(cache.get(group, "image", null));
+			waitFor(() -> getLastModifiedTime(file) > oldTime.toMillis());
+		}
+		// Recently-accessed images shouldn't be expired by a new cache
+		try (var cache = DiskImageCache.create(dir, 100 * 1024 * 1024, 5, false)) {
+			assertNotNull(waitForImage(cache, group, "image"));
+		}
+	}
+
+	private static BufferedImage waitForImage(DiskImageCache cache, String group, String key) throws IOException, InterruptedException {
+		waitFor(() -> cache.getImageCount() > 0);
+		return cache.get(group, key, null);
+	}
+
+	private static long getLastModifiedTime(Path path) {
+		try {
+			return Files.getLastModifiedTime(path).toMillis();
+		} catch (IOException e) {
+			return Long.MIN_VALUE;
+		}
+	}
+
+	private static List<Path> listCacheFiles(Path dir) throws IOException {
+		try (var stream = Files.walk(dir)) {
+			return stream.filter(p -> p.getFileName().toString().endsWith(".tile")).toList();
+		}
+	}
+
+	private static void waitFor(BooleanSupplier condition) throws IOException, InterruptedException {
+		long endTime = System.currentTimeMillis() + 5000;
+		while (!condition.getAsBoolean()) {
+			if (System.currentTimeMillis() > endTime)
+				throw new IOException("Timed out waiting for disk cache");
+			Thread.sleep(10);
+		}
+	}
+
+}
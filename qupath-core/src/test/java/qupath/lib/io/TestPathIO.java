@@ -4,7 +4,7 @@
  * %%
  * Copyright (C) 2014 - 2016 The Queen's University of Belfast, Northern Ireland
  * Contact: IP Management (ipmanagement@qub.ac.uk)
- * Copyright (C) 2018 - 2022 QuPath developers, The University of Edinburgh
+ * Copyright (C) 2018 - 2025 QuPath developers, The University of Edinburgh
  * %%
  * QuPath is free software: you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as
@@ -24,10 +24,13 @@
 package qupath.lib.io;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -35,19 +38,35 @@ import java.io.InvalidClassException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import org.junit.jupiter.api.Test;
 
+import qupath.lib.images.ImageData;
+import qupath.lib.images.servers.WrappedBufferedImageServer;
+import qupath.lib.measurements.MeasurementList.MeasurementListType;
+import qupath.lib.measurements.MeasurementListFactory;
+import qupath.lib.objects.PathCellObject;
+import qupath.lib.objects.PathObject;
+import qupath.lib.objects.PathObjectTools;
 import qupath.lib.objects.PathObjects;
+import qupath.lib.objects.TMACoreObject;
 import qupath.lib.objects.classes.PathClass;
+import qupath.lib.objects.hierarchy.DefaultTMAGrid;
 import qupath.lib.objects.hierarchy.PathObjectHierarchy;
+import qupath.lib.regions.ImagePlane;
+import qupath.lib.regions.ImageRegion;
 import qupath.lib.roi.ROIs;
+import qupath.lib.roi.interfaces.ROI;
 
 @SuppressWarnings("javadoc")
 public class TestPathIO {
@@ -137,6 +156,225 @@ public class TestPathIO {
 
 	}
 	
+	@Test
+	public void test_binaryHierarchy() throws IOException {
+		var hierarchy = createHierarchyForBinaryTest();
+		var bytes = writeBinaryHierarchy(hierarchy);
+		var hierarchy2 = readBinaryHierarchy(bytes, false);
+		assertFalse(hierarchy2.hasDeferredObjects());
+		
+		assertEquals(hierarchy.nObjects(), hierarchy2.nObjects());
+		assertEquals(2, hierarchy2.getTMAGrid().getGridWidth());
+		assertEquals(2, hierarchy2.getTMAGrid().getGridHeight());
+		assertTrue(hierarchy2.getTMAGrid().getTMACore(1, 1).isMissing());
+		assertEquals("Core A", hierarchy2.getTMAGrid().getTMACore(0, 0).getName());
+		assertHierarchiesEqual(hierarchy, hierarchy2);
+	}
+	
+	@Test
+	public void test_binaryHierarchyLazy() throws IOException {
+		var hierarchy = createHierarchyForBinaryTest();
+		var bytes = writeBinaryHierarchy(hierarchy);
+		var hierarchy2 = readBinaryHierarchy(bytes, true);
+		assertTrue(hierarchy2.hasDeferredObjects());
+		
+		// Annotations & TMA cores should be available immediately
+		assertEquals(hierarchy.getAnnotationObjects().size(), hierarchy2.getAnnotationObjects().size());
+		assertEquals(4, hierarchy2.getTMAGrid().nCores());
+		assertTrue(hierarchy2.hasDeferredObjects());
+		
+		// Requesting a region should load only the detections that are needed
+		var region = ImageRegion.createInstance(0, 0, 100, 100, 2, 1);
+		var detections = hierarchy2.getAllDetectionsForRegion(region);
+		assertEquals(hierarchy.getAllDetectionsForRegion(region).size(), detections.size());
+		assertTrue(hierarchy2.hasDeferredObjects());
+		assertTrue(hierarchy2.getAllDetectionsForRegion(ImageRegion.createInstance(0, 0, 100, 100, 0, 0)).isEmpty());
+		
+		// Writing should copy the chunks that haven't been loaded, without loading them
+		var hierarchyCopy = readBinaryHierarchy(writeBinaryHierarchy(hierarchy2), false);
+		assertTrue(hierarchy2.hasDeferredObjects());
+		assertHierarchiesEqual(hierarchy, hierarchyCopy);
+		
+		// Requesting all detections should load everything
+		assertEquals(hierarchy.getDetectionObjects().size(), hierarchy2.getDetectionObjects().size());
+		assertFalse(hierarchy2.hasDeferredObjects());
+		assertHierarchiesEqual(hierarchy, hierarchy2);
+		
+		// Removing an object while keeping its children should load its deferred children
+		var hierarchy3 = readBinaryHierarchy(bytes, true);
+		var annotation = hierarchy3.getAnnotationObjects().stream().filter(p -> p.hasROI() && p.getROI().isArea()).findFirst().get();
+		hierarchy3.removeObject(annotation, true);
+		assertEquals(hierarchy.getDetectionObjects().size(), hierarchy3.getDetectionObjects().size());
+	}
+	
+	@SuppressWarnings("deprecation")
+	@Test
+	public void test_readImageDataLazy() throws IOException {
+		int previousVersion = PathIO.getRequestedDataFileVersion();
+		boolean previousLazy = PathIO.isLazyObjectLoading();
+		try {
+			PathIO.setRequestedDataFileVersion(5);
+			PathIO.setLazyObjectLoading(true);
+			var hierarchy = createHierarchyForBinaryTest();
+			var server = new WrappedBufferedImageServer("lazy", new BufferedImage(5000, 5000, BufferedImage.TYPE_BYTE_GRAY));
+			var imageData = new ImageData<>(server, hierarchy);
+			var bytesOut = new ByteArrayOutputStream();
+			PathIO.writeImageData(bytesOut, imageData);
+
+			// Reading the full data file shouldn't load the detections
+			var imageData2 = PathIO.readImageData(new ByteArrayInputStream(bytesOut.toByteArray()), null, server, BufferedImage.class);
+			var hierarchy2 = imageData2.getHierarchy();
+			assertTrue(hierarchy2.hasDeferredObjects());
+			assertEquals(hierarchy.getAnnotationObjects().size(), hierarchy2.getAnnotationObjects().size());
+			assertTrue(hierarchy2.hasDeferredObjects());
+
+			// Writing should include the deferred objects, without loading them
+			bytesOut = new ByteArrayOutputStream();
+			PathIO.writeImageData(bytesOut, imageData2);
+			assertTrue(hierarchy2.hasDeferredObjects());
+			PathIO.setLazyObjectLoading(false);
+			var hierarchy3 = PathIO.readImageData(new ByteArrayInputStream(bytesOut.toByteArray()), null, server, BufferedImage.class).getHierarchy();
+			assertFalse(hierarchy3.hasDeferredObjects());
+			assertEquals(hierarchy.nObjects(), hierarchy3.nObjects());
+			assertHierarchiesEqual(hierarchy, hierarchy3);
+		} finally {
+			PathIO.setRequestedDataFileVersion(previousVersion);
+			PathIO.setLazyObjectLoading(previousLazy);
+		}
+	}
+	
+	@Test
+	public void test_deferredIdStable() throws Exception {
+		int previousVersion = PathIO.getRequestedDataFileVersion();
+		try {
+			PathIO.setRequestedDataFileVersion(5);
+			var hierarchy = new PathObjectHierarchy();
+			var detection = hierarchy.getCompactDetectionStore().createDetectionObject(ROIs.createRectangleROI(0, 0, 10, 10), null);
+			hierarchy.addObject(detection);
+			// Copying before the ID is requested should generate it on the original
+			var copy = PathObjectTools.transformObject(detection, null, true, false);
+			
+			var bytes = writeBinaryHierarchy(hierarchy);
+			var reloaded = readBinaryHierarchy(bytes, false);
+			var id = reloaded.getDetectionObjects().iterator().next().getID();
+			assertEquals(detection.getID(), id);
+			assertEquals(copy.getID(), id);
+			
+			// Saving again, or saving the reloaded hierarchy, should give the same ID
+			assertEquals(id, readBinaryHierarchy(writeBinaryHierarchy(hierarchy), false).getDetectionObjects().iterator().next().getID());
+			assertEquals(id, readBinaryHierarchy(writeBinaryHierarchy(reloaded), false).getDetectionObjects().iterator().next().getID());
+			assertEquals(id, serializeAndDeserialize(detection).getID());
+		} finally {
+			PathIO.setRequestedDataFileVersion(previousVersion);
+		}
+	}
+	
+	private static PathObject serializeAndDeserialize(PathObject pathObject) throws IOException, ClassNotFoundException {
+		var bytesOut = new ByteArrayOutputStream();
+		try (var stream = new ObjectOutputStream(bytesOut)) {
+			stream.writeObject(pathObject);
+		}
+		try (var stream = PathIO.createObjectInputStream(new ByteArrayInputStream(bytesOut.toByteArray()))) {
+			return (PathObject)stream.readObject();
+		}
+	}
+
+	private static PathObjectHierarchy createHierarchyForBinaryTest() {
+		var hierarchy = new PathObjectHierarchy();
+		
+		// TMA grid with one missing core
+		List<TMACoreObject> cores = new ArrayList<>();
+		for (int i = 0; i < 4; i++)
+			cores.add(PathObjects.createTMACoreObject(1000 + (i % 2) * 2000, 1000 + (i / 2) * 2000, 1500, i == 3));
+		cores.get(0).setName("Core A");
+		cores.get(1).getMeasurementList().put("Core measurement", 1.5);
+		cores.get(2).getMetadata().put("Patient", "Someone");
+		hierarchy.setTMAGrid(DefaultTMAGrid.create(cores, 2));
+		
+		var pathClass = PathClass.fromString("Tumor: Positive");
+		var plane = ImagePlane.getPlaneWithChannel(-1, 2, 1);
+		var annotation = PathObjects.createAnnotationObject(
+				ROIs.createPolygonROI(new double[] {10, 500.1, 480}, new double[] {20, 30, 400.3}, plane), pathClass);
+		annotation.setName("My annotation");
+		annotation.setColor(0xff0000);
+		annotation.setLocked(true);
+		annotation.getMetadata().put("Key", "Value");
+		hierarchy.addObject(annotation);
+		
+		// Enough detections to require multiple chunks, with sparse & double measurements
+		List<PathObject> detections = new ArrayList<>();
+		for (int i = 0; i < 10_000; i++) {
+			var ml = MeasurementListFactory.createMeasurementList(3, MeasurementListType.DOUBLE);
+			ml.put("Area", i);
+			if (i % 3 == 0)
+				ml.put("Intensity", i / 3.0);
+			ml.close();
+			double x = 20 + (i % 100) * 50;
+			double y = 30 + (i / 100) * 50;
+			var roi = ROIs.createRectangleROI(x, y, 10, 10, plane);
+			PathObject detection;
+			if (i % 2 == 0)
+				detection = PathObjects.createCellObject(roi, ROIs.createEllipseROI(x + 2, y + 2, 5.5, 5.5, plane),
+						i % 4 == 0 ? pathClass : null, ml);
+			else
+				detection = PathObjects.createDetectionObject(roi, PathClass.fromString("Stroma"), ml);
+			detections.add(detection);
+		}
+		annotation.addChildObjects(detections);
+		hierarchy.addObject(PathObjects.createAnnotationObject(ROIs.createPointsROI(new double[] {1, 2}, new double[] {3, 4}, plane)));
+		hierarchy.addObject(PathObjects.createAnnotationObject(ROIs.createLineROI(1, 2, 3, 4, plane)));
+		return hierarchy;
+	}
+	
+	private static byte[] writeBinaryHierarchy(PathObjectHierarchy hierarchy) throws IOException {
+		var bytesOut = new ByteArrayOutputStream();
+		try (var stream = new ObjectOutputStream(bytesOut)) {
+			BinaryHierarchyIO.writeHierarchy(stream, hierarchy);
+		}
+		return bytesOut.toByteArray();
+	}
+	
+	private static PathObjectHierarchy readBinaryHierarchy(byte[] bytes, boolean lazy) throws IOException {
+		try (var stream = PathIO.createObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return BinaryHierarchyIO.readHierarchy(stream, lazy);
+		}
+	}
+	
+	private static void assertHierarchiesEqual(PathObjectHierarchy hierarchy, PathObjectHierarchy hierarchy2) {
+		// Detections are written after other objects, so the order of child objects may differ
+		var objects = hierarchy.getAllObjects(true);
+		Map<UUID, PathObject> objects2 = new HashMap<>();
+		for (var p : hierarchy2.getAllObjects(true))
+			objects2.put(p.getID(), p);
+		assertEquals(objects.size(), objects2.size());
+		for (var p1 : objects) {
+			var p2 = objects2.get(p1.getID());
+			assertEquals(p1.getClass(), p2.getClass());
+			assertEquals(p1.getParent() == null ? null : p1.getParent().getID(), p2.getParent() == null ? null : p2.getParent().getID());
+			assertEquals(p1.getID(), p2.getID());
+			assertEquals(p1.getName(), p2.getName());
+			assertEquals(p1.getColor(), p2.getColor());
+			assertTrue(p1.getPathClass() == p2.getPathClass());
+			assertEquals(p1.isLocked(), p2.isLocked());
+			assertEquals(p1.getMetadata(), p2.getMetadata());
+			assertEquals(p1.getMeasurementList().asMap(), p2.getMeasurementList().asMap());
+			assertEquals(p1.nChildObjects(), p2.nChildObjects());
+			assertROIsEqual(p1.getROI(), p2.getROI());
+			if (p1 instanceof PathCellObject cell)
+				assertROIsEqual(cell.getNucleusROI(), ((PathCellObject)p2).getNucleusROI());
+		}
+	}
+	
+	private static void assertROIsEqual(ROI roi1, ROI roi2) {
+		if (roi1 == null) {
+			assertNull(roi2);
+			return;
+		}
+		assertEquals(roi1.getRoiName(), roi2.getRoiName());
+		assertEquals(roi1.getImagePlane(), roi2.getImagePlane());
+		assertEquals(roi1.getAllPoints(), roi2.getAllPoints());
+	}
+	
 	private static <T> T serializeDeserializeStandard(T obj) {
 		try {
 			var bytesOut = new ByteArrayOutputStream();
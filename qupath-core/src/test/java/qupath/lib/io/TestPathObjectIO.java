@@ -32,6 +32,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -39,6 +40,8 @@ import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
+import com.google.gson.reflect.TypeToken;
+
 import qupath.lib.common.ColorTools;
 import qupath.lib.io.PathIO.GeoJsonExportOptions;
 import qupath.lib.measurements.MeasurementList;
@@ -47,7 +50,10 @@ import qupath.lib.objects.PathCellObject;
 import qupath.lib.objects.PathObject;
 import qupath.lib.objects.PathObjects;
 import qupath.lib.objects.classes.PathClass;
+import qupath.lib.objects.hierarchy.PathObjectHierarchy;
+import qupath.lib.objects.hierarchy.events.PathObjectHierarchyEvent;
 import qupath.lib.regions.ImagePlane;
+import qupath.lib.regions.ImageRegion;
 import qupath.lib.roi.ROIs;
 import qupath.lib.roi.interfaces.ROI;
 
@@ -167,6 +173,96 @@ public class TestPathObjectIO {
 		assertArrayEquals(countCheck, new int[] {1, 1, 1, 1, 1});
 	}
 	
+	/**
+	 * Test exporting and importing enough objects to use parallel conversion and streaming.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void test_IOManyObjectsGeoJSON() throws IOException {
+		List<PathObject> objs = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			var pathObject = PathObjects.createDetectionObject(
+					ROIs.createRectangleROI(i % 100, i / 100.0, 5, 5, ImagePlane.getDefaultPlane()),
+					PathClass.getInstance("PathClassTest" + (i % 3)));
+			pathObject.getMeasurementList().put("Index", i);
+			objs.add(pathObject);
+		}
+		
+		// Compact output should be identical to converting the whole list at once
+		var bos = new ByteArrayOutputStream();
+		PathIO.exportObjectsAsGeoJSON(bos, objs);
+		String expected = GsonTools.getInstance().toJson(objs, new TypeToken<List<PathObject>>() {}.getType());
+		assertEquals(expected, bos.toString(StandardCharsets.UTF_8));
+		
+		for (var options : Arrays.asList(
+				new GeoJsonExportOptions[0],
+				new GeoJsonExportOptions[] {GeoJsonExportOptions.FEATURE_COLLECTION},
+				new GeoJsonExportOptions[] {GeoJsonExportOptions.FEATURE_COLLECTION, GeoJsonExportOptions.EXCLUDE_MEASUREMENTS})) {
+			bos = new ByteArrayOutputStream();
+			PathIO.exportObjectsAsGeoJSON(bos, objs, options);
+			byte[] bytes = bos.toByteArray();
+			boolean keepMeasurements = !Arrays.asList(options).contains(GeoJsonExportOptions.EXCLUDE_MEASUREMENTS);
+			
+			// Read in batches
+			List<PathObject> objsBack = new ArrayList<>();
+			List<Integer> batchSizes = new ArrayList<>();
+			long n = PathIO.readObjectsFromGeoJSON(new ByteArrayInputStream(bytes), batch -> {
+				batchSizes.add(batch.size());
+				objsBack.addAll(batch);
+			});
+			assertEquals(objs.size(), n);
+			assertTrue(batchSizes.size() > 1);
+			assertSameObjects(objs, objsBack, keepMeasurements);
+			assertSameObjects(PathIO.readObjectsFromGeoJSON(new ByteArrayInputStream(bytes)), objsBack, true);
+			
+			// Import directly into a hierarchy, with a single event
+			var hierarchy = new PathObjectHierarchy();
+			List<PathObjectHierarchyEvent> events = new ArrayList<>();
+			hierarchy.addListener(events::add);
+			assertEquals(objs.size(), PathIO.importObjectsFromGeoJSON(new ByteArrayInputStream(bytes), hierarchy));
+			assertEquals(1, events.size());
+			assertEquals(objs.size(), hierarchy.getDetectionObjects().size());
+			assertEquals(objs.size(), hierarchy.getObjectsForRegion(null, ImageRegion.createInstance(0, 0, 200, 200, 0, 0), null).size());
+		}
+	}
+	
+	/**
+	 * Test that the streaming reader handles single features and geometries, as well as arrays.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void test_readStreamingGeoJSON() throws IOException {
+		var pathObject = PathObjects.createAnnotationObject(ROIs.createRectangleROI(0, 0, 10, 10, ImagePlane.getDefaultPlane()));
+		var bos = new ByteArrayOutputStream();
+		PathIO.exportObjectsAsGeoJSON(bos, List.of(pathObject));
+		
+		List<PathObject> objsBack = new ArrayList<>();
+		assertEquals(1, PathIO.readObjectsFromGeoJSON(new ByteArrayInputStream(bos.toByteArray()), objsBack::addAll));
+		assertSameObjects(List.of(pathObject), objsBack, true);
+		
+		String geometry = "{\"type\": \"Point\", \"coordinates\": [1, 2]}";
+		objsBack.clear();
+		assertEquals(1, PathIO.readObjectsFromGeoJSON(new ByteArrayInputStream(geometry.getBytes(StandardCharsets.UTF_8)), objsBack::addAll));
+		assertTrue(objsBack.get(0).getROI().isPoint());
+	}
+	
+	private static void assertSameObjects(List<? extends PathObject> expected, List<? extends PathObject> actual, boolean checkMeasurements) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			var p1 = expected.get(i);
+			var p2 = actual.get(i);
+			assertEquals(p1.getID(), p2.getID());
+			assertEquals(p1.getPathClass(), p2.getPathClass());
+			assertSameROIs(p1.getROI(), p2.getROI());
+			if (checkMeasurements)
+				assertSameMeasurements(p1.getMeasurementList(), p2.getMeasurementList());
+			else
+				assertFalse(p2.hasMeasurements());
+		}
+	}
+	
 	private static void assertSameMeasurements(MeasurementList ml1, MeasurementList ml2) {
 		assertEquals(ml1.size(), ml2.size());
 		assertEquals(ml1.getNames(), ml2.getNames());
@@ -43,6 +43,98 @@ public class TestMeasurementListFactory {
 		testList(MeasurementListFactory.createMeasurementList(50, MeasurementListType.DOUBLE));
 		testList(MeasurementListFactory.createMeasurementList(50, MeasurementListType.FLOAT));
 		testList(MeasurementListFactory.createMeasurementList(50, MeasurementListType.GENERAL));
+		testList(MeasurementListFactory.createColumnarStore(MeasurementListType.DOUBLE).createMeasurementList());
+		testList(MeasurementListFactory.createColumnarStore(MeasurementListType.FLOAT).createMeasurementList());
+	}
+
+	@Test
+	public void testColumnarStore() {
+		assertThrows(IllegalArgumentException.class, () -> MeasurementListFactory.createColumnarStore(MeasurementListType.GENERAL));
+
+		var store = MeasurementListFactory.createColumnarStore(MeasurementListType.DOUBLE);
+		int n = 10_000;
+		List<MeasurementList> lists = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			var list = store.createMeasurementList();
+			list.put("Index", i);
+			if (i % 2 == 0)
+				list.put("Even", i);
+			lists.add(list);
+		}
+		assertEquals(n, store.nRows());
+		assertEquals(List.of("Index", "Even"), store.getNames());
+		assertEquals(List.of("Index"), lists.get(1).getNames());
+		assertEquals(List.of("Index", "Even"), lists.get(2).getNames());
+
+		double[] index = store.getColumn("Index");
+		double[] even = store.getColumn("Even");
+		for (int i = 0; i < n; i++) {
+			assertEquals(i, store.getRow(lists.get(i)));
+			assertEquals(i, index[i]);
+			if (i % 2 == 0)
+				assertEquals(i, even[i]);
+			else
+				assertTrue(Double.isNaN(even[i]));
+		}
+		assertTrue(Double.isNaN(store.getColumn("Missing")[0]));
+
+		// NaN values are stored, and distinguished from missing values
+		var list = lists.get(1);
+		list.put("Even", Double.NaN);
+		assertTrue(list.containsKey("Even"));
+		assertTrue(Double.isNaN(list.get("Even")));
+		assertEquals(2, list.size());
+		list.remove("Even");
+		assertFalse(list.containsKey("Even"));
+		assertEquals(1, list.size());
+
+		// Lists from other stores are supported too
+		var other = MeasurementListFactory.createMeasurementList(1, MeasurementListType.FLOAT);
+		other.put("Index", -1);
+		var values = store.getValues("Index", List.of(lists.get(5), other));
+		assertArrayEquals(new double[] {5, -1}, values);
+		assertEquals(-1, store.getRow(other));
+	}
+
+	@Test
+	public void testColumnarStoreInsertionOrder() {
+		var store = MeasurementListFactory.createColumnarStore(MeasurementListType.FLOAT);
+		var first = store.createMeasurementList();
+		first.put("A", 1);
+		first.put("B", 2);
+		first.put("C", 3);
+
+		// Names should be in the order they were added to each list, not the order of the store
+		var second = store.createMeasurementList();
+		second.put("C", 3);
+		second.put("A", 1);
+		second.put("D", 4);
+		assertEquals(List.of("A", "B", "C", "D"), store.getNames());
+		assertEquals(List.of("A", "B", "C"), first.getNames());
+		assertEquals(List.of("C", "A", "D"), second.getNames());
+		assertArrayEquals(new double[] {3, 1, 4}, second.values());
+		assertEquals("C", second.getByIndex(0).getName());
+		assertEquals(List.of("C", "A", "D"), List.copyOf(second.asMap().keySet()));
+
+		// Updating a value shouldn't change the order, but removing and adding again should
+		second.put("C", 5);
+		assertEquals(List.of("C", "A", "D"), second.getNames());
+		second.remove("C");
+		assertEquals(List.of("A", "D"), second.getNames());
+		assertTrue(Double.isNaN(second.get("C")));
+		second.put("C", 6);
+		assertEquals(List.of("A", "D", "C"), second.getNames());
+		assertEquals(List.of("A", "B", "C"), first.getNames());
+
+		// Serialized lists should retain the order
+		var standalone = MeasurementListFactory.createMeasurementList(0, MeasurementListType.FLOAT);
+		standalone.putAll(second);
+		assertEquals(second.getNames(), standalone.getNames());
+
+		second.clear();
+		assertTrue(second.isEmpty());
+		assertEquals(List.of("A", "B", "C"), first.getNames());
+		assertEquals(3, first.get("C"));
 	}
 	
 	
@@ -0,0 +1,133 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import qupath.lib.objects.classes.PathClass;
+import qupath.lib.objects.hierarchy.PathObjectHierarchy;
+import qupath.lib.roi.ROIs;
+import qupath.lib.roi.interfaces.ROI;
+
+@SuppressWarnings("javadoc")
+public class TestCompactDetectionStore {
+
+	@Test
+	public void test_createObjects() {
+		var store = new CompactDetectionStore();
+		var pathClass = PathClass.fromString("Tumor");
+		var detection = store.createDetectionObject(createPolygon(0, 0), pathClass);
+		var cell = store.createCellObject(createPolygon(20, 0), createPolygon(22, 2), null);
+
+		assertTrue(detection.isDetection());
+		assertSame(pathClass, detection.getPathClass());
+		assertTrue(cell instanceof PathCellObject);
+		assertEquals(3, store.getVertexStore().nPolygons());
+		assertEquals(2, store.getMeasurementStore().nRows());
+
+		detection.getMeasurementList().put("Area", 10);
+		assertEquals(10, store.getMeasurementStore().getColumn("Area")[0]);
+
+		// IDs are generated on demand, but shouldn't change
+		var id = detection.getID();
+		assertNotNull(id);
+		assertEquals(id, detection.getID());
+		assertNotEquals(id, cell.getID());
+	}
+
+	@Test
+	public void test_compact() {
+		var store = new CompactDetectionStore();
+		var pathClass = PathClass.fromString("Stroma");
+		List<PathObject> pathObjects = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			var roi = createPolygon(i * 20, 0);
+			PathObject pathObject;
+			if (i % 3 == 0)
+				pathObject = PathObjects.createCellObject(roi, createPolygon(i * 20 + 2, 2), pathClass);
+			else if (i % 3 == 1)
+				pathObject = PathObjects.createTileObject(roi, pathClass, null);
+			else
+				pathObject = PathObjects.createDetectionObject(roi);
+			pathObject.getMeasurementList().put("Index", i);
+			pathObject.setName("Object " + i);
+			if (i == 0)
+				pathObject.getMetadata().put("Key", "Value");
+			pathObjects.add(pathObject);
+		}
+
+		var compact = store.compactAll(pathObjects);
+		assertEquals(pathObjects.size(), compact.size());
+		for (int i = 0; i < pathObjects.size(); i++) {
+			var original = pathObjects.get(i);
+			var copy = compact.get(i);
+			assertNotSame(original, copy);
+			assertSame(original.getClass(), copy.getClass());
+			assertEquals(original.getID(), copy.getID());
+			assertEquals(original.getROI(), copy.getROI());
+			assertEquals(PathObjectTools.getNucleusROI(original), PathObjectTools.getNucleusROI(copy));
+			assertSame(original.getPathClass(), copy.getPathClass());
+			assertEquals(original.getName(), copy.getName());
+			assertEquals(original.getMeasurementList().getNames(), copy.getMeasurementList().getNames());
+			assertEquals(i, copy.getMeasurementList().get("Index"));
+			assertEquals(original.hasMetadata(), copy.hasMetadata());
+			// Compacting again should have no effect
+			assertSame(copy, store.compact(copy));
+		}
+		assertEquals("Value", compact.getFirst().getMetadata().get("Key"));
+
+		assertThrows(IllegalArgumentException.class, () -> store.compact(PathObjects.createAnnotationObject(createPolygon(0, 0))));
+	}
+
+	@Test
+	public void test_hierarchyStore() {
+		var hierarchy = new PathObjectHierarchy();
+		var store = hierarchy.getCompactDetectionStore();
+		assertSame(store, hierarchy.getCompactDetectionStore());
+		assertSame(hierarchy.getColumnarMeasurementStore(), store.getMeasurementStore());
+
+		var annotation = PathObjects.createAnnotationObject(ROIs.createRectangleROI(0, 0, 100, 100));
+		hierarchy.addObject(annotation);
+		var detection = store.createDetectionObject(createPolygon(10, 10), null);
+		hierarchy.addObject(detection);
+		assertSame(annotation, detection.getParent());
+		assertEquals(List.of(detection), List.copyOf(hierarchy.getDetectionObjects()));
+	}
+
+	private static ROI createPolygon(double x, double y) {
+		return ROIs.createPolygonROI(
+				new double[] {x, x + 10, x + 10, x + 5, x},
+				new double[] {y, y, y + 10, y + 12, y + 10});
+	}
+
+}
@@ -29,7 +29,10 @@ import org.locationtech.jts.util.GeometricShapeFactory;
 import org.opentest4j.AssertionFailedError;
 import qupath.lib.objects.PathObject;
 import qupath.lib.objects.PathObjectTools;
+import qupath.lib.objects.PathROIObject;
 import qupath.lib.objects.PathObjects;
+import qupath.lib.objects.hierarchy.events.PathObjectHierarchyEvent;
+import qupath.lib.objects.hierarchy.events.PathObjectHierarchyEvent.HierarchyEventType;
 import qupath.lib.regions.ImagePlane;
 import qupath.lib.regions.ImageRegion;
 import qupath.lib.roi.GeometryTools;
@@ -37,14 +40,30 @@ import qupath.lib.roi.ROIs;
 import qupath.lib.roi.RoiTools;
 import qupath.lib.roi.interfaces.ROI;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TestPathObjectHierarchy {
@@ -629,6 +648,474 @@ public class TestPathObjectHierarchy {
         assertCollectionsEqualsWithoutOrder(expectedRootChildren, hierarchy.getRootObject().getChildObjects());
     }
 
+    @Test
+    void Check_Cache_Updated_Incrementally() {
+        PathObjectHierarchy hierarchy = new PathObjectHierarchy();
+        var detections = createGridOfDetections(100, 100);
+        hierarchy.addObjects(detections);
+        var annotation = PathObjects.createAnnotationObject(ROIs.createRectangleROI(0, 0, 100, 100));
+        hierarchy.addObject(annotation);
+
+        // Query to ensure the cache is constructed
+        var region = ImageRegion.createInstance(0, 0, 100, 100, 0, 0);
+        assertEquals(101, hierarchy.getAllObjectsForRegion(region, null).size());
+
+        // Move the annotation & check we only find it in the new location
+        var region2 = ImageRegion.createInstance(500, 500, 100, 100, 0, 0);
+        ((PathROIObject)annotation).setROI(ROIs.createRectangleROI(500, 500, 100, 100));
+        hierarchy.addObject(annotation);
+        assertEquals(100, hierarchy.getAllObjectsForRegion(region, null).size());
+        assertEquals(List.of(annotation), List.copyOf(hierarchy.getAnnotationsForRegion(region2, null)));
+
+        // Remove detections individually and in bulk
+        hierarchy.removeObject(detections.getFirst(), true);
+        hierarchy.removeObjects(detections.subList(1, 10), true);
+        assertEquals(90, hierarchy.getAllObjectsForRegion(region, null).size());
+
+        // Add detections back
+        hierarchy.addObjects(detections.subList(0, 5));
+        assertEquals(95, hierarchy.getAllObjectsForRegion(region, null).size());
+
+        // Update a detection with a new ROI
+        var detection = detections.get(205);
+        ((PathROIObject)detection).setROI(ROIs.createRectangleROI(520, 520, 5, 5, ImagePlane.getDefaultPlane()));
+        hierarchy.updateObject(detection, false);
+        assertEquals(94, hierarchy.getAllObjectsForRegion(region, null).size());
+        assertTrue(hierarchy.getAllObjectsForRegion(region2, null).contains(detection));
+
+        // Check the cache matches the hierarchy after being rebuilt
+        var expected = new HashSet<>(hierarchy.getAllObjectsForRegion(null, null));
+        hierarchy.fireHierarchyChangedEvent(this);
+        assertEquals(expected, new HashSet<>(hierarchy.getAllObjectsForRegion(null, null)));
+    }
+
+    /**
+     * Check that region queries remain correct after many interleaved edits to a hierarchy containing
+     * a large number of detections, where the cache is updated incrementally rather than rebuilt.
+     */
+    @Test
+    void Check_Cache_Consistent_After_Repeated_Edits() {
+        PathObjectHierarchy hierarchy = new PathObjectHierarchy();
+        var detections = createGridOfDetections(200, 200);
+        hierarchy.addObjects(detections);
+        // Region boundaries are chosen so that they never touch the edge of any object
+        var regions = List.of(
+                ImageRegion.createInstance(0, 0, 1000, 1000, 0, 0),
+                ImageRegion.createInstance(250, 450, 300, 200, 0, 0),
+                ImageRegion.createInstance(1500, 1500, 100, 100, 0, 0));
+        for (var region : regions)
+            assertRegionQueryMatches(hierarchy, region);
+
+        for (int i = 0; i < 50; i++) {
+            var annotation = PathObjects.createAnnotationObject(ROIs.createRectangleROI(i * 20 + 3, i * 20 + 3, 100, 100));
+            hierarchy.addObject(annotation);
+            assertRegionQueryMatches(hierarchy, regions.get(i % regions.size()));
+
+            ((PathROIObject)annotation).setROI(ROIs.createRectangleROI(i * 20 + 8, i * 30 + 3, 100, 100));
+            hierarchy.updateObject(annotation, false);
+            assertRegionQueryMatches(hierarchy, regions.get((i + 1) % regions.size()));
+
+            // Move a detection to a new location
+            var detection = detections.get(i * 401);
+            ((PathROIObject)detection).setROI(ROIs.createRectangleROI(i * 10 + 1005, 1005, 4, 4, ImagePlane.getDefaultPlane()));
+            hierarchy.updateObject(detection, false);
+
+            if (i % 2 == 0)
+                hierarchy.removeObject(annotation, true);
+            for (var region : regions)
+                assertRegionQueryMatches(hierarchy, region);
+        }
+        assertEquals(detections.size() + 25, hierarchy.nObjects());
+
+        // Check the cache matches the hierarchy after being rebuilt
+        var expected = new HashSet<>(hierarchy.getAllObjectsForRegion(null, null));
+        hierarchy.fireHierarchyChangedEvent(this);
+        assertEquals(expected, new HashSet<>(hierarchy.getAllObjectsForRegion(null, null)));
+    }
+
+    /**
+     * Check that a region query returns the same objects as a brute force search using the ROI bounds.
+     * This is only valid for rectangles that don't touch the region boundary.
+     */
+    private static void assertRegionQueryMatches(PathObjectHierarchy hierarchy, ImageRegion region) {
+        var expected = new HashSet<PathObject>();
+        for (var pathObject : hierarchy.getFlattenedObjectList(null)) {
+            var roi = pathObject.getROI();
+            if (roi != null && roi.getBoundsX() < region.getMaxX() && roi.getBoundsX() + roi.getBoundsWidth() > region.getMinX()
+                    && roi.getBoundsY() < region.getMaxY() && roi.getBoundsY() + roi.getBoundsHeight() > region.getMinY())
+                expected.add(pathObject);
+        }
+        assertEquals(expected, new HashSet<>(hierarchy.getAllObjectsForRegion(region, null)));
+    }
+
+    /**
+     * Check that objects added in batches by several threads are all present, and that concurrent queries
+     * only ever see complete batches.
+     */
+    @Test
+    void test_concurrentAddAndQuery() throws Exception {
+        var hierarchy = new PathObjectHierarchy();
+        int nWriters = 4;
+        int nBatches = 50;
+        int batchSize = 100;
+        int nTotal = nWriters * nBatches * batchSize;
+        runConcurrently(hierarchy, nWriters, nBatches, batchSize, 4);
+        assertEquals(nTotal, hierarchy.nObjects());
+        assertEquals(nTotal, hierarchy.getDetectionObjects().size());
+        assertEquals(nTotal, hierarchy.getAllObjects(false).size());
+        assertEquals(nTotal + 1, hierarchy.getFlattenedObjectList(null).size());
+        assertEquals(nTotal, hierarchy.getAllDetectionsForRegion(
+                ImageRegion.createInstance(0, 0, 100_000, 100_000, 0, 0), null).size());
+    }
+
+    /**
+     * Check that queries are updated after changes that don't fire events.
+     */
+    @Test
+    void test_queriesUpdatedWithoutEvents() {
+        var hierarchy = new PathObjectHierarchy();
+        var detection = PathObjects.createDetectionObject(ROIs.createRectangleROI(0, 0, 10, 10));
+        assertEquals(0, hierarchy.nObjects());
+
+        hierarchy.addObject(detection, false);
+        assertEquals(1, hierarchy.nObjects());
+        assertEquals(List.of(detection), List.copyOf(hierarchy.getAllObjects(false)));
+
+        hierarchy.removeObjectWithoutUpdate(detection, false);
+        assertEquals(0, hierarchy.nObjects());
+        assertTrue(hierarchy.getDetectionObjects().isEmpty());
+
+        // Changes made directly to the child lists require an event
+        hierarchy.getRootObject().addChildObject(detection);
+        hierarchy.fireHierarchyChangedEvent(this);
+        assertEquals(1, hierarchy.nObjects());
+    }
+
+    @Test
+    void test_resolveHierarchyWithDetections() {
+        var hierarchy = new PathObjectHierarchy();
+        var outer = PathObjects.createAnnotationObject(ROIs.createRectangleROI(0, 0, 100, 100));
+        var inner = PathObjects.createAnnotationObject(ROIs.createRectangleROI(20, 20, 40, 40));
+        // Overlaps the outer annotation, so will be a child of the root
+        var overlapping = PathObjects.createAnnotationObject(ROIs.createRectangleROI(80, 0, 100, 50));
+        var detections = createGridOfDetections(15, 15);
+        // Detections that are children of other detections shouldn't be moved
+        var nested = PathObjects.createDetectionObject(ROIs.createRectangleROI(1, 1, 2, 2));
+        detections.getLast().addChildObject(nested);
+
+        hierarchy.addObjects(List.of(inner, overlapping, outer));
+        hierarchy.addObjects(detections);
+        hierarchy.resolveHierarchy();
+
+        assertSame(hierarchy.getRootObject(), outer.getParent());
+        assertSame(outer, inner.getParent());
+        assertSame(hierarchy.getRootObject(), overlapping.getParent());
+        for (var detection : detections) {
+            double x = detection.getROI().getCentroidX();
+            double y = detection.getROI().getCentroidY();
+            PathObject expected;
+            if (inner.getROI().contains(x, y))
+                expected = inner;
+            else if (outer.getROI().contains(x, y))
+                expected = outer;
+            else if (overlapping.getROI().contains(x, y))
+                expected = overlapping;
+            else
+                expected = hierarchy.getRootObject();
+            assertSame(expected, detection.getParent(), "Unexpected parent for " + detection);
+        }
+        assertSame(detections.getLast(), nested.getParent());
+        assertEquals(detections.size() + 4, hierarchy.nObjects());
+        assertCollectionsEqualsWithoutOrder(List.of(outer, overlapping, inner),
+                hierarchy.getAnnotationsForRegion(ImageRegion.createInstance(0, 0, 200, 200, 0, 0), null));
+    }
+
+    @Test
+    void test_bulkUpdate() {
+        var hierarchy = new PathObjectHierarchy();
+        var annotation = PathObjects.createAnnotationObject(ROIs.createRectangleROI(0, 0, 50, 50));
+        var oldDetections = createGridOfDetections(10, 10);
+        hierarchy.addObject(annotation);
+        hierarchy.insertPathObjects(oldDetections);
+        assertEquals(101, hierarchy.nObjects());
+        var expectedParents = oldDetections.stream().map(PathObject::getParent).toList();
+
+        List<PathObjectHierarchyEvent> events = new ArrayList<>();
+        hierarchy.addListener(events::add);
+        var newDetections = createGridOfDetections(10, 10);
+        var update = hierarchy.beginBulkUpdate()
+                .removeObjects(oldDetections, false)
+                .insertObjects(newDetections);
+        // Nothing should change until the update is committed
+        assertCollectionsEqualsWithoutOrder(oldDetections, hierarchy.getDetectionObjects());
+        assertTrue(update.commit());
+        assertTrue(update.isCommitted());
+        assertThrows(IllegalStateException.class, update::commit);
+
+        assertEquals(1, events.size());
+        assertEquals(101, hierarchy.nObjects());
+        assertCollectionsEqualsWithoutOrder(newDetections, hierarchy.getDetectionObjects());
+        assertEquals(newDetections.size(), hierarchy.getAllDetectionsForRegion(
+                ImageRegion.createInstance(0, 0, 1000, 1000, 0, 0), null).size());
+        assertEquals(25, annotation.nChildObjects());
+        for (int i = 0; i < oldDetections.size(); i++) {
+            // Parents should be the same as when inserting objects individually
+            assertNull(oldDetections.get(i).getParent());
+            assertSame(expectedParents.get(i), newDetections.get(i).getParent());
+        }
+        assertCollectionsEqualsWithoutOrder(
+                hierarchy.getAllDetectionsForROI(annotation.getROI()), annotation.getChildObjects());
+    }
+
+    @Test
+    void test_insertDetectionsAlreadyInPlace() {
+        var hierarchy = new PathObjectHierarchy();
+        var annotation = PathObjects.createAnnotationObject(ROIs.createRectangleROI(0, 0, 50, 50));
+        var detections = createGridOfDetections(10, 10);
+        hierarchy.addObject(annotation);
+        hierarchy.addObjects(detections);
+        assertEquals(0, annotation.nChildObjects());
+
+        List<PathObjectHierarchyEvent> events = new ArrayList<>();
+        hierarchy.addListener(events::add);
+        assertTrue(hierarchy.insertPathObjects(detections));
+        assertEquals(25, annotation.nChildObjects());
+        assertEquals(1, events.size());
+
+        // Inserting again shouldn't change anything
+        var childOrder = List.copyOf(annotation.getChildObjects());
+        assertFalse(hierarchy.insertPathObjects(detections));
+        assertEquals(1, events.size());
+        assertEquals(childOrder, List.copyOf(annotation.getChildObjects()));
+        assertEquals(101, hierarchy.nObjects());
+    }
+
+    @Test
+    void test_largeBulkUpdateWithAnnotations() {
+        var hierarchy = new PathObjectHierarchy();
+        var oldDetections = createGridOfDetections(101, 100);
+        hierarchy.addObjects(oldDetections);
+        // Make sure the cache is in use before the update
+        assertEquals(oldDetections.size(), hierarchy.getAllDetectionsForRegion(
+                ImageRegion.createInstance(0, 0, 2000, 2000, 0, 0), null).size());
+
+        var outer = PathObjects.createAnnotationObject(ROIs.createRectangleROI(0, 0, 500, 500));
+        var inner = PathObjects.createAnnotationObject(ROIs.createRectangleROI(0, 0, 100, 100));
+        var newDetections = createGridOfDetections(100, 101);
+        assertTrue(hierarchy.beginBulkUpdate()
+                .removeObjects(oldDetections, false)
+                .insertObjects(List.of(inner, outer))
+                .insertObjects(newDetections)
+                .commit());
+
+        assertSame(hierarchy.getRootObject(), outer.getParent());
+        assertSame(outer, inner.getParent());
+        assertEquals(100, inner.nChildObjects());
+        assertEquals(2500 - 100 + 1, outer.nChildObjects());
+        assertEquals(newDetections.size() + 2, hierarchy.nObjects());
+        var region = ImageRegion.createInstance(0, 0, 100, 100, 0, 0);
+        assertCollectionsEqualsWithoutOrder(inner.getChildObjects(),
+                hierarchy.getAllDetectionsForRegion(region, null).stream()
+                        .filter(p -> inner.getROI().contains(p.getROI().getCentroidX(), p.getROI().getCentroidY()))
+                        .toList());
+        for (var detection : oldDetections)
+            assertNull(detection.getParent());
+    }
+
+    @Test
+    void test_coalescedEvents() {
+        var hierarchy = new PathObjectHierarchy();
+        List<PathObjectHierarchyEvent> events = Collections.synchronizedList(new ArrayList<>());
+        hierarchy.addListener(events::add);
+        // Use a long delay, so that events are only delivered when flushed
+        hierarchy.setEventCoalescingDelay(60_000);
+        long eventCount = hierarchy.getEventCount();
+        long deliveredCount = hierarchy.getDeliveredEventCount();
+
+        var detections = createGridOfDetections(10, 10);
+        for (var detection : detections)
+            hierarchy.addObject(detection);
+        assertTrue(events.isEmpty());
+        assertEquals(eventCount + detections.size(), hierarchy.getEventCount());
+        assertEquals(deliveredCount, hierarchy.getDeliveredEventCount());
+        // The spatial cache should be updated without waiting for the event
+        assertEquals(detections.size(), hierarchy.getAllDetectionsForRegion(
+                ImageRegion.createInstance(0, 0, 1000, 1000, 0, 0), null).size());
+
+        hierarchy.flushEvents();
+        assertEquals(1, events.size());
+        assertEquals(deliveredCount + 1, hierarchy.getDeliveredEventCount());
+        var event = events.getFirst();
+        assertEquals(HierarchyEventType.ADDED, event.getEventType());
+        assertEquals(hierarchy.getRootObject(), event.getStructureChangeBase());
+        assertEquals(detections, event.getChangedObjects());
+
+        // Different event types should be merged into a structure change, and removing the delay should flush events
+        hierarchy.fireObjectClassificationsChangedEvent(this, detections.subList(0, 10));
+        hierarchy.removeObject(detections.getFirst(), false);
+        hierarchy.setEventCoalescingDelay(0);
+        assertEquals(2, events.size());
+        event = events.get(1);
+        assertEquals(HierarchyEventType.OTHER_STRUCTURE_CHANGE, event.getEventType());
+        assertEquals(hierarchy.getRootObject(), event.getStructureChangeBase());
+        assertEquals(10, event.getChangedObjects().size());
+
+        // Without a delay, events should be delivered immediately
+        hierarchy.removeObject(detections.getLast(), false);
+        assertEquals(3, events.size());
+        assertEquals(eventCount + detections.size() + 3, hierarchy.getEventCount());
+        assertEquals(deliveredCount + 3, hierarchy.getDeliveredEventCount());
+    }
+
+    @Test
+    void test_coalescedEventsDeliveredInBackground() throws InterruptedException {
+        var hierarchy = new PathObjectHierarchy();
+        var latch = new CountDownLatch(1);
+        var listenerThread = new AtomicReference<Thread>();
+        hierarchy.addListener(event -> {
+            listenerThread.set(Thread.currentThread());
+            latch.countDown();
+        });
+        hierarchy.setEventCoalescingDelay(10);
+        for (var detection : createGridOfDetections(5, 5))
+            hierarchy.addObject(detection);
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertNotEquals(Thread.currentThread(), listenerThread.get());
+    }
+
+    /**
+     * Check that listeners are notified after the hierarchy has been unlocked, so that they can wait for
+     * queries made on other threads - and that these queries see the change.
+     */
+    @Test
+    void Check_Listeners_Can_Wait_For_Queries_On_Other_Threads() throws Exception {
+        var hierarchy = new PathObjectHierarchy();
+        var detections = createGridOfDetections(10, 10);
+        hierarchy.addObjects(detections);
+        var region = ImageRegion.createInstance(0, 0, 1000, 1000, 0, 0);
+        var pool = Executors.newSingleThreadExecutor();
+        try {
+            List<Integer> counts = new ArrayList<>();
+            hierarchy.addListener(event -> {
+                var future = pool.submit(() -> {
+                    int n = hierarchy.nObjects();
+                    assertEquals(n, hierarchy.getAllObjectsForRegion(region).size());
+                    return n;
+                });
+                try {
+                    counts.add(future.get(10, TimeUnit.SECONDS));
+                } catch (Exception e) {
+                    throw new RuntimeException("Unable to query hierarchy from listener", e);
+                }
+            });
+            var detection = PathObjects.createDetectionObject(ROIs.createRectangleROI(500, 500, 8, 8, ImagePlane.getDefaultPlane()));
+            hierarchy.addObject(detection);
+            hierarchy.fireObjectMeasurementsChangedEvent(this, detections);
+            hierarchy.fireObjectClassificationsChangedEvent(this, detections);
+            hierarchy.removeObject(detection, false);
+            hierarchy.addObjects(List.of(
+                    PathObjects.createDetectionObject(ROIs.createRectangleROI(600, 600, 8, 8, ImagePlane.getDefaultPlane())),
+                    PathObjects.createDetectionObject(ROIs.createRectangleROI(700, 700, 8, 8, ImagePlane.getDefaultPlane()))));
+            assertEquals(List.of(101, 101, 101, 100, 102), counts);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Check that adding objects from several threads while querying from others doesn't deadlock
+     * when listeners also wait for queries made on other threads, and that these queries only see complete batches.
+     */
+    @Test
+    void Check_No_Deadlock_With_Concurrent_Listeners() {
+        int nWriters = 4;
+        int nBatches = 25;
+        int batchSize = 100;
+        assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+            var hierarchy = new PathObjectHierarchy();
+            var pool = Executors.newCachedThreadPool();
+            try {
+                hierarchy.addListener(event -> {
+                    int n;
+                    try {
+                        n = pool.submit(() -> hierarchy.getDetectionObjects().size()).get();
+                    } catch (Exception e) {
+                        throw new RuntimeException("Unable to query hierarchy from listener", e);
+                    }
+                    assertEquals(0, n % batchSize, "Incomplete batch");
+                });
+                runConcurrently(hierarchy, nWriters, nBatches, batchSize, 4);
+                assertEquals(nWriters * nBatches * batchSize, hierarchy.nObjects());
+            } finally {
+                pool.shutdownNow();
+            }
+        });
+    }
+
+    /**
+     * Add detections in batches from multiple threads, while querying the hierarchy from others.
+     * Each batch should be seen in its entirety, and the number of objects should never decrease.
+     * @return the total number of queries made
+     */
+    private static long runConcurrently(PathObjectHierarchy hierarchy, int nWriters, int nBatches, int batchSize, int nReaders)
+            throws InterruptedException, ExecutionException {
+        int nInitial = hierarchy.nObjects();
+        int nTotal = nInitial + nWriters * nBatches * batchSize;
+        var pool = Executors.newFixedThreadPool(nWriters + nReaders);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int w = 0; w < nWriters; w++) {
+                int offset = w * nBatches * batchSize;
+                futures.add(pool.submit(() -> {
+                    for (int b = 0; b < nBatches; b++) {
+                        List<PathObject> batch = new ArrayList<>(batchSize);
+                        for (int i = 0; i < batchSize; i++) {
+                            int ind = offset + b * batchSize + i;
+                            batch.add(PathObjects.createDetectionObject(
+                                    ROIs.createRectangleROI((ind % 1000) * 10, (ind / 1000) * 10, 8, 8, ImagePlane.getDefaultPlane())));
+                        }
+                        hierarchy.addObjects(batch);
+                    }
+                    return 0L;
+                }));
+            }
+            for (int r = 0; r < nReaders; r++) {
+                int ind = r;
+                futures.add(pool.submit((Callable<Long>)() -> {
+                    long nQueries = 0;
+                    int lastCount = nInitial;
+                    while (lastCount < nTotal && !Thread.currentThread().isInterrupted()) {
+                        int count = switch ((int)(nQueries++ % 3)) {
+                            case 0 -> hierarchy.nObjects();
+                            case 1 -> hierarchy.getDetectionObjects().size();
+                            default -> hierarchy.getAllObjects(ind % 2 == 0).size() - (ind % 2 == 0 ? 1 : 0);
+                        };
+                        assertEquals(0, (count - nInitial) % batchSize, "Incomplete batch");
+                        assertTrue(count >= lastCount, "Number of objects decreased");
+                        lastCount = count;
+                    }
+                    return nQueries;
+                }));
+            }
+            long nQueries = 0;
+            for (var future : futures)
+                nQueries += future.get();
+            return nQueries;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static List<PathObject> createGridOfDetections(int nx, int ny) {
+        List<PathObject> detections = new ArrayList<>(nx * ny);
+        for (int y = 0; y < ny; y++) {
+            for (int x = 0; x < nx; x++) {
+                detections.add(PathObjects.createDetectionObject(ROIs.createRectangleROI(x * 10 + 1, y * 10 + 1, 8, 8, ImagePlane.getDefaultPlane())));
+            }
+        }
+        return detections;
+    }
+
     private static <T> void assertCollectionsEqualsWithoutOrder(Collection<? extends T> expectedCollection, Collection<? extends T> actualCollection) {
         if (expectedCollection.size() != actualCollection.size()) {
             throw new AssertionFailedError(String.format(
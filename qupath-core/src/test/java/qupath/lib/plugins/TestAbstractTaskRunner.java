@@ -0,0 +1,161 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.plugins;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import qupath.lib.common.ThreadTools;
+
+@SuppressWarnings("javadoc")
+public class TestAbstractTaskRunner {
+
+	@Test
+	public void test_largestFirst() {
+		var runner = new CommandLineTaskRunner(1);
+		assertNull(runner.getLastMetrics());
+
+		List<Double> order = Collections.synchronizedList(new ArrayList<>());
+		List<Runnable> tasks = new ArrayList<>();
+		for (double size : new double[] {5, 1, 100, 20, 50})
+			tasks.add(new SizedTask(size, order));
+		runner.runTasks(tasks);
+
+		assertEquals(List.of(100.0, 50.0, 20.0, 5.0, 1.0), order);
+
+		var metrics = runner.getLastMetrics();
+		assertEquals(5, metrics.taskCount());
+		assertEquals(5, metrics.completedCount());
+		assertEquals(1, metrics.nThreads());
+		assertTrue(metrics.maxRunNanos() <= metrics.totalRunNanos());
+		assertTrue(metrics.getThroughput() > 0);
+	}
+
+	@Test
+	public void test_unsizedTasksKeepOrder() {
+		var runner = new CommandLineTaskRunner(1);
+		List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+		List<Runnable> tasks = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			int ind = i;
+			tasks.add(() -> order.add(ind));
+		}
+		runner.runTasks(tasks);
+		assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), order);
+	}
+
+	@Test
+	@Timeout(10)
+	public void test_nestedTasks() {
+		int n = 2;
+		int previousParallelism = ThreadTools.getParallelism();
+		try {
+			// Use the shared pool
+			ThreadTools.setParallelism(n);
+			var runner = new CommandLineTaskRunner(n);
+			var count = new AtomicInteger();
+			List<Runnable> tasks = new ArrayList<>();
+			for (int i = 0; i < n * 2; i++) {
+				tasks.add(() -> {
+					// Running tasks from within a task shouldn't block all the threads in the shared pool
+					var nestedRunner = new CommandLineTaskRunner(n);
+					List<Runnable> nestedTasks = new ArrayList<>();
+					for (int j = 0; j < n * 2; j++)
+						nestedTasks.add(count::incrementAndGet);
+					nestedRunner.runTasks(nestedTasks);
+				});
+			}
+			runner.runTasks(tasks);
+			assertEquals(n * n * 4, count.get());
+		} finally {
+			ThreadTools.setParallelism(previousParallelism);
+		}
+	}
+
+	@Test
+	public void test_sharedPoolReplaced() {
+		int previousParallelism = ThreadTools.getParallelism();
+		try {
+			ThreadTools.setParallelism(2);
+			var pool = runAndGetPool(new CommandLineTaskRunner());
+			assertEquals(2, pool.getParallelism());
+			assertSame(pool, runAndGetPool(new CommandLineTaskRunner()));
+
+			// Requesting a different number of threads shouldn't affect the shared pool
+			assertNotSame(pool, runAndGetPool(new CommandLineTaskRunner(3)));
+			assertFalse(pool.isShutdown());
+
+			// Changing the parallelism should replace the shared pool
+			ThreadTools.setParallelism(3);
+			var pool2 = runAndGetPool(new CommandLineTaskRunner());
+			assertEquals(3, pool2.getParallelism());
+			assertTrue(pool.isShutdown());
+			assertFalse(pool2.isShutdown());
+		} finally {
+			ThreadTools.setParallelism(previousParallelism);
+		}
+	}
+
+	private static ForkJoinPool runAndGetPool(TaskRunner runner) {
+		List<ForkJoinPool> pools = Collections.synchronizedList(new ArrayList<>());
+		runner.runTasks(List.of(() -> pools.add(ForkJoinTask.getPool())));
+		return pools.get(0);
+	}
+
+
+	private static class SizedTask implements PathTask {
+
+		private final double size;
+		private final List<Double> order;
+
+		private SizedTask(double size, List<Double> order) {
+			this.size = size;
+			this.order = order;
+		}
+
+		@Override
+		public void run() {
+			order.add(size);
+		}
+
+		@Override
+		public double getSizeEstimate() {
+			return size;
+		}
+
+	}
+
+}
@@ -11,6 +11,8 @@ import java.util.List;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TestPolygonROI {
@@ -135,6 +137,36 @@ public class TestPolygonROI {
         assertNotEquals(roi, roi2);
     }
 
+    @Test
+    public void testPackedVertices() {
+        // Use a small block size so that polygons are spread across multiple blocks
+        var store = new PolygonVertexStore(16);
+        var plane = ImagePlane.getPlane(1, 2);
+        for (int n : new int[] {3, 4, 5, 10, 2}) {
+            var roi = ROIs.createPolygonROI(createPoints(n), plane);
+            var packed = store.compact(roi);
+            assertNotSame(roi, packed);
+            assertSame(packed, store.compact(packed));
+            assertEquals(roi, packed);
+            assertEquals(roi.hashCode(), packed.hashCode());
+            assertEquals(roi.getArea(), packed.getArea());
+            assertEquals(roi.getLength(), packed.getLength());
+            assertEquals(roi.getBoundsX(), packed.getBoundsX());
+            assertEquals(roi.getBoundsHeight(), packed.getBoundsHeight());
+            assertEquals(roi.getCentroidX(), packed.getCentroidX());
+            assertEquals(roi.getAllPoints(), packed.getAllPoints());
+            assertEquals(roi.getImagePlane(), packed.getImagePlane());
+            assertTrue(roi.getGeometry().equalsExact(packed.getGeometry()));
+            assertEquals(roi.contains(3, 6), packed.contains(3, 6));
+            assertEquals(roi.translate(5, 5), packed.translate(5, 5));
+        }
+        assertEquals(5, store.nPolygons());
+        assertEquals(24, store.nVertices());
+
+        var rect = ROIs.createRectangleROI(0, 0, 10, 10);
+        assertSame(rect, store.compact(rect));
+    }
+
     @Test
     public void testNotEqualsPlaneC() {
         var roi = ROIs.createPolygonROI(createPoints(4));
@@ -95,12 +95,14 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.IntStream;
@@ -974,6 +976,45 @@ public class BioFormatsImageServer extends AbstractTileableImageServer implement
 		return readerPool.metadata;
 	}
 	
+	/**
+	 * Get a snapshot of the current state of the pool of readers used by this server.
+	 * This can help determine whether the number of readers is a bottleneck when reading tiles in parallel.
+	 * @return
+	 * @since v0.7.0
+	 */
+	public ReaderPoolMetrics getReaderPoolMetrics() {
+		return readerPool.getMetrics();
+	}
+	
+	/**
+	 * Metrics describing the use of Bio-Formats readers by a {@link BioFormatsImageServer}.
+	 * 
+	 * @param readerCount number of readers currently open
+	 * @param busyReaders number of readers currently in use
+	 * @param readerLimit maximum number of readers that may be opened, based on the options and estimated memory use
+	 * @param requestCount total number of requests for a reader
+	 * @param waitCount number of requests that could not be satisfied immediately by an idle reader
+	 * @param meanWaitMillis mean time spent waiting for a reader, across all requests
+	 * @param maxWaitMillis longest time spent waiting for a reader
+	 * @param meanOpenMillis mean time required to create and initialize a reader
+	 * @param closedReaders number of readers that have been closed after being idle
+	 * @param estimatedBytesPerReader estimated memory required for each reader, or 0 if unknown
+	 * @since v0.7.0
+	 */
+	public record ReaderPoolMetrics(int readerCount, int busyReaders, int readerLimit,
+			long requestCount, long waitCount, double meanWaitMillis, double maxWaitMillis,
+			double meanOpenMillis, int closedReaders, long estimatedBytesPerReader) {
+		
+		/**
+		 * Get the proportion of open readers that are currently in use.
+		 * @return a value between 0 and 1
+		 */
+		public double getUtilization() {
+			return readerCount == 0 ? 0 : Math.min(1.0, busyReaders / (double)readerCount);
+		}
+		
+	}
+	
 	/**
 	 * Retrieve a string representation of the metadata OME-XML.
 	 * 
@@ -1039,10 +1080,18 @@ public class BioFormatsImageServer extends AbstractTileableImageServer implement
 			logger.debug("Cannot get reader. Returning no path objects");
 			return List.of();
 		}
-		reader.setSeries(series);
+		MetadataStore store;
+		try {
+			synchronized (reader) {
+				reader.setSeries(series);
+				store = reader.getMetadataStore();
+			}
+		} finally {
+			readerPool.returnReader(reader);
+		}
 
-		if (!(reader.getMetadataStore().getRoot() instanceof OMEXMLMetadataRoot metadata)) {
-			logger.debug("Metadata store of reader {} not instance of OMEXMLMetadataRoot. Returning no path objects", reader.getMetadataStore());
+		if (!(store.getRoot() instanceof OMEXMLMetadataRoot metadata)) {
+			logger.debug("Metadata store of reader {} not instance of OMEXMLMetadataRoot. Returning no path objects", store);
 			return List.of();
 		}
 
@@ -1139,6 +1188,12 @@ public class BioFormatsImageServer extends AbstractTileableImageServer implement
 	/**
 	 * Helper class that manages a pool of readers.
 	 * The purpose is to allow multiple threads to take the next available reader, without
+	 * needing to create a new reader for every request.
+	 * <p>
+	 * The pool is adaptive: additional readers are only created when requests have needed to wait 
+	 * for a reader, up to a limit determined both by the options and by the estimated memory 
+	 * required for each reader.
+	 * Readers that have not been used for some time are closed, so that the pool can shrink again.
 	 */
 	static class ReaderPool implements AutoCloseable {
 		
@@ -1150,6 +1205,21 @@ public class BioFormatsImageServer extends AbstractTileableImageServer implement
 		 * Absolute maximum number of permitted readers (queue capacity)
 		 */
 		private static final int MAX_QUEUE_CAPACITY = 128;
+		
+		/**
+		 * Time to wait for a reader to become available before requesting that a new reader is created
+		 */
+		private static final long GROWTH_WAIT_MILLIS = 10L;
+		
+		/**
+		 * Time after which an unused additional reader may be closed
+		 */
+		private static final long IDLE_READER_NANOS = TimeUnit.SECONDS.toNanos(30L);
+		
+		/**
+		 * Maximum proportion of the available heap that should be used by all readers for a single image
+		 */
+		private static final double MAX_READER_MEMORY_FRACTION = 0.25;
 
 		private static ClassList<IFormatReader> defaultClassList;
 		
@@ -1162,7 +1232,21 @@ public class BioFormatsImageServer extends AbstractTileableImageServer implement
 		
 		private AtomicInteger totalReaders = new AtomicInteger(0);
 		private List<IFormatReader> additionalReaders = Collections.synchronizedList(new ArrayList<>());
-		private ArrayBlockingQueue<IFormatReader> queue;
+		// Idle readers, with the most recently used at the front
+		private LinkedBlockingDeque<IFormatReader> queue;
+		private Map<IFormatReader, Long> lastUsedNanos = new ConcurrentHashMap<>();
+		
+		private volatile int readerLimit;
+		private volatile long idleReaderNanos = IDLE_READER_NANOS;
+		
+		private AtomicInteger busyReaders = new AtomicInteger(0);
+		private LongAdder requestCount = new LongAdder();
+		private LongAdder waitCount = new LongAdder();
+		private LongAdder totalWaitNanos = new LongAdder();
+		private AtomicLong maxWaitNanos = new AtomicLong(0L);
+		private LongAdder openCount = new LongAdder();
+		private LongAdder totalOpenNanos = new LongAdder();
+		private AtomicInteger closedReaders = new AtomicInteger(0);
 		
 		private OMEPyramidStore metadata;
 		private IFormatReader mainReader;
@@ -1179,7 +1263,7 @@ public class BioFormatsImageServer extends AbstractTileableImageServer implement
 			this.args = args;
 			this.channels = channels;
 			
-			queue = new ArrayBlockingQueue<>(MAX_QUEUE_CAPACITY); // Set a reasonably large capacity (don't want to block when trying to add)
+			queue = new LinkedBlockingDeque<>(MAX_QUEUE_CAPACITY); // Set a reasonably large capacity (don't want to block when trying to add)
 			metadata = (OMEPyramidStore)MetadataTools.createOMEXMLMetadata();
 
 			timeoutSeconds = getTimeoutSeconds();
@@ -1191,6 +1275,8 @@ public class BioFormatsImageServer extends AbstractTileableImageServer implement
 			long endTime = System.currentTimeMillis();
 			logger.debug("Reader {} created in {} ms", mainReader, endTime - startTime);
 			
+			updateReaderLimit();
+			
 			// Make the main reader available
 			queue.add(mainReader);
 			
@@ -1245,6 +1331,49 @@ public class BioFormatsImageServer extends AbstractTileableImageServer implement
 			return mainReader;
 		}
 		
+		/**
+		 * Update the maximum number of readers, based upon the options and the estimated memory per reader.
+		 * <p>
+		 * The size of the memoization file is used to estimate the memory per reader, since this is a serialized 
+		 * form of an initialized reader. Images that aren't memoized (usually because they are quick to open) 
+		 * are only limited by the options; in any case, new readers are only created when requests have to wait.
+		 */
+		private void updateReaderLimit() {
+			int maxReaders = getMaxReaders();
+			long bytesPerReader = getMemoizationFileSize(id);
+			if (bytesPerReader > 0) {
+				long budget = (long)(Runtime.getRuntime().maxMemory() * MAX_READER_MEMORY_FRACTION);
+				long memoryLimit = Math.max(1L, budget / bytesPerReader);
+				if (memoryLimit < maxReaders) {
+					logger.debug("Limiting readers to {} for {} (estimated {} MB per reader)",
+							memoryLimit, id, GeneralTools.formatNumber(bytesPerReader / (1024.0 * 1024.0), 1));
+					maxReaders = (int)memoryLimit;
+				}
+			}
+			readerLimit = maxReaders;
+		}
+		
+		/**
+		 * Get a snapshot of the current state of the pool.
+		 * @return
+		 */
+		ReaderPoolMetrics getMetrics() {
+			long nRequests = requestCount.sum();
+			long nOpened = openCount.sum();
+			return new ReaderPoolMetrics(
+					totalReaders.get(),
+					busyReaders.get(),
+					readerLimit,
+					nRequests,
+					waitCount.sum(),
+					nRequests == 0 ? 0.0 : totalWaitNanos.sum() / 1e6 / nRequests,
+					maxWaitNanos.get() / 1e6,
+					nOpened == 0 ? 0.0 : totalOpenNanos.sum() / 1e6 / nOpened,
+					closedReaders.get(),
+					getMemoizationFileSize(id)
+					);
+		}
+		
 		private void createAdditionalReader(BioFormatsServerOptions options, final ClassList<IFormatReader> classList, 
 				final String id, BioFormatsArgs args) {
 			try {
@@ -1254,7 +1383,10 @@ public class BioFormatsImageServer extends AbstractTileableImageServer implement
 				var newReader = createReader(options, classList, id, null, args);
 				if (newReader != null) {
 					additionalReaders.add(newReader);
-					queue.add(newReader);
+					// The memoization file may have been written by now
+					updateReaderLimit();
+					lastUsedNanos.put(newReader, System.nanoTime());
+					queue.addFirst(newReader);
 					logger.debug("Created new reader (total={})", additionalReaders.size());
 				} else
 					logger.warn("New Bio-Formats reader could not be created (returned null)");
@@ -1286,13 +1418,14 @@ public class BioFormatsImageServer extends AbstractTileableImageServer implement
 		private IFormatReader createReader(final BioFormatsServerOptions options, final ClassList<IFormatReader> classList, 
 				final String id, final MetadataStore store, BioFormatsArgs args) throws FormatException, IOException {
 			
-			int maxReaders = getMaxReaders();
+			int maxReaders = mainReader == null ? getMaxReaders() : readerLimit;
 			int nReaders = totalReaders.getAndIncrement();
-			if (mainReader != null && nReaders > maxReaders) {
+			if (mainReader != null && nReaders >= maxReaders) {
 				logger.warn("No new reader will be created (already created {}, max readers {})", nReaders, maxReaders);
 				totalReaders.decrementAndGet();
 				return null;
 			}
+			long startTime = System.nanoTime();
 			
 			IFormatReader imageReader;
 			Matcher zarrMatcher = ZARR_FILE_PATTERN.matcher(id.toLowerCase());
@@ -1424,28 +1557,59 @@ public class BioFormatsImageServer extends AbstractTileableImageServer implement
 			}
 			
 			
-			cleanables.add(cleaner.register(this,
-					new ReaderCleaner(Integer.toString(cleanables.size()+1), imageReader)));
+			cleanables.put(imageReader, cleaner.register(this,
+					new ReaderCleaner(Integer.toString(cleanerCount.incrementAndGet()), imageReader)));
+			
+			openCount.increment();
+			totalOpenNanos.add(System.nanoTime() - startTime);
 			
 			return imageReader;
 		}
 		
 				
 		
-		private IFormatReader nextQueuedReader() {
-			var nextReader = queue.poll();
-			if (nextReader != null)
-				return nextReader;
-			synchronized (this) {
-				if (!isClosed && (task == null || task.isDone()) && totalReaders.get() < getMaxReaders()) {
-					logger.debug("Requesting reader for {}", id);
-					task = ForkJoinPool.commonPool().submit(() -> createAdditionalReader(options, classList, id, args));				
-				}
+		/**
+		 * Set the time after which an unused additional reader may be closed.
+		 * This is mostly useful for testing.
+		 * @param duration
+		 * @param unit
+		 */
+		void setIdleReaderTimeout(long duration, TimeUnit unit) {
+			idleReaderNanos = unit.toNanos(duration);
+		}
+		
+		IFormatReader nextQueuedReader() {
+			long startTime = System.nanoTime();
+			requestCount.increment();
+			var nextReader = queue.pollFirst();
+			if (nextReader == null) {
+				waitCount.increment();
+				nextReader = awaitQueuedReader();
+				long waitNanos = System.nanoTime() - startTime;
+				totalWaitNanos.add(waitNanos);
+				maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
 			}
-			if (isClosed)
-				return null;
+			if (nextReader != null)
+				busyReaders.incrementAndGet();
+			return nextReader;
+		}
+		
+		private IFormatReader awaitQueuedReader() {
 			try {
-				var reader = queue.poll(timeoutSeconds, TimeUnit.SECONDS);
+				// Give a busy reader a chance to be returned before we create a new one,
+				// since each reader can require a lot of memory
+				var reader = queue.pollFirst(GROWTH_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+				if (reader != null)
+					return reader;
+				synchronized (this) {
+					if (!isClosed && (task == null || task.isDone()) && totalReaders.get() < readerLimit) {
+						logger.debug("Requesting reader for {}", id);
+						task = ForkJoinPool.commonPool().submit(() -> createAdditionalReader(options, classList, id, args));				
+					}
+				}
+				if (isClosed)
+					return null;
+				reader = queue.pollFirst(timeoutSeconds, TimeUnit.SECONDS);
 				// See https://github.com/qupath/qupath/issues/1265
 				if (reader == null) {
 					logger.warn("Bio-Formats reader request timed out after {} seconds - returning main reader", timeoutSeconds);
@@ -1458,6 +1622,38 @@ public class BioFormatsImageServer extends AbstractTileableImageServer implement
 			}
 		}
 		
+		/**
+		 * Return a reader to the pool after use.
+		 * This also gives an opportunity to close the least recently used reader, if it has been idle for long enough.
+		 * @param reader
+		 */
+		void returnReader(IFormatReader reader) {
+			if (reader == null)
+				return;
+			busyReaders.decrementAndGet();
+			long now = System.nanoTime();
+			lastUsedNanos.put(reader, now);
+			queue.offerFirst(reader);
+			
+			var idleReader = queue.peekLast();
+			if (idleReader == null || idleReader == mainReader || isClosed)
+				return;
+			long lastUsed = lastUsedNanos.getOrDefault(idleReader, now);
+			if (now - lastUsed > idleReaderNanos && queue.removeLastOccurrence(idleReader))
+				closeAdditionalReader(idleReader);
+		}
+		
+		private void closeAdditionalReader(IFormatReader reader) {
+			additionalReaders.remove(reader);
+			lastUsedNanos.remove(reader);
+			totalReaders.decrementAndGet();
+			closedReaders.incrementAndGet();
+			var cleanable = cleanables.remove(reader);
+			if (cleanable != null)
+				cleanable.clean();
+			logger.debug("Closed idle reader for {} (total={})", id, additionalReaders.size());
+		}
+		
 		
 		BufferedImage openImage(TileRequest tileRequest, int series, int nChannels, boolean isRGB, ColorModel colorModel) throws IOException, InterruptedException {
 			int level = tileRequest.getLevel();
@@ -1545,7 +1741,7 @@ public class BioFormatsImageServer extends AbstractTileableImageServer implement
 					}
 				}
 			} finally {
-				queue.put(ipReader);
+				returnReader(ipReader);
 			}
 
 			OMEPixelParser omePixelParser = new OMEPixelParser.Builder()
@@ -1614,7 +1810,7 @@ public class BioFormatsImageServer extends AbstractTileableImageServer implement
 					}
 				}
 			} finally {
-				queue.put(reader);
+				returnReader(reader);
 			}
 		}
 		
@@ -1637,10 +1833,12 @@ public class BioFormatsImageServer extends AbstractTileableImageServer implement
 		@Override
 		public void close() throws Exception {
 			logger.debug("Closing ReaderManager");
+			if (logger.isDebugEnabled())
+				logger.debug("Reader pool for {}: {}", id, getMetrics());
 			isClosed = true;
 			if (task != null && !task.isDone())
 				task.cancel(true);
-			for (var c : cleanables) {
+			for (var c : new ArrayList<>(cleanables.values())) {
 				try {
 					c.clean();
 				} catch (Exception e) {
@@ -1651,7 +1849,8 @@ public class BioFormatsImageServer extends AbstractTileableImageServer implement
 
 		
 		private static final Cleaner cleaner = Cleaner.create();
-		private final List<Cleanable> cleanables = new ArrayList<>();
+		private final Map<IFormatReader, Cleanable> cleanables = new ConcurrentHashMap<>();
+		private final AtomicInteger cleanerCount = new AtomicInteger(0);
 
 
 		/**
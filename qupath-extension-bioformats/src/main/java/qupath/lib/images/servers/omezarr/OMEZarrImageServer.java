@@ -0,0 +1,521 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.servers.omezarr;
+
+import java.awt.image.BandedSampleModel;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferDouble;
+import java.awt.image.DataBufferFloat;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferShort;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bc.zarr.DataType;
+import com.bc.zarr.ZarrArray;
+import com.bc.zarr.ZarrGroup;
+
+import qupath.lib.color.ColorModelFactory;
+import qupath.lib.common.ColorTools;
+import qupath.lib.common.GeneralTools;
+import qupath.lib.images.servers.AbstractTileableImageServer;
+import qupath.lib.images.servers.ImageChannel;
+import qupath.lib.images.servers.ImageServerBuilder.DefaultImageServerBuilder;
+import qupath.lib.images.servers.ImageServerBuilder.ServerBuilder;
+import qupath.lib.images.servers.ImageServerMetadata;
+import qupath.lib.images.servers.ImageServerMetadata.ImageResolutionLevel;
+import qupath.lib.images.servers.PixelType;
+import qupath.lib.images.servers.TileRequest;
+
+/**
+ * ImageServer that reads OME-Zarr images directly, without requiring Bio-Formats.
+ * <p>
+ * This supports images that follow version 0.4 of the
+ * <a href="https://ngff.openmicroscopy.org/0.4/index.html">Next-generation file formats (NGFF)</a> specification
+ * (including the "bioformats2raw.layout" and "omero" metadata) and are stored either in a local directory
+ * or in an uncompressed zip file.
+ * <p>
+ * The preferred tile size is the chunk size of the full resolution array, so that each tile request
+ * corresponds to exactly one chunk per channel.
+ * Tiles are decoded independently without any locking, so can be read in parallel.
+ *
+ * @author Pete Bankhead
+ * @since v0.7.0
+ */
+public class OMEZarrImageServer extends AbstractTileableImageServer {
+
+	private static final Logger logger = LoggerFactory.getLogger(OMEZarrImageServer.class);
+
+	private static final String ZATTRS = ".zattrs";
+	private static final String ZGROUP = ".zgroup";
+	private static final String OME_XML = "OME/METADATA.ome.xml";
+
+	private final URI uri;
+	private final String[] args;
+
+	private final FileSystem zipFileSystem;
+	private final List<String> allSeries;
+	private final ZarrArray[] levelArrays;
+
+	// Indices of each dimension in the arrays, or -1 if the dimension is absent
+	private final int indT, indC, indZ, indY, indX;
+
+	private final ImageServerMetadata originalMetadata;
+	private final ColorModel colorModel;
+
+	/**
+	 * Create an ImageServer for an OME-Zarr image.
+	 * @param uri the URI of the image, which should be a local directory or zip file
+	 * @param args optional arguments; {@code --series} can be used to specify the name of the image
+	 *             if the OME-Zarr uses the "bioformats2raw.layout" and contains multiple images
+	 * @throws IOException if the image could not be read
+	 */
+	public OMEZarrImageServer(URI uri, String... args) throws IOException {
+		super();
+		this.uri = uri;
+		this.args = args;
+
+		var path = GeneralTools.toPath(uri);
+		if (path == null)
+			throw new IOException("Only local OME-Zarr images are supported, cannot open " + uri);
+		this.zipFileSystem = Files.isDirectory(path) ? null : FileSystems.newFileSystem(path);
+
+		try {
+			var root = findZarrRoot(zipFileSystem == null ? path : zipFileSystem.getPath("/"));
+			if (root == null)
+				throw new IOException("No Zarr group found in " + path);
+
+			var series = parseSeries(args);
+			var imageRoot = root;
+			var attributes = ZarrGroup.open(root).getAttributes();
+			if (attributes.containsKey("multiscales")) {
+				allSeries = Collections.emptyList();
+			} else {
+				allSeries = getSeries(root);
+				if (series == null) {
+					if (allSeries.isEmpty())
+						throw new IOException("No OME-Zarr multiscales found in " + path);
+					series = allSeries.getFirst();
+				}
+				imageRoot = root.resolve(series);
+				attributes = ZarrGroup.open(imageRoot).getAttributes();
+			}
+
+			var multiscales = getMap(getList(attributes, "multiscales"), 0);
+			if (multiscales == null)
+				throw new IOException("No OME-Zarr multiscales found in " + imageRoot);
+
+			var datasets = getList(multiscales, "datasets");
+			if (datasets.isEmpty())
+				throw new IOException("No datasets found in OME-Zarr multiscales");
+			levelArrays = new ZarrArray[datasets.size()];
+			for (int level = 0; level < levelArrays.length; level++) {
+				var dataset = getMap(datasets, level);
+				if (dataset == null || dataset.get("path") == null)
+					throw new IOException("Invalid OME-Zarr dataset at level " + level);
+				levelArrays[level] = ZarrArray.open(imageRoot.resolve(String.valueOf(dataset.get("path"))));
+			}
+
+			// Determine the axes, assuming the default order if they aren't specified (as in versions < 0.3)
+			var fullResArray = levelArrays[0];
+			int nDims = fullResArray.getShape().length;
+			var axes = getAxisNames(getList(multiscales, "axes"), nDims);
+			indT = axes.indexOf("t");
+			indC = axes.indexOf("c");
+			indZ = axes.indexOf("z");
+			indY = axes.indexOf("y");
+			indX = axes.indexOf("x");
+			if (indY < 0 || indX < 0)
+				throw new IOException("OME-Zarr image must have x and y axes, but found " + axes);
+
+			var pixelType = getPixelType(fullResArray.getDataType());
+			int[] shape = fullResArray.getShape();
+			int[] chunks = fullResArray.getChunks();
+			int width = shape[indX];
+			int height = shape[indY];
+			int nChannels = getSize(shape, indC);
+
+			var levelBuilder = new ImageResolutionLevel.Builder(width, height)
+					.addFullResolutionLevel();
+			for (int level = 1; level < levelArrays.length; level++) {
+				int[] levelShape = levelArrays[level].getShape();
+				levelBuilder.addLevel(levelShape[indX], levelShape[indY]);
+			}
+
+			var channels = getChannels(attributes, nChannels);
+			boolean isRGB = pixelType == PixelType.UINT8 && ImageChannel.getDefaultRGBChannels().equals(channels);
+
+			var builder = new ImageServerMetadata.Builder()
+					.width(width)
+					.height(height)
+					.name(getName(multiscales, path, series))
+					.sizeZ(getSize(shape, indZ))
+					.sizeT(getSize(shape, indT))
+					.pixelType(pixelType)
+					.rgb(isRGB)
+					.channels(channels)
+					.levels(levelBuilder.build())
+					.preferredTileSize(chunks[indX], chunks[indY]);
+
+			var scales = getScales(getMap(datasets, 0), nDims);
+			var axesList = getList(multiscales, "axes");
+			double pixelWidth = getMicrons(axesList, indX, scales);
+			double pixelHeight = getMicrons(axesList, indY, scales);
+			if (Double.isFinite(pixelWidth) && Double.isFinite(pixelHeight))
+				builder.pixelSizeMicrons(pixelWidth, pixelHeight);
+			double zSpacing = getMicrons(axesList, indZ, scales);
+			if (Double.isFinite(zSpacing))
+				builder.zSpacingMicrons(zSpacing);
+
+			double magnification = readMagnification(root.resolve(OME_XML));
+			if (Double.isFinite(magnification))
+				builder.magnification(magnification);
+
+			originalMetadata = builder.build();
+			colorModel = isRGB ? null : ColorModelFactory.createColorModel(pixelType, channels);
+		} catch (IOException | RuntimeException e) {
+			if (zipFileSystem != null)
+				zipFileSystem.close();
+			throw e;
+		}
+	}
+
+	@Override
+	protected BufferedImage readTile(TileRequest tileRequest) throws IOException {
+		var array = levelArrays[tileRequest.getLevel()];
+		int width = tileRequest.getTileWidth();
+		int height = tileRequest.getTileHeight();
+
+		int[] shape = new int[array.getShape().length];
+		Arrays.fill(shape, 1);
+		shape[indY] = height;
+		shape[indX] = width;
+
+		int[] offset = new int[shape.length];
+		offset[indY] = tileRequest.getTileY();
+		offset[indX] = tileRequest.getTileX();
+		if (indZ >= 0)
+			offset[indZ] = tileRequest.getZ();
+		if (indT >= 0)
+			offset[indT] = tileRequest.getT();
+
+		// Since channels are stored in separate chunks, read each one directly into its own bank
+		int nChannels = nChannels();
+		Object[] banks = new Object[nChannels];
+		for (int c = 0; c < nChannels; c++) {
+			if (indC >= 0)
+				offset[indC] = c;
+			try {
+				banks[c] = array.read(shape, offset);
+			} catch (IOException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new IOException("Unable to read " + tileRequest + " from OME-Zarr", e);
+			}
+		}
+
+		if (isRGB())
+			return createRGBImage(banks, width, height);
+
+		var buffer = createDataBuffer(getPixelType(), banks, width * height);
+		var sampleModel = new BandedSampleModel(buffer.getDataType(), width, height, nChannels);
+		var raster = WritableRaster.createWritableRaster(sampleModel, buffer, null);
+		return new BufferedImage(colorModel, raster, false, null);
+	}
+
+	private static BufferedImage createRGBImage(Object[] banks, int width, int height) {
+		var img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		int[] rgb = ((DataBufferInt)img.getRaster().getDataBuffer()).getData();
+		byte[] red = (byte[])banks[0];
+		byte[] green = (byte[])banks[1];
+		byte[] blue = (byte[])banks[2];
+		for (int i = 0; i < rgb.length; i++)
+			rgb[i] = ColorTools.packRGB(red[i], green[i], blue[i]);
+		return img;
+	}
+
+	private static DataBuffer createDataBuffer(PixelType pixelType, Object[] banks, int size) throws IOException {
+		try {
+			return switch (pixelType) {
+				case UINT8 -> new DataBufferByte(Arrays.copyOf(banks, banks.length, byte[][].class), size);
+				case INT16 -> new DataBufferShort(Arrays.copyOf(banks, banks.length, short[][].class), size);
+				case UINT16 -> new DataBufferUShort(Arrays.copyOf(banks, banks.length, short[][].class), size);
+				case INT32 -> new DataBufferInt(Arrays.copyOf(banks, banks.length, int[][].class), size);
+				case FLOAT32 -> new DataBufferFloat(Arrays.copyOf(banks, banks.length, float[][].class), size);
+				case FLOAT64 -> new DataBufferDouble(Arrays.copyOf(banks, banks.length, double[][].class), size);
+				default -> throw new IOException("Unsupported pixel type " + pixelType);
+			};
+		} catch (ArrayStoreException e) {
+			throw new IOException("Unexpected array type read from OME-Zarr for pixel type " + pixelType, e);
+		}
+	}
+
+	/**
+	 * Get builders for all the images within the OME-Zarr.
+	 * @return a map of image names and builders
+	 */
+	Map<String, ServerBuilder<BufferedImage>> getImageBuilders() {
+		if (allSeries.size() <= 1 || parseSeries(args) != null)
+			return Collections.singletonMap(getMetadata().getName(), getBuilder());
+		Map<String, ServerBuilder<BufferedImage>> builders = new LinkedHashMap<>();
+		for (var series : allSeries) {
+			builders.put(series, DefaultImageServerBuilder.createInstance(
+					OMEZarrServerBuilder.class, null, uri, "--series", series));
+		}
+		return builders;
+	}
+
+	@Override
+	public Collection<URI> getURIs() {
+		return Collections.singletonList(uri);
+	}
+
+	@Override
+	protected String createID() {
+		String id = getClass().getName() + ": " + uri.toString();
+		if (args.length > 0)
+			id += "[" + String.join(", ", args) + "]";
+		return id;
+	}
+
+	@Override
+	public String getServerType() {
+		return "OME-Zarr";
+	}
+
+	@Override
+	public ImageServerMetadata getOriginalMetadata() {
+		return originalMetadata;
+	}
+
+	@Override
+	protected ServerBuilder<BufferedImage> createServerBuilder() {
+		return DefaultImageServerBuilder.createInstance(OMEZarrServerBuilder.class, getMetadata(), uri, args);
+	}
+
+	@Override
+	public void close() throws Exception {
+		super.close();
+		if (zipFileSystem != null)
+			zipFileSystem.close();
+	}
+
+
+	/**
+	 * Find the root Zarr group, which is either the provided path or a single directory within it
+	 * (as is common when an OME-Zarr directory has been zipped).
+	 * @param path
+	 * @return the root group, or null if none could be found
+	 * @throws IOException
+	 */
+	static Path findZarrRoot(Path path) throws IOException {
+		if (isZarrGroup(path))
+			return path;
+		try (Stream<Path> stream = Files.list(path)) {
+			var dirs = stream.filter(Files::isDirectory).toList();
+			if (dirs.size() == 1 && isZarrGroup(dirs.getFirst()))
+				return dirs.getFirst();
+		}
+		return null;
+	}
+
+	private static boolean isZarrGroup(Path path) {
+		return Files.isRegularFile(path.resolve(ZGROUP)) || Files.isRegularFile(path.resolve(ZATTRS));
+	}
+
+	/**
+	 * Get the names of the images stored according to the "bioformats2raw.layout", i.e. as
+	 * consecutively-numbered groups within the root.
+	 * @param root
+	 * @return
+	 */
+	static List<String> getSeries(Path root) {
+		List<String> series = new ArrayList<>();
+		while (Files.isRegularFile(root.resolve(String.valueOf(series.size())).resolve(ZATTRS)))
+			series.add(String.valueOf(series.size()));
+		return series;
+	}
+
+	private static String parseSeries(String... args) {
+		for (int i = 0; i < args.length - 1; i++) {
+			if ("--series".equals(args[i]))
+				return args[i+1];
+		}
+		return null;
+	}
+
+	private static String getName(Map<?, ?> multiscales, Path path, String series) {
+		if (multiscales.get("name") instanceof String name && !name.isBlank())
+			return name;
+		var fileName = path.getFileName() == null ? path.toString() : path.getFileName().toString();
+		// Handle .ome.zarr.zip as well as .ome.zarr
+		var name = GeneralTools.stripExtension(GeneralTools.stripExtension(fileName));
+		return series == null ? name : name + " - " + series;
+	}
+
+	private static List<String> getAxisNames(List<?> axes, int nDims) throws IOException {
+		if (axes.isEmpty()) {
+			var defaultAxes = List.of("t", "c", "z", "y", "x");
+			if (nDims > defaultAxes.size())
+				throw new IOException("Unexpected number of dimensions: " + nDims);
+			return defaultAxes.subList(defaultAxes.size() - nDims, defaultAxes.size());
+		}
+		if (axes.size() != nDims)
+			throw new IOException("Number of axes (" + axes.size() + ") does not match array dimensions (" + nDims + ")");
+		List<String> names = new ArrayList<>();
+		for (var axis : axes) {
+			// Axes are maps from version 0.4, but strings in version 0.3
+			var name = axis instanceof Map<?, ?> map ? map.get("name") : axis;
+			names.add(String.valueOf(name).toLowerCase());
+		}
+		return names;
+	}
+
+	private static double[] getScales(Map<?, ?> dataset, int nDims) {
+		if (dataset != null) {
+			for (var transform : getList(dataset, "coordinateTransformations")) {
+				if (transform instanceof Map<?, ?> map && "scale".equals(map.get("type"))) {
+					var scale = getList(map, "scale");
+					if (scale.size() == nDims)
+						return scale.stream().mapToDouble(OMEZarrImageServer::toDouble).toArray();
+				}
+			}
+		}
+		return null;
+	}
+
+	private static double getMicrons(List<?> axes, int ind, double[] scales) {
+		if (ind < 0 || scales == null || ind >= axes.size() || !(axes.get(ind) instanceof Map<?, ?> axis))
+			return Double.NaN;
+		double scale = scales[ind];
+		var unit = axis.get("unit");
+		if (!(scale > 0) || unit == null)
+			return Double.NaN;
+		return switch (String.valueOf(unit)) {
+			case "micrometer" -> scale;
+			case "nanometer" -> scale / 1000.0;
+			case "millimeter" -> scale * 1000.0;
+			default -> Double.NaN;
+		};
+	}
+
+	private static List<ImageChannel> getChannels(Map<?, ?> attributes, int nChannels) {
+		var defaultChannels = ImageChannel.getDefaultChannelList(nChannels);
+		var omero = attributes.get("omero");
+		if (!(omero instanceof Map<?, ?> omeroMap))
+			return defaultChannels;
+		var omeroChannels = getList(omeroMap, "channels");
+		if (omeroChannels.size() != nChannels) {
+			logger.warn("Number of omero channels ({}) does not match image ({}) - will use default channels", omeroChannels.size(), nChannels);
+			return defaultChannels;
+		}
+		List<ImageChannel> channels = new ArrayList<>();
+		for (int c = 0; c < nChannels; c++) {
+			var defaultChannel = defaultChannels.get(c);
+			var channel = getMap(omeroChannels, c);
+			var label = channel == null ? null : channel.get("label");
+			var color = channel == null ? null : channel.get("color");
+			String name = label instanceof String s && !s.isBlank() ? s : defaultChannel.getName();
+			Integer rgb = defaultChannel.getColor();
+			if (color instanceof String s && s.length() == 6) {
+				try {
+					int packed = Integer.parseInt(s, 16);
+					rgb = ColorTools.packRGB(ColorTools.red(packed), ColorTools.green(packed), ColorTools.blue(packed));
+				} catch (NumberFormatException e) {
+					logger.debug("Unable to parse channel color {}", s);
+				}
+			}
+			channels.add(ImageChannel.getInstance(name, rgb));
+		}
+		return channels;
+	}
+
+	private static double readMagnification(Path omeXml) {
+		if (!Files.isRegularFile(omeXml))
+			return Double.NaN;
+		try (InputStream stream = Files.newInputStream(omeXml)) {
+			var factory = DocumentBuilderFactory.newInstance();
+			factory.setNamespaceAware(true);
+			var objectives = factory.newDocumentBuilder().parse(stream).getElementsByTagNameNS("*", "Objective");
+			for (int i = 0; i < objectives.getLength(); i++) {
+				var node = objectives.item(i).getAttributes().getNamedItem("NominalMagnification");
+				if (node != null)
+					return Double.parseDouble(node.getNodeValue());
+			}
+		} catch (Exception e) {
+			logger.debug("Unable to read magnification from {}", omeXml, e);
+		}
+		return Double.NaN;
+	}
+
+	private static PixelType getPixelType(DataType dataType) throws IOException {
+		return switch (dataType) {
+			case u1 -> PixelType.UINT8;
+			case i2 -> PixelType.INT16;
+			case u2 -> PixelType.UINT16;
+			case i4 -> PixelType.INT32;
+			case f4 -> PixelType.FLOAT32;
+			case f8 -> PixelType.FLOAT64;
+			default -> throw new IOException("Unsupported OME-Zarr data type " + dataType);
+		};
+	}
+
+	private static int getSize(int[] shape, int ind) {
+		return ind < 0 ? 1 : shape[ind];
+	}
+
+	private static double toDouble(Object value) {
+		return value instanceof Number n ? n.doubleValue() : Double.NaN;
+	}
+
+	private static List<?> getList(Map<?, ?> map, String key) {
+		return map != null && map.get(key) instanceof List<?> list ? list : Collections.emptyList();
+	}
+
+	private static Map<?, ?> getMap(List<?> list, int ind) {
+		return ind < list.size() && list.get(ind) instanceof Map<?, ?> map ? map : null;
+	}
+
+}
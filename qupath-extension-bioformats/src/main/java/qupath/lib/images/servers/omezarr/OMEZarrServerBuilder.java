@@ -0,0 +1,119 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.servers.omezarr;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import qupath.lib.common.GeneralTools;
+import qupath.lib.images.servers.ImageServer;
+import qupath.lib.images.servers.ImageServerBuilder;
+
+/**
+ * Builder for ImageServers that read OME-Zarr images directly from a local directory or zip file.
+ * <p>
+ * This has a higher support level than Bio-Formats for OME-Zarr images, since it avoids the overhead
+ * of a Bio-Formats reader pool and reads chunks directly.
+ *
+ * @author Pete Bankhead
+ * @since v0.7.0
+ */
+public class OMEZarrServerBuilder implements ImageServerBuilder<BufferedImage> {
+
+	private static final Logger logger = LoggerFactory.getLogger(OMEZarrServerBuilder.class);
+
+	@Override
+	public ImageServer<BufferedImage> buildServer(URI uri, String... args) {
+		try {
+			return new OMEZarrImageServer(uri, args);
+		} catch (Exception e) {
+			logger.error("Unable to open {}: {}", uri, e.getMessage(), e);
+		}
+		return null;
+	}
+
+	@Override
+	public UriImageSupport<BufferedImage> checkImageSupport(URI uri, String... args) {
+		float supportLevel = supportLevel(uri);
+		if (supportLevel > 0) {
+			try (var server = new OMEZarrImageServer(uri, args)) {
+				return UriImageSupport.createInstance(this.getClass(), supportLevel, server.getImageBuilders().values());
+			} catch (Exception e) {
+				logger.debug("Unable to create OME-Zarr server for {}", uri, e);
+			}
+		}
+		return null;
+	}
+
+	private static float supportLevel(URI uri) {
+		var path = GeneralTools.toPath(uri);
+		if (path == null)
+			return 0;
+		try {
+			if (Files.isDirectory(path))
+				return OMEZarrImageServer.findZarrRoot(path) == null ? 0 : 4f;
+			if (path.getFileName().toString().toLowerCase().endsWith(".zip") && Files.isRegularFile(path)) {
+				try (var fs = FileSystems.newFileSystem(path)) {
+					return OMEZarrImageServer.findZarrRoot(fs.getPath("/")) == null ? 0 : 4f;
+				}
+			}
+		} catch (IOException e) {
+			logger.debug("Unable to check OME-Zarr support for {}", path, e);
+		}
+		return 0;
+	}
+
+	@Override
+	public String getName() {
+		return "OME-Zarr builder";
+	}
+
+	@Override
+	public String getDescription() {
+		return "Read OME-Zarr images stored in a local directory or zip file, without using Bio-Formats";
+	}
+
+	@Override
+	public Class<BufferedImage> getImageType() {
+		return BufferedImage.class;
+	}
+
+	@Override
+	public boolean matchClassName(String... classNames) {
+		for (var className : classNames) {
+			if (this.getClass().getName().equals(className) ||
+					this.getClass().getSimpleName().equals(className) ||
+					OMEZarrImageServer.class.getName().equals(className) ||
+					OMEZarrImageServer.class.getSimpleName().equals(className) ||
+					"omezarr".equalsIgnoreCase(className))
+				return true;
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,4 @@
+/**
+ * Read OME-Zarr images directly (https://ngff.openmicroscopy.org/).
+ */
+package qupath.lib.images.servers.omezarr;
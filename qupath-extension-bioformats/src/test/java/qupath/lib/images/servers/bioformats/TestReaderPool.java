@@ -0,0 +1,202 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+
+package qupath.lib.images.servers.bioformats;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import qupath.lib.images.servers.bioformats.BioFormatsImageServer.BioFormatsArgs;
+import qupath.lib.images.servers.bioformats.BioFormatsImageServer.ReaderPool;
+
+/**
+ * Test growing and shrinking the pool of Bio-Formats readers, using the Bio-Formats 'fake' format.
+ */
+public class TestReaderPool {
+	
+	private static final String TIMEOUT_PROPERTY = "bioformats.readerpool.timeout";
+	
+	private static final BioFormatsServerOptions options = BioFormatsServerOptions.getInstance();
+	
+	@TempDir
+	Path dir;
+	
+	private int previousMaxReaders;
+	private int previousMemoizationTime;
+	private String previousTimeout;
+	
+	@BeforeEach
+	void setUp() {
+		previousMaxReaders = options.getMaxReaders();
+		previousMemoizationTime = options.getMemoizationTimeMillis();
+		previousTimeout = System.getProperty(TIMEOUT_PROPERTY);
+		options.setMaxReaders(2);
+		// Don't write memoization files for the fake images
+		options.setMemoizationTimeMillis(-1);
+		// Don't wait too long for a reader if the pool isn't growing as expected
+		System.setProperty(TIMEOUT_PROPERTY, "10");
+	}
+	
+	@AfterEach
+	void tearDown() {
+		options.setMaxReaders(previousMaxReaders);
+		options.setMemoizationTimeMillis(previousMemoizationTime);
+		if (previousTimeout == null)
+			System.clearProperty(TIMEOUT_PROPERTY);
+		else
+			System.setProperty(TIMEOUT_PROPERTY, previousTimeout);
+	}
+	
+	@Test
+	public void test_growthAfterWait() throws Exception {
+		try (var pool = createPool()) {
+			var first = pool.nextQueuedReader();
+			assertSame(pool.getMainReader(), first);
+			assertEquals(1, pool.getMetrics().readerCount());
+			assertEquals(0, pool.getMetrics().waitCount());
+			
+			// No reader is idle, so a new one should be created after a short wait
+			var second = pool.nextQueuedReader();
+			assertNotNull(second);
+			assertNotSame(first, second);
+			var metrics = pool.getMetrics();
+			assertEquals(2, metrics.readerCount());
+			assertEquals(2, metrics.busyReaders());
+			assertEquals(1, metrics.waitCount());
+			
+			pool.returnReader(second);
+			pool.returnReader(first);
+			assertEquals(0, pool.getMetrics().busyReaders());
+			
+			// The most recently returned reader should be reused without waiting
+			var third = pool.nextQueuedReader();
+			assertSame(first, third);
+			pool.returnReader(third);
+			metrics = pool.getMetrics();
+			assertEquals(2, metrics.readerCount());
+			assertEquals(1, metrics.waitCount());
+			assertEquals(3, metrics.requestCount());
+		}
+	}
+	
+	@Test
+	public void test_limit() throws Exception {
+		try (var pool = createPool()) {
+			var first = pool.nextQueuedReader();
+			var second = pool.nextQueuedReader();
+			assertEquals(2, pool.getMetrics().readerCount());
+			
+			// We're at the limit, so the request should wait for a reader to be returned
+			var future = CompletableFuture.supplyAsync(pool::nextQueuedReader);
+			Thread.sleep(200L);
+			assertFalse(future.isDone());
+			assertEquals(2, pool.getMetrics().readerCount());
+			
+			pool.returnReader(second);
+			var third = future.get(5, TimeUnit.SECONDS);
+			assertSame(second, third);
+			assertEquals(2, pool.getMetrics().readerCount());
+			
+			pool.returnReader(first);
+			pool.returnReader(third);
+			assertEquals(0, pool.getMetrics().busyReaders());
+		}
+	}
+	
+	@Test
+	public void test_shrinkAfterIdle() throws Exception {
+		try (var pool = createPool()) {
+			var first = pool.nextQueuedReader();
+			var second = pool.nextQueuedReader();
+			pool.returnReader(second);
+			pool.returnReader(first);
+			
+			// Readers shouldn't be closed before the idle timeout
+			var reader = pool.nextQueuedReader();
+			pool.returnReader(reader);
+			assertEquals(2, pool.getMetrics().readerCount());
+			assertEquals(0, pool.getMetrics().closedReaders());
+			
+			// The least recently used reader should be closed when another reader is returned
+			pool.setIdleReaderTimeout(10L, TimeUnit.MILLISECONDS);
+			Thread.sleep(50L);
+			reader = pool.nextQueuedReader();
+			assertSame(first, reader);
+			pool.returnReader(reader);
+			var metrics = pool.getMetrics();
+			assertEquals(1, metrics.readerCount());
+			assertEquals(1, metrics.closedReaders());
+			
+			// The main reader should never be closed
+			Thread.sleep(50L);
+			reader = pool.nextQueuedReader();
+			assertSame(pool.getMainReader(), reader);
+			pool.returnReader(reader);
+			assertEquals(1, pool.getMetrics().readerCount());
+			assertEquals(1, pool.getMetrics().closedReaders());
+		}
+	}
+	
+	@Test
+	public void test_readPathObjectsReturnsReader() throws Exception {
+		var path = createFakeImage();
+		try (var server = new BioFormatsImageServer(path.toUri(), options)) {
+			long requestCount = server.getReaderPoolMetrics().requestCount();
+			// Request more times than there are readers - this would block if readers weren't returned
+			for (int i = 0; i < 5; i++) {
+				assertTrue(server.readPathObjects().isEmpty());
+				assertEquals(0, server.getReaderPoolMetrics().busyReaders());
+			}
+			var metrics = server.getReaderPoolMetrics();
+			assertEquals(requestCount + 5, metrics.requestCount());
+			assertEquals(0, metrics.waitCount());
+		}
+	}
+	
+	private ReaderPool createPool() throws Exception {
+		var pool = new ReaderPool(options, createFakeImage().toString(), BioFormatsArgs.parse(new String[0]), new ArrayList<>());
+		// The limit can be reduced if there isn't enough memory for the requested number of readers
+		assumeTrue(pool.getMetrics().readerLimit() == 2, "Not enough memory available to test multiple readers");
+		return pool;
+	}
+	
+	private Path createFakeImage() throws Exception {
+		return Files.createFile(dir.resolve("test&sizeX=64&sizeY=64.fake"));
+	}
+
+}
@@ -0,0 +1,162 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.images.servers.omezarr;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import qupath.lib.awt.common.BufferedImageTools;
+import qupath.lib.common.ColorTools;
+import qupath.lib.images.servers.ImageChannel;
+import qupath.lib.images.servers.ImageServer;
+import qupath.lib.images.servers.PixelType;
+import qupath.lib.images.servers.WrappedBufferedImageServer;
+import qupath.lib.images.writers.ome.zarr.OMEZarrWriter;
+import qupath.lib.regions.RegionRequest;
+
+@SuppressWarnings("javadoc")
+public class TestOMEZarrImageServer {
+
+	private static final List<ImageChannel> CHANNELS = List.of(
+			ImageChannel.getInstance("Nucleus", ColorTools.BLUE),
+			ImageChannel.getInstance("Membrane", ColorTools.GREEN),
+			ImageChannel.getInstance("Other", ColorTools.MAGENTA)
+	);
+
+	@Test
+	public void test_readDirectory(@TempDir Path dir) throws Exception {
+		try (var original = createSampleServer()) {
+			var zarrPath = writeZarr(original, dir.resolve("image.ome.zarr"));
+			try (var server = new OMEZarrImageServer(zarrPath.toUri())) {
+				checkServer(original, server);
+			}
+		}
+	}
+
+	@Test
+	public void test_readZip(@TempDir Path dir) throws Exception {
+		try (var original = createSampleServer()) {
+			var zarrPath = writeZarr(original, dir.resolve("image.ome.zarr"));
+			var zipPath = dir.resolve("image.ome.zarr.zip");
+			zipDirectory(zarrPath, zipPath);
+
+			var support = new OMEZarrServerBuilder().checkImageSupport(zipPath.toUri());
+			assertNotNull(support);
+			assertEquals(1, support.getBuilders().size());
+			try (var server = support.getBuilders().getFirst().build()) {
+				assertTrue(server instanceof OMEZarrImageServer);
+				checkServer(original, server);
+			}
+		}
+	}
+
+	private static void checkServer(ImageServer<BufferedImage> expected, ImageServer<BufferedImage> server) throws Exception {
+		assertEquals(expected.getWidth(), server.getWidth());
+		assertEquals(expected.getHeight(), server.getHeight());
+		assertEquals(PixelType.UINT16, server.getPixelType());
+		assertEquals(CHANNELS, server.getMetadata().getChannels());
+		assertEquals(2, server.nResolutions());
+		// Tiles should correspond to Zarr chunks
+		assertEquals(64, server.getMetadata().getPreferredTileWidth());
+		assertEquals(64, server.getMetadata().getPreferredTileHeight());
+
+		// Read all tiles in parallel
+		server.getTileRequestManager().getAllTileRequests().parallelStream().forEach(tile -> {
+			try {
+				var request = tile.getRegionRequest();
+				assertImagesEqual(expected.readRegion(request), server.readRegion(request));
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		});
+
+		var request = RegionRequest.createInstance(server);
+		assertImagesEqual(expected.readRegion(request), server.readRegion(request));
+	}
+
+	private static void assertImagesEqual(BufferedImage expected, BufferedImage actual) {
+		assertEquals(expected.getWidth(), actual.getWidth());
+		assertEquals(expected.getHeight(), actual.getHeight());
+		for (int c = 0; c < expected.getRaster().getNumBands(); c++) {
+			assertArrayEquals(
+					expected.getRaster().getSamples(0, 0, expected.getWidth(), expected.getHeight(), c, (int[])null),
+					actual.getRaster().getSamples(0, 0, actual.getWidth(), actual.getHeight(), c, (int[])null));
+		}
+	}
+
+	private static ImageServer<BufferedImage> createSampleServer() {
+		int width = 300;
+		int height = 200;
+		var img = BufferedImageTools.createImage(width, height, PixelType.UINT16, CHANNELS);
+		var raster = img.getRaster();
+		for (int c = 0; c < CHANNELS.size(); c++) {
+			for (int y = 0; y < height; y++) {
+				for (int x = 0; x < width; x++) {
+					raster.setSample(x, y, c, (x * 7 + y * 13 + c * 1000) % 65536);
+				}
+			}
+		}
+		return new WrappedBufferedImageServer("sample", img, CHANNELS);
+	}
+
+	private static Path writeZarr(ImageServer<BufferedImage> server, Path path) throws Exception {
+		try (var writer = new OMEZarrWriter.Builder(server)
+				.tileSize(64)
+				.downsamples(1, 2)
+				.build(path.toString())) {
+			writer.writeImage();
+		}
+		return path;
+	}
+
+	private static void zipDirectory(Path dir, Path zipPath) throws IOException {
+		try (OutputStream stream = Files.newOutputStream(zipPath);
+				var zip = new ZipOutputStream(stream);
+				var paths = Files.walk(dir)) {
+			for (var path : paths.filter(p -> !p.equals(dir)).toList()) {
+				var name = dir.getParent().relativize(path).toString().replace('\\', '/');
+				if (Files.isDirectory(path)) {
+					zip.putNextEntry(new ZipEntry(name + "/"));
+				} else {
+					zip.putNextEntry(new ZipEntry(name));
+					Files.copy(path, zip);
+				}
+				zip.closeEntry();
+			}
+		}
+	}
+
+}
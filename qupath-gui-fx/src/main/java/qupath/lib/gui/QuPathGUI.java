@@ -108,6 +108,7 @@ import qupath.ext.extensionmanager.core.savedentities.Registry;
 import qupath.ext.extensionmanager.core.savedentities.SavedCatalog;
 import qupath.fx.utils.FXUtils;
 import qupath.fx.dialogs.FileChoosers;
+import qupath.lib.classifiers.pixel.PixelClassificationImageServer;
 import qupath.lib.common.GeneralTools;
 import qupath.lib.common.LogTools;
 import qupath.lib.common.Timeit;
@@ -282,6 +283,8 @@ public class QuPathGUI {
 		toolManager = ToolManager.create();
 		threadPoolManager = SharedThreadPoolManager.create();
 		imageRegionStore = ImageRegionStoreFactory.createImageRegionStore();
+		imageRegionStore.setDiskCache(ImageRegionStoreFactory.createDiskTileCache());
+		PixelClassificationImageServer.setResultCache(ImageRegionStoreFactory.createPixelClassificationCache());
 		prefsPane = new PreferencePane();
 		viewerManager = ViewerManager.create(this);
 		pathClassManager = PathClassManager.create();
@@ -35,9 +35,12 @@ import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import qupath.lib.analysis.DelaunayTools;
-import qupath.lib.awt.common.AwtTools;
 import qupath.lib.color.ColorToolsAwt;
+import qupath.lib.common.GeneralTools;
 import qupath.lib.gui.viewer.OverlayOptions;
 import qupath.lib.gui.viewer.PathObjectPainter;
 import qupath.lib.images.ImageData;
@@ -67,6 +70,8 @@ import qupath.lib.regions.RegionRequest;
  */
 public class PathHierarchyImageServer extends AbstractTileableImageServer implements GeneratingImageServer<BufferedImage> {
 	
+	private static final Logger logger = LoggerFactory.getLogger(PathHierarchyImageServer.class);
+
 //	public static String DEFAULT_PREFIX = "OVERLAY::";
 	static long counter = 0;
 	
@@ -205,7 +210,6 @@ public class PathHierarchyImageServer extends AbstractTileableImageServer implem
 	@Override
 	protected BufferedImage readTile(TileRequest tileRequest) throws IOException {
 		RegionRequest request = tileRequest.getRegionRequest();
-//		long startTime = System.currentTimeMillis();
 		
 		// Get connections
 		Object o = options.getShowConnections() ? imageData.getProperty(DefaultPathObjectConnectionGroup.KEY_OBJECT_CONNECTIONS) : null;
@@ -247,6 +251,13 @@ public class PathHierarchyImageServer extends AbstractTileableImageServer implem
 		int width = tileRequest.getTileWidth();
 		int height = tileRequest.getTileHeight();
 		BufferedImage img = createDefaultRGBImage(width, height);
+
+		// Note we don't want to pass a selection model, as selections shouldn't be included
+		long startTime = System.nanoTime();
+		int nPainted = PathObjectPainter.paintDetectionsBatched(img, request, pathObjects, options);
+		long endTime = System.nanoTime();
+		logger.trace("Painted {}/{} objects for {} in {} ms", nPainted, pathObjects.size(), request, GeneralTools.formatNumber((endTime - startTime) / 1e6, 2));
+
 		Graphics2D g2d = img.createGraphics();
 		g2d.setClip(0, 0, width, height);
 //		g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
@@ -255,11 +266,6 @@ public class PathHierarchyImageServer extends AbstractTileableImageServer implem
 //		g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 		g2d.scale(scale, scale);
 		g2d.translate(-request.getX(), -request.getY());
-		// Note we don't want to pass a selection model, as selections shouldn't be included
-		if (pathObjects != null && !pathObjects.isEmpty()) {
-			g2d.setClip(AwtTools.getBounds(request));
-			PathObjectPainter.paintSpecifiedObjects(g2d, pathObjects, options, null, downsampleFactor);
-		}
 		
 		// See if we have any connections to draw
 		if (connections != null) {
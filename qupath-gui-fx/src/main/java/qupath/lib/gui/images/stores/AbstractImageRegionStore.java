@@ -36,6 +36,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -48,6 +49,7 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.RemovalCause;
 import com.google.common.cache.Weigher;
+import com.google.common.collect.ForwardingConcurrentMap;
 
 import qupath.lib.common.ThreadTools;
 import qupath.lib.images.servers.GeneratingImageServer;
@@ -79,6 +81,11 @@ abstract class AbstractImageRegionStore<T> implements ImageRegionStore<T> {
 
 	// Cache of image tiles for specified regions
 	protected Map<RegionRequest, T> cache;
+	
+	// Underlying Guava cache, if used (required to query statistics)
+	private final Cache<RegionRequest, T> guavaCache;
+	
+	private final SizeEstimator<T> sizeEstimator;
 
 	/**
 	 * Maximum size of thumbnail, in any dimension.
@@ -105,9 +112,15 @@ abstract class AbstractImageRegionStore<T> implements ImageRegionStore<T> {
 	
 	
 
-	protected AbstractImageRegionStore(final SizeEstimator<T> sizeEstimator, final int thumbnailSize, final long tileCacheSizeBytes) {
+	protected AbstractImageRegionStore(final SizeEstimator<T> sizeEstimator, final int thumbnailSize, final long tileCacheSizeBytes, final ImageRegionStoreFactory.TileCacheType cacheType) {
 		this.maxThumbnailSize = thumbnailSize;
 		this.tileCacheSizeBytes = tileCacheSizeBytes;
+		this.sizeEstimator = sizeEstimator;
+		if (cacheType == ImageRegionStoreFactory.TileCacheType.CONCURRENT) {
+			cache = new DefaultRegionCache<>(sizeEstimator, Integer.MAX_VALUE, tileCacheSizeBytes);
+			guavaCache = null;
+			return;
+		}
 		
 		// Because Guava uses integer weights, and we sometimes have *very* large images, we convert our size estimates KB
 		Weigher<RegionRequest, T> weigher = (var r, var t) -> (int)Long.min(Integer.MAX_VALUE, sizeEstimator.getApproxImageSize(t)/1024);
@@ -120,14 +133,31 @@ abstract class AbstractImageRegionStore<T> implements ImageRegionStore<T> {
 				.maximumWeight(maxWeight)
 				.softValues()
 				.concurrencyLevel(concurrencyLevel)
-//				.recordStats()
+				.recordStats()
 				.removalListener(n -> {
 					if (n.getCause() == RemovalCause.COLLECTED) {
                         logger.debug("Cached tile collected: {} (cache size={})", n.getKey(), cache.size());
 					} else {
 						logger.trace("Cached tile removed due to {}: {} (cache size={})", n.getCause(), n.getKey(), cache.size());
 					}}).build();
-		cache = originalCache.asMap();
+		guavaCache = originalCache;
+		var map = originalCache.asMap();
+		// Map.get doesn't update the Guava cache statistics, so use getIfPresent instead
+		cache = new ForwardingConcurrentMap<>() {
+			@Override
+			protected ConcurrentMap<RegionRequest, T> delegate() {
+				return map;
+			}
+
+			@Override
+			public T get(Object key) {
+				return key instanceof RegionRequest request ? originalCache.getIfPresent(request) : null;
+			}
+		};
+	}
+
+	protected AbstractImageRegionStore(final SizeEstimator<T> sizeEstimator, final int thumbnailSize, final long tileCacheSizeBytes) {
+		this(sizeEstimator, thumbnailSize, tileCacheSizeBytes, ImageRegionStoreFactory.TileCacheType.DEFAULT);
 	}
 
 	
@@ -144,6 +174,27 @@ abstract class AbstractImageRegionStore<T> implements ImageRegionStore<T> {
 		return tileCacheSizeBytes;
 	}
 	
+	/**
+	 * Get a snapshot of the hit, miss and eviction counts for the tile cache, along with its current size.
+	 * @return
+	 * @since v0.7.0
+	 */
+	public TileCacheStatistics getCacheStatistics() {
+		if (cache instanceof DefaultRegionCache<T> regionCache)
+			return regionCache.getStatistics();
+		var stats = guavaCache.stats();
+		long sizeBytes = 0;
+		for (var value : cache.values())
+			sizeBytes += sizeEstimator.getApproxImageSize(value);
+		return new TileCacheStatistics(
+				stats.hitCount(),
+				stats.missCount(),
+				stats.evictionCount(),
+				guavaCache.size(),
+				sizeBytes,
+				tileCacheSizeBytes);
+	}
+	
 	/**
 	 * Calculate the downsample value to use when generating a thumbnail image.
 	 * @param width
@@ -363,6 +414,18 @@ abstract class AbstractImageRegionStore<T> implements ImageRegionStore<T> {
 	
 //	protected abstract TileWorker<T> createTileWorker(final BaseImageServer<T> server, final RegionRequest request, final RegionCache<T> cache, final boolean ensureTileReturned);
 
+	/**
+	 * Read a tile from an image server, for a request that could not be fulfilled from the in-memory cache.
+	 * Subclasses may override this to provide tiles from another source (e.g. a disk cache).
+	 * @param server
+	 * @param request
+	 * @return
+	 * @throws IOException
+	 */
+	protected T readTile(final ImageServer<T> server, final RegionRequest request) throws IOException {
+		return server.readRegion(request);
+	}
+
 	protected TileWorker<T> createTileWorker(final ImageServer<T> server, final RegionRequest request, final Map<RegionRequest, T> cache, final boolean ensureTileReturned) {
 		return new DefaultTileWorker(server, request, cache, ensureTileReturned);
 	}
@@ -497,6 +560,7 @@ abstract class AbstractImageRegionStore<T> implements ImageRegionStore<T> {
 	 */
 	@Override
 	public void close() {
+		logger.debug("Closing image region store - {}", getCacheStatistics());
 		// Try to cancel all workers
 		for (TileWorker<T> worker : new ArrayList<>(workers))
 			worker.cancel(true);
@@ -719,11 +783,11 @@ abstract class AbstractImageRegionStore<T> implements ImageRegionStore<T> {
 						return imgTile;
 					// TODO: Investigate the (current) purpose of ensureTileReturned... doesn't seem to do anything here
 					if (ensureTileReturned)
-						return server.readRegion(request);
+						return readTile(server, request);
 					// Check if we still need the tile... if not, and we go searching, there can be a backlog
 					// making any requests slower to fulfill
 					// (Also, grab a snapshot of the listener list to avoid concurrent modifications)
-                    return server.readRegion(request);
+                    return readTile(server, request);
 				}
 
 			});
@@ -4,7 +4,7 @@
  * %%
  * Copyright (C) 2014 - 2016 The Queen's University of Belfast, Northern Ireland
  * Contact: IP Management (ipmanagement@qub.ac.uk)
- * Copyright (C) 2018 - 2020 QuPath developers, The University of Edinburgh
+ * Copyright (C) 2018 - 2025 QuPath developers, The University of Edinburgh
  * %%
  * QuPath is free software: you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as
@@ -63,15 +63,56 @@ public class DefaultImageRegionStore extends AbstractImageRegionStore<BufferedIm
 	
 	private static boolean DEBUG_TILES = false;
 
+	private volatile DiskTileCache diskCache;
+
+	DefaultImageRegionStore(int thumbnailWidth, long tileCacheSize, ImageRegionStoreFactory.TileCacheType cacheType) {
+		super(new BufferedImageSizeEstimator(), thumbnailWidth, tileCacheSize, cacheType);
+	}
+
 	DefaultImageRegionStore(int thumbnailWidth, long tileCacheSize) {
-		super(new BufferedImageSizeEstimator(), thumbnailWidth, tileCacheSize);
+		this(thumbnailWidth, tileCacheSize, ImageRegionStoreFactory.TileCacheType.DEFAULT);
+	}
+
+	DefaultImageRegionStore(long tileCacheSize, ImageRegionStoreFactory.TileCacheType cacheType) {
+		this(DEFAULT_THUMBNAIL_WIDTH, tileCacheSize, cacheType);
 	}
 
 	DefaultImageRegionStore(long tileCacheSize) {
-		this(DEFAULT_THUMBNAIL_WIDTH, tileCacheSize);
+		this(tileCacheSize, ImageRegionStoreFactory.TileCacheType.DEFAULT);
 	}
 	
 
+	/**
+	 * Set an optional disk cache, used as a second-level cache for tiles that have been evicted from memory.
+	 * @param diskCache the disk cache, or null if no disk cache should be used
+	 * @since v0.7.0
+	 */
+	public void setDiskCache(DiskTileCache diskCache) {
+		this.diskCache = diskCache;
+	}
+
+	/**
+	 * Get the disk cache, if one has been set.
+	 * @return the disk cache, or null
+	 * @since v0.7.0
+	 */
+	public DiskTileCache getDiskCache() {
+		return diskCache;
+	}
+
+	@Override
+	protected BufferedImage readTile(ImageServer<BufferedImage> server, RegionRequest request) throws IOException {
+		var diskCache = this.diskCache;
+		if (diskCache == null || !diskCache.supportsServer(server))
+			return super.readTile(server, request);
+		var img = diskCache.get(server, request);
+		if (img != null)
+			return img;
+		img = super.readTile(server, request);
+		diskCache.put(server, request, img);
+		return img;
+	}
+
 	/**
 	 * Similar to paintRegion, but wait until all the tiles have arrived (or abort if it is taking too long)
 	 *
@@ -296,6 +337,9 @@ public class DefaultImageRegionStore extends AbstractImageRegionStore<BufferedIm
 	@Override
 	public void close() {
 		super.close();
+		var diskCache = this.diskCache;
+		if (diskCache != null)
+			diskCache.close();
 	}
 
 
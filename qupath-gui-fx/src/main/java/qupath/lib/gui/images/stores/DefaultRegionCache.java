@@ -4,200 +4,349 @@
  * %%
  * Copyright (C) 2014 - 2016 The Queen's University of Belfast, Northern Ireland
  * Contact: IP Management (ipmanagement@qub.ac.uk)
- * Copyright (C) 2018 - 2020 QuPath developers, The University of Edinburgh
+ * Copyright (C) 2018 - 2025 QuPath developers, The University of Edinburgh
  * %%
  * QuPath is free software: you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as
  * published by the Free Software Foundation, either version 3 of the
  * License, or (at your option) any later version.
- * 
+ *
  * QuPath is distributed in the hope that it will be useful,
  * but WITHOUT ANY WARRANTY; without even the implied warranty of
  * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
  * GNU General Public License for more details.
- * 
- * You should have received a copy of the GNU General Public License 
+ *
+ * You should have received a copy of the GNU General Public License
  * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
  * #L%
  */
 
 package qupath.lib.gui.images.stores;
 
-import java.util.Collection;
-import java.util.Collections;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import qupath.lib.regions.RegionRequest;
 
 /**
  * Map for storing image tiles, which automatically removes tiles that have not been accessed
  * in a while after it reaches a maximum number of tiles, or maximum memory consumption.
- * 
+ * <p>
  * The memory consumption estimate is based on the bit-depth of the image &amp; number of pixels it contains
  * (other overhead is ignored).
- * 
+ * <p>
+ * Entries are split across a number of independently-locked segments, so that threads requesting different tiles
+ * rarely contend with one another. Each segment is an access-ordered map, and each entry records the time it was last
+ * accessed. When the cache is full, a small number of segments are sampled in turn and the least-recently-accessed
+ * entry among them is evicted; this approximates a global LRU policy, without needing to lock every segment.
+ * This means that the memory limit applies to the cache as a whole (not to each segment), so very large tiles
+ * can still be cached.
+ * <p>
+ * Like {@link java.util.concurrent.ConcurrentHashMap}, null keys and values are not supported.
+ *
  * @author Pete Bankhead
- * @param <T> 
+ * @param <T>
  *
  */
-class DefaultRegionCache<T> implements Map<RegionRequest, T> {
+class DefaultRegionCache<T> extends AbstractMap<RegionRequest, T> {
+
+	private static final int MAX_SEGMENTS = 64;
+
+	// Number of segments to compare when choosing an entry to evict
+	private static final int EVICTION_SAMPLE_SIZE = 4;
 
-	private Map<RegionRequest, T> map;
 	private final SizeEstimator<T> sizeEstimator;
-	private int maxCapacity;
-	private int nonNullSize = 0;
-	private long maxMemoryBytes;
-	private long memoryBytes = 0; // Rely on synchronization to control access to map anyway, so no need for atomic...?
+	private final Segment<T>[] segments;
+	private final int segmentMask;
 
-	DefaultRegionCache(final SizeEstimator<T> sizeEstimator, final int maxCapacity, final long maxSizeBytes) {
-		this.maxMemoryBytes = maxSizeBytes;
+	private final int maxCapacity;
+	private final long maxMemoryBytes;
+
+	private final AtomicInteger size = new AtomicInteger();
+	private final AtomicLong memoryBytes = new AtomicLong();
+
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+
+	// Used to rotate through the segments when sampling for eviction
+	private final AtomicInteger evictionClock = new AtomicInteger();
+
+	@SuppressWarnings("unchecked")
+	DefaultRegionCache(final SizeEstimator<T> sizeEstimator, final int maxCapacity, final long maxSizeBytes, final int concurrencyLevel) {
 		this.sizeEstimator = sizeEstimator;
 		this.maxCapacity = maxCapacity;
-		map = new LinkedHashMap<>(maxCapacity + 1, 2f, true) {
-
-            private static final long serialVersionUID = 1L;
-
-            @Override
-            protected synchronized boolean removeEldestEntry(Map.Entry<RegionRequest, T> eldest) {
-                // Remove if the map is full (in terms of numbers), or occupying too much memory
-                boolean doRemove = nonNullSize >= maxCapacity || memoryBytes > maxMemoryBytes;
-                if (doRemove) {
-                    memoryBytes = memoryBytes - sizeEstimator.getApproxImageSize(eldest.getValue());
-                    if (eldest.getValue() != null)
-                        nonNullSize--;
-//					if (getApproxImageSize(eldest.getValue()) > 10784000)
-//											logger.info(String.format("REMOVED! %.2f MB remaining, %d images", memoryBytes/(1024. * 1024.), size()));
-                }
-                return doRemove;
-            }
-
-        }; // Should never have to resize the cache, so loadfactor is > 1
-		//			logger.info("Max capacity: " + maxCapacity);
-		//			logger.info("Max size: " + maxSizeBytes);
-		map = Collections.synchronizedMap(map);
+		this.maxMemoryBytes = maxSizeBytes;
+		int nSegments = 1;
+		while (nSegments < concurrencyLevel && nSegments < MAX_SEGMENTS)
+			nSegments <<= 1;
+		segments = new Segment[nSegments];
+		for (int i = 0; i < nSegments; i++)
+			segments[i] = new Segment<>();
+		segmentMask = nSegments - 1;
+	}
+
+	DefaultRegionCache(final SizeEstimator<T> sizeEstimator, final int maxCapacity, final long maxSizeBytes) {
+		this(sizeEstimator, maxCapacity, maxSizeBytes, Runtime.getRuntime().availableProcessors());
 	}
 
 	DefaultRegionCache(final SizeEstimator<T> sizeEstimator, long maxSizeBytes) {
 		this(sizeEstimator, Math.max(200, (int)(maxSizeBytes / (256 * 256 * 4) + 10)), maxSizeBytes);
 	}
 
-//	synchronized void clearCacheForServer(ImageServer<?> server) {
-//		Iterator<Entry<RegionRequest, T>> iter = map.entrySet().iterator();
-//		while (iter.hasNext()) {
-//			Entry<RegionRequest, T> entry = iter.next();
-//			if (entry.getKey().getPath().equals(server.getPath())) {
-//				memoryBytes -= sizeEstimator.getApproxImageSize(entry.getValue());
-//				if (entry.getValue() != null)
-//					nonNullSize--;
-//				iter.remove();
-//			}
-//		}
-//	}
-//	
-//	
-//	synchronized void clearCacheForRequestOverlap(RegionRequest request) {
-//		Iterator<Entry<RegionRequest, T>> iter = map.entrySet().iterator();
-//		while (iter.hasNext()) {
-//			Entry<RegionRequest, T> entry = iter.next();
-//			if (request.overlapsRequest(entry.getKey())) {
-//				memoryBytes -= sizeEstimator.getApproxImageSize(entry.getValue());
-//				if (entry.getValue() != null)
-//					nonNullSize--;
-//				iter.remove();
-//			}
-//		}
-//	}
-
-	/* (non-Javadoc)
-	 * @see qupath.lib.images.stores.RegionCache#put(qupath.lib.regions.RegionRequest, T)
+
+	private Segment<T> segmentFor(Object key) {
+		int h = key.hashCode();
+		// Spread the bits, as done in HashMap
+		h ^= (h >>> 16);
+		return segments[h & segmentMask];
+	}
+
+	/**
+	 * Get a snapshot of the statistics for this cache.
+	 * @return
 	 */
+	TileCacheStatistics getStatistics() {
+		return new TileCacheStatistics(
+				hitCount.sum(),
+				missCount.sum(),
+				evictionCount.sum(),
+				size.get(),
+				memoryBytes.get(),
+				maxMemoryBytes);
+	}
+
+
 	@Override
-	public synchronized T put(RegionRequest request, T img) {
-		// Update the memory requirements
-		T imgPrevious = map.put(request, img);
-		if (img != null) {
-			memoryBytes += sizeEstimator.getApproxImageSize(img);
-			nonNullSize++;
+	public T put(RegionRequest request, T img) {
+		Objects.requireNonNull(request, "Cache key must not be null");
+		Objects.requireNonNull(img, "Cache value must not be null");
+		long imgSize = sizeEstimator.getApproxImageSize(img);
+		// If the image can never fit, don't store it - but do remove any previous value
+		if (imgSize > maxMemoryBytes) {
+			return remove(request);
+		}
+		var segment = segmentFor(request);
+		Node<T> previous;
+		synchronized (segment) {
+			previous = segment.map.put(request, new Node<>(img, imgSize));
 		}
-		if (imgPrevious != null) {
-			memoryBytes -= sizeEstimator.getApproxImageSize(imgPrevious);
-			nonNullSize--;
+		if (previous == null) {
+			size.incrementAndGet();
+			memoryBytes.addAndGet(imgSize);
+		} else {
+			memoryBytes.addAndGet(imgSize - previous.size);
 		}
-		return imgPrevious;
+		evictIfNeeded();
+		return previous == null ? null : previous.value;
 	}
 
-	@Override
-	public synchronized void clear() {
-		memoryBytes = 0;
-		nonNullSize = 0;
-		map.clear();
-	}
-	
-	
-	@Override
-	public String toString() {
-		return String.format("Cache: %d (%d/%d non-null), %s", map.size(), nonNullSize, maxCapacity, map.toString());
+	/**
+	 * Remove least-recently-accessed entries until the cache is within its limits.
+	 * Each eviction compares the eldest entries of a few segments only, so the cost does not grow with the
+	 * number of segments. Segment locks are only held briefly; when multiple threads evict at the same time a few
+	 * more entries may be removed than would be strictly necessary.
+	 */
+	private void evictIfNeeded() {
+		int nSamples = Math.min(EVICTION_SAMPLE_SIZE, segments.length);
+		while (size.get() > maxCapacity || memoryBytes.get() > maxMemoryBytes) {
+			// Find the sampled segment whose eldest entry was accessed least recently,
+			// continuing beyond the sample only if all the sampled segments are empty
+			Segment<T> oldestSegment = null;
+			long oldestTimestamp = Long.MAX_VALUE;
+			int start = evictionClock.getAndAdd(nSamples);
+			for (int i = 0; i < segments.length && (i < nSamples || oldestSegment == null); i++) {
+				var segment = segments[(start + i) & segmentMask];
+				synchronized (segment) {
+					if (segment.map.isEmpty())
+						continue;
+					long timestamp = segment.map.values().iterator().next().lastAccess;
+					if (oldestSegment == null || timestamp - oldestTimestamp < 0) {
+						oldestSegment = segment;
+						oldestTimestamp = timestamp;
+					}
+				}
+			}
+			if (oldestSegment == null)
+				return;
+			Node<T> removed = null;
+			synchronized (oldestSegment) {
+				var iter = oldestSegment.map.values().iterator();
+				if (iter.hasNext()) {
+					removed = iter.next();
+					iter.remove();
+				}
+			}
+			if (removed != null) {
+				size.decrementAndGet();
+				memoryBytes.addAndGet(-removed.size);
+				evictionCount.increment();
+			}
+		}
 	}
 
 	@Override
-	public synchronized int size() {
-		return map.size();
+	public void clear() {
+		for (var segment : segments) {
+			synchronized (segment) {
+				for (var node : segment.map.values()) {
+					size.decrementAndGet();
+					memoryBytes.addAndGet(-node.size);
+				}
+				segment.map.clear();
+			}
+		}
 	}
 
+
 	@Override
-	public synchronized boolean isEmpty() {
-		return map.isEmpty();
+	public String toString() {
+		return String.format("Cache: %d (max %d), %.2f/%.2f MB",
+				size.get(), maxCapacity, memoryBytes.get()/(1024.*1024.), maxMemoryBytes/(1024.*1024.));
 	}
 
 	@Override
-	public synchronized boolean containsKey(Object key) {
-		return map.containsKey(key);
+	public int size() {
+		return size.get();
 	}
 
 	@Override
-	public synchronized boolean containsValue(Object value) {
-		return map.containsValue(value);
+	public boolean isEmpty() {
+		return size.get() == 0;
 	}
 
 	@Override
-	public synchronized T get(Object key) {
-		return map.get(key);
+	public boolean containsKey(Object key) {
+		if (key == null)
+			return false;
+		var segment = segmentFor(key);
+		synchronized (segment) {
+			return segment.map.containsKey(key);
+		}
 	}
 
 	@Override
-	public synchronized T remove(Object key) {
-		// Update the memory requirements
-		T imgPrevious = map.remove(key);
-		if (imgPrevious != null) {
-			memoryBytes -= sizeEstimator.getApproxImageSize(imgPrevious);
-			nonNullSize--;
+	public T get(Object key) {
+		if (key == null)
+			return null;
+		var segment = segmentFor(key);
+		Node<T> node;
+		synchronized (segment) {
+			// Access-ordered map, so this also updates the order
+			node = segment.map.get(key);
+		}
+		if (node == null) {
+			missCount.increment();
+			return null;
 		}
-		return imgPrevious;
+		node.lastAccess = System.nanoTime();
+		hitCount.increment();
+		return node.value;
 	}
 
 	@Override
-	public synchronized void putAll(Map<? extends RegionRequest, ? extends T> m) {
-		for (Entry<? extends RegionRequest, ? extends T> entry : m.entrySet()) {
-			put(entry.getKey(), entry.getValue());
+	public T remove(Object key) {
+		if (key == null)
+			return null;
+		var segment = segmentFor(key);
+		Node<T> previous;
+		synchronized (segment) {
+			previous = segment.map.remove(key);
 		}
+		if (previous == null)
+			return null;
+		size.decrementAndGet();
+		memoryBytes.addAndGet(-previous.size);
+		return previous.value;
 	}
 
+	/**
+	 * Get a view of the entries in the cache.
+	 * Iterators operate on a snapshot of the entries at the time of creation, but support removal.
+	 */
 	@Override
-	public synchronized Set<RegionRequest> keySet() {
-		return map.keySet();
+	public Set<Entry<RegionRequest, T>> entrySet() {
+		return new AbstractSet<>() {
+
+			@Override
+			public Iterator<Entry<RegionRequest, T>> iterator() {
+				List<Entry<RegionRequest, T>> entries = new ArrayList<>(size.get());
+				for (var segment : segments) {
+					synchronized (segment) {
+						for (var entry : segment.map.entrySet())
+							entries.add(new SimpleImmutableEntry<>(entry.getKey(), entry.getValue().value));
+					}
+				}
+				var iter = entries.iterator();
+				return new Iterator<>() {
+
+					private Entry<RegionRequest, T> current;
+
+					@Override
+					public boolean hasNext() {
+						return iter.hasNext();
+					}
+
+					@Override
+					public Entry<RegionRequest, T> next() {
+						current = iter.next();
+						return current;
+					}
+
+					@Override
+					public void remove() {
+						if (current == null)
+							throw new IllegalStateException();
+						DefaultRegionCache.this.remove(current.getKey());
+						current = null;
+					}
+
+				};
+			}
+
+			@Override
+			public int size() {
+				return DefaultRegionCache.this.size();
+			}
+
+			@Override
+			public void clear() {
+				DefaultRegionCache.this.clear();
+			}
+
+		};
 	}
 
-	@Override
-	public synchronized Collection<T> values() {
-		return map.values();
+
+	private static class Segment<T> {
+
+		// Should rarely need to resize, as the number of entries is bounded
+		private final Map<RegionRequest, Node<T>> map = new LinkedHashMap<>(64, 0.75f, true);
+
 	}
 
-	@Override
-	public synchronized Set<Entry<RegionRequest, T>> entrySet() {
-		return map.entrySet();
+	private static class Node<T> {
+
+		private final T value;
+		private final long size;
+		private volatile long lastAccess;
+
+		private Node(T value, long size) {
+			this.value = value;
+			this.size = size;
+			this.lastAccess = System.nanoTime();
+		}
+
 	}
-	
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,187 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.gui.images.stores;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import qupath.lib.color.ColorModelFactory;
+import qupath.lib.images.servers.GeneratingImageServer;
+import qupath.lib.images.servers.ImageServer;
+import qupath.lib.io.DiskImageCache;
+import qupath.lib.regions.RegionRequest;
+
+/**
+ * A bounded, persistent cache for decoded image tiles stored on disk.
+ * <p>
+ * This is intended as a second-level cache behind the in-memory tile cache of an {@link ImageRegionStore}:
+ * tiles that have been evicted from memory can be read back from disk much more quickly than they can be decoded
+ * again from many whole slide image formats.
+ * Because the cache is written to disk, it also persists across sessions.
+ * <p>
+ * Each tile is stored as a separate file containing the raw pixel values, within a directory specific to the
+ * {@link ImageServer}. The directory name is derived from the server path, along with the size and last modified
+ * time of any local files, so that tiles are not reused if an image is changed.
+ * <p>
+ * Tiles are written asynchronously. When the total size exceeds the maximum, the least-recently-accessed tiles
+ * are removed.
+ *
+ * @author Pete Bankhead
+ * @since v0.7.0
+ * @see DiskImageCache
+ */
+public class DiskTileCache implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(DiskTileCache.class);
+
+	private final DiskImageCache cache;
+
+	private final Map<String, String> serverKeys = new ConcurrentHashMap<>();
+	private final Map<String, ColorModel> colorModels = new ConcurrentHashMap<>();
+
+	private DiskTileCache(DiskImageCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Create a disk cache using the specified directory.
+	 * Existing tiles within the directory will be reused, and any that have not been accessed within the specified
+	 * number of days will be removed.
+	 * @param directory the directory used to store tiles; this will be created if necessary
+	 * @param maxSizeBytes the maximum size of the cache, in bytes
+	 * @param maxAgeDays the maximum number of days since a tile was last accessed for it to be retained;
+	 *                   if &le; 0, tiles are only removed based upon the maximum size
+	 * @return the cache
+	 * @throws IOException if the directory cannot be created
+	 */
+	public static DiskTileCache create(Path directory, long maxSizeBytes, int maxAgeDays) throws IOException {
+		// Tiles are written from the threads used for painting, so we should never block them
+		return new DiskTileCache(DiskImageCache.create(directory, maxSizeBytes, maxAgeDays, true));
+	}
+
+	/**
+	 * Get the directory used to store tiles.
+	 * @return
+	 */
+	public Path getDirectory() {
+		return cache.getDirectory();
+	}
+
+	/**
+	 * Query whether tiles from the specified server can be stored in the cache.
+	 * This is false for servers that generate their pixels dynamically (e.g. from objects), and for servers
+	 * that are not backed by any URI (e.g. in-memory images).
+	 * @param server
+	 * @return
+	 */
+	public boolean supportsServer(ImageServer<?> server) {
+		if (server == null || server instanceof GeneratingImageServer)
+			return false;
+		var uris = server.getURIs();
+		return uris != null && !uris.isEmpty();
+	}
+
+	/**
+	 * Read a tile from the cache, if available.
+	 * @param server the server that the tile belongs to
+	 * @param request the request for the tile
+	 * @return the tile, or null if it is not in the cache
+	 */
+	public BufferedImage get(ImageServer<BufferedImage> server, RegionRequest request) {
+		var serverKey = getServerKey(server);
+		if (serverKey.isEmpty())
+			return null;
+		return cache.get(serverKey, getRequestKey(request), raster -> {
+			// For custom images, the color model must be available either from a previous tile or from the server metadata
+			var colorModel = colorModels.get(server.getPath());
+			if (colorModel != null && colorModel.isCompatibleRaster(raster))
+				return colorModel;
+			return ColorModelFactory.createColorModel(server.getMetadata().getPixelType(), server.getMetadata().getChannels());
+		});
+	}
+
+	/**
+	 * Request that a tile is written to the cache.
+	 * This returns immediately; the tile may not be written if the cache is already busy.
+	 * @param server the server that the tile belongs to
+	 * @param request the request for the tile
+	 * @param img the tile
+	 */
+	public void put(ImageServer<BufferedImage> server, RegionRequest request, BufferedImage img) {
+		if (img == null)
+			return;
+		var serverKey = getServerKey(server);
+		if (serverKey.isEmpty())
+			return;
+		colorModels.putIfAbsent(server.getPath(), img.getColorModel());
+		cache.put(serverKey, getRequestKey(request), img);
+	}
+
+	/**
+	 * Get a snapshot of the statistics for this cache.
+	 * @return
+	 */
+	public TileCacheStatistics getStatistics() {
+		return new TileCacheStatistics(
+				cache.getHitCount(),
+				cache.getMissCount(),
+				cache.getEvictionCount(),
+				cache.getImageCount(),
+				cache.getSizeBytes(),
+				cache.getMaxSizeBytes());
+	}
+
+	/**
+	 * Stop writing tiles to the cache.
+	 * Tiles already written remain on disk, and can be used by a new cache created for the same directory.
+	 */
+	@Override
+	public void close() {
+		logger.debug("Closing disk tile cache - {}", getStatistics());
+		cache.close();
+	}
+
+
+	/**
+	 * Get a key for the server, which should change if the image itself changes.
+	 * Returns an empty string if the server is not supported.
+	 */
+	private String getServerKey(ImageServer<?> server) {
+		return serverKeys.computeIfAbsent(server.getPath(),
+				p -> supportsServer(server) ? DiskImageCache.createKey(DiskImageCache.createServerKey(server)) : "");
+	}
+
+	private static String getRequestKey(RegionRequest request) {
+		return String.format("%s|%d|%d|%d|%d|%d|%d",
+				Double.toString(request.getDownsample()),
+				request.getX(), request.getY(), request.getWidth(), request.getHeight(),
+				request.getZ(), request.getT());
+	}
+
+}
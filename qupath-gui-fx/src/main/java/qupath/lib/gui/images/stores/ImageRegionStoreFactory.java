@@ -4,7 +4,7 @@
  * %%
  * Copyright (C) 2014 - 2016 The Queen's University of Belfast, Northern Ireland
  * Contact: IP Management (ipmanagement@qub.ac.uk)
- * Copyright (C) 2018 - 2020 QuPath developers, The University of Edinburgh
+ * Copyright (C) 2018 - 2025 QuPath developers, The University of Edinburgh
  * %%
  * QuPath is free software: you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as
@@ -23,10 +23,17 @@
 
 package qupath.lib.gui.images.stores;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import qupath.lib.classifiers.pixel.PixelClassificationImageServer;
+import qupath.lib.common.GeneralTools;
+import qupath.lib.gui.UserDirectoryManager;
 import qupath.lib.gui.prefs.PathPrefs;
+import qupath.lib.io.DiskImageCache;
 
 /**
  * Factory for creating an ImageRegionStore.
@@ -38,13 +45,44 @@ public class ImageRegionStoreFactory {
 	
 	private static final Logger logger = LoggerFactory.getLogger(ImageRegionStoreFactory.class);
 	
+	/**
+	 * Implementations of the tile cache used by an {@link ImageRegionStore}.
+	 * @since v0.7.0
+	 */
+	public enum TileCacheType {
+		
+		/**
+		 * Default cache, using soft references so that tiles can be reclaimed by the garbage collector if memory is low.
+		 * All access is synchronized, which can cause contention when many threads request tiles at the same time.
+		 */
+		DEFAULT,
+		
+		/**
+		 * Segmented cache with a least-recently-used eviction policy based upon the memory required for each tile.
+		 * This reduces contention when many threads (e.g. from multiple viewers) are requesting tiles concurrently.
+		 */
+		CONCURRENT
+		
+	}
+	
 	/**
 	 * Create an {@link ImageRegionStore} with a specified tile cache size, in bytes.
 	 * @param tileCacheSizeBytes 
 	 * @return
 	 */
 	public static DefaultImageRegionStore createImageRegionStore(final long tileCacheSizeBytes) {
-		return new DefaultImageRegionStore(tileCacheSizeBytes);
+		return createImageRegionStore(tileCacheSizeBytes, PathPrefs.tileCacheTypeProperty().get());
+	}
+	
+	/**
+	 * Create an {@link ImageRegionStore} with a specified tile cache size, in bytes, and cache implementation.
+	 * @param tileCacheSizeBytes 
+	 * @param cacheType the type of tile cache to use; if null, {@link TileCacheType#DEFAULT} is used
+	 * @return
+	 * @since v0.7.0
+	 */
+	public static DefaultImageRegionStore createImageRegionStore(final long tileCacheSizeBytes, final TileCacheType cacheType) {
+		return new DefaultImageRegionStore(tileCacheSizeBytes, cacheType == null ? TileCacheType.DEFAULT : cacheType);
 	}
 	
 	
@@ -57,6 +95,80 @@ public class ImageRegionStoreFactory {
 	}
 	
 	
+	/**
+	 * Create a {@link DiskTileCache} based upon the user preferences.
+	 * @return the disk cache, or null if the disk cache is turned off or could not be created
+	 * @see PathPrefs#diskTileCacheSizeGBProperty()
+	 * @since v0.7.0
+	 */
+	public static DiskTileCache createDiskTileCache() {
+		double sizeGB = PathPrefs.diskTileCacheSizeGBProperty().get();
+		if (!(sizeGB > 0))
+			return null;
+		Path dir = getDiskTileCachePath();
+		try {
+			long maxSizeBytes = Math.round(sizeGB * 1024 * 1024 * 1024);
+			var diskCache = DiskTileCache.create(dir, maxSizeBytes, PathPrefs.diskTileCacheMaxAgeDaysProperty().get());
+			logger.info("Using disk tile cache at {} (max {} GB)", dir, GeneralTools.formatNumber(sizeGB, 2));
+			return diskCache;
+		} catch (Exception e) {
+			logger.warn("Unable to create disk tile cache at {}: {}", dir, e.getMessage(), e);
+			return null;
+		}
+	}
+	
+	/**
+	 * Create a {@link DiskImageCache} to store pixel classification results, based upon the user preferences.
+	 * @return the disk cache, or null if the cache is turned off or could not be created
+	 * @see PathPrefs#pixelClassificationCacheSizeGBProperty()
+	 * @see PixelClassificationImageServer#setResultCache(DiskImageCache)
+	 * @since v0.7.0
+	 */
+	public static DiskImageCache createPixelClassificationCache() {
+		double sizeGB = PathPrefs.pixelClassificationCacheSizeGBProperty().get();
+		if (!(sizeGB > 0))
+			return null;
+		Path dir = getPixelClassificationCachePath();
+		try {
+			long maxSizeBytes = Math.round(sizeGB * 1024 * 1024 * 1024);
+			// Classification is expensive, so it's better to wait than to discard results if writing can't keep up
+			var diskCache = DiskImageCache.create(dir, maxSizeBytes, PathPrefs.diskTileCacheMaxAgeDaysProperty().get(), false);
+			logger.info("Using pixel classification cache at {} (max {} GB)", dir, GeneralTools.formatNumber(sizeGB, 2));
+			return diskCache;
+		} catch (Exception e) {
+			logger.warn("Unable to create pixel classification cache at {}: {}", dir, e.getMessage(), e);
+			return null;
+		}
+	}
+	
+	private static Path getDiskTileCachePath() {
+		String path = PathPrefs.diskTileCachePathProperty().get();
+		if (path != null && !path.isBlank())
+			return Paths.get(path);
+		var userPath = UserDirectoryManager.getInstance().getUserPath();
+		if (userPath != null)
+			return userPath.resolve("tile-cache");
+		return Paths.get(System.getProperty("java.io.tmpdir"), "qupath-tile-cache");
+	}
+	
+	/**
+	 * Get the directory for pixel classification results.
+	 * This must not be inside the tile cache directory, since each cache limits the total size of its own directory.
+	 * @return
+	 */
+	private static Path getPixelClassificationCachePath() {
+		String path = PathPrefs.diskTileCachePathProperty().get();
+		if (path != null && !path.isBlank()) {
+			var tileCachePath = Paths.get(path).toAbsolutePath();
+			if (tileCachePath.getParent() != null)
+				return tileCachePath.resolveSibling(tileCachePath.getFileName() + "-pixel-classification");
+		}
+		var userPath = UserDirectoryManager.getInstance().getUserPath();
+		if (userPath != null)
+			return userPath.resolve("pixel-classification-cache");
+		return Paths.get(System.getProperty("java.io.tmpdir"), "qupath-pixel-classification-cache");
+	}
+	
 	/**
 	 * Calculate the appropriate tile cache size based upon the user preferences.
 	 * @return tile cache size in bytes
@@ -0,0 +1,54 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.gui.images.stores;
+
+/**
+ * Snapshot of the usage statistics for a tile cache.
+ *
+ * @param hitCount number of requests for a tile that was found in the cache
+ * @param missCount number of requests for a tile that was not found in the cache
+ * @param evictionCount number of tiles removed to keep the cache within its limits
+ * @param tileCount number of tiles currently in the cache
+ * @param sizeBytes estimated memory currently used by cached tiles, in bytes
+ * @param maxSizeBytes maximum memory that may be used by cached tiles, in bytes
+ * @since v0.7.0
+ */
+public record TileCacheStatistics(long hitCount, long missCount, long evictionCount,
+                                  long tileCount, long sizeBytes, long maxSizeBytes) {
+
+    /**
+     * Get the proportion of requests that were found in the cache.
+     * @return the hit rate, or {@code Double.NaN} if there have been no requests
+     */
+    public double hitRate() {
+        long total = hitCount + missCount;
+        return total == 0 ? Double.NaN : (double)hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Tile cache: %d tiles, %.2f/%.2f MB, hits=%d, misses=%d (hit rate %.1f%%), evictions=%d",
+                tileCount, sizeBytes/(1024.*1024.), maxSizeBytes/(1024.*1024.),
+                hitCount, missCount, hitRate() * 100.0, evictionCount);
+    }
+
+}
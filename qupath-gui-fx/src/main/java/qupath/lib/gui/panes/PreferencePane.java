@@ -64,6 +64,7 @@ import qupath.fx.prefs.annotations.LocalePref;
 import qupath.fx.prefs.annotations.Pref;
 import qupath.fx.prefs.annotations.PrefCategory;
 import qupath.lib.common.LogTools;
+import qupath.lib.gui.images.stores.ImageRegionStoreFactory.TileCacheType;
 import qupath.lib.gui.localization.QuPathResources;
 import qupath.lib.gui.logging.LogManager;
 import qupath.lib.gui.logging.LogManager.LogLevel;
@@ -243,6 +244,21 @@ public class PreferencePane {
 		@DoublePref("Prefs.General.tileCache")
 		public final DoubleProperty tileCache = PathPrefs.tileCachePercentageProperty();
 
+		@Pref(value = "Prefs.General.tileCacheType", type = TileCacheType.class)
+		public final ObjectProperty<TileCacheType> tileCacheType = PathPrefs.tileCacheTypeProperty();
+
+		@DoublePref("Prefs.General.diskTileCache")
+		public final DoubleProperty diskTileCache = PathPrefs.diskTileCacheSizeGBProperty();
+
+		@IntegerPref("Prefs.General.diskTileCacheMaxAge")
+		public final IntegerProperty diskTileCacheMaxAge = PathPrefs.diskTileCacheMaxAgeDaysProperty();
+
+		@DirectoryPref("Prefs.General.diskTileCachePath")
+		public final StringProperty diskTileCachePath = PathPrefs.diskTileCachePathProperty();
+
+		@DoublePref("Prefs.General.pixelClassificationCache")
+		public final DoubleProperty pixelClassificationCache = PathPrefs.pixelClassificationCacheSizeGBProperty();
+
 		@BooleanPref("Prefs.General.showImageNameInTitle")
 		public final BooleanProperty showImageNameInTitle = PathPrefs.showImageNameInTitleProperty();
 
@@ -345,6 +361,12 @@ public class PreferencePane {
 		@DoublePref("Prefs.InputOutput.tmaExportDownsample")
 		public final DoubleProperty tmaExportDownsample = PathPrefs.tmaExportDownsampleProperty();
 		
+		@BooleanPref("Prefs.InputOutput.binaryDataFiles")
+		public final BooleanProperty binaryDataFiles = PathPrefs.binaryDataFilesProperty();
+		
+		@BooleanPref("Prefs.InputOutput.lazyObjectLoading")
+		public final BooleanProperty lazyObjectLoading = PathPrefs.lazyObjectLoadingProperty();
+		
 	}
 	
 	
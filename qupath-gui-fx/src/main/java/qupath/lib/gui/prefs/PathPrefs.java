@@ -59,8 +59,10 @@ import qupath.fx.prefs.PreferenceManager;
 import qupath.lib.common.ColorTools;
 import qupath.lib.common.GeneralTools;
 import qupath.lib.common.ThreadTools;
+import qupath.lib.io.PathIO;
 import qupath.lib.common.Version;
 import qupath.lib.gui.QuPathGUI;
+import qupath.lib.gui.images.stores.ImageRegionStoreFactory.TileCacheType;
 import qupath.lib.gui.localization.QuPathResources;
 import qupath.lib.objects.classes.PathClass;
 
@@ -1207,6 +1209,76 @@ public class PathPrefs {
 	}
 	
 	
+	private static ObjectProperty<TileCacheType> tileCacheType = createPersistentPreference("tileCacheType", TileCacheType.DEFAULT, TileCacheType.class);
+	
+	/**
+	 * Type of cache to use for image tiles.
+	 * Changes take effect when QuPath is restarted.
+	 * @return
+	 * @since v0.7.0
+	 */
+	public static ObjectProperty<TileCacheType> tileCacheTypeProperty() {
+		return tileCacheType;
+	}
+	
+	
+	private static DoubleProperty diskTileCacheSizeGB = createPersistentPreference("diskTileCacheSizeGB", 0.0);
+	
+	/**
+	 * Maximum size of the disk cache used to store decoded image tiles, in GB.
+	 * If &le; 0, no disk cache is used.
+	 * Changes take effect when QuPath is restarted.
+	 * @return
+	 * @since v0.7.0
+	 */
+	public static DoubleProperty diskTileCacheSizeGBProperty() {
+		return diskTileCacheSizeGB;
+	}
+	
+	
+	private static IntegerProperty diskTileCacheMaxAgeDays = createPersistentPreference("diskTileCacheMaxAgeDays", 30);
+	
+	/**
+	 * Maximum number of days since a tile in the disk cache was last accessed before it is removed.
+	 * If &le; 0, tiles are only removed when the cache reaches its maximum size.
+	 * @return
+	 * @since v0.7.0
+	 */
+	public static IntegerProperty diskTileCacheMaxAgeDaysProperty() {
+		return diskTileCacheMaxAgeDays;
+	}
+	
+	
+	private static StringProperty diskTileCachePath = createPersistentPreference("diskTileCachePath", (String)null);
+	
+	/**
+	 * Directory used to store the disk tile cache.
+	 * If not set, a 'tile-cache' directory within the QuPath user directory is used (or the system temp directory,
+	 * if no user directory is available).
+	 * @return
+	 * @since v0.7.0
+	 */
+	public static StringProperty diskTileCachePathProperty() {
+		return diskTileCachePath;
+	}
+	
+	
+	private static DoubleProperty pixelClassificationCacheSizeGB = createPersistentPreference("pixelClassificationCacheSizeGB", 0.0);
+	
+	/**
+	 * Maximum size of the disk cache used to store the output of pixel classifiers, in GB.
+	 * This is stored in a directory alongside the disk tile cache directory, so that the two caches don't share a size limit.
+	 * If &le; 0, no disk cache is used.
+	 * Changes take effect when QuPath is restarted.
+	 * @return
+	 * @since v0.7.0
+	 * @see #diskTileCachePathProperty()
+	 */
+	public static DoubleProperty pixelClassificationCacheSizeGBProperty() {
+		return pixelClassificationCacheSizeGB;
+	}
+	
+	
 	private static BooleanProperty useCalibratedLocationString = createPersistentPreference("useCalibratedLocationString", true);
 	
 	/**
@@ -1552,6 +1624,49 @@ public class PathPrefs {
 		return minPyramidDimension;
 	}
 	
+	private static BooleanProperty binaryDataFiles = createPersistentPreference("binaryDataFiles", false);
+	
+	/**
+	 * Write .qpdata files using the binary hierarchy encoding (data file version 5).
+	 * This is much faster for images with large numbers of objects, but the files cannot be read by
+	 * earlier versions of QuPath.
+	 * @return
+	 * @since v0.7.0
+	 * @see PathIO#setRequestedDataFileVersion(int)
+	 */
+	public static BooleanProperty binaryDataFilesProperty() {
+		return binaryDataFiles;
+	}
+	
+	private static BooleanProperty lazyObjectLoading = createPersistentPreference("lazyObjectLoading", false);
+	
+	/**
+	 * Load detections lazily from .qpdata files, as they are needed.
+	 * This only applies to files written using the binary hierarchy encoding.
+	 * @return
+	 * @since v0.7.0
+	 * @see PathIO#setLazyObjectLoading(boolean)
+	 */
+	public static BooleanProperty lazyObjectLoadingProperty() {
+		return lazyObjectLoading;
+	}
+	
+	private static void addDataFileListeners() {
+		binaryDataFiles.addListener((v, o, n) -> updateRequestedDataFileVersion(n));
+		lazyObjectLoading.addListener((v, o, n) -> PathIO.setLazyObjectLoading(n));
+		// Make sure initialized
+		if (binaryDataFiles.get())
+			updateRequestedDataFileVersion(true);
+		PathIO.setLazyObjectLoading(lazyObjectLoading.get());
+	}
+	
+	private static void updateRequestedDataFileVersion(boolean binary) {
+		if (binary)
+			PathIO.setRequestedDataFileVersion(PathIO.getCurrentDataFileVersion());
+		else if (PathIO.getRequestedDataFileVersion() >= PathIO.getCurrentDataFileVersion())
+			PathIO.setRequestedDataFileVersion(2);
+	}
+	
 	private static IntegerProperty pointRadiusProperty = createPersistentPreference("defaultPointRadius", 5);
 
 	/**
@@ -1765,6 +1880,7 @@ public class PathPrefs {
 	static {
 		addLocaleListeners();
 		addNumThreadsListener();
+		addDataFileListeners();
 	}
 
 
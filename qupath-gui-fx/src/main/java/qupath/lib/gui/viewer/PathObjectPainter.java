@@ -41,7 +41,11 @@ import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.geom.RectangularShape;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -79,6 +83,7 @@ import qupath.lib.objects.hierarchy.events.PathObjectSelectionModel;
 import qupath.lib.plugins.ParallelTileObject;
 import qupath.lib.regions.ImagePlane;
 import qupath.lib.regions.ImageRegion;
+import qupath.lib.regions.RegionRequest;
 import qupath.lib.roi.EllipseROI;
 import qupath.lib.roi.LineROI;
 import qupath.lib.roi.RoiTools;
@@ -132,6 +137,102 @@ public class PathObjectPainter {
 	}
 
 
+	/**
+	 * Paint detections in bulk to an image representing a specified region, as required when generating overlay tiles.
+	 * <p>
+	 * This gives similar results to calling {@link #paintSpecifiedObjects(Graphics2D, Collection, OverlayOptions, PathObjectSelectionModel, double)}
+	 * without a selection model, but is much faster when there are many detections.
+	 * Detections that share the same colors and stroke are combined into a single path, which is then filled and drawn once.
+	 * Detections that would be only one or two pixels in size are painted as small blocks at their centroids,
+	 * which are written directly to the pixel array when the image type is {@link BufferedImage#TYPE_INT_ARGB}.
+	 * <p>
+	 * Objects should be sorted by hierarchy level, since combined paths are painted whenever the level changes.
+	 * Any objects that cannot be combined (e.g. annotations or points) are painted individually.
+	 *
+	 * @param img the image to paint on
+	 * @param request the region of the image corresponding to the image
+	 * @param pathObjects the objects to paint
+	 * @param overlayOptions the overlay options defining how objects should be painted
+	 * @return the number of objects that were painted
+	 * @since v0.7.0
+	 */
+	public static int paintDetectionsBatched(BufferedImage img, RegionRequest request, Collection<? extends PathObject> pathObjects, OverlayOptions overlayOptions) {
+		if (pathObjects == null || pathObjects.isEmpty())
+			return 0;
+
+		double downsample = request.getDownsample();
+		Graphics2D g2d = img.createGraphics();
+		g2d.scale(1.0/downsample, 1.0/downsample);
+		g2d.translate(-request.getX(), -request.getY());
+		g2d.setClip(AwtTools.getBounds(request));
+		var clip = g2d.getClipBounds();
+
+		var batch = new DetectionBatch(img, request);
+		int count = 0;
+		int lastLevel = -1;
+		for (PathObject pathObject : pathObjects) {
+			if (Thread.currentThread().isInterrupted())
+				break;
+			ROI roi = pathObject.getROI();
+			if (roi == null || !roiIntersectsClipBounds(g2d, roi))
+				continue;
+
+			// Retain the painting order for objects at different levels
+			int level = pathObject.getLevel();
+			if (level != lastLevel) {
+				batch.paint(g2d);
+				lastLevel = level;
+			}
+
+			if (!pathObject.isDetection() || !RoiTools.isShapeROI(roi)) {
+				batch.paint(g2d);
+				if (paintObject(pathObject, g2d, overlayOptions, null, downsample))
+					count++;
+				continue;
+			}
+
+			if (overlayOptions.isHidden(pathObject) || isHiddenObjectType(pathObject, overlayOptions))
+				continue;
+
+			// A null color means that the object shouldn't be painted
+			Color color = getBaseObjectColor(pathObject, overlayOptions, false);
+			if (color == null)
+				continue;
+			count++;
+
+			if (isRoiTinyAfterDownsampling(roi, downsample)) {
+				batch.addCentroid(roi, color);
+				continue;
+			}
+
+			// Determine stroke/fill colors in the same way as paintObject
+			Color colorFill = updateFillColorFromBase(pathObject, color, overlayOptions);
+			Color colorStroke = updateStrokeColorFromBase(pathObject, color, overlayOptions);
+			if (colorFill != null && colorFill.equals(colorStroke))
+				colorStroke = ColorToolsAwt.darkenColor(color);
+			Stroke stroke = colorStroke == null ? null : calculateStroke(pathObject, downsample, false);
+
+			if (colorFill != null && pathObject.hasChildObjects())
+				colorFill = ColorToolsAwt.getColorWithOpacity(colorFill, 0.1);
+
+			if (shouldPaintRoiAsSymbol(pathObject, overlayOptions)) {
+				batch.add(getCentroidSymbol(pathObject), colorStroke, stroke, colorFill, false);
+			} else if (pathObject instanceof PathCellObject cell) {
+				if (overlayOptions.getShowCellBoundaries())
+					batch.add(shapeProvider.getShape(roi, downsample, clip), colorStroke, stroke, colorFill, false);
+				var nucleus = cell.getNucleusROI();
+				if (overlayOptions.getShowCellNuclei() && nucleus != null)
+					batch.add(shapeProvider.getShape(nucleus, downsample, clip), colorStroke, stroke, colorFill, true);
+			} else {
+				batch.add(shapeProvider.getShape(roi, downsample, clip), colorStroke, stroke, roi.isArea() ? colorFill : null, false);
+			}
+		}
+		batch.paint(g2d);
+		g2d.dispose();
+		return count;
+	}
+
+
 	/**
 	 * Paint the specified tissue microarray grid.
 	 * 
@@ -630,6 +731,104 @@ public class PathObjectPainter {
 	}
 
 
+	/**
+	 * Key used to group shapes that can be painted together.
+	 * Nuclei are kept separate from cell boundaries, so that overlapping fills are combined in the same way
+	 * as when painting individually.
+	 */
+	private record BatchKey(Color colorStroke, Stroke stroke, Color colorFill, boolean nucleus) {}
+
+	/**
+	 * Detections waiting to be painted by {@link #paintDetectionsBatched(BufferedImage, RegionRequest, Collection, OverlayOptions)}.
+	 * Shapes are accumulated into one path per {@link BatchKey}, while centroids are stored in primitive arrays.
+	 */
+	private static class DetectionBatch {
+
+		private final Map<BatchKey, Path2D> paths = new LinkedHashMap<>();
+
+		private final int width;
+		private final int height;
+		private final double x;
+		private final double y;
+		private final double downsample;
+		// Pixels of the image, if we can write to them directly
+		private final int[] pixels;
+
+		// Centroid x, y, half-size and ARGB color in the output image
+		private int nCentroids = 0;
+		private int[] centroids = new int[256];
+
+		DetectionBatch(BufferedImage img, RegionRequest request) {
+			this.width = img.getWidth();
+			this.height = img.getHeight();
+			this.x = request.getX();
+			this.y = request.getY();
+			this.downsample = request.getDownsample();
+			var raster = img.getRaster();
+			if (img.getType() == BufferedImage.TYPE_INT_ARGB && raster.getParent() == null &&
+					raster.getDataBuffer() instanceof DataBufferInt buffer &&
+					raster.getSampleModel() instanceof SinglePixelPackedSampleModel sampleModel &&
+					sampleModel.getScanlineStride() == width && buffer.getOffset() == 0)
+				this.pixels = buffer.getData();
+			else
+				this.pixels = null;
+		}
+
+		void add(Shape shape, Color colorStroke, Stroke stroke, Color colorFill, boolean nucleus) {
+			if (colorStroke == null && colorFill == null)
+				return;
+			var key = new BatchKey(colorStroke, colorStroke == null ? null : stroke, colorFill, nucleus);
+			paths.computeIfAbsent(key, k -> new Path2D.Double()).append(shape, false);
+		}
+
+		/**
+		 * Add a centroid for a tiny ROI.
+		 * This can only be written directly for opaque colors; otherwise, the ROI bounds are filled.
+		 */
+		void addCentroid(ROI roi, Color color) {
+			if (pixels == null || color.getAlpha() != 255) {
+				int w = (int)Math.ceil(roi.getBoundsWidth());
+				int h = (int)Math.ceil(roi.getBoundsHeight());
+				if (w > 0 && h > 0)
+					add(new Rectangle((int)roi.getBoundsX(), (int)roi.getBoundsY(), w, h), null, null, color, false);
+				return;
+			}
+			if (nCentroids * 4 == centroids.length)
+				centroids = Arrays.copyOf(centroids, centroids.length * 2);
+			int ind = nCentroids * 4;
+			centroids[ind] = (int)Math.floor((roi.getCentroidX() - x) / downsample);
+			centroids[ind+1] = (int)Math.floor((roi.getCentroidY() - y) / downsample);
+			centroids[ind+2] = (int)(Math.max(roi.getBoundsWidth(), roi.getBoundsHeight()) / downsample / 2.0);
+			centroids[ind+3] = color.getRGB();
+			nCentroids++;
+		}
+
+		/**
+		 * Paint and then clear all the shapes and centroids.
+		 */
+		void paint(Graphics2D g2d) {
+			for (var entry : paths.entrySet()) {
+				var key = entry.getKey();
+				paintShape(entry.getValue(), g2d, key.colorStroke(), key.stroke(), key.colorFill());
+			}
+			paths.clear();
+			for (int i = 0; i < nCentroids * 4; i += 4) {
+				int half = centroids[i+2];
+				int argb = centroids[i+3];
+				int xStart = Math.max(0, centroids[i] - half);
+				int xEnd = Math.min(width, centroids[i] + half + 1);
+				int yEnd = Math.min(height, centroids[i+1] + half + 1);
+				if (xStart >= xEnd)
+					continue;
+				for (int yy = Math.max(0, centroids[i+1] - half); yy < yEnd; yy++)
+					Arrays.fill(pixels, yy * width + xStart, yy * width + xEnd, argb);
+			}
+			nCentroids = 0;
+		}
+
+	}
+
+
 	abstract static class ShapePool<T extends Shape> {
 
 		private Map<Thread, T> map = new WeakHashMap<>();
@@ -0,0 +1,201 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.gui.viewer.overlays;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import qupath.lib.common.ThreadTools;
+
+/**
+ * Scheduler for tile requests made by overlays, shared across all overlays and viewers.
+ * <p>
+ * Each overlay submits the requests needed to paint its current view, in order of priority. 
+ * Submitting requests for a view cancels any requests for the same view that are queued but not yet running, 
+ * so that tiles are not computed for regions that the user has already panned away from.
+ * Requests from the most recent submission are run first, and each overlay can limit how many of 
+ * its requests run concurrently.
+ * <p>
+ * Requests that are already running cannot be cancelled.
+ * 
+ * @author Pete Bankhead
+ * @since v0.7.0
+ */
+class OverlayTileScheduler {
+	
+	private static final Logger logger = LoggerFactory.getLogger(OverlayTileScheduler.class);
+	
+	/**
+	 * A request to compute something for an overlay.
+	 * @param key key identifying the request; this is used to avoid queueing a request that is already running
+	 * @param task the task to run
+	 */
+	record Request(Object key, Runnable task) {}
+	
+	private record ScheduledRequest(Object owner, Object view, int maxThreads, Request request, long generation, int index, long sequence) {}
+	
+	/**
+	 * Requests from the latest submission first, then in the order they were submitted.
+	 */
+	private static final Comparator<ScheduledRequest> PRIORITY = Comparator
+			.comparingLong(ScheduledRequest::generation).reversed()
+			.thenComparingInt(ScheduledRequest::index)
+			.thenComparingLong(ScheduledRequest::sequence);
+	
+	private static final OverlayTileScheduler INSTANCE = new OverlayTileScheduler();
+	
+	private final ExecutorService pool = Executors.newCachedThreadPool(
+			ThreadTools.createThreadFactory("overlay-tiles", true, Thread.NORM_PRIORITY-2));
+	
+	private final TreeSet<ScheduledRequest> queue = new TreeSet<>(PRIORITY);
+	private final Map<Object, Integer> runningCounts = new HashMap<>();
+	private final Map<Object, Set<Object>> runningKeys = new HashMap<>();
+	private int nRunning = 0;
+	
+	private long generation = 0L;
+	private long sequence = 0L;
+	
+	/**
+	 * Get the shared scheduler.
+	 * @return
+	 */
+	static OverlayTileScheduler getInstance() {
+		return INSTANCE;
+	}
+	
+	/**
+	 * Submit the requests needed for a view, replacing any queued requests for the same view.
+	 * Requests with the same key as a running request for the owner are skipped.
+	 * 
+	 * @param owner the owner of the requests (usually an overlay)
+	 * @param view the view for which the requests are made; an owner may have requests for several views
+	 * @param maxThreads the maximum number of requests from this owner that may run concurrently
+	 * @param requests the requests, in order of priority
+	 * @return the number of queued requests that were cancelled because they are no longer needed
+	 */
+	synchronized int submit(Object owner, Object view, int maxThreads, List<Request> requests) {
+		Set<Object> newKeys = new HashSet<>();
+		for (var request : requests)
+			newKeys.add(request.key());
+		int nCancelled = 0;
+		var iter = queue.iterator();
+		while (iter.hasNext()) {
+			var scheduled = iter.next();
+			if (scheduled.owner() == owner && Objects.equals(scheduled.view(), view)) {
+				if (!newKeys.contains(scheduled.request().key()))
+					nCancelled++;
+				iter.remove();
+			}
+		}
+		
+		long gen = ++generation;
+		var running = runningKeys.getOrDefault(owner, Set.of());
+		int index = 0;
+		for (var request : requests) {
+			if (!running.contains(request.key()))
+				queue.add(new ScheduledRequest(owner, view, Math.max(1, maxThreads), request, gen, index++, sequence++));
+		}
+		if (nCancelled > 0)
+			logger.trace("Cancelled {} obsolete tile requests", nCancelled);
+		dispatch();
+		return nCancelled;
+	}
+	
+	/**
+	 * Cancel all queued requests for an owner.
+	 * @param owner
+	 * @return the number of requests that were cancelled
+	 */
+	synchronized int cancel(Object owner) {
+		int n = queue.size();
+		queue.removeIf(r -> r.owner() == owner);
+		return n - queue.size();
+	}
+	
+	/**
+	 * Get the number of requests that are queued, but not running.
+	 * @return
+	 */
+	synchronized int getQueuedCount() {
+		return queue.size();
+	}
+	
+	/**
+	 * Start as many queued requests as we can, in order of priority.
+	 * The total number of running requests is limited by the parallelism, or the largest number of threads 
+	 * requested by any owner (if this is higher).
+	 */
+	private void dispatch() {
+		var iter = queue.iterator();
+		while (iter.hasNext()) {
+			var scheduled = iter.next();
+			if (nRunning >= Math.max(ThreadTools.getParallelism(), scheduled.maxThreads()))
+				continue;
+			var owner = scheduled.owner();
+			int n = runningCounts.getOrDefault(owner, 0);
+			if (n >= scheduled.maxThreads())
+				continue;
+			iter.remove();
+			runningCounts.put(owner, n + 1);
+			runningKeys.computeIfAbsent(owner, o -> new HashSet<>()).add(scheduled.request().key());
+			nRunning++;
+			pool.execute(() -> run(scheduled));
+		}
+	}
+	
+	private void run(ScheduledRequest scheduled) {
+		try {
+			scheduled.request().task().run();
+		} catch (Exception e) {
+			logger.error("Error running overlay request: " + e.getLocalizedMessage(), e);
+		} finally {
+			synchronized (this) {
+				var owner = scheduled.owner();
+				int n = runningCounts.getOrDefault(owner, 1) - 1;
+				if (n <= 0)
+					runningCounts.remove(owner);
+				else
+					runningCounts.put(owner, n);
+				var keys = runningKeys.get(owner);
+				if (keys != null) {
+					keys.remove(scheduled.request().key());
+					if (keys.isEmpty())
+						runningKeys.remove(owner);
+				}
+				nRunning--;
+				dispatch();
+			}
+		}
+	}
+
+}
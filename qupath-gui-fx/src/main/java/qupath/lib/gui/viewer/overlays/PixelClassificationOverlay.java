@@ -42,6 +42,7 @@ import qupath.lib.images.servers.TileRequest;
 import qupath.lib.objects.PathObject;
 import qupath.lib.regions.ImageRegion;
 import qupath.lib.regions.RegionRequest;
+import qupath.opencv.ml.pixel.PixelClassifierTools;
 import qupath.opencv.ops.ImageDataOp;
 import qupath.opencv.ops.ImageDataServer;
 import qupath.opencv.ops.ImageOps;
@@ -58,14 +59,13 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.function.Function;
 
 import org.slf4j.Logger;
@@ -90,11 +90,10 @@ public class PixelClassificationOverlay extends AbstractImageOverlay  {
     private long rendererLastTimestamp = 0L;
 
     private final Map<BufferedImage, BufferedImage> cacheRGB = Collections.synchronizedMap(new WeakHashMap<>());
-    private final Set<TileRequest> pendingRequests = Collections.synchronizedSet(new HashSet<>());
     private final Set<TileRequest> currentRequests = Collections.synchronizedSet(new HashSet<>());
 
     private int maxThreads = ThreadTools.getParallelism();
-    private final ThreadPoolExecutor pool;
+    private volatile boolean stopped = false;
     
     private final Function<ImageData<BufferedImage>, ImageServer<BufferedImage>> fun;
     
@@ -118,13 +117,9 @@ public class PixelClassificationOverlay extends AbstractImageOverlay  {
 //        if (classifierServer.getClassifier() instanceof OpenCVPixelClassifierDNN)
 //        	nThreads = 1;
         
-        var threadFactory = ThreadTools.createThreadFactory(
-				"classifier-overlay", true, Thread.NORM_PRIORITY-2);
-        
+        // Tiles are computed using a pool shared across all overlays, which prioritizes the current view
         if (nThreads > 0)
         	maxThreads = nThreads;
-        pool = (ThreadPoolExecutor)Executors.newFixedThreadPool(
-        		maxThreads, threadFactory);
         
         this.renderer.addListener((v, o, n) -> cacheRGB.clear());
         
@@ -306,10 +301,6 @@ public class PixelClassificationOverlay extends AbstractImageOverlay  {
      */
     public void setMaxThreads(int nThreads) {
     	maxThreads = Math.max(1, nThreads);
-    	if (maxThreads < pool.getCorePoolSize())
-    		pool.setCorePoolSize(maxThreads);
-    	pool.setMaximumPoolSize(maxThreads);
-    	pool.setCorePoolSize(maxThreads);
 		logger.debug("Number of parallel threads set to {}", nThreads);
     }
     
@@ -436,12 +427,10 @@ public class PixelClassificationOverlay extends AbstractImageOverlay  {
         			);
         }
 
-        // Clear pending requests, since we'll insert new ones (perhaps in a different order)
-    	this.pendingRequests.clear();
-
 //        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR)
 
         // Loop through & paint classified tiles if we have them, or request tiles if we don't
+        List<TileRequest> tilesToRequest = new ArrayList<>();
         for (TileRequest tile : tiles) {
         	
         	var request = tile.getRegionRequest();
@@ -476,9 +465,12 @@ public class PixelClassificationOverlay extends AbstractImageOverlay  {
             
             // Request a tile
             if (livePrediction) {
-            	requestTile(tile, imageData, server);
+            	tilesToRequest.add(tile);
             }
         }
+        // Replace any queued requests, since we only need the tiles for the current view
+        if (livePrediction)
+        	requestTiles(tilesToRequest, imageData, server);
         gCopy.dispose();
     }
 
@@ -544,9 +536,10 @@ public class PixelClassificationOverlay extends AbstractImageOverlay  {
      * Stop the overlap, halting any pending tile requests.
      */
     public void stop() {
-    	List<Runnable> pending = this.pool.shutdownNow();
+    	stopped = true;
+    	int nCancelled = OverlayTileScheduler.getInstance().cancel(this);
     	clearCache();
-    	logger.debug("Stopped classification overlay, dropped {} requests", pending.size());
+    	logger.debug("Stopped classification overlay, dropped {} requests", nCancelled);
     }
     
     /**
@@ -560,43 +553,93 @@ public class PixelClassificationOverlay extends AbstractImageOverlay  {
     
 
     void requestTile(TileRequest tile, ImageData<BufferedImage> imageData, ImageServer<BufferedImage> classifierServer) {
-        // Make the request, if it isn't already pending
-        if (!pool.isShutdown() && pendingRequests.add(tile)) {
-            pool.submit(() -> {
-            	if (pool.isShutdown())
-            		return;
-            	// Check we still need to make the request
-            	if (!pendingRequests.contains(tile) || !currentRequests.add(tile)) {
-            		return;
-            	}
-            	var changed = new ArrayList<PathObject>();
-                var hierarchy = imageData == null ? null : imageData.getHierarchy();
-                try {
-                	classifierServer.readRegion(tile.getRegionRequest());
-                	repaintAllViewers();
-                    var channelType = classifierServer.getMetadata().getChannelType();
-                    if (channelType == ChannelType.CLASSIFICATION || channelType == ChannelType.PROBABILITY || channelType == ChannelType.MULTICLASS_PROBABILITY) {
-		                if (hierarchy != null) {
-//		                	if (pendingRequests.size() <= 1)
-//		                		changed.add(hierarchy.getRootObject());
-	                		changed.add(hierarchy.getRootObject());
-		                	hierarchy.getAnnotationsForRegion(tile.getRegionRequest(), changed);
-//		                	changed.addAll(hierarchy.getAnnotationObjects());
-		                }
-                    }
-                } catch (Exception e) {
-                   logger.error("Error requesting tile classification", e);
-                } finally {
-                    currentRequests.remove(tile);
-                    pendingRequests.remove(tile);
-                    if (hierarchy != null && !changed.isEmpty()) {
-	                	Platform.runLater(() -> {
-	                		// TODO: We don't want to fire a load of 'heavy' events, so we state that isChanging = true (beware this may need revised!)
-	                		hierarchy.fireObjectMeasurementsChangedEvent(this, changed, true); //!pendingRequests.isEmpty());
-	                	});
-                    }
+    	requestTiles(Collections.singletonList(tile), imageData, classifierServer);
+    }
+    
+    /**
+     * Request the tiles needed for the current view, replacing any requests for the same image that are still queued.
+     * Full-resolution tiles from a {@link PixelClassificationImageServer} are grouped into batches, 
+     * so that they can be classified together.
+     * The order of the tiles is preserved, so the first tiles should be the most important.
+     */
+    void requestTiles(List<TileRequest> tiles, ImageData<BufferedImage> imageData, ImageServer<BufferedImage> classifierServer) {
+    	if (stopped)
+    		return;
+    	boolean canBatch = tiles.size() > 1 && classifierServer instanceof PixelClassificationImageServer;
+    	double fullResDownsample = classifierServer.getDownsampleForResolution(0);
+    	int nFullRes = 0;
+    	if (canBatch) {
+    		for (var tile : tiles) {
+    			if (Math.abs(tile.getDownsample() - fullResDownsample) < 1e-6)
+    				nFullRes++;
+    		}
+    	}
+    	int batchSize = PixelClassifierTools.getPrefetchBatchSize(nFullRes, maxThreads);
+    	List<OverlayTileScheduler.Request> requests = new ArrayList<>();
+    	List<TileRequest> batch = new ArrayList<>();
+    	for (var tile : tiles) {
+    		// Skip tiles that are already being computed
+    		if (currentRequests.contains(tile))
+    			continue;
+    		if (canBatch && Math.abs(tile.getDownsample() - fullResDownsample) < 1e-6) {
+    			batch.add(tile);
+    			if (batch.size() >= batchSize) {
+    				requests.add(createRequest(batch, imageData, classifierServer));
+    				batch = new ArrayList<>();
+    			}
+    		} else
+    			requests.add(createRequest(Collections.singletonList(tile), imageData, classifierServer));
+    	}
+    	if (!batch.isEmpty())
+    		requests.add(createRequest(batch, imageData, classifierServer));
+    	OverlayTileScheduler.getInstance().submit(this, imageData, maxThreads, requests);
+    }
+    
+    private OverlayTileScheduler.Request createRequest(List<TileRequest> tiles, ImageData<BufferedImage> imageData, ImageServer<BufferedImage> classifierServer) {
+    	var key = List.copyOf(tiles);
+    	return new OverlayTileScheduler.Request(key, () -> computeTiles(key, imageData, classifierServer));
+    }
+    
+    private void computeTiles(List<TileRequest> tiles, ImageData<BufferedImage> imageData, ImageServer<BufferedImage> classifierServer) {
+    	if (stopped)
+    		return;
+    	// Check the tiles aren't already being computed as part of another request
+    	List<TileRequest> batch = new ArrayList<>();
+    	for (var tile : tiles) {
+    		if (currentRequests.add(tile))
+    			batch.add(tile);
+    	}
+    	if (batch.isEmpty())
+    		return;
+    	var changed = new LinkedHashSet<PathObject>();
+        var hierarchy = imageData == null ? null : imageData.getHierarchy();
+        try {
+        	if (batch.size() > 1 && classifierServer instanceof PixelClassificationImageServer server)
+        		server.prefetchTiles(batch, batch.size());
+        	for (var tile : batch) {
+        		if (classifierServer.getCachedTile(tile) == null)
+        			classifierServer.readRegion(tile.getRegionRequest());
+        	}
+        	repaintAllViewers();
+            var channelType = classifierServer.getMetadata().getChannelType();
+            if (channelType == ChannelType.CLASSIFICATION || channelType == ChannelType.PROBABILITY || channelType == ChannelType.MULTICLASS_PROBABILITY) {
+                if (hierarchy != null) {
+            		changed.add(hierarchy.getRootObject());
+            		for (var tile : batch)
+            			changed.addAll(hierarchy.getAnnotationsForRegion(tile.getRegionRequest()));
                 }
-            });
+            }
+        } catch (Exception e) {
+           logger.error("Error requesting tile classification", e);
+        } finally {
+            currentRequests.removeAll(batch);
+            if (hierarchy != null && !changed.isEmpty()) {
+            	var changedList = new ArrayList<>(changed);
+            	Platform.runLater(() -> {
+            		// TODO: We don't want to fire a load of 'heavy' events, so we state that isChanging = true (beware this may need revised!)
+            		hierarchy.fireObjectMeasurementsChangedEvent(this, changedList, true);
+            	});
+            }
         }
     }
     
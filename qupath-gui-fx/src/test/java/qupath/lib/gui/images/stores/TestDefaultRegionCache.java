@@ -0,0 +1,168 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.gui.images.stores;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import qupath.lib.regions.RegionRequest;
+
+@SuppressWarnings("javadoc")
+public class TestDefaultRegionCache {
+
+	// Values are their own size in bytes
+	private static final SizeEstimator<Long> ESTIMATOR = v -> v;
+
+	@Test
+	public void test_capacityLimit() {
+		var cache = new DefaultRegionCache<>(ESTIMATOR, 10, Long.MAX_VALUE, 4);
+		for (int i = 0; i < 50; i++)
+			cache.put(createRequest(i), 1L);
+		assertEquals(10, cache.size());
+		var stats = cache.getStatistics();
+		assertEquals(10, stats.tileCount());
+		assertEquals(40, stats.evictionCount());
+		assertEquals(10, stats.sizeBytes());
+		// The most recent entry should always be retained
+		assertTrue(cache.containsKey(createRequest(49)));
+	}
+
+	@Test
+	public void test_memoryLimit() {
+		var cache = new DefaultRegionCache<>(ESTIMATOR, 1000, 100, 4);
+		for (int i = 0; i < 10; i++) {
+			cache.put(createRequest(i), 30L);
+			assertTrue(cache.getStatistics().sizeBytes() <= 100);
+		}
+		assertEquals(3, cache.size());
+		assertEquals(90, cache.getStatistics().sizeBytes());
+
+		// Values that can never fit shouldn't be stored, and should replace any previous value
+		var request = createRequest(9);
+		assertTrue(cache.containsKey(request));
+		assertNull(cache.put(createRequest(100), 200L));
+		assertFalse(cache.containsKey(createRequest(100)));
+		assertEquals(30L, cache.put(request, 200L));
+		assertFalse(cache.containsKey(request));
+		assertEquals(60, cache.getStatistics().sizeBytes());
+
+		// Replacing a value should update the memory used
+		cache.put(createRequest(8), 10L);
+		assertEquals(40, cache.getStatistics().sizeBytes());
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getStatistics().sizeBytes());
+	}
+
+	@Test
+	public void test_lruOrder() {
+		// Use a single segment so that the order is exact
+		var cache = new DefaultRegionCache<>(ESTIMATOR, 3, Long.MAX_VALUE, 1);
+		cache.put(createRequest(0), 1L);
+		cache.put(createRequest(1), 1L);
+		cache.put(createRequest(2), 1L);
+		// Accessing the eldest entry should protect it from eviction
+		assertEquals(1L, cache.get(createRequest(0)));
+		cache.put(createRequest(3), 1L);
+		assertTrue(cache.containsKey(createRequest(0)));
+		assertFalse(cache.containsKey(createRequest(1)));
+		cache.put(createRequest(4), 1L);
+		assertFalse(cache.containsKey(createRequest(2)));
+		assertTrue(cache.containsKey(createRequest(0)));
+		assertTrue(cache.containsKey(createRequest(3)));
+		assertTrue(cache.containsKey(createRequest(4)));
+	}
+
+	@Test
+	public void test_statistics() {
+		var cache = new DefaultRegionCache<>(ESTIMATOR, 2, 1000, 2);
+		assertTrue(Double.isNaN(cache.getStatistics().hitRate()));
+		cache.put(createRequest(0), 10L);
+		cache.put(createRequest(1), 20L);
+		assertEquals(10L, cache.get(createRequest(0)));
+		assertEquals(20L, cache.get(createRequest(1)));
+		assertNull(cache.get(createRequest(2)));
+		cache.put(createRequest(2), 30L);
+
+		var stats = cache.getStatistics();
+		assertEquals(2, stats.hitCount());
+		assertEquals(1, stats.missCount());
+		assertEquals(1, stats.evictionCount());
+		assertEquals(2, stats.tileCount());
+		assertEquals(1000, stats.maxSizeBytes());
+		assertEquals(2.0 / 3.0, stats.hitRate(), 1e-6);
+	}
+
+	@Test
+	public void test_concurrentAccess() throws Exception {
+		int maxCapacity = 100;
+		var cache = new DefaultRegionCache<>(ESTIMATOR, maxCapacity, 5000, 8);
+		int nThreads = 8;
+		ExecutorService pool = Executors.newFixedThreadPool(nThreads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < nThreads; t++) {
+				int offset = t;
+				futures.add(pool.submit(() -> {
+					for (int i = 0; i < 2000; i++) {
+						var request = createRequest((i * 7 + offset * 13) % 500);
+						if (cache.get(request) == null)
+							cache.put(request, (long)(1 + i % 100));
+					}
+				}));
+			}
+			for (var future : futures)
+				future.get();
+		} finally {
+			pool.shutdown();
+		}
+		// Limits should be respected once all threads have finished,
+		// and the counters should match the entries
+		assertTrue(cache.size() <= maxCapacity);
+		long sum = 0;
+		int count = 0;
+		for (var entry : cache.entrySet()) {
+			sum += entry.getValue();
+			count++;
+		}
+		var stats = cache.getStatistics();
+		assertEquals(count, stats.tileCount());
+		assertEquals(sum, stats.sizeBytes());
+		assertTrue(stats.sizeBytes() <= 5000);
+		assertEquals(nThreads * 2000, stats.hitCount() + stats.missCount());
+	}
+
+	private static RegionRequest createRequest(int i) {
+		return RegionRequest.createInstance("test", 1.0, (i % 20) * 256, (i / 20) * 256, 256, 256);
+	}
+
+}
@@ -0,0 +1,118 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+package qupath.lib.gui.images.stores;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import qupath.lib.images.servers.WrappedBufferedImageServer;
+import qupath.lib.regions.RegionRequest;
+
+@SuppressWarnings("javadoc")
+public class TestDiskTileCache {
+
+	@Test
+	public void test_readWrite(@TempDir Path dir) throws Exception {
+		var server = new UriImageServer(createImage());
+		var request = RegionRequest.createInstance(server.getPath(), 1.0, 0, 0, 64, 32);
+		try (var cache = DiskTileCache.create(dir, 100 * 1024 * 1024, 0)) {
+			assertTrue(cache.supportsServer(server));
+			assertNull(cache.get(server, request));
+
+			var tile = server.readRegion(request);
+			cache.put(server, request, tile);
+			waitFor(() -> cache.getStatistics().tileCount() == 1);
+
+			var tile2 = cache.get(server, request);
+			assertNotNull(tile2);
+			assertEquals(tile.getWidth(), tile2.getWidth());
+			assertEquals(tile.getRGB(10, 20), tile2.getRGB(10, 20));
+
+			// Different requests shouldn't match
+			assertNull(cache.get(server, RegionRequest.createInstance(server.getPath(), 2.0, 0, 0, 64, 32)));
+
+			var stats = cache.getStatistics();
+			assertEquals(1, stats.hitCount());
+			assertEquals(2, stats.missCount());
+			assertEquals(100 * 1024 * 1024, stats.maxSizeBytes());
+			assertTrue(stats.sizeBytes() > 64 * 32 * 4);
+		}
+	}
+
+	@Test
+	public void test_unsupportedServer(@TempDir Path dir) throws Exception {
+		// Servers without URIs can't be identified across sessions, so aren't cached
+		var server = new WrappedBufferedImageServer("in-memory", createImage());
+		var request = RegionRequest.createInstance(server.getPath(), 1.0, 0, 0, 64, 32);
+		try (var cache = DiskTileCache.create(dir, 100 * 1024 * 1024, 0)) {
+			assertFalse(cache.supportsServer(server));
+			cache.put(server, request, server.readRegion(request));
+			Thread.sleep(100);
+			assertNull(cache.get(server, request));
+			assertEquals(0, cache.getStatistics().tileCount());
+		}
+	}
+
+	private static BufferedImage createImage() {
+		var img = new BufferedImage(128, 64, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < img.getHeight(); y++) {
+			for (int x = 0; x < img.getWidth(); x++)
+				img.setRGB(x, y, x << 16 | y << 8 | (x + y) % 256);
+		}
+		return img;
+	}
+
+	private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+		long endTime = System.currentTimeMillis() + 5000;
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.currentTimeMillis() < endTime, "Timed out waiting for disk cache");
+			Thread.sleep(10);
+		}
+	}
+
+	private static class UriImageServer extends WrappedBufferedImageServer {
+
+		UriImageServer(BufferedImage img) {
+			super("remote", img);
+		}
+
+		@Override
+		public Collection<URI> getURIs() {
+			return List.of(URI.create("https://example.org/images/remote.tif"));
+		}
+
+	}
+
+}
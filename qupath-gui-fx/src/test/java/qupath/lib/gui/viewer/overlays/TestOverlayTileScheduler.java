@@ -0,0 +1,158 @@
+/*-
+ * #%L
+ * This file is part of QuPath.
+ * %%
+ * Copyright (C) 2025 QuPath developers, The University of Edinburgh
+ * %%
+ * QuPath is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * QuPath is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with QuPath.  If not, see <https://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+
+package qupath.lib.gui.viewer.overlays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import qupath.lib.gui.viewer.overlays.OverlayTileScheduler.Request;
+
+public class TestOverlayTileScheduler {
+	
+	private final Set<Object> completed = ConcurrentHashMap.newKeySet();
+	
+	@Test
+	public void test_submitReplacesQueued() throws Exception {
+		var scheduler = new OverlayTileScheduler();
+		var owner = new Object();
+		var image = "image";
+		var latch = new CountDownLatch(1);
+		
+		// With a single thread, only the first request can run
+		scheduler.submit(owner, image, 1, List.of(
+				blockingRequest("running", latch),
+				request("a"),
+				request("b")));
+		assertEquals(2, scheduler.getQueuedCount());
+		
+		// Requests for the same image are replaced, but only those that aren't needed any more are counted as cancelled.
+		// The request that is already running shouldn't be queued again.
+		int nCancelled = scheduler.submit(owner, image, 1, List.of(
+				request("running"),
+				request("b"),
+				request("c")));
+		assertEquals(1, nCancelled);
+		assertEquals(2, scheduler.getQueuedCount());
+		
+		// Requests for another image are kept
+		scheduler.submit(owner, "other", 1, List.of(request("d")));
+		assertEquals(3, scheduler.getQueuedCount());
+		assertEquals(2, scheduler.submit(owner, image, 1, List.of()));
+		assertEquals(1, scheduler.getQueuedCount());
+		
+		latch.countDown();
+		awaitCompleted(Set.of("running", "d"));
+		assertEquals(Set.of("running", "d"), completed);
+	}
+	
+	@Test
+	public void test_cancel() throws Exception {
+		var scheduler = new OverlayTileScheduler();
+		var owner = new Object();
+		var otherOwner = new Object();
+		var latch = new CountDownLatch(1);
+		
+		scheduler.submit(owner, "image", 1, List.of(
+				blockingRequest("running", latch),
+				request("a"),
+				request("b")));
+		assertEquals(2, scheduler.getQueuedCount());
+		// This may or may not be able to run immediately, depending upon the parallelism
+		scheduler.submit(otherOwner, "image", 1, List.of(request("c")));
+		
+		// Cancelling (as when an overlay is stopped) should only remove queued requests for the owner
+		assertEquals(2, scheduler.cancel(owner));
+		assertEquals(0, scheduler.cancel(owner));
+		
+		latch.countDown();
+		awaitCompleted(Set.of("running", "c"));
+		assertEquals(Set.of("running", "c"), completed);
+		assertEquals(0, scheduler.getQueuedCount());
+	}
+	
+	@Test
+	public void test_maxThreads() throws Exception {
+		var scheduler = new OverlayTileScheduler();
+		var owner = new Object();
+		int maxThreads = 2;
+		int n = 20;
+		var running = new AtomicInteger();
+		var maxRunning = new AtomicInteger();
+		List<Request> requests = new ArrayList<>();
+		Set<Object> keys = new HashSet<>();
+		for (int i = 0; i < n; i++) {
+			var key = "request-" + i;
+			keys.add(key);
+			requests.add(new Request(key, () -> {
+				maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				try {
+					Thread.sleep(10L);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					running.decrementAndGet();
+					completed.add(key);
+				}
+			}));
+		}
+		scheduler.submit(owner, "image", maxThreads, requests);
+		awaitCompleted(keys);
+		assertTrue(maxRunning.get() <= maxThreads, "Too many requests running: " + maxRunning.get());
+		assertEquals(keys, completed);
+	}
+	
+	private Request request(String key) {
+		return new Request(key, () -> completed.add(key));
+	}
+	
+	private Request blockingRequest(String key, CountDownLatch latch) {
+		return new Request(key, () -> {
+			try {
+				latch.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			completed.add(key);
+		});
+	}
+	
+	private void awaitCompleted(Set<Object> keys) throws InterruptedException {
+		long timeout = System.currentTimeMillis() + 10_000L;
+		while (!completed.containsAll(keys) && System.currentTimeMillis() < timeout)
+			Thread.sleep(5L);
+		// Give any requests that shouldn't have run a chance to do so
+		Thread.sleep(50L);
+	}
+
+}